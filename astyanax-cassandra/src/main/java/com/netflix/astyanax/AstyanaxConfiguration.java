@@ -99,4 +99,58 @@ public interface AstyanaxConfiguration {
      * @return Return maximum thrift packet size
      */
     int getMaxThriftSize();
+
+    /**
+     * @return Maximum number of bytes of thrift frame buffers kept for reuse by the connections of a connection
+     *         pool.  Requests of up to a quarter of this size are written through pooled buffers.
+     *         0, the default, uses a plain framed transport that allocates the buffers of every frame.
+     */
+    long getFrameBufferPoolSize();
+
+    /**
+     * @return Maximum estimated size in bytes of the client side row cache used by queries with
+     *         caching enabled.  0 disables the row cache.
+     */
+    long getRowCacheMaxSizeInBytes();
+
+    /**
+     * @return Time in milliseconds a cached row of the column family may be served from the row cache.
+     *         0 disables caching for the column family.
+     */
+    long getRowCacheTtlMillis(String columnFamilyName);
+
+    /**
+     * @return Time in microseconds the first single row read of a batch waits for other reads to join it,
+     *         for queries with auto batching enabled
+     */
+    long getAutoBatchWindowMicros();
+
+    /**
+     * @return Maximum number of rows read by one auto batched multiget
+     */
+    int getAutoBatchMaxKeys();
+
+    /**
+     * @return Maximum number of rows in one of the multigets or batch_mutates that a token aware scatter splits
+     *         a row slice or a mutation batch into
+     */
+    int getScatterMaxKeys();
+
+    /**
+     * @return Estimated size in bytes of the mutations of a non-atomic mutation batch above which it is split into 
+     *         batch_mutates of at most this size, executed in parallel.  0, the default, never splits by size.
+     */
+    long getMutationBatchSplitBytes();
+
+    /**
+     * @return Number of mutations of a non-atomic mutation batch above which it is split into batch_mutates of at 
+     *         most this many mutations, executed in parallel.  0, the default, never splits by count.
+     */
+    int getMutationBatchSplitMutations();
+
+    /**
+     * @return Number of selector threads that run asynchronous operations over non-blocking connections.
+     *         0 runs asynchronous operations as blocking operations on the async executor.
+     */
+    int getNonBlockingSelectorThreads();
 }
@@ -15,10 +15,14 @@
  */
 package com.netflix.astyanax;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
@@ -49,6 +53,8 @@ import com.netflix.astyanax.shallows.EmptyKeyspaceTracerFactory;
  * @param <T>
  */
 public class AstyanaxContext<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(AstyanaxContext.class);
+
     private final ConnectionPool<?> cp;
     private final NodeDiscovery discovery;
     private final ConnectionPoolConfiguration cpConfig;
@@ -162,6 +168,13 @@ public class AstyanaxContext<T> {
 
             Supplier<List<Host>> supplier = null;
 
+            // The token aware pool fails over to remote datacenters when allowed, so their hosts are kept
+            String ringDatacenter = cpConfig.getLocalDatacenter();
+            if (asConfig.getConnectionPoolType() == ConnectionPoolType.TOKEN_AWARE
+                    && cpConfig.getMaxRemoteDatacenterFailoverCount() > 0) {
+                ringDatacenter = null;
+            }
+
             switch (getNodeDiscoveryType()) {
             case DISCOVERY_SERVICE:
                 Preconditions.checkNotNull(hostSupplier, "Missing host name supplier");
@@ -169,15 +182,15 @@ public class AstyanaxContext<T> {
                 break;
 
             case RING_DESCRIBE:
-                supplier = new RingDescribeHostSupplier(keyspace, cpConfig.getPort(), cpConfig.getLocalDatacenter());
+                supplier = new RingDescribeHostSupplier(keyspace, cpConfig.getPort(), ringDatacenter);
                 break;
 
             case TOKEN_AWARE:
                 if (hostSupplier == null) {
-                    supplier = new RingDescribeHostSupplier(keyspace, cpConfig.getPort(), cpConfig.getLocalDatacenter());
+                    supplier = new RingDescribeHostSupplier(keyspace, cpConfig.getPort(), ringDatacenter);
                 }
                 else {
-                    supplier = new FilteringHostSupplier(new RingDescribeHostSupplier(keyspace, cpConfig.getPort(), cpConfig.getLocalDatacenter()),
+                    supplier = new FilteringHostSupplier(new RingDescribeHostSupplier(keyspace, cpConfig.getPort(), ringDatacenter),
                             hostSupplier);
                 }
                 break;
@@ -259,9 +272,35 @@ public class AstyanaxContext<T> {
             discovery.start();
     }
 
+    /**
+     * Block until the connection pool is warm.  Call after {@link #start()}.
+     * 
+     * @param timeout           Maximum time to wait in milliseconds
+     * @param minHostFraction   Fraction of hosts, in the range [0, 1], that need to be up with their initial connections open
+     * @return True if the pool is ready or false if the timeout elapsed first
+     * @throws InterruptedException
+     * 
+     * @see ConnectionPool#awaitReady(long, float)
+     */
+    public boolean awaitReady(long timeout, float minHostFraction) throws InterruptedException {
+        return cp.awaitReady(timeout, minHostFraction);
+    }
+
+    /**
+     * Stop node discovery, close the resources the client holds of its own, such as the non-blocking connections 
+     * of a thrift keyspace, and shut down the connection pool
+     */
     public void shutdown() {
         if (discovery != null)
             discovery.shutdown();
+        if (client instanceof Closeable) {
+            try {
+                ((Closeable) client).close();
+            }
+            catch (IOException e) {
+                LOG.warn("Failed to close " + client, e);
+            }
+        }
         cp.shutdown();
     }
 
@@ -18,6 +18,7 @@ package com.netflix.astyanax;
 import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.model.ColumnFamily;
@@ -155,6 +156,17 @@ public interface MutationBatch extends Execution<Void> {
      */
     MutationBatch withRetryPolicy(RetryPolicy retry);
 
+    /**
+     * Bound the total time of executing this mutation, including retries, failover and waiting 
+     * for a connection, to the timeout from when the mutation is executed.  Retries that cannot 
+     * complete in time are skipped and a DeadlineExceededException is thrown once the deadline 
+     * has passed.
+     * 
+     * @param timeout
+     * @param units
+     */
+    MutationBatch withDeadline(long timeout, TimeUnit units);
+
     /**
      * Specify a write ahead log implementation to use for this mutation
      * 
@@ -197,6 +209,18 @@ public interface MutationBatch extends Execution<Void> {
      * @return MutationBatch
      */
     MutationBatch withAtomicBatch(boolean condition); 
+
+    /**
+     * Split a batch of many rows by the replicas that own the rows.  One batch_mutate of at most 
+     * {@link com.netflix.astyanax.AstyanaxConfiguration#getScatterMaxKeys()} rows is sent to each replica 
+     * set, all in parallel and each with its own retries.  If only some of them fail a 
+     * {@link com.netflix.astyanax.connectionpool.exceptions.PartialMutationException} reports the rows 
+     * that were not written and only those rows are kept in the batch.  Atomic and pinned batches are 
+     * never split.
+     * 
+     * @param condition
+     */
+    MutationBatch withTokenAwareScatter(boolean condition);
     
     /**
      * @return Serialize the entire mutation batch into a ByteBuffer.
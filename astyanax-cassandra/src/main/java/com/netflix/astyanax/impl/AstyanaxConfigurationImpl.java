@@ -18,6 +18,7 @@ package com.netflix.astyanax.impl;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
 
@@ -51,6 +52,16 @@ public class AstyanaxConfigurationImpl implements AstyanaxConfiguration {
     private String              targetCassandraVersion      = "1.1";
     private Map<String, Partitioner> partitioners           = Maps.newHashMap();
     private int                 maxThriftSize               = 16384000;
+    private long                rowCacheMaxSizeInBytes      = 0;
+    private long                rowCacheTtlMillis           = 60000;
+    private Map<String, Long>   rowCacheTtls                = Maps.newHashMap();
+    private long                autoBatchWindowMicros       = 200;
+    private int                 autoBatchMaxKeys            = 64;
+    private int                 scatterMaxKeys              = 100;
+    private long                mutationBatchSplitBytes     = 0;
+    private int                 mutationBatchSplitMutations = 0;
+    private int                 nonBlockingSelectorThreads  = 0;
+    private long                frameBufferPoolSize         = 0;
 
     public AstyanaxConfigurationImpl() {
         partitioners.put("org.apache.cassandra.dht.RandomPartitioner",
@@ -196,4 +207,103 @@ public class AstyanaxConfigurationImpl implements AstyanaxConfiguration {
         return maxThriftSize;
     }
 
+    public AstyanaxConfigurationImpl setFrameBufferPoolSize(long bytes) {
+        this.frameBufferPoolSize = bytes;
+        return this;
+    }
+
+    @Override
+    public long getFrameBufferPoolSize() {
+        return frameBufferPoolSize;
+    }
+
+    public AstyanaxConfigurationImpl setRowCacheMaxSizeInBytes(long maxSizeInBytes) {
+        this.rowCacheMaxSizeInBytes = maxSizeInBytes;
+        return this;
+    }
+
+    @Override
+    public long getRowCacheMaxSizeInBytes() {
+        return rowCacheMaxSizeInBytes;
+    }
+
+    /**
+     * Set the row cache time to live of column families without their own
+     */
+    public AstyanaxConfigurationImpl setRowCacheTtl(long ttl, TimeUnit units) {
+        this.rowCacheTtlMillis = units.toMillis(ttl);
+        return this;
+    }
+
+    public AstyanaxConfigurationImpl setRowCacheTtl(String columnFamilyName, long ttl, TimeUnit units) {
+        this.rowCacheTtls.put(columnFamilyName, units.toMillis(ttl));
+        return this;
+    }
+
+    @Override
+    public long getRowCacheTtlMillis(String columnFamilyName) {
+        Long ttl = rowCacheTtls.get(columnFamilyName);
+        return ttl != null ? ttl : rowCacheTtlMillis;
+    }
+
+    public AstyanaxConfigurationImpl setAutoBatchWindow(long window, TimeUnit units) {
+        this.autoBatchWindowMicros = units.toMicros(window);
+        return this;
+    }
+
+    @Override
+    public long getAutoBatchWindowMicros() {
+        return autoBatchWindowMicros;
+    }
+
+    public AstyanaxConfigurationImpl setAutoBatchMaxKeys(int maxKeys) {
+        this.autoBatchMaxKeys = maxKeys;
+        return this;
+    }
+
+    @Override
+    public int getAutoBatchMaxKeys() {
+        return autoBatchMaxKeys;
+    }
+
+    public AstyanaxConfigurationImpl setScatterMaxKeys(int maxKeys) {
+        this.scatterMaxKeys = maxKeys;
+        return this;
+    }
+
+    @Override
+    public int getScatterMaxKeys() {
+        return scatterMaxKeys;
+    }
+
+    public AstyanaxConfigurationImpl setMutationBatchSplitBytes(long bytes) {
+        this.mutationBatchSplitBytes = bytes;
+        return this;
+    }
+
+    @Override
+    public long getMutationBatchSplitBytes() {
+        return mutationBatchSplitBytes;
+    }
+
+    public AstyanaxConfigurationImpl setMutationBatchSplitMutations(int mutations) {
+        this.mutationBatchSplitMutations = mutations;
+        return this;
+    }
+
+    @Override
+    public int getMutationBatchSplitMutations() {
+        return mutationBatchSplitMutations;
+    }
+
+    public AstyanaxConfigurationImpl setNonBlockingSelectorThreads(int threads) {
+        this.nonBlockingSelectorThreads = threads;
+        return this;
+    }
+
+    @Override
+    public int getNonBlockingSelectorThreads() {
+        return nonBlockingSelectorThreads;
+    }
+
 }
@@ -17,6 +17,7 @@ package com.netflix.astyanax.impl;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,9 @@ import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 /**
  * HostSupplier that uses existing hosts in the connection pool to execute a ring
  * describe and get the entire list of hosts and their tokens from Cassandra.
+ * Hosts carry the datacenter and rack reported for them by the ring describe.
+ * Only one ring describe runs at a time.  Callers that arrive while it runs get the
+ * previously known ring instead of waiting, once there is one.
  * 
  * @author elandau
  *
@@ -44,6 +48,7 @@ public class RingDescribeHostSupplier implements Supplier<List<Host>> {
     private final String    dc;
     private final String    rack;
     private volatile List<Host> previousHosts;
+    private final ReentrantLock lock = new ReentrantLock();
     
     public RingDescribeHostSupplier(Keyspace keyspace, int defaultPort, String dc, String rack) {
         this.keyspace    = keyspace;
@@ -61,7 +66,13 @@ public class RingDescribeHostSupplier implements Supplier<List<Host>> {
     }
 
     @Override
-    public synchronized List<Host> get() {
+    public List<Host> get() {
+        if (!lock.tryLock()) {
+            List<Host> hosts = previousHosts;
+            if (hosts != null)
+                return hosts;
+            lock.lock();
+        }
         try {
             Map<String, Host> ipToHost = Maps.newHashMap();
 
@@ -69,7 +80,9 @@ public class RingDescribeHostSupplier implements Supplier<List<Host>> {
                 for (String endpoint : range.getEndpoints()) {
                     Host host = ipToHost.get(endpoint);
                     if (host == null) {
-                        host = new Host(endpoint, defaultPort);
+                        host = new Host(endpoint, defaultPort)
+                            .setDatacenter(range.getDatacenter(endpoint))
+                            .setRack(range.getRack(endpoint));
                         ipToHost.put(endpoint, host);
                     }
                     
@@ -87,6 +100,9 @@ public class RingDescribeHostSupplier implements Supplier<List<Host>> {
             LOG.warn("Failed to get hosts from " + keyspace.getKeyspaceName() + " via ring describe.  Will use previously known ring instead");
             return previousHosts;
         }
+        finally {
+            lock.unlock();
+        }
     }
 
 }
@@ -26,14 +26,15 @@ import com.netflix.astyanax.Serializer;
 import com.netflix.astyanax.connectionpool.TokenRange;
 import com.netflix.astyanax.connectionpool.impl.TokenRangeImpl;
 
-public class Murmur3Partitioner implements Partitioner {
+public class Murmur3Partitioner implements LongTokenPartitioner {
     public static final BigInteger MINIMUM = new BigInteger(Long.toString(Long.MIN_VALUE));
     public static final BigInteger MAXIMUM = new BigInteger(Long.toString(Long.MAX_VALUE));
 
     public static final BigInteger ONE     = new BigInteger("1");
     
-    private static final com.netflix.astyanax.shaded.org.apache.cassandra.dht.Murmur3Partitioner partitioner =
-            new com.netflix.astyanax.shaded.org.apache.cassandra.dht.Murmur3Partitioner();
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
     private static final Murmur3Partitioner instance = new Murmur3Partitioner();
     
     public static Partitioner get() {
@@ -79,11 +80,24 @@ public class Murmur3Partitioner implements Partitioner {
 
     @Override
     public String getTokenForKey(ByteBuffer key) {
-        return partitioner.getToken(key).toString();
+        return Long.toString(getLongTokenForKey(key));
     }
     
     public <T> String getTokenForKey(T key, Serializer<T> serializer) {
-        return partitioner.getToken(serializer.toByteBuffer(key)).toString();
+        return getTokenForKey(serializer.toByteBuffer(key));
+    }
+
+    /**
+     * Same token as Cassandra's Murmur3Partitioner but computed directly from the buffer
+     * so that routing a row key does not allocate a Token, a hash array or a String.
+     */
+    @Override
+    public long getLongTokenForKey(ByteBuffer key) {
+        if (key.remaining() == 0)
+            return Long.MIN_VALUE;
+        long hash = hash3_x64_128_h1(key, key.position(), key.remaining());
+        // Cassandra never hands out Long.MIN_VALUE since it is reserved for the minimum token
+        return hash == Long.MIN_VALUE ? Long.MAX_VALUE : hash;
     }
 
     @Override
@@ -109,4 +123,84 @@ public class Murmur3Partitioner implements Partitioner {
         return tokens;
     }
 
+    /**
+     * First half of the 128 bit murmur3 hash with a seed of 0, bit for bit identical to
+     * org.apache.cassandra.utils.MurmurHash.hash3_x64_128 (including its sign extension of
+     * the tail bytes).  Only absolute gets are used so the buffer position is left untouched.
+     */
+    private static long hash3_x64_128_h1(ByteBuffer key, int offset, int length) {
+        final int nblocks = length >> 4;
+
+        long h1 = 0;
+        long h2 = 0;
+
+        for (int i = 0; i < nblocks; i++) {
+            long k1 = getblock(key, offset, i * 2);
+            long k2 = getblock(key, offset, i * 2 + 1);
+
+            k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        offset += nblocks * 16;
+
+        long k1 = 0;
+        long k2 = 0;
+
+        switch (length & 15) {
+            case 15: k2 ^= ((long) key.get(offset + 14)) << 48;
+            case 14: k2 ^= ((long) key.get(offset + 13)) << 40;
+            case 13: k2 ^= ((long) key.get(offset + 12)) << 32;
+            case 12: k2 ^= ((long) key.get(offset + 11)) << 24;
+            case 11: k2 ^= ((long) key.get(offset + 10)) << 16;
+            case 10: k2 ^= ((long) key.get(offset + 9)) << 8;
+            case 9:  k2 ^= ((long) key.get(offset + 8));
+                     k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+
+            case 8:  k1 ^= ((long) key.get(offset + 7)) << 56;
+            case 7:  k1 ^= ((long) key.get(offset + 6)) << 48;
+            case 6:  k1 ^= ((long) key.get(offset + 5)) << 40;
+            case 5:  k1 ^= ((long) key.get(offset + 4)) << 32;
+            case 4:  k1 ^= ((long) key.get(offset + 3)) << 24;
+            case 3:  k1 ^= ((long) key.get(offset + 2)) << 16;
+            case 2:  k1 ^= ((long) key.get(offset + 1)) << 8;
+            case 1:  k1 ^= ((long) key.get(offset));
+                     k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+
+        return h1 + h2;
+    }
+
+    private static long getblock(ByteBuffer key, int offset, int index) {
+        int blockOffset = offset + (index << 3);
+        return ((long) key.get(blockOffset)     & 0xff)
+            + (((long) key.get(blockOffset + 1) & 0xff) << 8)
+            + (((long) key.get(blockOffset + 2) & 0xff) << 16)
+            + (((long) key.get(blockOffset + 3) & 0xff) << 24)
+            + (((long) key.get(blockOffset + 4) & 0xff) << 32)
+            + (((long) key.get(blockOffset + 5) & 0xff) << 40)
+            + (((long) key.get(blockOffset + 6) & 0xff) << 48)
+            + (((long) key.get(blockOffset + 7) & 0xff) << 56);
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
 }
@@ -16,8 +16,10 @@
 package com.netflix.astyanax.query;
 
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.SpeculativeExecutionPolicy;
 import com.netflix.astyanax.model.ConsistencyLevel;
 import com.netflix.astyanax.retry.RetryPolicy;
 
@@ -52,6 +54,53 @@ public interface ColumnFamilyQuery<K, C> {
      */
     ColumnFamilyQuery<K, C> pinToHost(Host host);
 
+    /**
+     * Set the speculative execution policy to use for reads issued by this query instead of the
+     * connection pool's default.  Only idempotent, non paginated reads are ever speculatively executed.
+     * 
+     * @param policy
+     */
+    ColumnFamilyQuery<K, C> withSpeculativeExecution(SpeculativeExecutionPolicy policy);
+
+    /**
+     * Bound the total time of each execution of this query, including retries, failover and waiting 
+     * for a connection, to the timeout from when the query is executed.  Retries that cannot complete 
+     * in time are skipped and a DeadlineExceededException is thrown once the deadline has passed.
+     * 
+     * @param timeout
+     * @param units
+     */
+    ColumnFamilyQuery<K, C> withDeadline(long timeout, TimeUnit units);
+
+    /**
+     * Share the result of identical single row reads that are in flight at the same time.  A row read 
+     * issued while another one for the same column family, row key, column slice and consistency level 
+     * is executing waits for that read instead of sending its own.  Paginated and pinned reads are never 
+     * coalesced.  Results are shared by all waiters and must not be modified.
+     * 
+     * @param condition
+     */
+    ColumnFamilyQuery<K, C> withReadCoalescing(boolean condition);
+
+    /**
+     * Batch single row reads with other concurrent single row reads of the same column family, column 
+     * slice and consistency level whose rows are owned by the same replicas.  Each read waits up to 
+     * {@link com.netflix.astyanax.AstyanaxConfiguration#getAutoBatchWindowMicros()} for other reads 
+     * and the batch is read with one multiget.  Paginated and pinned reads are never batched.
+     * 
+     * @param condition
+     */
+    ColumnFamilyQuery<K, C> withAutoBatching(boolean condition);
+
+    /**
+     * Split multi key row slices by the replicas that own the keys.  One multiget of at most 
+     * {@link com.netflix.astyanax.AstyanaxConfiguration#getScatterMaxKeys()} keys is sent to each replica set, 
+     * all in parallel, and the rows are returned in the order of the keys.  Pinned reads are never split.
+     * 
+     * @param condition
+     */
+    ColumnFamilyQuery<K, C> withTokenAwareScatter(boolean condition);
+
     /**
      * Query a single key
      * 
@@ -156,8 +205,10 @@ public interface ColumnFamilyQuery<K, C> {
     IndexQuery<K, C> searchWithIndex();
     
     /**
-     * Enable/disable prepared statement caching for the query. Note that this interface is not applicable to the 
-     * thrift implementation. It is mainly meant for driver impls that make use of PreparedStatements
+     * Enable/disable caching for the query.  Driver impls that make use of PreparedStatements cache the prepared 
+     * statement.  The thrift implementation serves single row reads from the keyspace's client side row cache, 
+     * which is enabled by {@link com.netflix.astyanax.AstyanaxConfiguration#getRowCacheMaxSizeInBytes()}, and 
+     * invalidates rows when they are mutated through the same keyspace.
      * @param condition
      * @return
      */
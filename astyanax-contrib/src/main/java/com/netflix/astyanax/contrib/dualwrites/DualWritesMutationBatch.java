@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.util.concurrent.ListenableFuture;
@@ -157,6 +158,20 @@ public class DualWritesMutationBatch implements MutationBatch {
 		return this;
 	}
 
+	@Override
+	public MutationBatch withDeadline(long timeout, TimeUnit units) {
+		primary.withDeadline(timeout, units);
+		secondary.withDeadline(timeout, units);
+		return this;
+	}
+
+	@Override
+	public MutationBatch withTokenAwareScatter(boolean condition) {
+		primary.withTokenAwareScatter(condition);
+		secondary.withTokenAwareScatter(condition);
+		return this;
+	}
+
 	@Override
 	public MutationBatch usingWriteAheadLog(WriteAheadLog manager) {
 		primary.usingWriteAheadLog(manager);
@@ -17,12 +17,27 @@ package com.netflix.astyanax.connectionpool;
 
 /**
  * Interface for algorithm to detect when a host is considered down. Once a host
- * is considered to be down it will be added to the retry service
+ * is considered to be down it will be added to the retry service. <br/> <br/>
+ * 
+ * Each host gets its own {@link Instance}.  An instance that is also a
+ * {@link CircuitBreaker} acts as a circuit breaker for the host.  While
+ * {@link State#CLOSED} all requests are let through.  Once the instance decides
+ * the host is sick it goes {@link State#OPEN} and the host is removed from the
+ * topology.  After a while the owning pool moves the instance to
+ * {@link State#HALF_OPEN} and sends a limited number of probes to the host
+ * while keeping it out of the topology.  Successful probes close the circuit
+ * and the host is added back to the topology, while a failed probe opens it
+ * again.  Other instances are only given timeouts, and the host is marked as
+ * down when they ask for it to be quarantined.
  * 
  * @author elandau
  * 
  */
 public interface BadHostDetector {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
     public interface Instance {
         /**
          * Add a timeout sample and return false if the host should be
@@ -33,6 +48,59 @@ public interface BadHostDetector {
         boolean addTimeoutSample();
     }
 
+    /**
+     * Instance that is told about every call to its host and decides when the host is
+     * let through, instead of only being given timeouts
+     */
+    public interface CircuitBreaker extends Instance {
+        /**
+         * Record a call that completed without a host level error
+         * 
+         * @return true if this closed a half open circuit
+         */
+        boolean addSuccess();
+
+        /**
+         * Record a call that failed with a host level error, such as a timeout or
+         * transport error
+         * 
+         * @return true if this opened the circuit
+         */
+        boolean addFailure();
+
+        /**
+         * Record the latency of a call, used to detect a host that is slow rather
+         * than failing
+         * 
+         * @param latency
+         *            Latency in nanoseconds
+         * @return true if this opened the circuit
+         */
+        boolean addLatencySample(long latency);
+
+        /**
+         * Called before each probe.  Always true when closed and always false when
+         * open.  When half open only a limited number of probes are allowed.
+         */
+        boolean allowRequest();
+
+        /**
+         * Move an open circuit to half open, or issue a new set of probes if already
+         * half open.
+         * 
+         * @return true if probes may now be sent
+         */
+        boolean halfOpen();
+
+        /**
+         * @return Time in milliseconds to keep the circuit open before moving to half
+         *         open
+         */
+        long getOpenDuration();
+
+        State getState();
+    }
+
     Instance createInstance();
 
     void removeInstance(Instance instance);
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool;
+
+/**
+ * Algorithm limiting the number of operations in flight to a single host.  Unlike
+ * {@link ConnectionPoolConfiguration#getMaxConnsPerHost()} the limit may adapt to the
+ * latencies observed on the host, so that a host that slows down (e.g. while
+ * compacting) is sent less traffic instead of having requests pile up on it. <br/> <br/>
+ * 
+ * Each host connection pool gets its own {@link Instance}.  An operation that would
+ * exceed the limit fails fast with a
+ * {@link com.netflix.astyanax.connectionpool.exceptions.ConcurrencyLimitExceededException}
+ * so that it can fail over to another host.
+ */
+public interface ConcurrencyLimiter {
+    public interface Instance {
+        /**
+         * Reserve a slot for an operation.  Every successful call must be matched by
+         * a call to {@link #release(boolean)}.
+         * 
+         * @return false if the limit has been reached
+         */
+        boolean tryAcquire();
+
+        /**
+         * Release a slot reserved by {@link #tryAcquire()}
+         * 
+         * @param dropped
+         *            true if the operation timed out or was rejected by the host, which
+         *            is taken as a sign of overload
+         */
+        void release(boolean dropped);
+
+        /**
+         * Record the round trip time of an operation, used to adapt the limit
+         * 
+         * @param latency
+         *            Latency in nanoseconds
+         */
+        void addLatencySample(long latency);
+
+        /**
+         * @return Current limit
+         */
+        int getLimit();
+
+        /**
+         * @return Number of slots currently reserved
+         */
+        int getInFlight();
+    }
+
+    Instance createInstance();
+}
@@ -75,6 +75,14 @@ public interface Connection<CL> extends ConnectionContext {
      */
     void openAsync(AsyncOpenCallback<CL> callback);
 
+    /**
+     * Send a cheap request to the host to check that it is responsive.  Used to probe a host whose circuit
+     * breaker is half open before it is put back in the topology.
+     * 
+     * @throws ConnectionException
+     */
+    void probe() throws ConnectionException;
+
     /**
      * @return Number of operations performed on this connections since it was opened
      */
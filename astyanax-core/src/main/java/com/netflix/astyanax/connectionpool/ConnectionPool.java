@@ -107,6 +107,18 @@ public interface ConnectionPool<CL> {
      * Setup the connection pool and start any maintenance threads
      */
     void start();
+
+    /**
+     * Wait for the pool to be warm, i.e. for a minimum fraction of its hosts to be up and to 
+     * have opened their initial connections.  Meant to hold back service startup until the 
+     * first requests can be served without paying for connection setup.
+     * 
+     * @param timeout           Maximum time to wait in milliseconds
+     * @param minHostFraction   Fraction of hosts, in the range [0, 1], that need to be ready
+     * @return True if the pool is ready or false if the timeout elapsed first
+     * @throws InterruptedException
+     */
+    boolean awaitReady(long timeout, float minHostFraction) throws InterruptedException;
     
     /**
      * @return Return the internal topology which represents the partitioning of data across hosts in the pool
@@ -16,9 +16,11 @@
 package com.netflix.astyanax.connectionpool;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
 import com.netflix.astyanax.AuthenticationCredentials;
+import com.netflix.astyanax.connectionpool.impl.HostConnectionPoolType;
 import com.netflix.astyanax.connectionpool.impl.HostSelectorStrategy;
 import com.netflix.astyanax.partitioner.Partitioner;
 import com.netflix.astyanax.tracing.OperationTracer;
@@ -34,6 +36,13 @@ public interface ConnectionPoolConfiguration {
      */
     BadHostDetector getBadHostDetector();
 
+    /**
+     * @return Algorithm limiting the number of operations in flight to each host, on top of 
+     * {@link #getMaxConnsPerHost()}.  Operations over the limit fail fast so they can be sent 
+     * to another host.
+     */
+    ConcurrencyLimiter getConcurrencyLimiter();
+
     /**
      * @return Data port to be used when no port is specified to a list of seeds or when
      * doing a ring describe since the ring describe does not include a host
@@ -55,6 +64,12 @@ public interface ConnectionPoolConfiguration {
      */
     int getInitConnsPerHost();
 
+    /**
+     * @return Maximum number of hosts whose initial connections are opened in parallel when 
+     * the set of hosts is updated
+     */
+    int getPrimeConcurrency();
+
     /**
      * @return Maximum number of connections in the pool, not used by all connection
      * pool implementations
@@ -88,6 +103,13 @@ public interface ConnectionPoolConfiguration {
      */
     HostSelectorStrategy getHostSelectorStrategy();
 
+    /**
+     * @return Return the implementation used for each host's pool of connections.
+     *
+     * @see com.netflix.astyanax.connectionpool.impl.HostConnectionPoolType
+     */
+    HostConnectionPoolType getHostConnectionPoolType();
+
     /**
      * @return List of comma delimited host:port combinations. If port is not provided
      * then getPort() will be used by default. This list must contain at least
@@ -107,11 +129,42 @@ public interface ConnectionPoolConfiguration {
      */
     public String getLocalDatacenter();
 
+    /**
+     * @return Return local rack name.  Token aware pools prefer replicas in this rack over the
+     * rest of the local datacenter.  null to treat all racks the same.
+     */
+    String getLocalRack();
+
+    /**
+     * @return Maximum number of hosts outside of {@link #getLocalDatacenter()} that a token aware
+     * operation may fail over to once the local replicas have been tried.  0 to never leave the
+     * local datacenter.  When above 0, ring describe discovery for a token aware pool also keeps
+     * the hosts of remote datacenters.
+     */
+    int getMaxRemoteDatacenterFailoverCount();
+
     /**
      * @return Socket read/write timeout
      */
     int getSocketTimeout();
 
+    /**
+     * @return Multiple of the recent latency percentile of an operation type on a host used as the socket
+     * timeout of that operation type on the host, clamped between getMinSocketTimeout() and getSocketTimeout().
+     * 0 disables adaptive socket timeouts so that every operation uses getSocketTimeout().
+     */
+    float getAdaptiveSocketTimeoutFactor();
+
+    /**
+     * @return Latency percentile, between 0 and 100, that adaptive socket timeouts are derived from
+     */
+    double getAdaptiveSocketTimeoutPercentile();
+
+    /**
+     * @return Lower bound of adaptive socket timeouts
+     */
+    int getMinSocketTimeout();
+
     /**
      * @return Socket connect timeout
      */
@@ -208,6 +261,18 @@ public interface ConnectionPoolConfiguration {
      */
     int getMaxOperationsPerConnection();
 
+    /**
+     * @return Time in milliseconds after which connections that were not needed are closed, down
+     * to {@link #getInitConnsPerHost()}.  0 to keep idle connections open.
+     */
+    int getIdleTimeout();
+
+    /**
+     * @return Maximum time in milliseconds a connection is used for before it is closed and 
+     * replaced.  0 for no limit.
+     */
+    int getMaxConnectionAge();
+
     /**
      * @return Can return null if no login required
      */
@@ -248,6 +313,25 @@ public interface ConnectionPoolConfiguration {
      */
     ScheduledExecutorService getHostReconnectExecutor();
 
+    /**
+     * @return Policy deciding when idempotent reads are speculatively sent to a second replica.  Applies to
+     * all {@link SpeculativeOperation}s that don't provide their own policy.
+     */
+    SpeculativeExecutionPolicy getSpeculativeExecutionPolicy();
+
+    /**
+     * @return Return executor service used to run speculatively executed operations.  Both attempts of a
+     * speculative execution run on this executor while the calling thread waits for the first to respond, so
+     * threads will block on I/O for the duration of an operation
+     */
+    ExecutorService getSpeculativeExecutor();
+
+    /**
+     * @return Budget of retries and failovers shared by all operations of the connection pool.  Once it is 
+     * exhausted operations fail on their first error instead of retrying.
+     */
+    RetryBudget getRetryBudget();
+
     /**
      * Initialization prior to starting the connection pool 
      */
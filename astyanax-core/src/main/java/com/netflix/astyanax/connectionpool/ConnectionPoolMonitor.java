@@ -43,11 +43,43 @@ public interface ConnectionPoolMonitor {
 
     long getFailoverCount();
 
+    /**
+     * An operation did not complete within its speculative execution delay and was also
+     * sent to another host
+     * 
+     * @param host
+     *            Host the speculative execution was sent to
+     */
+    void incSpeculativeExecution(Host host);
+
+    long getSpeculativeExecutionCount();
+
+    /**
+     * A speculative execution responded before the original attempt and its result was used
+     * 
+     * @param host
+     *            Host the speculative execution was sent to
+     */
+    void incSpeculativeExecutionWon(Host host);
+
+    long getSpeculativeExecutionWonCount();
+
+    /**
+     * An operation failed without being retried or failed over because the retry budget was exhausted
+     * 
+     * @param host
+     *            Host of the last attempt
+     */
+    void incRetryBudgetExhausted(Host host);
+
+    long getRetryBudgetExhaustedCount();
+
     /**
      * Succeeded in executing an operation
      * 
      * @param host
      * @param latency
+     *            Operation latency in nanoseconds, as reported by {@link OperationResult#getLatency()}
      */
     void incOperationSuccess(Host host, long latency);
 
@@ -58,6 +90,15 @@ public interface ConnectionPoolMonitor {
      */
     void incConnectionCreated(Host host);
 
+    /**
+     * Time taken to open a new connection.  Called in addition to {@link #incConnectionCreated(Host)}.
+     *
+     * @param host
+     * @param latency
+     *            Connect time in milliseconds
+     */
+    void incConnectionCreateLatency(Host host, long latency);
+
     long getConnectionCreatedCount();
 
     /**
@@ -86,7 +127,7 @@ public interface ConnectionPoolMonitor {
      * @param host
      *            Host from which the connection was borrowed
      * @param delay
-     *            Time spent in the connection pool borrowing the connection
+     *            Time spent in the connection pool borrowing the connection, in milliseconds
      */
     void incConnectionBorrowed(Host host, long delay);
 
@@ -107,6 +148,11 @@ public interface ConnectionPoolMonitor {
      */
     long getPoolExhaustedTimeoutCount();
 
+    /**
+     * Operation not sent to a host because the host's concurrency limit was reached
+     */
+    long getConcurrencyLimitExceededCount();
+
     /**
      * Timeout waiting for a response from the cluster
      */
@@ -136,6 +136,12 @@ public class ConnectionPoolProxy<T> implements ConnectionPool<T> {
 		}
 	}
 
+	@Override
+	public boolean awaitReady(long timeout, float minHostFraction) throws InterruptedException {
+		// Connections are managed by the listener
+		return true;
+	}
+
 	@Override
 	public void start() {
 		// TODO Auto-generated method stub
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Immutable point in time copy of named counters.  A snapshot covers the time since the counters were created,
+ * and {@link #since(CounterSnapshot)} turns two snapshots into the deltas and rates of the interval between
+ * them, so any number of periodic reporters can each keep their own previous snapshot.
+ */
+public class CounterSnapshot {
+    private final Map<String, Long> counts;
+    private final long              timestamp;
+    private final long              interval;
+
+    /**
+     * @param counts      Counter values by name, in reporting order
+     * @param timestamp   System.nanoTime() when the snapshot was taken
+     * @param interval    Nanoseconds covered by the counts
+     */
+    public CounterSnapshot(Map<String, Long> counts, long timestamp, long interval) {
+        this.counts    = ImmutableMap.copyOf(counts);
+        this.timestamp = timestamp;
+        this.interval  = interval;
+    }
+
+    /**
+     * @return Snapshot of the changes of each counter between an earlier snapshot of the same counters
+     *         and this one
+     */
+    public CounterSnapshot since(CounterSnapshot earlier) {
+        ImmutableMap.Builder<String, Long> deltas = ImmutableMap.builder();
+        for (Entry<String, Long> entry : counts.entrySet()) {
+            deltas.put(entry.getKey(), entry.getValue() - earlier.get(entry.getKey()));
+        }
+        return new CounterSnapshot(deltas.build(), timestamp, Math.max(0, timestamp - earlier.timestamp));
+    }
+
+    /**
+     * @return Value of the counter, or 0 if there is no such counter
+     */
+    public long get(String name) {
+        Long value = counts.get(name);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * @return Average rate of the counter over the interval of the snapshot, per the given unit of time
+     */
+    public double getRate(String name, TimeUnit unit) {
+        if (interval <= 0)
+            return 0;
+        return (double) get(name) * unit.toNanos(1) / interval;
+    }
+
+    public Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    public long getInterval(TimeUnit unit) {
+        return unit.convert(interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Every counter with its value and rate per second
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder()
+            .append("CounterSnapshot[")
+            .append("interval=").append(getInterval(TimeUnit.MILLISECONDS)).append("ms");
+        for (Entry<String, Long> entry : counts.entrySet()) {
+            sb.append(",").append(entry.getKey()).append("=").append(entry.getValue())
+              .append(String.format("(%.1f/s)", getRate(entry.getKey(), TimeUnit.SECONDS)));
+        }
+        return sb.append("]").toString();
+    }
+}
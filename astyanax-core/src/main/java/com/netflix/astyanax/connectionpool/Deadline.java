@@ -0,0 +1,82 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which an operation must complete.  The connection pool uses the time remaining to 
+ * bound the wait for a connection and the socket timeout of each attempt, and skips retries that cannot 
+ * complete in time.
+ * 
+ * @see DeadlineOperation
+ * @see com.netflix.astyanax.connectionpool.exceptions.DeadlineExceededException
+ */
+public final class Deadline {
+    private final long expiresAt;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @param duration
+     * @param units
+     * @return Deadline that expires the given duration from now
+     */
+    public static Deadline after(long duration, TimeUnit units) {
+        return new Deadline(System.nanoTime() + units.toNanos(duration));
+    }
+
+    /**
+     * @param operation
+     * @return Deadline of the operation or null if it has none
+     */
+    public static Deadline of(Operation<?, ?> operation) {
+        if (operation instanceof DeadlineOperation)
+            return ((DeadlineOperation)operation).getDeadline();
+        return null;
+    }
+
+    /**
+     * @param units
+     * @return Time left before the deadline, negative once it has passed
+     */
+    public long timeRemaining(TimeUnit units) {
+        return units.convert(expiresAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return expiresAt - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @param timeout Timeout in msec
+     * @return The timeout, reduced to the msec remaining before the deadline.  Never less than 1 msec, 
+     *         since a timeout of 0 usually means wait forever.
+     */
+    public int boundTimeout(int timeout) {
+        long remaining = timeRemaining(TimeUnit.MILLISECONDS);
+        if (remaining >= timeout)
+            return timeout;
+        return (int)Math.max(1, remaining);
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[remaining=" + timeRemaining(TimeUnit.MILLISECONDS) + "ms]";
+    }
+}
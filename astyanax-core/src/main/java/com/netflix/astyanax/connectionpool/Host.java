@@ -37,6 +37,7 @@ public class Host implements Comparable<Host> {
 
     public static final Host NO_HOST = new Host();
     public static final String UKNOWN_RACK = "";
+    public static final String UNKNOWN_DATACENTER = "";
     
     private final String host;
     private final String ipAddress;
@@ -44,6 +45,7 @@ public class Host implements Comparable<Host> {
     private final String name;
     private final String url;
     private String       rack = UKNOWN_RACK;
+    private String       datacenter = UNKNOWN_DATACENTER;
     private String       id;
     private Set<String>  alternateIpAddress = Sets.newHashSet();
     private List<TokenRange> ranges = Lists.newArrayList();
@@ -183,6 +185,15 @@ public class Host implements Comparable<Host> {
     public String getRack() {
         return rack;
     }
+
+    public Host setDatacenter(String datacenter) {
+        this.datacenter = datacenter;
+        return this;
+    }
+
+    public String getDatacenter() {
+        return datacenter;
+    }
  
     public synchronized Host setTokenRanges(List<TokenRange> ranges) {
         this.ranges = ranges;
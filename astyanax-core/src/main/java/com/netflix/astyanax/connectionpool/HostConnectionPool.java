@@ -77,6 +77,24 @@ public interface HostConnectionPool<CL> {
      */
     boolean closeConnection(Connection<CL> connection);
 
+    /**
+     * Reserve a slot of the host's concurrency limit for an operation that runs on a connection that was not
+     * borrowed from this pool.  The slot must be released with {@link #releaseSlot(ConnectionException)} once
+     * the operation completes.
+     * 
+     * @throws ConnectionException if the host is down or its concurrency limit was reached
+     */
+    void acquireSlot() throws ConnectionException;
+
+    /**
+     * Release a slot reserved with {@link #acquireSlot()} and report the outcome of the operation as
+     * {@link #returnConnection(Connection)} does for borrowed connections
+     * 
+     * @param lastException
+     *            Error of the operation, or null if it succeeded
+     */
+    void releaseSlot(ConnectionException lastException);
+
     /**
      * Shut down the host so no more connections may be created when
      * borrowConnections is called and connections will be terminated when
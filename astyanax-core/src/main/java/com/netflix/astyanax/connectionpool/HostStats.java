@@ -45,4 +45,19 @@ public interface HostStats {
 
     void setPool(HostConnectionPool<?> pool);
 
+    /**
+     * @return Histogram of successful operation latencies against this host, in microseconds
+     */
+    LatencyHistogram getOperationLatencyHistogram();
+
+    /**
+     * @return Histogram of time spent waiting to borrow a connection to this host, in microseconds
+     */
+    LatencyHistogram getBorrowLatencyHistogram();
+
+    /**
+     * @return Histogram of time taken to open new connections to this host, in microseconds
+     */
+    LatencyHistogram getConnectLatencyHistogram();
+
 }
@@ -15,10 +15,15 @@
  */
 package com.netflix.astyanax.connectionpool;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+
 import org.apache.commons.lang.StringUtils;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.impl.CountingConnectionPoolMonitor;
 
 /**
  * MBean monitoring for a connection pool
@@ -28,11 +33,19 @@ import com.google.common.collect.Lists;
  */
 public class JmxConnectionPoolMonitor implements JmxConnectionPoolMonitorMBean {
     private final ConnectionPool<?> pool;
+    private final ConnectionPoolMonitor monitor;
 
     private final static int DEFAULT_PORT = 7102;
 
+    private CounterSnapshot lastSnapshot;
+
     public JmxConnectionPoolMonitor(ConnectionPool<?> pool) {
-        this.pool = pool;
+        this(pool, null);
+    }
+
+    public JmxConnectionPoolMonitor(ConnectionPool<?> pool, ConnectionPoolMonitor monitor) {
+        this.pool    = pool;
+        this.monitor = monitor;
     }
 
     @Override
@@ -64,4 +77,81 @@ public class JmxConnectionPoolMonitor implements JmxConnectionPoolMonitorMBean {
             }
         }), ",");
     }
+
+    @Override
+    public long getOperationLatencyPercentile(String host, double percentile) {
+        HostStats stats = findHostStats(host);
+        return stats == null ? -1 : stats.getOperationLatencyHistogram().getSnapshot().getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public long getBorrowLatencyPercentile(String host, double percentile) {
+        HostStats stats = findHostStats(host);
+        return stats == null ? -1 : stats.getBorrowLatencyHistogram().getSnapshot().getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public long getConnectLatencyPercentile(String host, double percentile) {
+        HostStats stats = findHostStats(host);
+        return stats == null ? -1 : stats.getConnectLatencyHistogram().getSnapshot().getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public String getHostLatencies() {
+        StringBuilder sb = new StringBuilder();
+        for (Entry<Host, HostStats> entry : getAllHostStats()) {
+            HostStats stats = entry.getValue();
+            sb.append(entry.getKey().getName())
+              .append(" operation=").append(stats.getOperationLatencyHistogram().getSnapshot())
+              .append(" borrow="   ).append(stats.getBorrowLatencyHistogram().getSnapshot())
+              .append(" connect="  ).append(stats.getConnectLatencyHistogram().getSnapshot())
+              .append("\n");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String getCounters() {
+        CounterSnapshot snapshot = getCounterSnapshot();
+        return snapshot == null ? "" : snapshot.getCounts().toString();
+    }
+
+    @Override
+    public synchronized String getCounterRates() {
+        CounterSnapshot snapshot = getCounterSnapshot();
+        if (snapshot == null)
+            return "";
+        CounterSnapshot interval = lastSnapshot == null ? snapshot : snapshot.since(lastSnapshot);
+        lastSnapshot = snapshot;
+        return interval.toString();
+    }
+
+    private CounterSnapshot getCounterSnapshot() {
+        if (monitor instanceof CountingConnectionPoolMonitor)
+            return ((CountingConnectionPoolMonitor) monitor).getCounterSnapshot();
+        return null;
+    }
+
+    private HostStats findHostStats(String host) {
+        for (Entry<Host, HostStats> entry : getAllHostStats()) {
+            Host h = entry.getKey();
+            if (host.equals(h.getHostName()) || host.equals(h.getIpAddress()) || host.equals(h.getName()))
+                return entry.getValue();
+        }
+        return null;
+    }
+
+    private Iterable<Entry<Host, HostStats>> getAllHostStats() {
+        if (monitor == null)
+            return Collections.<Entry<Host, HostStats>>emptyList();
+        try {
+            Map<Host, HostStats> stats = monitor.getHostStats();
+            if (stats != null)
+                return stats.entrySet();
+        }
+        catch (UnsupportedOperationException e) {
+            // Monitor doesn't track per host stats
+        }
+        return Collections.<Entry<Host, HostStats>>emptyList();
+    }
 }
@@ -25,4 +25,44 @@ public interface JmxConnectionPoolMonitorMBean {
     boolean hasHost(String host);
 
     String getActiveHosts();
+
+    /**
+     * Latency of successful operations against a host, in microseconds.  Returns -1 if no
+     * latencies are tracked for the host.
+     * @param host
+     * @param percentile In the range [0, 100]
+     */
+    long getOperationLatencyPercentile(String host, double percentile);
+
+    /**
+     * Time spent borrowing a connection to a host, in microseconds.  Returns -1 if no
+     * latencies are tracked for the host.
+     * @param host
+     * @param percentile In the range [0, 100]
+     */
+    long getBorrowLatencyPercentile(String host, double percentile);
+
+    /**
+     * Time spent opening connections to a host, in microseconds.  Returns -1 if no
+     * latencies are tracked for the host.
+     * @param host
+     * @param percentile In the range [0, 100]
+     */
+    long getConnectLatencyPercentile(String host, double percentile);
+
+    /**
+     * @return One line per host with count, p50, p99, p999 and max of the operation, borrow and
+     * connect latencies in microseconds
+     */
+    String getHostLatencies();
+
+    /**
+     * @return Value of every counter of the monitor, or an empty string if the monitor has no counters
+     */
+    String getCounters();
+
+    /**
+     * @return Change and rate per second of every counter of the monitor since the previous call
+     */
+    String getCounterRates();
 }
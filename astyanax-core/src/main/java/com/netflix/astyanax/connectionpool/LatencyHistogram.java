@@ -0,0 +1,230 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free, fixed memory histogram of latencies in the style of HdrHistogram. <br/> <br/>
+ *
+ * Values are placed in log-linear buckets: every power of two range is split into {@link #SUB_BUCKET_COUNT}
+ * linear sub-buckets, so any recorded value is reported back with a relative error of at most
+ * 1/{@link #SUB_BUCKET_COUNT} (~3%).  Values below 2 * {@link #SUB_BUCKET_COUNT} are exact and values above
+ * {@link #MAX_VALUE} are clamped.  <br/> <br/>
+ *
+ * Recording a value is a few shifts and a single atomic increment and never allocates, so it is safe to call
+ * on the operation hot path.  Reads work off a {@link Snapshot}, either cumulative ({@link #getSnapshot()}) or
+ * covering only the values recorded since the previous interval snapshot ({@link #getIntervalSnapshot()}).
+ *
+ * The histogram is unit agnostic.  The connection pool monitors record latencies in microseconds.
+ */
+public class LatencyHistogram {
+    private static final int  SUB_BUCKET_BITS  = 5;
+    public  static final int  SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Largest value that can be tracked.  In microseconds this is a little over an hour.
+     */
+    public  static final long MAX_VALUE        = (1L << 32) - 1;
+
+    private static final int  BUCKET_COUNT     = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private long[] lastIntervalCounts = new long[BUCKET_COUNT];
+
+    /**
+     * Record a single value.  Negative values are recorded as 0.
+     * @param value
+     */
+    public void record(long value) {
+        counts.incrementAndGet(indexOf(value));
+    }
+
+    /**
+     * @return Cumulative snapshot of all values recorded since the histogram was created or reset
+     */
+    public Snapshot getSnapshot() {
+        long[] current = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            current[i] = counts.get(i);
+        }
+        return new Snapshot(current);
+    }
+
+    /**
+     * Return a snapshot of the values recorded since the last call to this method.  Intended for a single
+     * periodic reporter; concurrent reporters will split the intervals between them.
+     */
+    public synchronized Snapshot getIntervalSnapshot() {
+        long[] current  = new long[BUCKET_COUNT];
+        long[] interval = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            current[i]  = counts.get(i);
+            interval[i] = current[i] - lastIntervalCounts[i];
+        }
+        lastIntervalCounts = current;
+        return new Snapshot(interval);
+    }
+
+    /**
+     * Clear all recorded values.  Values recorded concurrently with the reset may or may not be kept.
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        lastIntervalCounts = new long[BUCKET_COUNT];
+    }
+
+    static int indexOf(long value) {
+        if (value < 0)
+            value = 0;
+        else if (value > MAX_VALUE)
+            value = MAX_VALUE;
+
+        if (value < (SUB_BUCKET_COUNT << 1))
+            return (int)value;
+
+        // Values in [2^k, 2^(k+1)) with k > SUB_BUCKET_BITS are split into SUB_BUCKET_COUNT buckets
+        // of width 2^shift, where shift = k - SUB_BUCKET_BITS
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int)(value >>> shift);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < (SUB_BUCKET_COUNT << 1))
+            return index;
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        return (long)((index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT) << shift;
+    }
+
+    static long highestValueAt(int index) {
+        if (index < (SUB_BUCKET_COUNT << 1))
+            return index;
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        return lowestValueAt(index) + (1L << shift) - 1;
+    }
+
+    /**
+     * Immutable point in time copy of a histogram's buckets
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long   count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long total  = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        /**
+         * @return Snapshot of only the values recorded between an earlier snapshot of the same histogram
+         *         and this one
+         */
+        public Snapshot since(Snapshot earlier) {
+            long[] interval = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                // The histogram may have been reset in between
+                interval[i] = Math.max(0, counts[i] - earlier.counts[i]);
+            }
+            return new Snapshot(interval);
+        }
+
+        /**
+         * @return Number of values in the snapshot
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Return the value at the given percentile, i.e. the smallest recorded value such that the given
+         * percentage of all values are less than or equal to it.  Values are reported as the highest value
+         * that falls in the same bucket.  Returns 0 for an empty snapshot.
+         *
+         * @param percentile In the range [0, 100]
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0)
+                return 0;
+
+            percentile = Math.min(Math.max(percentile, 0.0), 100.0);
+            long target = Math.max(1, (long)Math.ceil(percentile / 100.0 * count));
+            long seen   = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target)
+                    return highestValueAt(i);
+            }
+            return getMax();
+        }
+
+        /**
+         * @return Largest recorded value, rounded up to the top of its bucket
+         */
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0)
+                    return highestValueAt(i);
+            }
+            return 0;
+        }
+
+        /**
+         * @return Smallest recorded value, rounded down to the bottom of its bucket
+         */
+        public long getMin() {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0)
+                    return lowestValueAt(i);
+            }
+            return 0;
+        }
+
+        /**
+         * @return Mean value, using the middle of each bucket
+         */
+        public double getMean() {
+            if (count == 0)
+                return 0;
+            double total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0)
+                    total += counts[i] * ((lowestValueAt(i) + highestValueAt(i)) / 2.0);
+            }
+            return total / count;
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder()
+                .append("Snapshot[")
+                .append( "count=").append(count)
+                .append(",min="  ).append(getMin())
+                .append(",mean=" ).append(String.format("%.1f", getMean()))
+                .append(",p50="  ).append(getValueAtPercentile(50))
+                .append(",p99="  ).append(getValueAtPercentile(99))
+                .append(",p999=" ).append(getValueAtPercentile(99.9))
+                .append(",max="  ).append(getMax())
+                .append("]").toString();
+        }
+    }
+}
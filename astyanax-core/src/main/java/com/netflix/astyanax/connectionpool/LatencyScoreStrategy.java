@@ -15,6 +15,7 @@
  */
 package com.netflix.astyanax.connectionpool;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -53,6 +54,41 @@ public interface LatencyScoreStrategy {
         void update();
     }
 
+    /**
+     * Scores of a set of hosts captured at one point in time, used to filter many partitions
+     * without sorting each of them
+     */
+    public interface Ranking<CL> {
+        /**
+         * Apply the same filtering as {@link LatencyScoreStrategy#sortAndfilterPartition(List, AtomicBoolean)}
+         * to the pools of one partition.  The pools that are kept are added to result in the order 
+         * in which they appear in pools.
+         * 
+         * @param pools     All pools of the partition
+         * @param result    List to add the pools that are kept to
+         * @return True if the result is prioritized
+         */
+        boolean filter(List<HostConnectionPool<CL>> pools, List<HostConnectionPool<CL>> result);
+
+        /**
+         * Same as {@link #filter(List, List)} for a partition of at most {@link #MAX_MASK_POOLS} pools that is given 
+         * by the positions of its pools in the collection that was ranked.  Lets a caller that filters many 
+         * partitions keep them in flat arrays instead of walking a list per partition.
+         * 
+         * @param positions Positions of the pools of all partitions
+         * @param from      Index of the first pool of the partition in positions
+         * @param to        Index after the last pool of the partition in positions
+         * @return Bit i is set if the pool at positions[from + i] is kept.  The sign bit is set if the result 
+         *         is prioritized.
+         */
+        long filter(int[] positions, int from, int to);
+    }
+
+    /**
+     * Largest partition that can be filtered with {@link Ranking#filter(int[], int, int)}
+     */
+    public static final int MAX_MASK_POOLS = 63;
+
     /**
      * @return Return interval for updating the scores
      */
@@ -132,4 +168,14 @@ public interface LatencyScoreStrategy {
     <CL> List<HostConnectionPool<CL>> sortAndfilterPartition(List<HostConnectionPool<CL>> pools,
             AtomicBoolean prioritized);
 
+    /**
+     * Capture the current scores of all hosts so that they are ranked once per update instead of
+     * once per partition.
+     * 
+     * @param <CL>
+     * @param pools
+     * @return
+     */
+    <CL> Ranking<CL> rank(Collection<HostConnectionPool<CL>> pools);
+
 }
@@ -16,5 +16,5 @@
 package com.netflix.astyanax.connectionpool;
 
 public enum LatencyScoreStrategyType {
-    NONE, SMA, EMA
+    NONE, SMA, EMA, PEAK_EWMA
 }
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool;
+
+/**
+ * Budget of retries shared by all operations of a connection pool.  Every retry and failover attempt 
+ * withdraws from the budget and successful operations replenish it, so that during a brownout the 
+ * cluster is not hit by every failed request being retried several times.  Once the budget is exhausted
+ * operations fail on their first error instead of retrying.
+ * 
+ * @see ConnectionPoolConfiguration#getRetryBudget()
+ */
+public interface RetryBudget {
+    /**
+     * An operation completed successfully
+     */
+    void onSuccess();
+
+    /**
+     * Withdraw one retry from the budget
+     * 
+     * @return True if the retry is allowed, false if the budget is exhausted
+     */
+    boolean tryAcquire();
+
+    /**
+     * @return True if no retry would currently be allowed.  Does not withdraw from the budget.
+     */
+    boolean isExhausted();
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool;
+
+/**
+ * Policy deciding when an idempotent read that has not completed yet should be sent to a second replica
+ * (a speculative, or hedged, execution).  The first of the two attempts to respond wins and the other one
+ * is left to complete in the background, after which its connection is returned to the pool. <br/> <br/>
+ *
+ * Only operations implementing {@link SpeculativeOperation} are ever speculatively executed.
+ *
+ * @see com.netflix.astyanax.connectionpool.impl.AbstractExecuteWithFailoverImpl
+ */
+public interface SpeculativeExecutionPolicy {
+    /**
+     * @param host
+     *            Host the first attempt is executing on
+     * @param monitor
+     *            Monitor of the connection pool, which may be used to look up the host's recent latencies
+     * @return Time in microseconds to wait for the first attempt before sending the operation to another
+     *         replica, or a negative value to not speculate at all
+     */
+    long getDelay(Host host, ConnectionPoolMonitor monitor);
+}
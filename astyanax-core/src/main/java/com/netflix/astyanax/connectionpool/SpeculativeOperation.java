@@ -0,0 +1,29 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool;
+
+/**
+ * Implemented by {@link Operation}s that are idempotent and safe to execute more than once concurrently,
+ * and therefore may be speculatively executed on a second replica.  The same instance may be executed
+ * concurrently on two connections, so it must not mutate shared state while executing.
+ */
+public interface SpeculativeOperation {
+    /**
+     * @return Policy to use for this operation, or null to use the connection pool's
+     *         {@link ConnectionPoolConfiguration#getSpeculativeExecutionPolicy()}
+     */
+    SpeculativeExecutionPolicy getSpeculativeExecutionPolicy();
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Counter for values that are updated from many threads and read rarely, in the style of the JDK 8 LongAdder. <br/> <br/>
+ *
+ * Updates go to a single base value until two threads collide on it.  From then on each thread adds to one of a 
+ * table of stripes that are padded to their own cache lines, and moves to another stripe whenever it collides again, 
+ * so that threads on different cores stop invalidating each other's cache lines.  The table starts with two stripes 
+ * and doubles on every further collision until it has {@link #MAX_STRIPES}, one per processor.  Reading the value 
+ * sums the base and all stripes and is not an atomic snapshot of concurrent updates. <br/> <br/>
+ *
+ * Uncontended counters cost the same as an {@link AtomicLong}, and only counters that are contended by many threads
+ * grow to one stripe per processor.
+ */
+public class StripedCounter {
+    /**
+     * Largest number of stripes, the smallest power of two at least the number of processors
+     */
+    public  static final int MAX_STRIPES;
+    static {
+        int processors = Math.max(2, Runtime.getRuntime().availableProcessors());
+        MAX_STRIPES = Integer.highestOneBit(processors * 2 - 1);
+    }
+
+    private static final AtomicReferenceFieldUpdater<StripedCounter, Stripe[]> STRIPES_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(StripedCounter.class, Stripe[].class, "stripes");
+
+    /**
+     * Per thread hash that selects the stripe
+     */
+    private static final ThreadLocal<int[]> PROBE = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            int hash = (int) Thread.currentThread().getId() * 0x9E3779B9;
+            return new int[] { hash == 0 ? 1 : hash };
+        }
+    };
+
+    /**
+     * Longs before the value of a stripe, so that adjacent line prefetching doesn't share it with the previous object
+     */
+    static class PaddedBefore {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    static class StripeValue extends PaddedBefore {
+        volatile long value;
+    }
+
+    /**
+     * A value on its own 128 bytes.  Fields of a subclass are laid out after those of its superclass.
+     */
+    static final class Stripe extends StripeValue {
+        private static final AtomicLongFieldUpdater<StripeValue> VALUE_UPDATER =
+                AtomicLongFieldUpdater.newUpdater(StripeValue.class, "value");
+
+        long p9, p10, p11, p12, p13, p14, p15;
+
+        boolean compareAndSet(long expect, long update) {
+            return VALUE_UPDATER.compareAndSet(this, expect, update);
+        }
+
+        void add(long delta) {
+            VALUE_UPDATER.addAndGet(this, delta);
+        }
+    }
+
+    private final AtomicLong  base = new AtomicLong();
+    private volatile Stripe[] stripes;
+
+    public void increment() {
+        add(1);
+    }
+
+    public void decrement() {
+        add(-1);
+    }
+
+    public void add(long delta) {
+        Stripe[] current = stripes;
+        if (current == null) {
+            long value = base.get();
+            if (base.compareAndSet(value, value + delta))
+                return;
+            current = grow(null);
+        }
+
+        int[] probe = PROBE.get();
+        Stripe stripe = current[probe[0] & (current.length - 1)];
+        long value = stripe.value;
+        if (!stripe.compareAndSet(value, value + delta)) {
+            // Collided with another thread, move to another stripe for the next update and add stripes
+            // until there is one per processor
+            int hash = probe[0];
+            hash ^= hash << 13;
+            hash ^= hash >>> 17;
+            hash ^= hash << 5;
+            probe[0] = hash;
+            if (current.length < MAX_STRIPES)
+                grow(current);
+            stripe.add(delta);
+        }
+    }
+
+    /**
+     * Double the number of stripes.  The existing stripes are carried over so that no update is lost.
+     *
+     * @param current   The stripes that are too few, or null if there are none yet
+     * @return The stripes after growing, by this or another thread
+     */
+    private Stripe[] grow(Stripe[] current) {
+        int      length = current == null ? 2 : current.length * 2;
+        Stripe[] grown  = new Stripe[length];
+        for (int i = 0; i < length; i++) {
+            grown[i] = current != null && i < current.length ? current[i] : new Stripe();
+        }
+        STRIPES_UPDATER.compareAndSet(this, current, grown);
+        return stripes;
+    }
+
+    /**
+     * @return Sum of all updates
+     */
+    public long get() {
+        long sum = base.get();
+        Stripe[] current = stripes;
+        if (current != null) {
+            for (Stripe stripe : current) {
+                sum += stripe.value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return Number of stripes, 0 until the counter was contended
+     */
+    public int getStripeCount() {
+        Stripe[] current = stripes;
+        return current != null ? current.length : 0;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -29,4 +29,14 @@ public interface TokenRange {
     String getEndToken();
     
     List<String> getEndpoints();
+
+    /**
+     * @return Datacenter of one of the endpoints of the range, or null if not known
+     */
+    String getDatacenter(String endpoint);
+
+    /**
+     * @return Rack of one of the endpoints of the range, or null if not known
+     */
+    String getRack(String endpoint);
 }
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.exceptions;
+
+/**
+ * The host already has as many operations in flight as its adaptive concurrency limit
+ * allows.  The operation was not sent and may be failed over to another host.
+ * 
+ * @see com.netflix.astyanax.connectionpool.ConcurrencyLimiter
+ */
+public class ConcurrencyLimitExceededException extends ConnectionException implements IsRetryableException {
+    private static final long serialVersionUID = -2905367244592880452L;
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+
+    public ConcurrencyLimitExceededException(Throwable t) {
+        super(t);
+    }
+
+    public ConcurrencyLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.exceptions;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.netflix.astyanax.connectionpool.OperationResult;
+
+/**
+ * Some, but not all, of the sub-batches of a mutation batch that was split by the replicas of its rows,
+ * or because it was too large, failed.  The rows of the sub-batches that succeeded were written.  The rows
+ * of the failed sub-batches were not, or only in part, and are kept in the mutation batch so that executing
+ * it again retries them.  The cause is the failure of the first failed sub-batch.
+ */
+public class PartialMutationException extends OperationException {
+    private static final long serialVersionUID = -2874392058724115412L;
+
+    private final Map<ByteBuffer, ConnectionException> failedRows;
+    private final Set<ByteBuffer>                      succeededRows;
+    private final List<OperationResult<Void>>          results;
+
+    public PartialMutationException(Map<ByteBuffer, ConnectionException> failedRows, Set<ByteBuffer> succeededRows,
+            List<OperationResult<Void>> results, ConnectionException cause) {
+        super(failedRows.size() + " of " + (failedRows.size() + succeededRows.size()) + " rows failed", cause);
+        this.failedRows    = failedRows;
+        this.succeededRows = succeededRows;
+        this.results       = results;
+    }
+
+    /**
+     * @return Failure of the sub-batch of each row that was not written
+     */
+    public Map<ByteBuffer, ConnectionException> getFailedRows() {
+        return failedRows;
+    }
+
+    /**
+     * @return Keys of the rows that were written
+     */
+    public Set<ByteBuffer> getSucceededRows() {
+        return succeededRows;
+    }
+
+    /**
+     * @return Results of the sub-batches that succeeded
+     */
+    public List<OperationResult<Void>> getResults() {
+        return results;
+    }
+}
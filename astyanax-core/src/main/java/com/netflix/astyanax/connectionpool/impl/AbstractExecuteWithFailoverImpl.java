@@ -15,16 +15,24 @@
  ******************************************************************************/
 package com.netflix.astyanax.connectionpool.impl;
 
+import java.util.concurrent.ExecutorService;
+
 import com.netflix.astyanax.connectionpool.Connection;
 import com.netflix.astyanax.connectionpool.ConnectionPool;
 import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
 import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.Deadline;
 import com.netflix.astyanax.connectionpool.ExecuteWithFailover;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.HostConnectionPool;
 import com.netflix.astyanax.connectionpool.Operation;
 import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.RetryBudget;
+import com.netflix.astyanax.connectionpool.SpeculativeExecutionPolicy;
+import com.netflix.astyanax.connectionpool.SpeculativeOperation;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.DeadlineExceededException;
+import com.netflix.astyanax.connectionpool.exceptions.InterruptedOperationException;
 import com.netflix.astyanax.connectionpool.exceptions.IsRetryableException;
 import com.netflix.astyanax.connectionpool.exceptions.UnknownException;
 
@@ -38,7 +46,19 @@ import com.netflix.astyanax.connectionpool.exceptions.UnknownException;
  * 
  * Note that extending classes need to implement functionality to {@link AbstractExecuteWithFailoverImpl#borrowConnection(Operation)} that must be used
  * to execute the operation. They also need to implement {@link AbstractExecuteWithFailoverImpl#canRetry()} to tell this class 
- * when to stop borrowing connections on failed attempts. 
+ * when to stop borrowing connections on failed attempts. <br/> <br/>
+ * 
+ * Operations that implement {@link SpeculativeOperation} may be speculatively executed according to their 
+ * {@link SpeculativeExecutionPolicy}.  The attempt then runs on the speculative executor and, if it has not completed 
+ * within the policy's delay, a second connection is borrowed from the next host chosen by {@link #borrowConnection(Operation)} 
+ * and the operation is sent there as well.  The first response wins.  The speculative execution counts as a failover 
+ * towards {@link #canRetry()}. <br/> <br/>
+ * 
+ * Every failover and speculative execution withdraws from the pool's shared {@link RetryBudget}.  Once the 
+ * budget is exhausted the operation fails on its first error. <br/> <br/>
+ * 
+ * Operations with a {@link Deadline} are not attempted once it has passed, and extending classes should bound 
+ * the time they wait for a connection with {@link #boundTimeout(int)}.
  *  
  * @param <CL>
  * @param <R>
@@ -55,6 +75,7 @@ public abstract class AbstractExecuteWithFailoverImpl<CL, R> implements ExecuteW
     private long startTime;
     private long poolStartTime;
     private int attemptCounter = 0;
+    private Deadline deadline;
     private final ConnectionPoolMonitor monitor;
     protected final ConnectionPoolConfiguration config;
     
@@ -94,6 +115,16 @@ public abstract class AbstractExecuteWithFailoverImpl<CL, R> implements ExecuteW
 	 */
     abstract public Connection<CL> borrowConnection(Operation<CL, R> operation) throws ConnectionException;
 
+	/**
+	 * Select the pool of the next attempt, in the same order as {@link #borrowConnection(Operation)}, without 
+	 * borrowing a connection from it.  This is for executors that run the operation on connections of their own.  
+	 * They call {@link #canRetry()} before every failover, as {@link #tryOperation(Operation)} does. 
+	 * 
+	 * @return The selected pool, which is now the current pool
+	 * @throws ConnectionException
+	 */
+	abstract public HostConnectionPool<CL> nextHostConnectionPool() throws ConnectionException;
+
     /**
      * @return boolean
      */
@@ -109,16 +140,27 @@ public abstract class AbstractExecuteWithFailoverImpl<CL, R> implements ExecuteW
 	@Override
 	public OperationResult<R> tryOperation(Operation<CL, R> operation) throws ConnectionException {
 	    Operation<CL, R> filteredOperation = config.getOperationFilterFactory().attachFilter(operation);
+	    SpeculativeExecutionPolicy speculativeExecution = getSpeculativeExecutionPolicy(operation);
+	    deadline = Deadline.of(operation);
 	    
         while (true) {
             attemptCounter++;
             
             try {
+                if (deadline != null && deadline.isExpired())
+                    throw new DeadlineExceededException("Deadline passed before attempt " + attemptCounter);
                 connection = borrowConnection(filteredOperation);
                 startTime = System.currentTimeMillis();
-                OperationResult<R> result = connection.execute(filteredOperation);
+                OperationResult<R> result;
+                if (speculativeExecution != null) {
+                    result = executeSpeculatively(filteredOperation, speculativeExecution);
+                }
+                else {
+                    result = connection.execute(filteredOperation);
+                    monitor.incOperationSuccess(getCurrentHost(), result.getLatency());
+                }
+                config.getRetryBudget().onSuccess();
                 result.setAttemptsCount(attemptCounter);
-                monitor.incOperationSuccess(getCurrentHost(), result.getLatency());
                 return result;
             }
             catch (Exception e) {
@@ -139,6 +181,75 @@ public abstract class AbstractExecuteWithFailoverImpl<CL, R> implements ExecuteW
         }
     }
 
+	/**
+	 * @return Speculative execution policy for the operation or null if it should not be speculatively executed
+	 */
+	private SpeculativeExecutionPolicy getSpeculativeExecutionPolicy(Operation<CL, R> operation) {
+	    if (!(operation instanceof SpeculativeOperation) || operation.getPinnedHost() != null)
+	        return null;
+	    SpeculativeExecutionPolicy policy = ((SpeculativeOperation)operation).getSpeculativeExecutionPolicy();
+	    return policy != null ? policy : config.getSpeculativeExecutionPolicy();
+	}
+
+	/**
+	 * Execute the operation on the current connection and send it to a second host if it does not complete 
+	 * within the policy's delay.  Ownership of the connection(s) is passed on to the {@link SpeculativeExecution}.
+	 */
+	private OperationResult<R> executeSpeculatively(Operation<CL, R> operation, SpeculativeExecutionPolicy policy) throws ConnectionException {
+	    ExecutorService executor = config.getSpeculativeExecutor();
+	    long delay = policy.getDelay(getCurrentHost(), monitor);
+	    SpeculativeExecution<CL, R> execution = new SpeculativeExecution<CL, R>(operation, monitor);
+	    if (delay < 0 || executor == null || !execution.start(executor, connection, SpeculativeExecution.ORIGINAL)) {
+	        OperationResult<R> result = connection.execute(operation);
+	        monitor.incOperationSuccess(getCurrentHost(), result.getLatency());
+	        return result;
+	    }
+
+	    HostConnectionPool<CL> originalPool = connection.getHostConnectionPool();
+	    connection = null;
+	    try {
+	        if (!execution.await(delay) && canRetry() && config.getRetryBudget().tryAcquire())
+	            startSpeculativeExecution(operation, execution, executor, originalPool);
+	        execution.await(-1);
+	    }
+	    catch (InterruptedException e) {
+	        Thread.currentThread().interrupt();
+	        throw new InterruptedOperationException("Interrupted waiting for speculative execution");
+	    }
+	    return execution.getResult();
+	}
+
+	private void startSpeculativeExecution(Operation<CL, R> operation, SpeculativeExecution<CL, R> execution, 
+	        ExecutorService executor, HostConnectionPool<CL> originalPool) {
+	    Connection<CL> speculative;
+	    try {
+	        speculative = borrowConnection(operation);
+	    }
+	    catch (ConnectionException e) {
+	        // The original attempt is still running, keep waiting for it
+	        return;
+	    }
+
+	    if (speculative.getHostConnectionPool() == originalPool) {
+	        // No other replica to send it to
+	        originalPool.returnConnection(speculative);
+	        return;
+	    }
+
+	    attemptCounter++;
+	    monitor.incSpeculativeExecution(speculative.getHostConnectionPool().getHost());
+	    if (!execution.start(executor, speculative, SpeculativeExecution.SPECULATIVE))
+	        speculative.getHostConnectionPool().returnConnection(speculative);
+	}
+
+	/**
+	 * @param timeout Timeout in msec
+	 * @return The timeout, reduced to the time remaining before the operation's deadline if it has one
+	 */
+	protected int boundTimeout(int timeout) {
+	    return deadline != null ? deadline.boundTimeout(timeout) : timeout;
+	}
+
 	protected void releaseConnection() {
         if (connection != null) {
 	    	connection.getHostConnectionPool().returnConnection(connection);
@@ -154,9 +265,19 @@ public abstract class AbstractExecuteWithFailoverImpl<CL, R> implements ExecuteW
         	.setLatencyWithPool(System.currentTimeMillis() - poolStartTime);
 
         if (connectionException instanceof IsRetryableException) {
+            if (deadline != null && deadline.isExpired()) {
+                throw new DeadlineExceededException("Deadline passed after attempt " + attemptCounter, connectionException)
+                    .setHost(getCurrentHost())
+                    .setAttempt(attemptCounter)
+                    .setLatencyWithPool(System.currentTimeMillis() - poolStartTime);
+            }
             if (!canRetry()) {
                 throw connectionException;
             }
+            if (!config.getRetryBudget().tryAcquire()) {
+                monitor.incRetryBudgetExhausted(getCurrentHost());
+                throw connectionException;
+            }
         }
         else {
             // Most likely an operation error
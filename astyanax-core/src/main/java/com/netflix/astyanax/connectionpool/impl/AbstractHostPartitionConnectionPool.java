@@ -22,6 +22,9 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.cliffc.high_scale_lib.NonBlockingHashMap;
 import org.slf4j.Logger;
@@ -30,21 +33,28 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.astyanax.connectionpool.ConnectionFactory;
 import com.netflix.astyanax.connectionpool.ConnectionPool;
 import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
 import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.Deadline;
 import com.netflix.astyanax.connectionpool.ExecuteWithFailover;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.HostConnectionPool;
 import com.netflix.astyanax.connectionpool.LatencyScoreStrategy.Listener;
 import com.netflix.astyanax.connectionpool.Operation;
 import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.RetryBudget;
 import com.netflix.astyanax.connectionpool.TokenRange;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.DeadlineExceededException;
 import com.netflix.astyanax.connectionpool.exceptions.OperationException;
+import com.netflix.astyanax.partitioner.LongTokenPartitioner;
 import com.netflix.astyanax.partitioner.Partitioner;
 import com.netflix.astyanax.retry.RetryPolicy;
+import com.netflix.astyanax.retry.RunOnce;
+import com.netflix.astyanax.retry.SleepingRetryPolicy;
 import com.netflix.astyanax.tracing.AstyanaxContext;
 import com.netflix.astyanax.tracing.OperationTracer;
 
@@ -65,6 +75,8 @@ import com.netflix.astyanax.tracing.OperationTracer;
  * when this happens.  <br/>
  * 
  * Note that when the connection pool is started it fetches the list of seed hosts from config (if any) and then inits it's data structures using these seed hosts. <br/>
+ * When the hosts are set the connections of all new hosts are primed in parallel, see {@link ConnectionPoolConfiguration#getPrimeConcurrency()}, 
+ * and {@link #awaitReady(long, float)} can be used to wait for the pool to be warm. <br/>
  * It also employs a listener to the latency score updates so  that it can rebuild partitions as and when it receives updates 
  * </p>
  * 
@@ -85,6 +97,8 @@ import com.netflix.astyanax.tracing.OperationTracer;
 public abstract class AbstractHostPartitionConnectionPool<CL> implements ConnectionPool<CL>,
         SimpleHostConnectionPool.Listener<CL> {
     private static Logger LOG = LoggerFactory.getLogger(AbstractHostPartitionConnectionPool.class);
+
+    private static final int READY_POLL_INTERVAL = 50;
 	
     protected final NonBlockingHashMap<Host, HostConnectionPool<CL>> hosts;
     protected final ConnectionPoolConfiguration                      config;
@@ -93,6 +107,12 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
     protected final Topology<CL>                                     topology;
     protected final Partitioner                                      partitioner;
 
+    /**
+     * Pools of new hosts that {@link #setHosts(Collection)} is priming.  They are kept out of the topology
+     * until they are primed.  Guarded by this.
+     */
+    private final Set<HostConnectionPool<CL>>                        primingPools = Sets.newHashSet();
+
     /**
      * @param config
      * @param factory
@@ -104,16 +124,32 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
         this.factory    = factory;
         this.monitor    = monitor;
         this.hosts      = new NonBlockingHashMap<Host, HostConnectionPool<CL>>();
-        this.topology   = new TokenPartitionedTopology<CL>(config.getPartitioner(), config.getLatencyScoreStrategy());
+        this.topology   = newTopology(config);
         this.partitioner = config.getPartitioner();
     }
 
+    /**
+     * Create the topology for this pool.  Partitioners whose tokens fit in a long get a topology
+     * that routes keys over a primitive token ring.  Partitions are tiered by the configured local
+     * datacenter and rack.
+     * @param config
+     * @return {@link Topology}
+     */
+    protected Topology<CL> newTopology(ConnectionPoolConfiguration config) {
+        Partitioner partitioner = config.getPartitioner();
+        ReplicaLocality locality = ReplicaLocality.from(config);
+        if (partitioner instanceof LongTokenPartitioner) {
+            return new LongTokenPartitionedTopology<CL>((LongTokenPartitioner)partitioner, config.getLatencyScoreStrategy(), locality);
+        }
+        return new TokenPartitionedTopology<CL>(partitioner, config.getLatencyScoreStrategy(), locality);
+    }
+
     /**
      * Starts the conn pool and resources associated with it
      */
     @Override
     public void start() {
-        ConnectionPoolMBeanManager.getInstance().registerMonitor(config.getName(), this);
+        ConnectionPoolMBeanManager.getInstance().registerMonitor(config.getName(), this, monitor);
 
         String seeds = config.getSeeds();
         if (seeds != null && !seeds.isEmpty()) {
@@ -150,7 +186,18 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
 
     protected HostConnectionPool<CL> newHostConnectionPool(Host host, ConnectionFactory<CL> factory,
             ConnectionPoolConfiguration config) {
-        return new SimpleHostConnectionPool<CL>(host, factory, monitor, config, this);
+        HostConnectionPoolType type = config.getHostConnectionPoolType();
+        if (type == null)
+            type = HostConnectionPoolType.SIMPLE;
+
+        switch (type) {
+            case LIFO:
+                return new LifoHostConnectionPool<CL>(host, factory, monitor, config, this, false);
+            case LIFO_THREAD_AFFINITY:
+                return new LifoHostConnectionPool<CL>(host, factory, monitor, config, this, true);
+            default:
+                return new SimpleHostConnectionPool<CL>(host, factory, monitor, config, this);
+        }
     }
 
     /**
@@ -212,17 +259,12 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
         else {
             HostConnectionPool<CL> pool = newHostConnectionPool(host, factory, config);
             if (null == hosts.putIfAbsent(host, pool)) {
-                try {
-                    monitor.onHostAdded(host, pool);
-                    if (refresh) {
-                        topology.addPool(pool);
-                        rebuildPartitions();
-                    }
-                    pool.primeConnections(config.getInitConnsPerHost());
-                }
-                catch (Exception e) {
-                    // Ignore, pool will have been marked down internally
+                monitor.onHostAdded(host, pool);
+                if (refresh) {
+                    topology.addPool(pool);
+                    rebuildPartitions();
                 }
+                primeConnections(pool);
                 return true;
             }
             else {
@@ -278,6 +320,7 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
     public synchronized boolean removeHost(Host host, boolean refresh) {
         HostConnectionPool<CL> pool = hosts.remove(host);
         if (pool != null) {
+            primingPools.remove(pool);
             topology.removePool(pool);
             rebuildPartitions();
             monitor.onHostRemoved(host);
@@ -299,37 +342,181 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
     }
 
     /**
+     * Apply the difference between the ring and the current hosts.  Removed hosts and token changes are applied 
+     * with a single update of the topology, and nothing is rebuilt if the ring didn't change.  The pools of new
+     * hosts are primed without holding the pool lock and join the topology, again in a single update, once 
+     * they are primed.
      * @param ring
      */
     @Override
-    public synchronized void setHosts(Collection<Host> ring) {
-        
-        // Temporary list of hosts to remove. Any host not in the new ring will
-        // be removed
-        Set<Host> hostsToRemove = Sets.newHashSet(hosts.keySet());
-
-        // Add new hosts.
-        boolean changed = false;
-        for (Host host : ring) {
-            if (addHost(host, false))
-                changed = true;
-            hostsToRemove.remove(host);
+    public void setHosts(Collection<Host> ring) {
+        List<HostConnectionPool<CL>> added = Lists.newArrayList();
+        synchronized (this) {
+            // Temporary list of hosts to remove. Any host not in the new ring will
+            // be removed
+            Set<Host> hostsToRemove = Sets.newHashSet(hosts.keySet());
+
+            boolean changed = false;
+            for (Host host : ring) {
+                hostsToRemove.remove(host);
+                HostConnectionPool<CL> existing = hosts.get(host);
+                if (existing != null) {
+                    if (!hasSameTokenRanges(existing.getHost(), host)) {
+                        existing.getHost().setTokenRanges(host.getTokenRanges());
+                        changed = true;
+                    }
+                }
+                else {
+                    HostConnectionPool<CL> pool = newHostConnectionPool(host, factory, config);
+                    if (null == hosts.putIfAbsent(host, pool)) {
+                        monitor.onHostAdded(host, pool);
+                        primingPools.add(pool);
+                        added.add(pool);
+                    }
+                }
+            }
+
+            // Remove any hosts that are no longer in the ring
+            for (Host host : hostsToRemove) {
+                HostConnectionPool<CL> pool = hosts.remove(host);
+                if (pool != null) {
+                    primingPools.remove(pool);
+                    monitor.onHostRemoved(host);
+                    pool.shutdown();
+                    changed = true;
+                }
+            }
+
+            if (changed)
+                updateTopology();
         }
 
-        // Remove any hosts that are no longer in the ring
-        for (Host host : hostsToRemove) {
-            removeHost(host, false);
-            changed = true;
+        if (added.isEmpty())
+            return;
+
+        primeConnections(added);
+
+        synchronized (this) {
+            primingPools.removeAll(added);
+            updateTopology();
         }
+    }
 
-        if (changed) {
-            topology.setPools(hosts.values());
-            rebuildPartitions();
+    /**
+     * Set all pools that are not being primed on the topology.  Must be called with the lock held.
+     */
+    private void updateTopology() {
+        List<HostConnectionPool<CL>> pools = Lists.newArrayList();
+        for (HostConnectionPool<CL> pool : hosts.values()) {
+            if (!primingPools.contains(pool))
+                pools.add(pool);
+        }
+        topology.setPools(pools);
+        rebuildPartitions();
+    }
+
+    private static boolean hasSameTokenRanges(Host current, Host updated) {
+        if (current.getTokenRanges().size() != updated.getTokenRanges().size())
+            return false;
+
+        List<TokenRange> currentTokens = Lists.newArrayList(current.getTokenRanges());
+        List<TokenRange> newTokens     = Lists.newArrayList(updated.getTokenRanges());
+        Collections.sort(currentTokens, compareByStartToken);
+        Collections.sort(newTokens,     compareByStartToken);
+        for (int i = 0; i < currentTokens.size(); i++) {
+            if (!currentTokens.get(i).getStartToken().equals(newTokens.get(i).getStartToken()) ||
+                !currentTokens.get(i).getEndToken().equals(newTokens.get(i).getEndToken())) {
+                return false;
+            }
         }
+        return true;
     }
     
     /**
-     * Executes the operation using failover and retry strategy
+     * Prime the connections of new host pools, in parallel on up to {@link ConnectionPoolConfiguration#getPrimeConcurrency()}
+     * threads.  Returns once all pools have been primed or failed to prime.
+     * @param pools
+     */
+    private void primeConnections(List<HostConnectionPool<CL>> pools) {
+        int concurrency = Math.min(pools.size(), config.getPrimeConcurrency());
+        if (concurrency <= 1) {
+            for (HostConnectionPool<CL> pool : pools) {
+                primeConnections(pool);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, 
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("PrimeConnections-" + config.getName() + "-%d").build());
+        try {
+            for (final HostConnectionPool<CL> pool : pools) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        primeConnections(pool);
+                    }
+                });
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private void primeConnections(HostConnectionPool<CL> pool) {
+        try {
+            pool.primeConnections(config.getInitConnsPerHost());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (Exception e) {
+            // Ignore, pool will have been marked down internally
+        }
+    }
+
+    /**
+     * A host is ready once it is up and has opened its initial connections.  Hosts that are down are
+     * counted against the fraction, so a fraction of 1 will not be reached while any host is down.
+     */
+    @Override
+    public boolean awaitReady(long timeout, float minHostFraction) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!isReady(minHostFraction)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+                return false;
+            Thread.sleep(Math.min(remaining, READY_POLL_INTERVAL));
+        }
+        return true;
+    }
+
+    private boolean isReady(float minHostFraction) {
+        List<HostConnectionPool<CL>> pools = getPools();
+        if (pools.isEmpty())
+            return false;
+
+        int initConns = Math.min(config.getInitConnsPerHost(), config.getMaxConnsPerHost());
+        int ready = 0;
+        for (HostConnectionPool<CL> pool : pools) {
+            if (!pool.isReconnecting() && pool.getActiveConnectionCount() >= initConns)
+                ready++;
+        }
+        return (float)ready / pools.size() >= minHostFraction;
+    }
+
+    /**
+     * Executes the operation using failover and retry strategy.  If the operation has a {@link Deadline} 
+     * retries that cannot complete before it are skipped.  Retries also withdraw from the configuration's 
+     * {@link RetryBudget} and are not attempted once it is exhausted.
      * @param op
      * @param retry
      * @return {@link OperationResult}
@@ -345,8 +532,10 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
         	opsTracer.onCall(context, op);
         }
     	
+        Deadline deadline = Deadline.of(op);
         retry.begin();
         ConnectionException lastException = null;
+        boolean allowRetry;
         do {
             try {
                 OperationResult<R> result = newExecuteWithFailover(op).tryOperation(op);
@@ -363,15 +552,20 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
                 retry.failure(e);
                 throw e;
             }
+            catch (DeadlineExceededException e) {
+                lastException = e;
+                break;
+            }
             catch (ConnectionException e) {
                 lastException = e;
             } 
             
-            if (retry.allowRetry()) {
+            allowRetry = allowRetry(retry, deadline, lastException.getHost());
+            if (allowRetry) {
             	LOG.debug("Retry policy[" + retry.toString() + "] will allow a subsequent retry for operation [" + op.getClass() + 
             			  "] on keyspace [" + op.getKeyspace() + "] on pinned host[" + op.getPinnedHost() + "]");
             }
-        } while (retry.allowRetry());
+        } while (allowRetry);
         
         if(context != null && lastException != null)  
         	opsTracer.onException(context, op, lastException);
@@ -380,6 +574,36 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
         throw lastException;
     }
 
+    /**
+     * Consult the retry budget and the retry policy, skipping retries that could not complete before the deadline.
+     * The budget is checked before the policy so that no time is spent backing off for a retry that will not 
+     * be allowed.
+     */
+    private boolean allowRetry(RetryPolicy retry, Deadline deadline, Host host) {
+        if (retry instanceof RunOnce)
+            return false;
+
+        RetryBudget budget = config.getRetryBudget();
+        if (budget.isExhausted()) {
+            monitor.incRetryBudgetExhausted(host);
+            return false;
+        }
+
+        boolean allowRetry;
+        if (deadline == null)
+            allowRetry = retry.allowRetry();
+        else if (retry instanceof SleepingRetryPolicy)
+            allowRetry = ((SleepingRetryPolicy)retry).allowRetry(deadline.timeRemaining(TimeUnit.MILLISECONDS));
+        else
+            allowRetry = retry.allowRetry() && !deadline.isExpired();
+
+        if (allowRetry && !budget.tryAcquire()) {
+            monitor.incRetryBudgetExhausted(host);
+            return false;
+        }
+        return allowRetry;
+    }
+
     /**
      * Return a new failover context. The context captures the connection pool
      * state and implements the necessary failover logic.
@@ -391,6 +615,20 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
     protected abstract <R> ExecuteWithFailover<CL, R> newExecuteWithFailover(Operation<CL, R> op)
             throws ConnectionException;
 
+    /**
+     * Select hosts for the operation as {@link #executeWithFailover(Operation, RetryPolicy)} does, for executors 
+     * that run the operation on connections of their own.  Hosts are taken from the returned context with 
+     * {@link AbstractExecuteWithFailoverImpl#nextHostConnectionPool()}, which does not borrow a connection.
+     * 
+     * @throws OperationException if the failover of this pool does not extend {@link AbstractExecuteWithFailoverImpl}
+     */
+    public <R> AbstractExecuteWithFailoverImpl<CL, R> newHostSelector(Operation<CL, R> op) throws ConnectionException {
+        ExecuteWithFailover<CL, R> executeWithFailover = newExecuteWithFailover(op);
+        if (!(executeWithFailover instanceof AbstractExecuteWithFailoverImpl))
+            throw new OperationException(getClass().getSimpleName() + " does not select host pools");
+        return (AbstractExecuteWithFailoverImpl<CL, R>) executeWithFailover;
+    }
+
     /**
      * Called every time a host is added, removed or is marked as down
      */
@@ -404,6 +642,20 @@ public abstract class AbstractHostPartitionConnectionPool<CL> implements Connect
     public Topology<CL> getTopology() {
         return topology;
     }
+
+    /**
+     * @return {@link ConnectionPoolConfiguration}
+     */
+    public ConnectionPoolConfiguration getConnectionPoolConfiguration() {
+        return config;
+    }
+
+    /**
+     * @return {@link ConnectionPoolMonitor}
+     */
+    public ConnectionPoolMonitor getConnectionPoolMonitor() {
+        return monitor;
+    }
     
     /**
      * @return {@link Partitioner}
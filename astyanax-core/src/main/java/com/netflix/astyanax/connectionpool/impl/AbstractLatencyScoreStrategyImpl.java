@@ -15,10 +15,14 @@
  */
 package com.netflix.astyanax.connectionpool.impl;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Executors;
@@ -227,6 +231,202 @@ public abstract class AbstractLatencyScoreStrategyImpl implements LatencyScoreSt
         return pools;
     }
 
+    @Override
+    public <CL> Ranking<CL> rank(Collection<HostConnectionPool<CL>> pools) {
+        return new ScoreRanking<CL>(pools);
+    }
+
+    /**
+     * Scores of all hosts sorted once by {@link #rank(Collection)}.  A partition is filtered by looking up the 
+     * rank of each of its hosts, so that filtering neither sorts the partition's hosts by score nor allocates 
+     * anything besides the result.  The criteria are the same as {@link #sortAndfilterPartition(List, AtomicBoolean)}, 
+     * except that the result is not shuffled. <br/> <br/>
+     * 
+     * Hosts that were added after the ranking was created are treated as not having a score yet.
+     */
+    private class ScoreRanking<CL> implements Ranking<CL> {
+        private static final int DROPPED  = Integer.MIN_VALUE;
+        private static final int UNRANKED = -1;
+
+        private final Map<HostConnectionPool<CL>, Integer> ranks;
+        private final double[]                             scores;
+
+        // Pools and their rank by position in the collection that was ranked
+        private final HostConnectionPool<CL>[]             pools;
+        private final int[]                                positionRanks;
+
+        // Scratch space reused across partitions, guarded by this
+        private int[] poolRanks = new int[16];
+        private int[] poolBusy  = new int[16];
+        private int[] sorted    = new int[16];
+
+        @SuppressWarnings("unchecked")
+        ScoreRanking(Collection<HostConnectionPool<CL>> pools) {
+            // Capture the scores first so they don't change while sorting
+            List<ScoredPool<CL>> scored = Lists.newArrayListWithCapacity(pools.size());
+            for (HostConnectionPool<CL> pool : pools) {
+                scored.add(new ScoredPool<CL>(pool, scored.size()));
+            }
+            this.pools = new HostConnectionPool[scored.size()];
+            for (ScoredPool<CL> pool : scored) {
+                this.pools[pool.position] = pool.pool;
+            }
+            Collections.sort(scored);
+
+            ranks         = new IdentityHashMap<HostConnectionPool<CL>, Integer>(scored.size());
+            scores        = new double[scored.size()];
+            positionRanks = new int[scored.size()];
+            for (int i = 0; i < scored.size(); i++) {
+                ranks.put(scored.get(i).pool, i);
+                scores[i] = scored.get(i).score;
+                positionRanks[scored.get(i).position] = i;
+            }
+        }
+
+        private double scoreOf(int rank) {
+            return rank >= 0 ? scores[rank] : 0.0;
+        }
+
+        @Override
+        public synchronized boolean filter(List<HostConnectionPool<CL>> pools, List<HostConnectionPool<CL>> result) {
+            int size = pools.size();
+            ensureCapacity(size);
+            for (int i = 0; i < size; i++) {
+                HostConnectionPool<CL> pool = pools.get(i);
+                Integer rank = ranks.get(pool);
+                capture(i, pool, rank != null ? rank : UNRANKED);
+            }
+            filter(size);
+
+            for (int i = 0; i < size; i++) {
+                if (poolRanks[i] != DROPPED)
+                    result.add(pools.get(i));
+            }
+            return false;
+        }
+
+        @Override
+        public synchronized long filter(int[] positions, int from, int to) {
+            int size = to - from;
+            ensureCapacity(size);
+            for (int i = 0; i < size; i++) {
+                int position = positions[from + i];
+                capture(i, this.pools[position], positionRanks[position]);
+            }
+            filter(size);
+
+            long kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (poolRanks[i] != DROPPED)
+                    kept |= 1L << i;
+            }
+            return kept;
+        }
+
+        private void ensureCapacity(int size) {
+            if (poolRanks.length < size) {
+                poolRanks = new int[size];
+                poolBusy  = new int[size];
+                sorted    = new int[size];
+            }
+        }
+
+        private void capture(int i, HostConnectionPool<CL> pool, int rank) {
+            // Step 1: Skip any host that is currently reconnecting
+            if (pool.isReconnecting()) {
+                poolRanks[i] = DROPPED;
+            }
+            else {
+                poolRanks[i] = rank;
+                poolBusy[i]  = pool.getBusyConnectionCount() + pool.getBlockedThreadCount();
+            }
+        }
+
+        /**
+         * Mark the pools of the partition that are filtered out as DROPPED in poolRanks
+         */
+        private void filter(int size) {
+            int    active = 0;
+            double best   = 0.0;
+            for (int i = 0; i < size; i++) {
+                if (poolRanks[i] == DROPPED)
+                    continue;
+                double score = scoreOf(poolRanks[i]);
+                if (score > 0.0 && (best == 0.0 || score < best))
+                    best = score;
+                sorted[active++] = poolRanks[i];
+            }
+            int keep = (int) Math.max(1, Math.ceil(active * getKeepRatio()));
+
+            // Step 2: Filter out hosts that are too slow but keep at least the best keepRatio hosts
+            int remaining = active;
+            if (active > keep && best > 0.0) {
+                sort(sorted, active);
+                int lastKept = sorted[keep - 1];
+                for (int i = 0; i < size; i++) {
+                    int rank = poolRanks[i];
+                    if (rank != DROPPED && rank > lastKept && scoreOf(rank) / best > getScoreThreshold()) {
+                        poolRanks[i] = DROPPED;
+                        remaining--;
+                    }
+                }
+            }
+
+            // Step 3: Filter out hosts that are much busier than the least busy host
+            if (remaining > keep) {
+                int count = 0;
+                for (int i = 0; i < size; i++) {
+                    if (poolRanks[i] != DROPPED)
+                        sorted[count++] = poolBusy[i];
+                }
+                sort(sorted, count);
+                int leastBusy = sorted[0];
+                int lastKept  = sorted[keep - 1];
+                for (int i = 0; i < size && remaining > keep; i++) {
+                    if (poolRanks[i] != DROPPED && poolBusy[i] > lastKept && poolBusy[i] - leastBusy > getBlockedThreshold()) {
+                        poolRanks[i] = DROPPED;
+                        remaining--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sort the first count values.  Partitions typically have as many pools as the replication factor, for which an
+     * insertion sort is much cheaper than {@link Arrays#sort(int[], int, int)}.
+     */
+    private static void sort(int[] values, int count) {
+        if (count > 16) {
+            Arrays.sort(values, 0, count);
+            return;
+        }
+        for (int i = 1; i < count; i++) {
+            int value = values[i];
+            int j = i - 1;
+            for (; j >= 0 && values[j] > value; j--) {
+                values[j + 1] = values[j];
+            }
+            values[j + 1] = value;
+        }
+    }
+
+    private static class ScoredPool<CL> implements Comparable<ScoredPool<CL>> {
+        final HostConnectionPool<CL> pool;
+        final double                 score;
+        final int                    position;
+
+        ScoredPool(HostConnectionPool<CL> pool, int position) {
+            this.pool     = pool;
+            this.score    = pool.getScore();
+            this.position = position;
+        }
+        @Override
+        public int compareTo(ScoredPool<CL> other) {
+            return Double.compare(score, other.score);
+        }
+    }
+
     @Override
     public void update() {
         for (Instance inst : instances) {
@@ -18,6 +18,8 @@ package com.netflix.astyanax.connectionpool.impl;
 import java.nio.ByteBuffer;
 
 import com.netflix.astyanax.connectionpool.ConnectionContext;
+import com.netflix.astyanax.connectionpool.Deadline;
+import com.netflix.astyanax.connectionpool.DeadlineOperation;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.Operation;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
@@ -25,14 +27,14 @@ import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 /**
  * 
  * Class that wraps an {@link Operation} to provide extra functionality. It can be used by extending class to wrap operation executions
- * and then decorate the execute functionality with their own logic 
+ * and then decorate the execute functionality with their own logic.  The wrapped operation's {@link Deadline}, if any, is passed through. 
  * 
  * @author elandau
  *
  * @param <CL>
  * @param <R>
  */
-public class AbstractOperationFilter<CL, R> implements Operation<CL, R>{
+public class AbstractOperationFilter<CL, R> implements Operation<CL, R>, DeadlineOperation {
 
     private Operation<CL, R> next;
     
@@ -60,4 +62,9 @@ public class AbstractOperationFilter<CL, R> implements Operation<CL, R>{
         return next.getPinnedHost();
     }
 
+    @Override
+    public Deadline getDeadline() {
+        return Deadline.of(next);
+    }
+
 }
@@ -15,62 +15,270 @@
  ******************************************************************************/
 package com.netflix.astyanax.connectionpool.impl;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import com.netflix.astyanax.connectionpool.BadHostDetector;
 import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
 
 /**
- * BadHostDetector which marks the host as failed if there is a transport
- * exception or if it timed out too many times within a certain time window
+ * BadHostDetector which acts as a circuit breaker per host.  The circuit opens when,
+ * within the {@link ConnectionPoolConfiguration#getTimeoutWindow()}, at least 
+ * minimumCalls calls were made to the host and either the rate of calls failing with
+ * a host level error (timeouts, transport errors) or the rate of calls slower than the
+ * slow call duration exceeds its threshold. <br/> <br/>
+ * 
+ * Each host keeps its own sliding window made of a small ring of time buckets of
+ * primitive counters, so recording a call is an atomic increment and never allocates
+ * or locks.  Buckets are recycled without locking, so a few samples may be lost when
+ * a bucket rolls over under contention. <br/> <br/>
+ * 
+ * An open circuit stays open for the open duration, after which the owning pool moves
+ * it to half open and sends up to halfOpenProbes probes to the host.  The circuit 
+ * closes once all of them succeed and opens again as soon as one fails. <br/> <br/>
+ * 
+ * Slow call tracking is off by default, since calls returning large slices or range
+ * scans can be slow on a healthy host.  Pass a slow call duration suited to the
+ * workload to enable it.
  * 
  * @author elandau
  *
+ * @see SimpleHostConnectionPool for how the host is removed from and added back to the topology
  */
 public class BadHostDetectorImpl implements BadHostDetector {
-	
-	private final LinkedBlockingQueue<Long> timeouts;
-	private final ConnectionPoolConfiguration config;
-	
-	public BadHostDetectorImpl(ConnectionPoolConfiguration config) {
-		this.timeouts = new LinkedBlockingQueue<Long>();
-		this.config = config;
-	}
-	
-	public String toString() {
+    public static final float DEFAULT_FAILURE_RATE_THRESHOLD   = 0.5f;
+    public static final float DEFAULT_SLOW_CALL_RATE_THRESHOLD = 0.8f;
+    public static final int   DEFAULT_SLOW_CALL_DURATION       = 0;
+    public static final int   DEFAULT_MINIMUM_CALLS            = 20;
+    public static final int   DEFAULT_OPEN_DURATION            = 5000;
+    public static final int   DEFAULT_HALF_OPEN_PROBES         = 3;
+
+    private static final int BUCKET_COUNT = 10;
+
+    // Layout of a bucket in the counter array
+    private static final int EPOCH    = 0;
+    private static final int CALLS    = 1;
+    private static final int FAILURES = 2;
+    private static final int SLOW     = 3;
+    private static final int STRIDE   = 4;
+
+    private static final int CLOSED    = 0;
+    private static final int OPEN      = 1;
+    private static final int HALF_OPEN = 2;
+
+    private final ConnectionPoolConfiguration config;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long  slowCallDuration;
+    private final int   minimumCalls;
+    private final int   openDuration;
+    private final int   halfOpenProbes;
+
+    /**
+     * @param config
+     * @param failureRateThreshold  Fraction of calls failing with a host level error at which the circuit opens
+     * @param slowCallRateThreshold Fraction of slow calls at which the circuit opens
+     * @param slowCallDuration      Latency in milliseconds above which a call is slow, or 0 to not track slow calls
+     * @param minimumCalls          Minimum number of calls in the window before the rates are considered
+     * @param openDuration          Time in milliseconds to keep the circuit open before probing the host
+     * @param halfOpenProbes        Number of successful probes needed to close the circuit
+     */
+    public BadHostDetectorImpl(ConnectionPoolConfiguration config, float failureRateThreshold, float slowCallRateThreshold,
+            int slowCallDuration, int minimumCalls, int openDuration, int halfOpenProbes) {
+        this.config                = config;
+        this.failureRateThreshold  = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDuration      = TimeUnit.MILLISECONDS.toNanos(slowCallDuration);
+        this.minimumCalls          = Math.max(1, minimumCalls);
+        this.openDuration          = openDuration;
+        this.halfOpenProbes        = Math.max(1, halfOpenProbes);
+    }
+
+    public BadHostDetectorImpl(ConnectionPoolConfiguration config) {
+        this(config, DEFAULT_FAILURE_RATE_THRESHOLD, DEFAULT_SLOW_CALL_RATE_THRESHOLD, DEFAULT_SLOW_CALL_DURATION,
+             DEFAULT_MINIMUM_CALLS, DEFAULT_OPEN_DURATION, DEFAULT_HALF_OPEN_PROBES);
+    }
+
+    public String toString() {
         return new StringBuilder()
              .append("BadHostDetectorImpl[")
-             .append("count=").append(config.getMaxTimeoutCount())
-             .append(",window=").append(config.getTimeoutWindow())
+             .append("window=").append(config.getTimeoutWindow())
+             .append(",failureRate=").append(failureRateThreshold)
+             .append(",slowRate=").append(slowCallRateThreshold)
+             .append(",slow=").append(TimeUnit.NANOSECONDS.toMillis(slowCallDuration))
+             .append(",minCalls=").append(minimumCalls)
+             .append(",open=").append(openDuration)
+             .append(",probes=").append(halfOpenProbes)
              .append("]")
              .toString();
-	}
-	
-	@Override
-	public Instance createInstance() {
-		return new Instance() {
-			@Override
-			public boolean addTimeoutSample() {
-				long currentTimeMillis = System.currentTimeMillis();
-				
-				timeouts.add(currentTimeMillis);
-				
-				// Determine if the host exceeded timeoutCounter exceptions in
-				// the timeoutWindow, in which case this is determined to be a
-				// failure
-				if (timeouts.size() > config.getMaxTimeoutCount()) {
-					Long last = timeouts.remove();
-					if ((currentTimeMillis - last.longValue()) < config.getTimeoutWindow()) {
-						return true;
-					}
-				}
-				return false;
-			}
-		};
-	}
-
-	@Override
-	public void removeInstance(Instance instance) {
-		// NOOP
-	}
+    }
+
+    @Override
+    public Instance createInstance() {
+        return new HostCircuitBreaker(Math.max(1, config.getTimeoutWindow() / BUCKET_COUNT));
+    }
+
+    @Override
+    public void removeInstance(Instance instance) {
+        // NOOP
+    }
+
+    private class HostCircuitBreaker implements CircuitBreaker {
+        private final long            bucketMillis;
+        private final AtomicLongArray buckets        = new AtomicLongArray(BUCKET_COUNT * STRIDE);
+        private final AtomicInteger   state          = new AtomicInteger(CLOSED);
+        private final AtomicInteger   probePermits   = new AtomicInteger();
+        private final AtomicInteger   probeSuccesses = new AtomicInteger();
+
+        HostCircuitBreaker(long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+            clear();
+        }
+
+        @Override
+        public boolean addTimeoutSample() {
+            return addFailure();
+        }
+
+        @Override
+        public boolean addSuccess() {
+            switch (state.get()) {
+            case CLOSED:
+                record(CALLS);
+                return false;
+            case HALF_OPEN:
+                if (probeSuccesses.incrementAndGet() >= halfOpenProbes && state.compareAndSet(HALF_OPEN, CLOSED)) {
+                    clear();
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+            }
+        }
+
+        @Override
+        public boolean addFailure() {
+            switch (state.get()) {
+            case CLOSED:
+                record(FAILURES);
+                return tripIfNeeded();
+            case HALF_OPEN:
+                return state.compareAndSet(HALF_OPEN, OPEN);
+            default:
+                return false;
+            }
+        }
+
+        @Override
+        public boolean addLatencySample(long latency) {
+            if (slowCallDuration == 0 || latency < slowCallDuration)
+                return false;
+
+            switch (state.get()) {
+            case CLOSED:
+                record(SLOW);
+                return tripIfNeeded();
+            case HALF_OPEN:
+                return state.compareAndSet(HALF_OPEN, OPEN);
+            default:
+                return false;
+            }
+        }
+
+        @Override
+        public boolean allowRequest() {
+            switch (state.get()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                while (true) {
+                    int permits = probePermits.get();
+                    if (permits <= 0)
+                        return false;
+                    if (probePermits.compareAndSet(permits, permits - 1))
+                        return true;
+                }
+            default:
+                return false;
+            }
+        }
+
+        @Override
+        public boolean halfOpen() {
+            if (state.get() == CLOSED)
+                return false;
+            // Probes that were never completed (e.g. failed to borrow a connection) are issued again
+            probeSuccesses.set(0);
+            probePermits.set(halfOpenProbes);
+            state.set(HALF_OPEN);
+            return true;
+        }
+
+        @Override
+        public long getOpenDuration() {
+            return openDuration;
+        }
+
+        @Override
+        public State getState() {
+            switch (state.get()) {
+            case OPEN:
+                return State.OPEN;
+            case HALF_OPEN:
+                return State.HALF_OPEN;
+            default:
+                return State.CLOSED;
+            }
+        }
+
+        /**
+         * Increment a counter in the current bucket, and the call count for failures
+         */
+        private void record(int counter) {
+            long epoch = System.currentTimeMillis() / bucketMillis;
+            int  base  = (int)(epoch % BUCKET_COUNT) * STRIDE;
+            long current = buckets.get(base + EPOCH);
+            if (current != epoch && buckets.compareAndSet(base + EPOCH, current, epoch)) {
+                buckets.set(base + CALLS,    0);
+                buckets.set(base + FAILURES, 0);
+                buckets.set(base + SLOW,     0);
+            }
+            if (counter == FAILURES)
+                buckets.incrementAndGet(base + CALLS);
+            buckets.incrementAndGet(base + counter);
+        }
+
+        private boolean tripIfNeeded() {
+            long oldest   = System.currentTimeMillis() / bucketMillis - BUCKET_COUNT;
+            long calls    = 0;
+            long failures = 0;
+            long slow     = 0;
+            for (int base = 0; base < BUCKET_COUNT * STRIDE; base += STRIDE) {
+                if (buckets.get(base + EPOCH) > oldest) {
+                    calls    += buckets.get(base + CALLS);
+                    failures += buckets.get(base + FAILURES);
+                    slow     += buckets.get(base + SLOW);
+                }
+            }
+
+            if (calls < minimumCalls)
+                return false;
+            if (failures >= calls * failureRateThreshold || slow >= calls * slowCallRateThreshold)
+                return state.compareAndSet(CLOSED, OPEN);
+            return false;
+        }
+
+        private void clear() {
+            for (int base = 0; base < BUCKET_COUNT * STRIDE; base += STRIDE) {
+                buckets.set(base + EPOCH, -1);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "CircuitBreaker[" + getState() + "]";
+        }
+    }
 }
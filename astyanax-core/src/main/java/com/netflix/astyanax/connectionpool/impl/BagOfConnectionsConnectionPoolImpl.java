@@ -66,7 +66,7 @@ public class BagOfConnectionsConnectionPoolImpl<CL> extends AbstractHostPartitio
         super(config, factory, monitor);
     }
 
-    private <R> Connection<CL> borrowConnection(Operation<CL, R> op) throws ConnectionException {
+    private <R> Connection<CL> borrowConnection(Operation<CL, R> op, int maxWaitTimeout) throws ConnectionException {
         long startTime = System.currentTimeMillis();
 
         // Try to get an open connection from the bag
@@ -83,7 +83,7 @@ public class BagOfConnectionsConnectionPoolImpl<CL> extends AbstractHostPartitio
             if (activeConnectionCount.incrementAndGet() > config.getMaxConns()) {
                 activeConnectionCount.decrementAndGet();
                 try {
-                    connection = idleConnections.poll(config.getMaxTimeoutWhenExhausted(), TimeUnit.MILLISECONDS);
+                    connection = idleConnections.poll(maxWaitTimeout, TimeUnit.MILLISECONDS);
                     if (connection == null) {
                         throw new PoolTimeoutException("Timed out waiting for connection from bag");
                     }
@@ -182,11 +182,24 @@ public class BagOfConnectionsConnectionPoolImpl<CL> extends AbstractHostPartitio
         @Override
         public Connection<CL> borrowConnection(Operation<CL, R> operation) throws ConnectionException {
             pool = null;
-            connection = BagOfConnectionsConnectionPoolImpl.this.borrowConnection(operation);
+            connection = BagOfConnectionsConnectionPoolImpl.this.borrowConnection(operation,
+                    boundTimeout(config.getMaxTimeoutWhenExhausted()));
             pool = connection.getHostConnectionPool();
             return connection;
         }
 
+        /**
+         * Select a random host, as a new connection of the bag is opened on one
+         */
+        @Override
+        public HostConnectionPool<CL> nextHostConnectionPool() throws ConnectionException {
+            List<HostConnectionPool<CL>> pools = topology.getAllPools().getPools();
+            if (pools == null || pools.isEmpty())
+                throw new NoAvailableHostsException("No hosts to borrow from");
+            pool = pools.get(randomIndex.nextInt(pools.size()));
+            return pool;
+        }
+
         @Override
         public boolean canRetry() {
             return --retryCountdown >= 0;
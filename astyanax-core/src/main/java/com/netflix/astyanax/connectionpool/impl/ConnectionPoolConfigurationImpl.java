@@ -17,6 +17,7 @@ package com.netflix.astyanax.connectionpool.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -26,17 +27,23 @@ import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.astyanax.AuthenticationCredentials;
 import com.netflix.astyanax.connectionpool.BadHostDetector;
+import com.netflix.astyanax.connectionpool.ConcurrencyLimiter;
 import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
 import com.netflix.astyanax.connectionpool.OperationFilterFactory;
 import com.netflix.astyanax.connectionpool.RetryBackoffStrategy;
 import com.netflix.astyanax.connectionpool.SSLConnectionContext;
+import com.netflix.astyanax.connectionpool.RetryBudget;
+import com.netflix.astyanax.connectionpool.SpeculativeExecutionPolicy;
 import com.netflix.astyanax.partitioner.Partitioner;
 import com.netflix.astyanax.shallows.EmptyBadHostDetectorImpl;
+import com.netflix.astyanax.shallows.EmptyConcurrencyLimiter;
 import com.netflix.astyanax.shallows.EmptyLatencyScoreStrategyImpl;
 import com.netflix.astyanax.shallows.EmptyOperationFilterFactory;
 import com.netflix.astyanax.shallows.EmptyOperationTracer;
+import com.netflix.astyanax.shallows.EmptyRetryBudget;
+import com.netflix.astyanax.shallows.EmptySpeculativeExecutionPolicy;
 import com.netflix.astyanax.tracing.OperationTracer;
 
 /**
@@ -52,8 +59,12 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
     public static final int DEFAULT_MAX_TIME_WHEN_EXHAUSTED = 2000;
     public static final int DEFAULT_SOCKET_TIMEOUT = 11000;	// ms
     public static final int DEFAULT_CONNECT_TIMEOUT = 2000; // ms
+    public static final float DEFAULT_ADAPTIVE_SOCKET_TIMEOUT_FACTOR = 0;
+    public static final double DEFAULT_ADAPTIVE_SOCKET_TIMEOUT_PERCENTILE = 99;
+    public static final int DEFAULT_MIN_SOCKET_TIMEOUT = 50; // ms
     public static final int DEFAULT_MAX_ACTIVE_PER_PARTITION = 3;
     public static final int DEFAULT_INIT_PER_PARTITION = 0;
+    public static final int DEFAULT_PRIME_CONCURRENCY = 16;
     public static final int DEFAULT_PORT = 9160;
     public static final int DEFAULT_FAILOVER_COUNT = -1;
     public static final int DEFAULT_MAX_CONNS = 1;
@@ -72,6 +83,9 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
     public static final int DEFAULT_RETRY_DELAY_SLICE = 10000;
     public static final int DEFAULT_RETRY_MAX_DELAY_SLICE = 10;
     public static final int DEFAULT_MAX_OPERATIONS_PER_CONNECTION = 10000;
+    public static final int DEFAULT_IDLE_TIMEOUT = 0;
+    public static final int DEFAULT_MAX_CONNECTION_AGE = 0;
+    public static final int DEFAULT_MAX_REMOTE_DATACENTER_FAILOVER_COUNT = 0;
     public static final float DEFAULT_MIN_HOST_IN_POOL_RATIO = 0.65f;
     public static final int DEFAULT_BLOCKED_THREAD_THRESHOLD = 10;
     public static final BadHostDetector DEFAULT_BAD_HOST_DETECTOR = EmptyBadHostDetectorImpl.getInstance();
@@ -85,10 +99,14 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
 
     private int maxConnsPerPartition             = DEFAULT_MAX_ACTIVE_PER_PARTITION;
     private int initConnsPerPartition            = DEFAULT_INIT_PER_PARTITION;
+    private int primeConcurrency                 = DEFAULT_PRIME_CONCURRENCY;
     private int maxConns                         = DEFAULT_MAX_CONNS;
     private int port                             = DEFAULT_PORT;
     private int socketTimeout                    = DEFAULT_SOCKET_TIMEOUT;
     private int connectTimeout                   = DEFAULT_CONNECT_TIMEOUT;
+    private float adaptiveSocketTimeoutFactor    = DEFAULT_ADAPTIVE_SOCKET_TIMEOUT_FACTOR;
+    private double adaptiveSocketTimeoutPercentile = DEFAULT_ADAPTIVE_SOCKET_TIMEOUT_PERCENTILE;
+    private int minSocketTimeout                 = DEFAULT_MIN_SOCKET_TIMEOUT;
     private int maxFailoverCount                 = DEFAULT_FAILOVER_COUNT;
     private int latencyAwareWindowSize           = DEFAULT_LATENCY_AWARE_WINDOW_SIZE;
     private float latencyAwareSentinelCompare    = DEFAULT_LATENCY_AWARE_SENTINEL_COMPARE;
@@ -105,6 +123,8 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
     private int retryDelaySlice                  = DEFAULT_RETRY_DELAY_SLICE;
     private int retryMaxDelaySlice               = DEFAULT_RETRY_MAX_DELAY_SLICE;
     private int maxOperationsPerConnection       = DEFAULT_MAX_OPERATIONS_PER_CONNECTION;
+    private int idleTimeout                      = DEFAULT_IDLE_TIMEOUT;
+    private int maxConnectionAge                 = DEFAULT_MAX_CONNECTION_AGE;
     private int maxTimeoutWhenExhausted          = DEFAULT_MAX_TIME_WHEN_EXHAUSTED;
     private float minHostInPoolRatio             = DEFAULT_MIN_HOST_IN_POOL_RATIO;
     private int blockedThreadThreshold           = DEFAULT_BLOCKED_THREAD_THRESHOLD;
@@ -112,21 +132,29 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
     private String seeds = null;
     private RetryBackoffStrategy hostRetryBackoffStrategy = null;
     private HostSelectorStrategy hostSelectorStrategy     = HostSelectorStrategy.ROUND_ROBIN;
+    private HostConnectionPoolType hostConnectionPoolType = HostConnectionPoolType.SIMPLE;
     private LatencyScoreStrategy latencyScoreStrategy     = new EmptyLatencyScoreStrategyImpl();
     private BadHostDetector badHostDetector               = DEFAULT_BAD_HOST_DETECTOR;
+    private ConcurrencyLimiter concurrencyLimiter         = EmptyConcurrencyLimiter.getInstance();
     private AuthenticationCredentials credentials         = null;
     private OperationFilterFactory filterFactory          = EmptyOperationFilterFactory.getInstance();
     private OperationTracer opTracer                      = new EmptyOperationTracer();
     private Partitioner partitioner                       = null;
+    private SpeculativeExecutionPolicy speculativeExecutionPolicy = EmptySpeculativeExecutionPolicy.getInstance();
+    private RetryBudget retryBudget = EmptyRetryBudget.getInstance();
     private SSLConnectionContext sslCtx;
 
     private ScheduledExecutorService maintainanceExecutor;
     private ScheduledExecutorService reconnectExecutor;
+    private ExecutorService speculativeExecutor;
     
     private boolean bOwnMaintainanceExecutor              = false;
     private boolean bOwnReconnectExecutor                 = false;
+    private boolean bOwnSpeculativeExecutor               = false;
             
     private String localDatacenter = null;
+    private String localRack = null;
+    private int maxRemoteDatacenterFailoverCount = DEFAULT_MAX_REMOTE_DATACENTER_FAILOVER_COUNT;
 
     public ConnectionPoolConfigurationImpl(String name) {
         this.name = name;
@@ -152,6 +180,10 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
             reconnectExecutor = Executors.newScheduledThreadPool(DEFAULT_RECONNECT_THREAD_COUNT, new ThreadFactoryBuilder().setDaemon(true).build());
             bOwnReconnectExecutor = true;
         }
+        if (speculativeExecutor == null) {
+            speculativeExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).build());
+            bOwnSpeculativeExecutor = true;
+        }
     }
     
     @Override
@@ -163,6 +195,10 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
         if (bOwnReconnectExecutor) {
             reconnectExecutor.shutdownNow();
         }
+
+        if (bOwnSpeculativeExecutor) {
+            speculativeExecutor.shutdownNow();
+        }
     }
     
     /*
@@ -190,6 +226,36 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
         return this;
     }
 
+    @Override
+    public float getAdaptiveSocketTimeoutFactor() {
+        return adaptiveSocketTimeoutFactor;
+    }
+
+    public ConnectionPoolConfigurationImpl setAdaptiveSocketTimeoutFactor(float factor) {
+        this.adaptiveSocketTimeoutFactor = factor;
+        return this;
+    }
+
+    @Override
+    public double getAdaptiveSocketTimeoutPercentile() {
+        return adaptiveSocketTimeoutPercentile;
+    }
+
+    public ConnectionPoolConfigurationImpl setAdaptiveSocketTimeoutPercentile(double percentile) {
+        this.adaptiveSocketTimeoutPercentile = percentile;
+        return this;
+    }
+
+    @Override
+    public int getMinSocketTimeout() {
+        return minSocketTimeout;
+    }
+
+    public ConnectionPoolConfigurationImpl setMinSocketTimeout(int minSocketTimeout) {
+        this.minSocketTimeout = minSocketTimeout;
+        return this;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -235,6 +301,26 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
         return this;
     }
 
+    @Override
+    public String getLocalRack() {
+        return localRack;
+    }
+
+    public ConnectionPoolConfigurationImpl setLocalRack(String localRack) {
+        this.localRack = localRack;
+        return this;
+    }
+
+    @Override
+    public int getMaxRemoteDatacenterFailoverCount() {
+        return maxRemoteDatacenterFailoverCount;
+    }
+
+    public ConnectionPoolConfigurationImpl setMaxRemoteDatacenterFailoverCount(int maxRemoteDatacenterFailoverCount) {
+        this.maxRemoteDatacenterFailoverCount = maxRemoteDatacenterFailoverCount;
+        return this;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -301,6 +387,17 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
         return this;
     }
 
+    @Override
+    public int getPrimeConcurrency() {
+        return this.primeConcurrency;
+    }
+
+    public ConnectionPoolConfigurationImpl setPrimeConcurrency(int primeConcurrency) {
+        Preconditions.checkArgument(primeConcurrency > 0, "primeConcurrency must be >0");
+        this.primeConcurrency = primeConcurrency;
+        return this;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -328,6 +425,16 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
         return this;
     }
 
+    @Override
+    public HostConnectionPoolType getHostConnectionPoolType() {
+        return this.hostConnectionPoolType;
+    }
+
+    public ConnectionPoolConfigurationImpl setHostConnectionPoolType(HostConnectionPoolType hostConnectionPoolType) {
+        this.hostConnectionPoolType = hostConnectionPoolType;
+        return this;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -497,6 +604,26 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
         return this;
     }
 
+    @Override
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public ConnectionPoolConfigurationImpl setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    @Override
+    public int getMaxConnectionAge() {
+        return maxConnectionAge;
+    }
+
+    public ConnectionPoolConfigurationImpl setMaxConnectionAge(int maxConnectionAge) {
+        this.maxConnectionAge = maxConnectionAge;
+        return this;
+    }
+
     @Override
     public LatencyScoreStrategy getLatencyScoreStrategy() {
         return this.latencyScoreStrategy;
@@ -517,6 +644,16 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
         return this;
     }
 
+    @Override
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    public ConnectionPoolConfigurationImpl setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        return this;
+    }
+
     @Override
     public int getRetryMaxDelaySlice() {
         return retryMaxDelaySlice;
@@ -622,6 +759,37 @@ public class ConnectionPoolConfigurationImpl implements ConnectionPoolConfigurat
         return this;
     }
 
+    @Override
+    public SpeculativeExecutionPolicy getSpeculativeExecutionPolicy() {
+        return this.speculativeExecutionPolicy;
+    }
+
+    public ConnectionPoolConfigurationImpl setSpeculativeExecutionPolicy(SpeculativeExecutionPolicy policy) {
+        this.speculativeExecutionPolicy = policy;
+        return this;
+    }
+
+    @Override
+    public ExecutorService getSpeculativeExecutor() {
+        return this.speculativeExecutor;
+    }
+
+    public ConnectionPoolConfigurationImpl setSpeculativeExecutor(ExecutorService executor) {
+        speculativeExecutor = executor;
+        bOwnSpeculativeExecutor = false;
+        return this;
+    }
+
+    @Override
+    public RetryBudget getRetryBudget() {
+        return this.retryBudget;
+    }
+
+    public ConnectionPoolConfigurationImpl setRetryBudget(RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+        return this;
+    }
+
 	@Override
 	public OperationTracer getOperationTracer() {
 		return opTracer;
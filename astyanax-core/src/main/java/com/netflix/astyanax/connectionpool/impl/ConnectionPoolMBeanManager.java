@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Maps;
 import com.netflix.astyanax.connectionpool.ConnectionPool;
+import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
 import com.netflix.astyanax.connectionpool.JmxConnectionPoolMonitor;
 import com.netflix.astyanax.connectionpool.JmxConnectionPoolMonitorMBean;
 
@@ -59,6 +60,10 @@ public class ConnectionPoolMBeanManager {
     }
 
     public synchronized void registerMonitor(String name, ConnectionPool<?> pool) {
+        registerMonitor(name, pool, null);
+    }
+
+    public synchronized void registerMonitor(String name, ConnectionPool<?> pool, ConnectionPoolMonitor monitor) {
 
         String monitorName = generateMonitorName(name);
 
@@ -67,7 +72,7 @@ public class ConnectionPoolMBeanManager {
             try {
                 LOG.info("Registering mbean: " + monitorName);
                 ObjectName oName = new ObjectName(monitorName);
-                mbean = new JmxConnectionPoolMonitor(pool);
+                mbean = new JmxConnectionPoolMonitor(pool, monitor);
                 monitors.put(monitorName, mbean);
                 mbs.registerMBean(mbean, oName);
 
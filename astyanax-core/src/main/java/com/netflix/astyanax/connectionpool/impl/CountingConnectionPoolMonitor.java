@@ -15,19 +15,28 @@
  */
 package com.netflix.astyanax.connectionpool.impl;
 
+import java.util.Collections;
+import java.util.Date;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Maps;
 import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.CounterSnapshot;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.HostConnectionPool;
 import com.netflix.astyanax.connectionpool.HostStats;
+import com.netflix.astyanax.connectionpool.LatencyHistogram;
+import com.netflix.astyanax.connectionpool.StripedCounter;
 import com.netflix.astyanax.connectionpool.exceptions.PoolTimeoutException;
 import com.netflix.astyanax.connectionpool.exceptions.TimeoutException;
 import com.netflix.astyanax.connectionpool.exceptions.BadRequestException;
+import com.netflix.astyanax.connectionpool.exceptions.ConcurrencyLimitExceededException;
 import com.netflix.astyanax.connectionpool.exceptions.NoAvailableHostsException;
 import com.netflix.astyanax.connectionpool.exceptions.OperationTimeoutException;
 import com.netflix.astyanax.connectionpool.exceptions.NotFoundException;
@@ -46,79 +55,113 @@ import com.netflix.astyanax.connectionpool.exceptions.InterruptedOperationExcept
  * <li> transport failures and other useful stats </li>
  * </ol>
  * 
+ * Operation, connection borrow and connect latencies are also recorded in {@link LatencyHistogram}s, both 
+ * per host (see {@link #getHostStats()}) and across all hosts. All latency histograms are in microseconds.
+ * 
+ * Counters are {@link StripedCounter}s since every thread updates them on every operation.  Use 
+ * {@link #getCounterSnapshot()} to report deltas and rates over an interval.
+ * 
  * @author elandau
  */
 public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
     private static Logger LOG = LoggerFactory.getLogger(CountingConnectionPoolMonitor.class);
     
-    private AtomicLong operationFailureCount  = new AtomicLong();
-    private AtomicLong operationSuccessCount  = new AtomicLong();
-    private AtomicLong connectionCreateCount  = new AtomicLong();
-    private AtomicLong connectionClosedCount  = new AtomicLong();
-    private AtomicLong connectionCreateFailureCount = new AtomicLong();
-    private AtomicLong connectionBorrowCount  = new AtomicLong();
-    private AtomicLong connectionReturnCount  = new AtomicLong();
+    private final StripedCounter operationFailureCount  = new StripedCounter();
+    private final StripedCounter operationSuccessCount  = new StripedCounter();
+    private final StripedCounter connectionCreateCount  = new StripedCounter();
+    private final StripedCounter connectionClosedCount  = new StripedCounter();
+    private final StripedCounter connectionCreateFailureCount = new StripedCounter();
+    private final StripedCounter connectionBorrowCount  = new StripedCounter();
+    private final StripedCounter connectionReturnCount  = new StripedCounter();
+    
+    private final StripedCounter operationFailoverCount = new StripedCounter();
+    private final StripedCounter speculativeExecutionCount    = new StripedCounter();
+    private final StripedCounter speculativeExecutionWonCount = new StripedCounter();
+    private final StripedCounter retryBudgetExhaustedCount    = new StripedCounter();
+    
+    private final StripedCounter hostAddedCount         = new StripedCounter();
+    private final StripedCounter hostRemovedCount       = new StripedCounter();
+    private final StripedCounter hostDownCount          = new StripedCounter();
+    private final StripedCounter hostReactivatedCount   = new StripedCounter();
     
-    private AtomicLong operationFailoverCount = new AtomicLong();
+    private final StripedCounter poolExhastedCount      = new StripedCounter();
+    private final StripedCounter concurrencyLimitCount  = new StripedCounter();
+    private final StripedCounter operationTimeoutCount  = new StripedCounter();
+    private final StripedCounter socketTimeoutCount     = new StripedCounter();
+    private final StripedCounter noHostsCount           = new StripedCounter();
+    private final StripedCounter unknownErrorCount      = new StripedCounter();
+    private final StripedCounter badRequestCount        = new StripedCounter();
+    private final StripedCounter interruptedCount       = new StripedCounter();
+    private final StripedCounter transportErrorCount    = new StripedCounter();
+
+    private final StripedCounter notFoundCounter        = new StripedCounter();
     
-    private AtomicLong hostAddedCount         = new AtomicLong();
-    private AtomicLong hostRemovedCount       = new AtomicLong();
-    private AtomicLong hostDownCount          = new AtomicLong();
-    private AtomicLong hostReactivatedCount   = new AtomicLong();
+    private final LatencyHistogram operationLatency = new LatencyHistogram();
+    private final LatencyHistogram borrowLatency    = new LatencyHistogram();
+    private final LatencyHistogram connectLatency   = new LatencyHistogram();
     
-    private AtomicLong poolExhastedCount      = new AtomicLong();
-    private AtomicLong operationTimeoutCount  = new AtomicLong();
-    private AtomicLong socketTimeoutCount     = new AtomicLong();
-    private AtomicLong noHostsCount           = new AtomicLong();
-    private AtomicLong unknownErrorCount      = new AtomicLong();
-    private AtomicLong badRequestCount        = new AtomicLong();
-    private AtomicLong interruptedCount       = new AtomicLong();
-    private AtomicLong transportErrorCount    = new AtomicLong();
-
-    private AtomicLong notFoundCounter        = new AtomicLong();
+    private final NonBlockingHashMap<Host, HostStatsImpl> hostStats = new NonBlockingHashMap<Host, HostStatsImpl>();
+    
+    private final long createTime = System.nanoTime();
     
     public CountingConnectionPoolMonitor() {
     }
     
+    private HostStatsImpl getOrCreateHostStats(Host host) {
+        HostStatsImpl stats = hostStats.get(host);
+        if (stats == null) {
+            stats = new HostStatsImpl();
+            HostStatsImpl existing = hostStats.putIfAbsent(host, stats);
+            if (existing != null)
+                stats = existing;
+        }
+        return stats;
+    }
+    
     private void trackError(Host host, Exception reason) {
         if (reason instanceof PoolTimeoutException) {
-            this.poolExhastedCount.incrementAndGet();
+            this.poolExhastedCount.increment();
+        }
+        else if (reason instanceof ConcurrencyLimitExceededException) {
+            this.concurrencyLimitCount.increment();
         }
         else if (reason instanceof TimeoutException) {
-            this.socketTimeoutCount.incrementAndGet();
+            this.socketTimeoutCount.increment();
         }
         else if (reason instanceof OperationTimeoutException) {
-            this.operationTimeoutCount.incrementAndGet();
+            this.operationTimeoutCount.increment();
         }
         else if (reason instanceof BadRequestException) {
-            this.badRequestCount.incrementAndGet();
+            this.badRequestCount.increment();
         }
         else if (reason instanceof NoAvailableHostsException ) {
-            this.noHostsCount.incrementAndGet();
+            this.noHostsCount.increment();
         }
         else if (reason instanceof InterruptedOperationException) {
-            this.interruptedCount.incrementAndGet();
+            this.interruptedCount.increment();
         }
         else if (reason instanceof HostDownException) {
-            this.hostDownCount.incrementAndGet();
+            this.hostDownCount.increment();
         }
         else if (reason instanceof TransportException) {
-            this.transportErrorCount.incrementAndGet();
+            this.transportErrorCount.increment();
         }
         else {
             LOG.error(reason.toString(), reason);
-            this.unknownErrorCount.incrementAndGet();
+            this.unknownErrorCount.increment();
         }
     }
 
     @Override
     public void incOperationFailure(Host host, Exception reason) {
         if (reason instanceof NotFoundException) {
-            this.notFoundCounter.incrementAndGet();
+            this.notFoundCounter.increment();
             return;
         }
         
-        this.operationFailureCount.incrementAndGet();
+        this.operationFailureCount.increment();
+        if (host != null)
+            getOrCreateHostStats(host).errorCount.increment();
         trackError(host, reason);
     }
 
@@ -128,7 +171,14 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
 
     @Override
     public void incOperationSuccess(Host host, long latency) {
-        this.operationSuccessCount.incrementAndGet();
+        this.operationSuccessCount.increment();
+        long micros = TimeUnit.NANOSECONDS.toMicros(latency);
+        this.operationLatency.record(micros);
+        if (host != null) {
+            HostStatsImpl stats = getOrCreateHostStats(host);
+            stats.successCount.increment();
+            stats.operationLatency.record(micros);
+        }
     }
 
     public long getOperationSuccessCount() {
@@ -137,7 +187,17 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
 
     @Override
     public void incConnectionCreated(Host host) {
-        this.connectionCreateCount.incrementAndGet();
+        this.connectionCreateCount.increment();
+        if (host != null)
+            getOrCreateHostStats(host).connectionsCreated.increment();
+    }
+
+    @Override
+    public void incConnectionCreateLatency(Host host, long latency) {
+        long micros = TimeUnit.MILLISECONDS.toMicros(latency);
+        this.connectLatency.record(micros);
+        if (host != null)
+            getOrCreateHostStats(host).connectLatency.record(micros);
     }
 
     public long getConnectionCreatedCount() {
@@ -146,7 +206,11 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
 
     @Override
     public void incConnectionClosed(Host host, Exception reason) {
-        this.connectionClosedCount.incrementAndGet();
+        this.connectionClosedCount.increment();
+        // Connections are closed after the host is removed, don't bring its stats back
+        HostStatsImpl stats = host != null ? hostStats.get(host) : null;
+        if (stats != null)
+            stats.connectionsClosed.increment();
     }
 
     public long getConnectionClosedCount() {
@@ -155,7 +219,9 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
 
     @Override
     public void incConnectionCreateFailed(Host host, Exception reason) {
-        this.connectionCreateFailureCount.incrementAndGet();
+        this.connectionCreateFailureCount.increment();
+        if (host != null)
+            getOrCreateHostStats(host).connectionsCreateFailed.increment();
     }
 
     public long getConnectionCreateFailedCount() {
@@ -164,7 +230,11 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
 
     @Override
     public void incConnectionBorrowed(Host host, long delay) {
-        this.connectionBorrowCount.incrementAndGet();
+        this.connectionBorrowCount.increment();
+        long micros = TimeUnit.MILLISECONDS.toMicros(delay);
+        this.borrowLatency.record(micros);
+        if (host != null)
+            getOrCreateHostStats(host).borrowLatency.record(micros);
     }
 
     public long getConnectionBorrowedCount() {
@@ -173,7 +243,7 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
 
     @Override
     public void incConnectionReturned(Host host) {
-        this.connectionReturnCount.incrementAndGet();
+        this.connectionReturnCount.increment();
     }
 
     public long getConnectionReturnedCount() {
@@ -184,6 +254,11 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
         return this.poolExhastedCount.get();
     }
 
+    @Override
+    public long getConcurrencyLimitExceededCount() {
+        return this.concurrencyLimitCount.get();
+    }
+
     @Override
     public long getSocketTimeoutCount() {
         return this.socketTimeoutCount.get();
@@ -195,7 +270,7 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
 
     @Override
     public void incFailover(Host host, Exception reason) {
-        this.operationFailoverCount.incrementAndGet();
+        this.operationFailoverCount.increment();
         trackError(host, reason);
     }
 
@@ -204,10 +279,43 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
         return this.operationFailoverCount.get();
     }
 
+    @Override
+    public void incSpeculativeExecution(Host host) {
+        this.speculativeExecutionCount.increment();
+    }
+
+    @Override
+    public long getSpeculativeExecutionCount() {
+        return this.speculativeExecutionCount.get();
+    }
+
+    @Override
+    public void incSpeculativeExecutionWon(Host host) {
+        this.speculativeExecutionWonCount.increment();
+    }
+
+    @Override
+    public long getSpeculativeExecutionWonCount() {
+        return this.speculativeExecutionWonCount.get();
+    }
+
+    @Override
+    public void incRetryBudgetExhausted(Host host) {
+        this.retryBudgetExhaustedCount.increment();
+    }
+
+    @Override
+    public long getRetryBudgetExhaustedCount() {
+        return this.retryBudgetExhaustedCount.get();
+    }
+
     @Override
     public void onHostAdded(Host host, HostConnectionPool<?> pool) {
         LOG.info("AddHost: " + host.getHostName());
-        this.hostAddedCount.incrementAndGet();
+        this.hostAddedCount.increment();
+        HostStatsImpl stats = getOrCreateHostStats(host);
+        stats.setPool(pool);
+        stats.setUp(true);
     }
 
     @Override
@@ -218,7 +326,8 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
     @Override
     public void onHostRemoved(Host host) {
         LOG.info("RemoveHost: " + host.getHostName());
-        this.hostRemovedCount.incrementAndGet();
+        this.hostRemovedCount.increment();
+        hostStats.remove(host);
     }
 
     @Override
@@ -228,7 +337,8 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
 
     @Override
     public void onHostDown(Host host, Exception reason) {
-        this.hostDownCount.incrementAndGet();
+        this.hostDownCount.increment();
+        getOrCreateHostStats(host).setUp(false);
     }
 
     @Override
@@ -239,7 +349,10 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
     @Override
     public void onHostReactivated(Host host, HostConnectionPool<?> pool) {
         LOG.info("Reactivating " + host.getHostName());
-        this.hostReactivatedCount.incrementAndGet();
+        this.hostReactivatedCount.increment();
+        HostStatsImpl stats = getOrCreateHostStats(host);
+        stats.setPool(pool);
+        stats.setUp(true);
     }
 
     public long getHostReactivatedCount() {
@@ -294,6 +407,62 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
         return hostAddedCount.get() - hostRemovedCount.get() + hostReactivatedCount.get() - hostDownCount.get();
     }
 
+    /**
+     * @return Latency of successful operations across all hosts, in microseconds
+     */
+    public LatencyHistogram getOperationLatencyHistogram() {
+        return operationLatency;
+    }
+
+    /**
+     * @return Time spent borrowing connections across all hosts, in microseconds
+     */
+    public LatencyHistogram getBorrowLatencyHistogram() {
+        return borrowLatency;
+    }
+
+    /**
+     * @return Time spent opening connections across all hosts, in microseconds
+     */
+    public LatencyHistogram getConnectLatencyHistogram() {
+        return connectLatency;
+    }
+
+    /**
+     * Return a snapshot of all the counters, named as in {@link #toString()}.  Use {@link CounterSnapshot#since(CounterSnapshot)}
+     * with a previous snapshot to get the deltas and rates of an interval.
+     */
+    public CounterSnapshot getCounterSnapshot() {
+        Map<String, Long> counts = Maps.newLinkedHashMap();
+        counts.put("create",      connectionCreateCount.get());
+        counts.put("close",       connectionClosedCount.get());
+        counts.put("failed",      connectionCreateFailureCount.get());
+        counts.put("borrow",      connectionBorrowCount.get());
+        counts.put("return",      connectionReturnCount.get());
+        counts.put("success",     operationSuccessCount.get());
+        counts.put("failure",     operationFailureCount.get());
+        counts.put("optimeout",   operationTimeoutCount.get());
+        counts.put("timeout",     socketTimeoutCount.get());
+        counts.put("failover",    operationFailoverCount.get());
+        counts.put("hedged",      speculativeExecutionCount.get());
+        counts.put("hedgewon",    speculativeExecutionWonCount.get());
+        counts.put("nobudget",    retryBudgetExhaustedCount.get());
+        counts.put("nohosts",     noHostsCount.get());
+        counts.put("unknown",     unknownErrorCount.get());
+        counts.put("interrupted", interruptedCount.get());
+        counts.put("exhausted",   poolExhastedCount.get());
+        counts.put("limited",     concurrencyLimitCount.get());
+        counts.put("transport",   transportErrorCount.get());
+        counts.put("badrequest",  badRequestCount.get());
+        counts.put("notfound",    notFoundCounter.get());
+        counts.put("add",         hostAddedCount.get());
+        counts.put("remove",      hostRemovedCount.get());
+        counts.put("down",        hostDownCount.get());
+        counts.put("reactivate",  hostReactivatedCount.get());
+        long now = System.nanoTime();
+        return new CounterSnapshot(counts, now, now - createTime);
+    }
+
     public String toString() {
         // Build the complete status string
         return new StringBuilder()
@@ -312,10 +481,14 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
                     .append(",optimeout="  ).append(operationTimeoutCount.get())
                     .append(",timeout="    ).append(socketTimeoutCount.get())
                     .append(",failover="   ).append(operationFailoverCount.get())
+                    .append(",hedged="     ).append(speculativeExecutionCount.get())
+                    .append(",hedgewon="   ).append(speculativeExecutionWonCount.get())
+                    .append(",nobudget="   ).append(retryBudgetExhaustedCount.get())
                     .append(",nohosts="    ).append(noHostsCount.get())
                     .append(",unknown="    ).append(unknownErrorCount.get())
                     .append(",interrupted=").append(interruptedCount.get())
                     .append(",exhausted="  ).append(poolExhastedCount.get())
+                    .append(",limited="    ).append(concurrencyLimitCount.get())
                     .append(",transport="  ).append(transportErrorCount.get())
                 .append("], Hosts[")
                     .append( "add="        ).append(hostAddedCount.get())
@@ -328,6 +501,118 @@ public class CountingConnectionPoolMonitor implements ConnectionPoolMonitor {
 
     @Override
     public Map<Host, HostStats> getHostStats() {
-        throw new UnsupportedOperationException("Not supported");
+        return Collections.<Host, HostStats>unmodifiableMap(hostStats);
+    }
+
+    private static class HostStatsImpl implements HostStats {
+        private final Date           timeCreated             = new Date();
+        private final StripedCounter successCount            = new StripedCounter();
+        private final StripedCounter errorCount              = new StripedCounter();
+        private final StripedCounter connectionsCreated      = new StripedCounter();
+        private final StripedCounter connectionsClosed       = new StripedCounter();
+        private final StripedCounter connectionsCreateFailed = new StripedCounter();
+        private final StripedCounter timesUp                 = new StripedCounter();
+        private final StripedCounter timesDown               = new StripedCounter();
+
+        private final LatencyHistogram operationLatency    = new LatencyHistogram();
+        private final LatencyHistogram borrowLatency       = new LatencyHistogram();
+        private final LatencyHistogram connectLatency      = new LatencyHistogram();
+
+        private volatile HostConnectionPool<?> pool;
+        private volatile boolean               isUp;
+        private volatile long                  upTimestamp;
+
+        synchronized void setUp(boolean up) {
+            if (up == isUp)
+                return;
+            isUp = up;
+            if (up) {
+                upTimestamp = System.currentTimeMillis();
+                timesUp.increment();
+            }
+            else {
+                timesDown.increment();
+            }
+        }
+
+        @Override
+        public boolean isUp() {
+            return isUp;
+        }
+
+        @Override
+        public boolean isInRing() {
+            return pool != null && !pool.isShutdown();
+        }
+
+        @Override
+        public Date getTimeCreated() {
+            return timeCreated;
+        }
+
+        @Override
+        public HostConnectionPool<?> getPool() {
+            return pool;
+        }
+
+        @Override
+        public void setPool(HostConnectionPool<?> pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public long getUpTime() {
+            return isUp ? System.currentTimeMillis() - upTimestamp : 0;
+        }
+
+        @Override
+        public long getSuccessCount() {
+            return successCount.get();
+        }
+
+        @Override
+        public long getErrorCount() {
+            return errorCount.get();
+        }
+
+        @Override
+        public long getConnectionsClosed() {
+            return connectionsClosed.get();
+        }
+
+        @Override
+        public long getConnectionsCreated() {
+            return connectionsCreated.get();
+        }
+
+        @Override
+        public long getConnectionsCreateFailed() {
+            return connectionsCreateFailed.get();
+        }
+
+        @Override
+        public long getTimesUp() {
+            return timesUp.get();
+        }
+
+        @Override
+        public long getTimesDown() {
+            return timesDown.get();
+        }
+
+        @Override
+        public LatencyHistogram getOperationLatencyHistogram() {
+            return operationLatency;
+        }
+
+        @Override
+        public LatencyHistogram getBorrowLatencyHistogram() {
+            return borrowLatency;
+        }
+
+        @Override
+        public LatencyHistogram getConnectLatencyHistogram() {
+            return connectLatency;
+        }
     }
 }
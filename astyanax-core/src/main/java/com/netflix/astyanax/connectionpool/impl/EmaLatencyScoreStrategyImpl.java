@@ -15,12 +15,6 @@
  */
 package com.netflix.astyanax.connectionpool.impl;
 
-import java.util.ArrayList;
-import java.util.NoSuchElementException;
-import java.util.concurrent.LinkedBlockingQueue;
-
-import com.google.common.collect.Lists;
-
 /**
  * Calculate latency as an exponential moving average.
  * 
@@ -60,19 +54,13 @@ public class EmaLatencyScoreStrategyImpl extends AbstractLatencyScoreStrategyImp
     @Override
     public final Instance newInstance() {
         return new Instance() {
-            private final LinkedBlockingQueue<Long> latencies = new LinkedBlockingQueue<Long>(N);
+            private final LatencySampleBuffer latencies = new LatencySampleBuffer(N);
+            private final long[] samples = new long[latencies.capacity()];
             private volatile double cachedScore = 0.0d;
     
             @Override
             public void addSample(long sample) {
-                if (!latencies.offer(sample)) {
-                    try {
-                        latencies.remove();
-                    }
-                    catch (NoSuchElementException e) {
-                    }
-                    latencies.offer(sample);
-                }
+                latencies.add(sample);
             }
     
             @Override
@@ -83,26 +71,26 @@ public class EmaLatencyScoreStrategyImpl extends AbstractLatencyScoreStrategyImp
             @Override
             public void reset() {
                 cachedScore = 0.0;
-                latencies.clear();
+                latencies.reset();
             }
     
             /**
              * Drain all the samples and update the cached score
              */
             @Override
-            public void update() {
-                Double ema = cachedScore;
-                ArrayList<Long> samples = Lists.newArrayList();
-                latencies.drainTo(samples);
-                if (samples.size() == 0) {
-                    samples.add(0L);
-                }                    
+            public synchronized void update() {
+                double ema = cachedScore;
+                int count = latencies.drainTo(samples);
+                if (count == 0) {
+                    samples[count++] = 0L;
+                }
                 
+                int i = 0;
                 if (ema == 0.0) {
-                    ema = (double)samples.remove(0);
+                    ema = (double)samples[i++];
                 }
-                for (Long sample : samples) {
-                    ema = sample * k + ema * one_minus_k;
+                for (; i < count; i++) {
+                    ema = samples[i] * k + ema * one_minus_k;
                 }
                 cachedScore = ema;
             }
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.SpeculativeExecutionPolicy;
+
+/**
+ * Send a speculative execution to a second replica once the first attempt has been running for a fixed
+ * amount of time, regardless of the host.
+ */
+public class FixedDelaySpeculativeExecutionPolicy implements SpeculativeExecutionPolicy {
+    private final long delay;
+
+    /**
+     * @param delay     Time in milliseconds to wait for the first attempt
+     */
+    public FixedDelaySpeculativeExecutionPolicy(int delay) {
+        Preconditions.checkArgument(delay >= 0, "delay must be >= 0");
+        this.delay = TimeUnit.MILLISECONDS.toMicros(delay);
+    }
+
+    @Override
+    public long getDelay(Host host, ConnectionPoolMonitor monitor) {
+        return delay;
+    }
+
+    @Override
+    public String toString() {
+        return "FixedDelaySpeculativeExecutionPolicy[delay=" + delay + "us]";
+    }
+}
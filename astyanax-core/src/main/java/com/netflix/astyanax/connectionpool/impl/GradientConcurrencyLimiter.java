@@ -0,0 +1,184 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.netflix.astyanax.connectionpool.ConcurrencyLimiter;
+
+/**
+ * Concurrency limiter that adjusts each host's limit using the gradient between the 
+ * minimum round trip time observed on the host and the current round trip time, 
+ * similar to TCP Vegas. <br/> <br/>
+ * 
+ * As long as latencies stay within rttTolerance times the minimum the limit grows by 
+ * roughly its square root, which leaves room for a small queue on the host.  When 
+ * latencies go up the limit is scaled down by minRtt / rtt (but never more than by half 
+ * per sample), and timeouts or throttling responses cut it by the backoff ratio.  Changes 
+ * are smoothed and the limit always stays within [minLimit, maxLimit].  The limit only 
+ * grows while at least half of it is in use, so that an idle host does not accumulate a 
+ * limit it has never been tested against. <br/> <br/>
+ * 
+ * The minimum round trip time is taken over windows of minRttWindow samples, so that it 
+ * follows the host when its baseline latency changes.  Acquiring a slot is lock free while
+ * updating the limit is synchronized per host.
+ */
+public class GradientConcurrencyLimiter implements ConcurrencyLimiter {
+    public static final double DEFAULT_SMOOTHING      = 0.2;
+    public static final double DEFAULT_RTT_TOLERANCE  = 1.5;
+    public static final double DEFAULT_BACKOFF_RATIO  = 0.9;
+    public static final int    DEFAULT_MIN_RTT_WINDOW = 1000;
+
+    private final int    minLimit;
+    private final int    initialLimit;
+    private final int    maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final double backoffRatio;
+    private final int    minRttWindow;
+
+    /**
+     * @param minLimit          Lower bound of the limit
+     * @param initialLimit      Limit to start from, before any latency was observed
+     * @param maxLimit          Upper bound of the limit
+     * @param smoothing         Weight in (0, 1] of a new limit estimate
+     * @param rttTolerance      Ratio of the round trip time to its minimum below which the limit is not reduced
+     * @param backoffRatio      Factor in (0, 1) applied to the limit when an operation is dropped
+     * @param minRttWindow      Number of samples after which the minimum round trip time is recomputed
+     */
+    public GradientConcurrencyLimiter(int minLimit, int initialLimit, int maxLimit, double smoothing, double rttTolerance,
+            double backoffRatio, int minRttWindow) {
+        Preconditions.checkArgument(minLimit > 0, "minLimit must be > 0");
+        Preconditions.checkArgument(maxLimit >= minLimit, "maxLimit must be >= minLimit");
+        Preconditions.checkArgument(smoothing > 0 && smoothing <= 1, "smoothing must be in (0, 1]");
+        Preconditions.checkArgument(rttTolerance >= 1, "rttTolerance must be >= 1");
+        Preconditions.checkArgument(backoffRatio > 0 && backoffRatio < 1, "backoffRatio must be in (0, 1)");
+
+        this.minLimit     = minLimit;
+        this.initialLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.maxLimit     = maxLimit;
+        this.smoothing    = smoothing;
+        this.rttTolerance = rttTolerance;
+        this.backoffRatio = backoffRatio;
+        this.minRttWindow = Math.max(1, minRttWindow);
+    }
+
+    public GradientConcurrencyLimiter(int minLimit, int initialLimit, int maxLimit) {
+        this(minLimit, initialLimit, maxLimit, DEFAULT_SMOOTHING, DEFAULT_RTT_TOLERANCE, DEFAULT_BACKOFF_RATIO,
+             DEFAULT_MIN_RTT_WINDOW);
+    }
+
+    @Override
+    public Instance createInstance() {
+        return new GradientInstance();
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append("GradientConcurrencyLimiter[")
+            .append( "min="      ).append(minLimit)
+            .append(",initial="  ).append(initialLimit)
+            .append(",max="      ).append(maxLimit)
+            .append(",smoothing=").append(smoothing)
+            .append(",tolerance=").append(rttTolerance)
+            .append(",backoff="  ).append(backoffRatio)
+            .append(",window="   ).append(minRttWindow)
+            .append("]").toString();
+    }
+
+    private class GradientInstance implements Instance {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile int        limit    = initialLimit;
+
+        // Guarded by this
+        private double estimatedLimit = initialLimit;
+        private long   minRtt;
+        private long   windowMinRtt;
+        private int    windowSamples;
+
+        @Override
+        public boolean tryAcquire() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limit)
+                    return false;
+                if (inFlight.compareAndSet(current, current + 1))
+                    return true;
+            }
+        }
+
+        @Override
+        public void release(boolean dropped) {
+            inFlight.decrementAndGet();
+            if (dropped) {
+                synchronized (this) {
+                    setLimit(estimatedLimit * backoffRatio);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void addLatencySample(long latency) {
+            if (latency <= 0)
+                return;
+
+            if (windowSamples == 0 || latency < windowMinRtt)
+                windowMinRtt = latency;
+            if (minRtt == 0 || latency < minRtt)
+                minRtt = latency;
+            if (++windowSamples >= minRttWindow) {
+                minRtt        = windowMinRtt;
+                windowSamples = 0;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * minRtt / latency));
+            double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            // Not enough load to tell whether the host could handle more
+            if (newLimit > estimatedLimit && inFlight.get() * 2 < estimatedLimit)
+                return;
+
+            setLimit(estimatedLimit * (1 - smoothing) + newLimit * smoothing);
+        }
+
+        private void setLimit(double newLimit) {
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            limit          = (int)estimatedLimit;
+        }
+
+        @Override
+        public int getLimit() {
+            return limit;
+        }
+
+        @Override
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return new StringBuilder()
+                .append("GradientConcurrencyLimiter.Instance[")
+                .append( "limit="   ).append(limit)
+                .append(",inFlight=").append(inFlight.get())
+                .append(",minRtt="  ).append(TimeUnit.NANOSECONDS.toMicros(minRtt)).append("us")
+                .append("]").toString();
+        }
+    }
+}
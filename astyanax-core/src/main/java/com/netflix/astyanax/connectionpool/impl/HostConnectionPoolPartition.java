@@ -26,6 +26,7 @@ import org.cliffc.high_scale_lib.NonBlockingHashSet;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.netflix.astyanax.connectionpool.HostConnectionPool;
@@ -36,6 +37,9 @@ import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
  * The class maintains the list of active pools for the given criteria (such as a token range in a ring)
  * Any changes to the pools in this partition causes the active set to be revised and sorted according to the latency score strategy provided. <br/> <br/>
  * 
+ * The active set is an immutable list that is only replaced when its contents change, so that refreshing the many partitions of 
+ * a vnode ring with a shared {@link LatencyScoreStrategy.Ranking} creates no garbage for the partitions that are unaffected. <br/> <br/>
+ * 
  * Note that an instance of this class is maintained / referenced for each token range partition by the {@link TokenPartitionedTopology} instance 
  * 
  * @author elandau
@@ -49,10 +53,11 @@ public class HostConnectionPoolPartition<CL> {
     protected final NonBlockingHashSet<HostConnectionPool<CL>>    pools       = new NonBlockingHashSet<HostConnectionPool<CL>>();
     protected final AtomicReference<List<HostConnectionPool<CL>>> activePools = new AtomicReference<List<HostConnectionPool<CL>>>();
     protected final LatencyScoreStrategy                          strategy;
+    protected volatile List<HostConnectionPool<CL>>               members     = ImmutableList.of();
     
     public HostConnectionPoolPartition(LatencyScoreStrategy strategy) {
         this.strategy = strategy;
-        this.activePools.set(Lists.<HostConnectionPool<CL>>newArrayList());
+        this.activePools.set(ImmutableList.<HostConnectionPool<CL>>of());
     }
     
     /**
@@ -62,6 +67,21 @@ public class HostConnectionPoolPartition<CL> {
      * @param newPools
      */
     public synchronized boolean setPools(Collection<HostConnectionPool<CL>> newPools) {
+        if (updatePools(newPools)) {
+            refresh();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Same as {@link #setPools(Collection)} but without refreshing the active pools.  Used when the 
+     * caller refreshes many partitions at once.
+     * 
+     * @param newPools
+     * @return True if anything changed
+     */
+    public synchronized boolean updatePools(Collection<HostConnectionPool<CL>> newPools) {
         Set<HostConnectionPool<CL>> toRemove = Sets.newHashSet(this.pools);
         
         // Add new pools not previously seen
@@ -79,7 +99,7 @@ public class HostConnectionPoolPartition<CL> {
         }
     
         if (didChange)
-            refresh();
+            members = ImmutableList.copyOf(this.pools);
         return didChange;
     }
     
@@ -90,7 +110,7 @@ public class HostConnectionPoolPartition<CL> {
      * @return True if anything changed
      */
     public synchronized boolean addPool(HostConnectionPool<CL> pool) {
-        if (this.pools.add(pool)) {
+        if (addMember(pool)) {
             refresh();
             return true;
         }
@@ -98,13 +118,39 @@ public class HostConnectionPoolPartition<CL> {
     }
     
     public synchronized boolean removePool(HostConnectionPool<CL> pool) {
-        if (this.pools.remove(pool)) {
+        if (removeMember(pool)) {
             refresh();
             return true;
         }
         return false;
     }
     
+    /**
+     * Same as {@link #addPool(HostConnectionPool)} but without refreshing the active pools
+     * @param pool
+     * @return True if anything changed
+     */
+    synchronized boolean addMember(HostConnectionPool<CL> pool) {
+        if (this.pools.add(pool)) {
+            members = ImmutableList.copyOf(this.pools);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Same as {@link #removePool(HostConnectionPool)} but without refreshing the active pools
+     * @param pool
+     * @return True if anything changed
+     */
+    synchronized boolean removeMember(HostConnectionPool<CL> pool) {
+        if (this.pools.remove(pool)) {
+            members = ImmutableList.copyOf(this.pools);
+            return true;
+        }
+        return false;
+    }
+    
     /**
      * @return Return the list of active hosts.  Active hosts are those deemed by the 
      * latency score strategy to be alive and responsive.  
@@ -129,17 +175,45 @@ public class HostConnectionPoolPartition<CL> {
         return pools.contains(pool);
     }
     
+    /**
+     * @return All pools of this partition, including those that are not active
+     */
+    public List<HostConnectionPool<CL>> getMembers() {
+        return members;
+    }
+    
     /**
      * Refresh the partition 
      */
     public synchronized void refresh() {
-        List<HostConnectionPool<CL>> pools = Lists.newArrayList();
-        for (HostConnectionPool<CL> pool : this.pools) {
-            if (!pool.isReconnecting()) {
-                pools.add(pool);
-            }
+        List<HostConnectionPool<CL>> members = this.members;
+        refresh(strategy.rank(members), Lists.<HostConnectionPool<CL>>newArrayListWithCapacity(members.size()));
+    }
+    
+    /**
+     * Refresh the partition using a ranking shared with other partitions
+     * 
+     * @param ranking
+     * @param scratch   List used to build the active pools.  Its contents are discarded.
+     * @return True if the active pools changed
+     */
+    public synchronized boolean refresh(LatencyScoreStrategy.Ranking<CL> ranking, List<HostConnectionPool<CL>> scratch) {
+        scratch.clear();
+        prioritize.set(ranking.filter(members, scratch));
+        if (isSame(scratch, activePools.get()))
+            return false;
+        activePools.set(ImmutableList.copyOf(scratch));
+        return true;
+    }
+    
+    static <T> boolean isSame(List<T> list1, List<T> list2) {
+        if (list1.size() != list2.size())
+            return false;
+        for (int i = 0; i < list1.size(); i++) {
+            if (list1.get(i) != list2.get(i))
+                return false;
         }
-        this.activePools.set(strategy.sortAndfilterPartition(pools, prioritize));
+        return true;
     }
     
     public String toString() {
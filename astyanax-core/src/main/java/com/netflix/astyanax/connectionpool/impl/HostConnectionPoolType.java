@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.connectionpool.impl;
+
+/**
+ * Implementation of the per host pool of connections used by {@link AbstractHostPartitionConnectionPool}
+ * 
+ * <ol>
+ * <li> SIMPLE - {@link SimpleHostConnectionPool} with a FIFO queue of idle connections </li>
+ * <li> LIFO - {@link LifoHostConnectionPool}, lock free stack handing out the most recently returned connection first </li>
+ * <li> LIFO_THREAD_AFFINITY - same as LIFO but each thread first tries to reuse the connection it last returned </li>
+ * </ol>
+ */
+public enum HostConnectionPoolType {
+    SIMPLE, LIFO, LIFO_THREAD_AFFINITY
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Fixed size, lock free ring buffer of primitive latency samples used to back the moving average
+ * {@link com.netflix.astyanax.connectionpool.LatencyScoreStrategy.Instance}s. <br/> <br/>
+ *
+ * Writers claim a slot with a single atomic increment of a shared cursor followed by an ordered store, so
+ * recording a sample never blocks or allocates.  When the buffer is full the oldest sample is overwritten.
+ * <br/> <br/>
+ *
+ * There is a single logical reader (the strategy's update thread), which either drains the samples added
+ * since its last drain or takes a snapshot of the newest windowSize samples.  Reads are weakly consistent:
+ * a slot claimed by a writer that has not yet stored its sample may be read with its previous value, which
+ * is harmless for scoring purposes.
+ */
+public class LatencySampleBuffer {
+    private final int             windowSize;
+    private final int             slotMask;
+    private final AtomicLongArray samples;
+    private final AtomicLong      cursor = new AtomicLong();
+
+    // Reader state, guarded by this
+    private long                  lastRead;
+    private long                  floor;
+
+    public LatencySampleBuffer(int windowSize) {
+        Preconditions.checkArgument(windowSize > 0, "windowSize must be > 0");
+
+        this.windowSize = windowSize;
+        int ringSize    = nextPowerOfTwo(windowSize);
+        this.slotMask   = ringSize - 1;
+        this.samples    = new AtomicLongArray(ringSize);
+    }
+
+    /**
+     * Add a single sample, overwriting the oldest sample if the buffer is full
+     * @param sample
+     */
+    public void add(long sample) {
+        long position = cursor.getAndIncrement();
+        samples.lazySet((int)(position & slotMask), sample);
+    }
+
+    /**
+     * @return Maximum number of samples returned by a drain or snapshot, i.e. the size of the array needed by
+     * {@link #drainTo(long[])} and {@link #snapshot(long[])}
+     */
+    public int capacity() {
+        return windowSize;
+    }
+
+    /**
+     * Copy the samples added since the previous drain (or reset) into dest, keeping at most the newest
+     * windowSize of them.  Older samples are lost.
+     *
+     * @param dest Array of at least {@link #capacity()} elements
+     * @return Number of samples copied
+     */
+    public synchronized int drainTo(long[] dest) {
+        long end = cursor.get();
+        int count = copy(Math.max(lastRead, end - windowSize), end, dest);
+        lastRead = end;
+        return count;
+    }
+
+    /**
+     * Copy the newest windowSize samples into dest without consuming them.
+     *
+     * @param dest Array of at least {@link #capacity()} elements
+     * @return Number of samples copied
+     */
+    public synchronized int snapshot(long[] dest) {
+        long end = cursor.get();
+        return copy(Math.max(floor, end - windowSize), end, dest);
+    }
+
+    /**
+     * Discard all samples currently in the buffer
+     */
+    public synchronized void reset() {
+        long end = cursor.get();
+        floor    = end;
+        lastRead = end;
+    }
+
+    private int copy(long start, long end, long[] dest) {
+        int count = 0;
+        for (long position = start; position < end; position++) {
+            dest[count++] = samples.get((int)(position & slotMask));
+        }
+        return count;
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+}
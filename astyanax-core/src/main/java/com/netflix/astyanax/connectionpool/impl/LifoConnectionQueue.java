@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.Connection;
+
+/**
+ * Lock free LIFO stack of idle connections that can be plugged into {@link SimpleHostConnectionPool} in place
+ * of the default {@link java.util.concurrent.LinkedBlockingQueue}. <br/> <br/>
+ *
+ * <p>
+ * <b> LIFO </b> <br/>
+ * Connections are kept on a Treiber stack so the most recently returned (hottest) connection is always
+ * handed out first and idle connections at the bottom of the stack stay cold. Borrow and return are a single
+ * CAS on the head of the stack in the uncontended case.
+ * </p>
+ *
+ * <p>
+ * <b> Thread affinity </b> <br/>
+ * When enabled each thread remembers the last connection it returned and first tries to claim that
+ * same connection on its next borrow, even if other threads have pushed connections on top of it since.
+ * A node claimed this way is left in the stack and skipped by the next thread to pop it.
+ * </p>
+ *
+ * <p>
+ * <b> Waiting </b> <br/>
+ * {@link #poll(long, TimeUnit)} spins for a short while before parking, since connections are usually returned
+ * within microseconds under load.  Parked borrowers are woken up by returning threads.
+ * </p>
+ *
+ * Iteration, {@link #size()} and {@link #peek()} are weakly consistent.
+ *
+ * @param <CL>
+ */
+public class LifoConnectionQueue<CL> extends AbstractQueue<Connection<CL>> implements BlockingQueue<Connection<CL>> {
+    public static final int DEFAULT_SPIN_COUNT = 32;
+
+    /**
+     * Number of affinity claims that could not unlink their node between purges of claimed nodes
+     */
+    private static final int PURGE_INTERVAL = 64;
+
+    private static final class Node<CL> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Node> CLAIMED = AtomicIntegerFieldUpdater.newUpdater(Node.class, "claimed");
+
+        final Connection<CL> connection;
+        volatile Node<CL>    next;
+        volatile int         claimed;
+
+        Node(Connection<CL> connection) {
+            this.connection = connection;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean claim() {
+            return claimed == 0 && CLAIMED.compareAndSet(this, 0, 1);
+        }
+
+        boolean isClaimed() {
+            return claimed != 0;
+        }
+    }
+
+    private final AtomicReference<Node<CL>>     head       = new AtomicReference<Node<CL>>();
+    private final AtomicInteger                 size       = new AtomicInteger();
+    private final AtomicInteger                 tombstones = new AtomicInteger();
+    private final AtomicBoolean                 purging    = new AtomicBoolean();
+    private final ConcurrentLinkedQueue<Thread> waiters    = new ConcurrentLinkedQueue<Thread>();
+    private final ThreadLocal<Node<CL>>         lastReturned;
+    private final int                           spinCount;
+
+    public LifoConnectionQueue(boolean threadAffinity) {
+        this(threadAffinity, DEFAULT_SPIN_COUNT);
+    }
+
+    public LifoConnectionQueue(boolean threadAffinity, int spinCount) {
+        Preconditions.checkArgument(spinCount >= 0, "spinCount must be >= 0");
+        this.lastReturned = threadAffinity ? new ThreadLocal<Node<CL>>() : null;
+        this.spinCount    = spinCount;
+    }
+
+    @Override
+    public boolean offer(Connection<CL> connection) {
+        Preconditions.checkNotNull(connection);
+        Node<CL> node = new Node<CL>(connection);
+        size.incrementAndGet();
+        while (true) {
+            Node<CL> top = head.get();
+            // Drop nodes claimed through thread affinity while we are here
+            if (top != null && top.isClaimed()) {
+                head.compareAndSet(top, top.next);
+                continue;
+            }
+            node.next = top;
+            if (head.compareAndSet(top, node))
+                break;
+        }
+
+        if (lastReturned != null)
+            lastReturned.set(node);
+
+        signalWaiter();
+        return true;
+    }
+
+    @Override
+    public Connection<CL> poll() {
+        if (lastReturned != null) {
+            Node<CL> node = lastReturned.get();
+            if (node != null) {
+                lastReturned.set(null);
+                if (node.claim()) {
+                    size.decrementAndGet();
+                    if (!head.compareAndSet(node, node.next) && tombstones.incrementAndGet() % PURGE_INTERVAL == 0)
+                        purge();
+                    return node.connection;
+                }
+            }
+        }
+
+        while (true) {
+            Node<CL> top = head.get();
+            if (top == null)
+                return null;
+            if (head.compareAndSet(top, top.next) && top.claim()) {
+                size.decrementAndGet();
+                return top.connection;
+            }
+        }
+    }
+
+    @Override
+    public Connection<CL> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Connection<CL> connection = poll();
+        if (connection != null)
+            return connection;
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        // Connections under load are usually returned very quickly, so spin for a bit
+        // before paying for a park/unpark round trip
+        for (int i = 0; i < spinCount; i++) {
+            Thread.yield();
+            connection = poll();
+            if (connection != null)
+                return connection;
+            if (deadline - System.nanoTime() <= 0)
+                return null;
+        }
+
+        final Thread current = Thread.currentThread();
+        waiters.add(current);
+        try {
+            while (true) {
+                // Must check again after registering to avoid missing a signal
+                connection = poll();
+                if (connection != null)
+                    return connection;
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    return null;
+
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+            }
+        }
+        finally {
+            waiters.remove(current);
+            // We may have swallowed a signal meant for the next waiter
+            if (size.get() > 0)
+                signalWaiter();
+        }
+    }
+
+    @Override
+    public Connection<CL> take() throws InterruptedException {
+        while (true) {
+            Connection<CL> connection = poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            if (connection != null)
+                return connection;
+        }
+    }
+
+    @Override
+    public void put(Connection<CL> connection) {
+        offer(connection);
+    }
+
+    @Override
+    public boolean offer(Connection<CL> connection, long timeout, TimeUnit unit) {
+        return offer(connection);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public Connection<CL> peek() {
+        for (Node<CL> node = head.get(); node != null; node = node.next) {
+            if (!node.isClaimed())
+                return node.connection;
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, size.get());
+    }
+
+    @Override
+    public int drainTo(Collection<? super Connection<CL>> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Connection<CL>> c, int maxElements) {
+        int count = 0;
+        Connection<CL> connection;
+        while (count < maxElements && (connection = poll()) != null) {
+            c.add(connection);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return Snapshot of the idle connections.  The iterator does not support remove.
+     */
+    @Override
+    public Iterator<Connection<CL>> iterator() {
+        List<Connection<CL>> connections = Lists.newArrayList();
+        for (Node<CL> node = head.get(); node != null; node = node.next) {
+            if (!node.isClaimed())
+                connections.add(node.connection);
+        }
+        return Iterators.unmodifiableIterator(connections.iterator());
+    }
+
+    /**
+     * @return Number of threads parked waiting for a connection
+     */
+    public int getWaiterCount() {
+        return waiters.size();
+    }
+
+    private void signalWaiter() {
+        Thread waiter = waiters.peek();
+        if (waiter != null)
+            LockSupport.unpark(waiter);
+    }
+
+    /**
+     * Unlink nodes claimed through thread affinity that are buried below unclaimed nodes.  Only the next
+     * pointers of unclaimed nodes are modified, so a concurrent pop that read a stale pointer will at worst
+     * land on a claimed node and skip it.
+     */
+    private void purge() {
+        if (!purging.compareAndSet(false, true))
+            return;
+        try {
+            Node<CL> prev = head.get();
+            while (prev != null) {
+                Node<CL> next = prev.next;
+                while (next != null && next.isClaimed())
+                    next = next.next;
+                prev.next = next;
+                prev = next;
+            }
+        }
+        finally {
+            purging.set(false);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.connectionpool.impl;
+
+import com.netflix.astyanax.connectionpool.ConnectionFactory;
+import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
+import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.Host;
+
+/**
+ * {@link SimpleHostConnectionPool} that hands out idle connections from a lock free LIFO stack instead of 
+ * a FIFO {@link java.util.concurrent.LinkedBlockingQueue}.  Reusing the most recently returned connection keeps 
+ * a small set of hot connections busy under contention, and borrowers that have to wait spin briefly before 
+ * parking.  Priming, mark down and reconnect behave exactly as in {@link SimpleHostConnectionPool}.
+ * 
+ * @see {@link LifoConnectionQueue} for details on the idle connection stack and optional thread affinity
+ * @see {@link HostConnectionPoolType} for selecting this pool through configuration
+ *
+ * @param <CL>
+ */
+public class LifoHostConnectionPool<CL> extends SimpleHostConnectionPool<CL> {
+
+    public LifoHostConnectionPool(Host host, ConnectionFactory<CL> factory, ConnectionPoolMonitor monitor,
+            ConnectionPoolConfiguration config, Listener<CL> listener, boolean threadAffinity) {
+        super(host, factory, monitor, config, listener, new LifoConnectionQueue<CL>(threadAffinity));
+    }
+}
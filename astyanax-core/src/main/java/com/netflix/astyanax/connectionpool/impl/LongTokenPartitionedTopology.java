@@ -0,0 +1,102 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
+import com.netflix.astyanax.partitioner.LongTokenPartitioner;
+
+/**
+ * {@link TokenPartitionedTopology} specialized for partitioners whose tokens fit in a long (i.e. Murmur3).
+ *
+ * <p>
+ * The sorted ring is kept as a sorted long[] of end tokens with a parallel array of partitions.  Both arrays
+ * are published together as one immutable snapshot whenever the ring changes, so that
+ * {@link #getPartition(ByteBuffer)} is a hash of the row key followed by a primitive binary search, without
+ * creating Token, String or BigInteger instances for every operation.
+ * </p>
+ *
+ * @param <CL>
+ */
+public class LongTokenPartitionedTopology<CL> extends TokenPartitionedTopology<CL> {
+
+    /**
+     * Immutable snapshot of the ring.  tokens[i] is the end token of partitions[i].
+     */
+    private static class Ring<CL> {
+        final long[]                                 tokens;
+        final TokenHostConnectionPoolPartition<CL>[] partitions;
+
+        Ring(long[] tokens, TokenHostConnectionPoolPartition<CL>[] partitions) {
+            this.tokens     = tokens;
+            this.partitions = partitions;
+        }
+    }
+
+    private final LongTokenPartitioner partitioner;
+
+    private volatile Ring<CL> ring;
+
+    public LongTokenPartitionedTopology(LongTokenPartitioner partitioner, LatencyScoreStrategy strategy) {
+        this(partitioner, strategy, ReplicaLocality.NONE);
+    }
+
+    @SuppressWarnings("unchecked")
+    public LongTokenPartitionedTopology(LongTokenPartitioner partitioner, LatencyScoreStrategy strategy, ReplicaLocality locality) {
+        super(partitioner, strategy, locality);
+        this.partitioner = partitioner;
+        this.ring        = new Ring<CL>(new long[0], new TokenHostConnectionPoolPartition[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void setSortedRing(List<TokenHostConnectionPoolPartition<CL>> partitions) {
+        super.setSortedRing(partitions);
+
+        long[] tokens = new long[partitions.size()];
+        TokenHostConnectionPoolPartition<CL>[] sorted = new TokenHostConnectionPoolPartition[partitions.size()];
+        int i = 0;
+        for (TokenHostConnectionPoolPartition<CL> partition : partitions) {
+            tokens[i] = partition.id().longValue();
+            sorted[i] = partition;
+            i++;
+        }
+        this.ring = new Ring<CL>(tokens, sorted);
+    }
+
+    @Override
+    public TokenHostConnectionPoolPartition<CL> getPartition(ByteBuffer rowkey) {
+        if (rowkey == null)
+            return getAllPools();
+
+        Ring<CL> ring = this.ring;
+        if (ring.tokens.length == 0)
+            return getAllPools();
+
+        // Same semantics as the parent: the owner is the first partition whose end token is
+        // greater than or equal to the key's token, wrapping around to the first partition
+        int index = Arrays.binarySearch(ring.tokens, partitioner.getLongTokenForKey(rowkey));
+        if (index < 0) {
+            index = -(index + 1);
+            if (index == ring.tokens.length)
+                index = 0;
+        }
+        return ring.partitions[index];
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.netflix.astyanax.connectionpool.Connection;
+import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
+import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.Operation;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.NoAvailableHostsException;
+
+/**
+ * Power of two choices host selection.  Each borrow samples two distinct random pools from the partition
+ * and uses the one with the lower cost, where cost is the number of outstanding requests (busy connections
+ * plus threads blocked waiting for one) scaled by the pool's latency score. <br/> <br/>
+ *
+ * Unlike {@link LeastOutstandingExecuteWithFailover} this neither copies the pool list nor scans every
+ * pool, so selection is constant time and allocation free regardless of the replication factor, while
+ * still steering traffic away from a slow or overloaded replica.  On failover the pools that were already
+ * tried are excluded from sampling until every pool has been tried.
+ *
+ * @param <CL>
+ * @param <R>
+ *
+ * @see {@link TokenAwareConnectionPoolImpl#executeWithFailover(Operation, com.netflix.astyanax.retry.RetryPolicy)} for details on where this class is referenced
+ */
+public class P2CExecuteWithFailover<CL, R> extends AbstractExecuteWithFailoverImpl<CL, R> {
+    protected HostConnectionPool<CL> pool;
+    private int retryCountdown;
+    protected final List<HostConnectionPool<CL>> pools;
+    protected final int size;
+    protected int waitDelta;
+    protected int waitMultiplier = 1;
+
+    /**
+     * Bit mask of the pools already tried by this operation.  Only used for the first 64 pools.
+     */
+    private long tried;
+
+    public P2CExecuteWithFailover(ConnectionPoolConfiguration config, ConnectionPoolMonitor monitor,
+            List<HostConnectionPool<CL>> pools) throws ConnectionException {
+        super(config, monitor);
+
+        this.pools = pools;
+
+        if (pools == null || pools.isEmpty()) {
+            throw new NoAvailableHostsException("No hosts to borrow from");
+        }
+
+        size = pools.size();
+        retryCountdown = Math.min(config.getMaxFailoverCount(), size);
+        if (retryCountdown < 0)
+            retryCountdown = size;
+        else if (retryCountdown == 0)
+            retryCountdown = 1;
+
+        waitDelta = config.getMaxTimeoutWhenExhausted() / retryCountdown;
+    }
+
+    public boolean canRetry() {
+        return --retryCountdown > 0;
+    }
+
+    @Override
+    public HostConnectionPool<CL> getCurrentHostConnectionPool() {
+        return pool;
+    }
+
+    @Override
+    public Connection<CL> borrowConnection(Operation<CL, R> operation) throws ConnectionException {
+        return nextHostConnectionPool().borrowConnection(boundTimeout(waitDelta * waitMultiplier));
+    }
+
+    @Override
+    public HostConnectionPool<CL> nextHostConnectionPool() {
+        int index = nextHostIndex();
+        if (index < 64)
+            tried |= 1L << index;
+        pool = pools.get(index);
+        return pool;
+    }
+
+    /**
+     * @return Index of the lower cost of two randomly sampled pools that have not been tried yet
+     */
+    protected int nextHostIndex() {
+        if (size == 1)
+            return 0;
+
+        int available = size - Long.bitCount(tried);
+        if (available <= 0) {
+            tried     = 0;
+            available = size;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (available == 1)
+            return nthUntried(0);
+
+        int first  = random.nextInt(available);
+        int second = random.nextInt(available - 1);
+        if (second >= first)
+            second++;
+
+        int i = nthUntried(first);
+        int j = nthUntried(second);
+        return isCheaper(pools.get(j), pools.get(i)) ? j : i;
+    }
+
+    /**
+     * Map the n'th untried pool to its index in the pool list.  Pools past the first 64 are never marked
+     * as tried.
+     */
+    private int nthUntried(int n) {
+        if (tried == 0)
+            return n;
+        for (int i = 0; i < size; i++) {
+            if (i >= 64 || (tried & (1L << i)) == 0) {
+                if (n-- == 0)
+                    return i;
+            }
+        }
+        return size - 1;
+    }
+
+    /**
+     * Compare two pools by their outstanding requests weighted by their latency scores, so that of two equally
+     * loaded pools the faster one wins and a slow pool needs proportionally fewer outstanding requests to be
+     * avoided.  If either pool has no score (no latency strategy configured, or a new or reset host without
+     * samples yet) both are compared on load alone, so that a new host does not win every comparison against
+     * scored hosts and get stampeded.
+     *
+     * @return True if pool a is cheaper than pool b
+     */
+    static boolean isCheaper(HostConnectionPool<?> a, HostConnectionPool<?> b) {
+        double scoreA = a.getScore();
+        double scoreB = b.getScore();
+        if (scoreA > 0.0 && scoreB > 0.0)
+            return (outstanding(a) + 1) * scoreA < (outstanding(b) + 1) * scoreB;
+        return outstanding(a) < outstanding(b);
+    }
+
+    private static int outstanding(HostConnectionPool<?> pool) {
+        return pool.getBusyConnectionCount() + pool.getBlockedThreadCount();
+    }
+}
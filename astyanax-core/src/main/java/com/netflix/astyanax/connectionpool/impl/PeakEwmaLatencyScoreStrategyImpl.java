@@ -0,0 +1,103 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calculate latency as a peak sensitive, time decayed exponentially weighted moving average. <br/> <br/>
+ *
+ * A sample larger than the current score replaces the score immediately, so a node that starts degrading
+ * is penalized on the very next operation instead of at the next update interval.  Smaller samples pull the
+ * score down with a weight that depends on the time elapsed since the previous sample, so the score
+ * recovers within a few multiples of the decay time regardless of the request rate. <br/> <br/>
+ *
+ * The score is maintained on the sample path with a CAS loop and does not depend on
+ * {@link #update()}.  A host that stops receiving traffic keeps its last score, so a
+ * non-zero reset interval should be used to let penalized hosts back in.
+ */
+public class PeakEwmaLatencyScoreStrategyImpl extends AbstractLatencyScoreStrategyImpl {
+    private final static String NAME = "PEAK_EWMA";
+
+    public static final int DEFAULT_DECAY_TIME = 10000;
+
+    private final double decayNanos;
+
+    /**
+     * @param decayTime     Time in milliseconds after which the weight of a sample drops to 1/e
+     */
+    public PeakEwmaLatencyScoreStrategyImpl(int updateInterval, int resetInterval, int decayTime, int blockedThreshold, double keepRatio, double scoreThreshold) {
+        super(NAME, updateInterval, resetInterval, blockedThreshold, keepRatio, scoreThreshold);
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayTime);
+    }
+
+    public PeakEwmaLatencyScoreStrategyImpl(int updateInterval, int resetInterval, int decayTime) {
+        super(NAME, updateInterval, resetInterval);
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayTime);
+    }
+
+    public PeakEwmaLatencyScoreStrategyImpl() {
+        this(DEFAULT_UPDATE_INTERVAL, DEFAULT_RESET_INTERVAL, DEFAULT_DECAY_TIME);
+    }
+
+    @Override
+    public final Instance newInstance() {
+        return new Instance() {
+            // Double.doubleToRawLongBits of the current score, 0 meaning no samples yet
+            private final AtomicLong score      = new AtomicLong();
+            private final AtomicLong lastSample = new AtomicLong();
+
+            @Override
+            public void addSample(long sample) {
+                long   now     = System.nanoTime();
+                long   elapsed = now - lastSample.get();
+                lastSample.lazySet(now);
+                double weight  = -1;
+                while (true) {
+                    long   current = score.get();
+                    double ewma    = Double.longBitsToDouble(current);
+                    double next;
+                    if (sample >= ewma || current == 0) {
+                        next = sample;
+                    }
+                    else {
+                        // Only pay for exp() when actually decaying
+                        if (weight < 0)
+                            weight = Math.exp(-Math.max(0, elapsed) / decayNanos);
+                        next = ewma * weight + sample * (1 - weight);
+                    }
+                    if (current == Double.doubleToRawLongBits(next) || score.compareAndSet(current, Double.doubleToRawLongBits(next)))
+                        return;
+                }
+            }
+
+            @Override
+            public double getScore() {
+                return Double.longBitsToDouble(score.get());
+            }
+
+            @Override
+            public void reset() {
+                score.set(0);
+            }
+
+            @Override
+            public void update() {
+            }
+        };
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
+
+import com.google.common.base.Preconditions;
+import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostStats;
+import com.netflix.astyanax.connectionpool.LatencyHistogram;
+import com.netflix.astyanax.connectionpool.SpeculativeExecutionPolicy;
+
+/**
+ * Send a speculative execution to a second replica once the first attempt has been running for longer than
+ * a percentile of the recent operation latencies of its host, e.g. the p99. <br/> <br/>
+ *
+ * Latencies are taken from the per host operation latency histograms of the pool's monitor (see
+ * {@link CountingConnectionPoolMonitor}).  Each host's delay is recomputed at most once per update interval
+ * from the samples recorded since the previous update, and only once at least minSamples new samples are
+ * available, so the percentile tracks recent behavior without being noisy on lightly used hosts.  Until
+ * then, or if the monitor does not keep histograms, the default delay is used. <br/> <br/>
+ *
+ * Computing the delay is a single map lookup outside of the update, but state is kept per policy instance,
+ * so an instance should be shared rather than created for every query.
+ */
+public class PercentileSpeculativeExecutionPolicy implements SpeculativeExecutionPolicy {
+    public static final int DEFAULT_UPDATE_INTERVAL = 1000;
+    public static final int DEFAULT_MIN_SAMPLES     = 100;
+
+    private final double percentile;
+    private final long   defaultDelay;
+    private final long   minDelay;
+    private final int    updateInterval;
+    private final int    minSamples;
+
+    private final NonBlockingHashMap<Host, HostDelay> delays = new NonBlockingHashMap<Host, HostDelay>();
+
+    /**
+     * @param percentile        Percentile of the host's recent latencies, in the range (0, 100]
+     * @param defaultDelay      Delay in milliseconds to use while a host has too few samples
+     * @param minDelay          Lower bound of the delay in milliseconds, to avoid hedging most reads on a very fast host
+     * @param updateInterval    Minimum time in milliseconds between recomputing a host's delay
+     * @param minSamples        Minimum number of new samples needed to recompute a host's delay
+     */
+    public PercentileSpeculativeExecutionPolicy(double percentile, int defaultDelay, int minDelay, int updateInterval, int minSamples) {
+        Preconditions.checkArgument(percentile > 0 && percentile <= 100, "percentile must be in (0, 100]");
+        Preconditions.checkArgument(defaultDelay >= 0, "defaultDelay must be >= 0");
+        Preconditions.checkArgument(minDelay >= 0, "minDelay must be >= 0");
+
+        this.percentile     = percentile;
+        this.defaultDelay   = TimeUnit.MILLISECONDS.toMicros(defaultDelay);
+        this.minDelay       = TimeUnit.MILLISECONDS.toMicros(minDelay);
+        this.updateInterval = updateInterval;
+        this.minSamples     = Math.max(1, minSamples);
+    }
+
+    public PercentileSpeculativeExecutionPolicy(double percentile, int defaultDelay, int minDelay) {
+        this(percentile, defaultDelay, minDelay, DEFAULT_UPDATE_INTERVAL, DEFAULT_MIN_SAMPLES);
+    }
+
+    @Override
+    public long getDelay(Host host, ConnectionPoolMonitor monitor) {
+        HostDelay state = delays.get(host);
+        if (state == null) {
+            state = new HostDelay(defaultDelay);
+            HostDelay previous = delays.putIfAbsent(host, state);
+            if (previous != null)
+                state = previous;
+        }
+
+        long now  = System.currentTimeMillis();
+        long next = state.nextUpdate.get();
+        if (now >= next && state.nextUpdate.compareAndSet(next, now + updateInterval)) {
+            update(state, host, monitor);
+        }
+        return state.delay;
+    }
+
+    private void update(HostDelay state, Host host, ConnectionPoolMonitor monitor) {
+        Map<Host, HostStats> stats = monitor.getHostStats();
+        HostStats hostStats = stats != null ? stats.get(host) : null;
+        LatencyHistogram histogram = hostStats != null ? hostStats.getOperationLatencyHistogram() : null;
+        if (histogram == null)
+            return;
+
+        LatencyHistogram.Snapshot current = histogram.getSnapshot();
+        LatencyHistogram.Snapshot window  = state.last != null ? current.since(state.last) : current;
+        // Keep accumulating until there is enough data for a meaningful percentile
+        if (window.getCount() < minSamples)
+            return;
+
+        state.last  = current;
+        state.delay = Math.max(minDelay, window.getValueAtPercentile(percentile));
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append("PercentileSpeculativeExecutionPolicy[")
+            .append( "percentile="  ).append(percentile)
+            .append(",default="     ).append(defaultDelay).append("us")
+            .append(",min="         ).append(minDelay).append("us")
+            .append(",hosts="       ).append(delays.size())
+            .append("]").toString();
+    }
+
+    private static class HostDelay {
+        private final AtomicLong nextUpdate = new AtomicLong();
+
+        // Written only by the thread that won the update
+        private volatile long                      delay;
+        private volatile LatencyHistogram.Snapshot last;
+
+        HostDelay(long delay) {
+            this.delay = delay;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Splits the row keys of a multi row operation by the replicas that own them, so that each part can be sent
+ * as its own request routed by its first key straight to those replicas.  Token partitions owned by the same
+ * replicas, as with vnodes, share a group.
+ */
+public class ReplicaGrouper {
+    private static final Object ANY_HOST = new Object();
+
+    /**
+     * @param topology        Topology of the pool, or null if the pool is not token aware
+     * @param keys            Row keys.  Duplicate keys are kept once.
+     * @param maxKeysPerGroup Maximum number of keys in a group.  Larger groups are split.
+     * @return Keys grouped by the replicas that own them, in the order of the first key of each replica set and
+     *         keeping the order of the keys within a group.  Keys without known replicas form their own group.
+     */
+    public static <CL> List<List<ByteBuffer>> groupByReplicas(Topology<CL> topology, Iterable<ByteBuffer> keys, int maxKeysPerGroup) {
+        Map<TokenHostConnectionPoolPartition<CL>, Object> replicas = new IdentityHashMap<TokenHostConnectionPoolPartition<CL>, Object>();
+        Map<Object, List<ByteBuffer>> groups = Maps.newLinkedHashMap();
+        Set<ByteBuffer> seen = Sets.newHashSet();
+
+        for (ByteBuffer key : keys) {
+            if (!seen.add(key))
+                continue;
+
+            Object replicaSet = ANY_HOST;
+            if (topology != null) {
+                TokenHostConnectionPoolPartition<CL> partition = topology.getPartition(key);
+                if (partition != null && partition != topology.getAllPools()) {
+                    replicaSet = replicas.get(partition);
+                    if (replicaSet == null) {
+                        replicaSet = ImmutableSet.copyOf(partition.getMembers());
+                        replicas.put(partition, replicaSet);
+                    }
+                }
+            }
+
+            List<ByteBuffer> group = groups.get(replicaSet);
+            if (group == null) {
+                group = Lists.newArrayList();
+                groups.put(replicaSet, group);
+            }
+            group.add(key);
+        }
+
+        List<List<ByteBuffer>> result = Lists.newArrayList();
+        for (List<ByteBuffer> group : groups.values()) {
+            result.addAll(Lists.partition(group, Math.max(1, maxKeysPerGroup)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
+import com.netflix.astyanax.connectionpool.Host;
+
+/**
+ * Location of the client relative to the replicas of a token range.  Used by {@link TokenHostConnectionPoolPartition}
+ * to tier its pools into the local rack, the rest of the local datacenter and remote datacenters. <br/> <br/>
+ *
+ * Hosts whose datacenter is not known are assumed to be local, and the local rack tier is only used when a local rack
+ * is configured.  With neither a local datacenter nor a local rack every host is in the same tier.
+ *
+ * @see ConnectionPoolConfiguration#getLocalDatacenter()
+ * @see ConnectionPoolConfiguration#getLocalRack()
+ * @see ConnectionPoolConfiguration#getMaxRemoteDatacenterFailoverCount()
+ */
+public class ReplicaLocality {
+    public static final int LOCAL_RACK       = 0;
+    public static final int LOCAL_DATACENTER = 1;
+    public static final int REMOTE           = 2;
+
+    public static final ReplicaLocality NONE = new ReplicaLocality(null, null, 0);
+
+    private final String localDatacenter;
+    private final String localRack;
+    private final int    maxRemoteFailoverCount;
+
+    public ReplicaLocality(String localDatacenter, String localRack, int maxRemoteFailoverCount) {
+        this.localDatacenter        = localDatacenter;
+        this.localRack              = localRack;
+        this.maxRemoteFailoverCount = Math.max(0, maxRemoteFailoverCount);
+    }
+
+    public static ReplicaLocality from(ConnectionPoolConfiguration config) {
+        if (config.getLocalDatacenter() == null && config.getLocalRack() == null)
+            return NONE;
+        return new ReplicaLocality(config.getLocalDatacenter(), config.getLocalRack(), config.getMaxRemoteDatacenterFailoverCount());
+    }
+
+    /**
+     * @return True if hosts may be in different tiers
+     */
+    public boolean isEnabled() {
+        return localDatacenter != null || localRack != null;
+    }
+
+    /**
+     * @return Maximum number of remote hosts to fail over to
+     */
+    public int getMaxRemoteFailoverCount() {
+        return maxRemoteFailoverCount;
+    }
+
+    /**
+     * @return Tier of the host, one of LOCAL_RACK, LOCAL_DATACENTER or REMOTE
+     */
+    public int tierOf(Host host) {
+        String datacenter = host.getDatacenter();
+        if (localDatacenter != null && datacenter != null && !datacenter.isEmpty() && !localDatacenter.equals(datacenter))
+            return REMOTE;
+        if (localRack != null && localRack.equals(host.getRack()))
+            return LOCAL_RACK;
+        return LOCAL_DATACENTER;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append("ReplicaLocality[")
+            .append( "dc="             ).append(localDatacenter)
+            .append(",rack="           ).append(localRack)
+            .append(",remoteFailover=" ).append(maxRemoteFailoverCount)
+            .append("]").toString();
+    }
+}
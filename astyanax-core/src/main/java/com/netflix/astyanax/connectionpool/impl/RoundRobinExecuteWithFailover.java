@@ -95,8 +95,13 @@ public class RoundRobinExecuteWithFailover<CL, R> extends AbstractExecuteWithFai
 
     @Override
     public Connection<CL> borrowConnection(Operation<CL, R> operation) throws ConnectionException {
+        return nextHostConnectionPool().borrowConnection(boundTimeout(waitDelta * waitMultiplier));
+    }
+
+    @Override
+    public HostConnectionPool<CL> nextHostConnectionPool() {
         pool = pools.get(getNextHostIndex());
-        return pool.borrowConnection(waitDelta * waitMultiplier);
+        return pool;
     }
 
 }
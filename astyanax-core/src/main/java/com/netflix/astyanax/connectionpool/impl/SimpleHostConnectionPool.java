@@ -18,18 +18,23 @@ package com.netflix.astyanax.connectionpool.impl;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.netflix.astyanax.connectionpool.BadHostDetector;
+import com.netflix.astyanax.connectionpool.ConcurrencyLimiter;
 import com.netflix.astyanax.connectionpool.Connection;
 import com.netflix.astyanax.connectionpool.ConnectionFactory;
 import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
@@ -38,10 +43,14 @@ import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.HostConnectionPool;
 import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
 import com.netflix.astyanax.connectionpool.RetryBackoffStrategy;
+import com.netflix.astyanax.connectionpool.StripedCounter;
+import com.netflix.astyanax.connectionpool.exceptions.ConcurrencyLimitExceededException;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 import com.netflix.astyanax.connectionpool.exceptions.InterruptedOperationException;
 import com.netflix.astyanax.connectionpool.exceptions.HostDownException;
 import com.netflix.astyanax.connectionpool.exceptions.IsDeadConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.IsRetryableException;
+import com.netflix.astyanax.connectionpool.exceptions.IsTimeoutException;
 import com.netflix.astyanax.connectionpool.exceptions.PoolTimeoutException;
 import com.netflix.astyanax.connectionpool.exceptions.ThrottledException;
 import com.netflix.astyanax.connectionpool.exceptions.TimeoutException;
@@ -64,6 +73,25 @@ import com.netflix.astyanax.connectionpool.exceptions.UnknownException;
  *      The class also provides a {@link SimpleHostConnectionPool#markAsDown(ConnectionException)} method which helps purge all connections and then
  *      attempts to init a new set of connections to the host. 
  *      
+ *      Every call made through the pool is also reported to the host's {@link BadHostDetector.Instance} if it is a
+ *      {@link BadHostDetector.CircuitBreaker}.  While the circuit is open or half open the host is reported as reconnecting,
+ *      so it is taken out of the topology without discarding its connections.  Once half open the pool itself sends a 
+ *      limited number of probes to the host, and the host is only put back in the topology once they succeed and the 
+ *      circuit closes.  Any other instance is given the timeouts of the host, and the host is marked as down once the 
+ *      instance asks for it to be quarantined.
+ *      
+ *      Borrowing a connection also reserves a slot from the host's {@link ConcurrencyLimiter.Instance}, which is released
+ *      when the connection is returned.  Once the limit is reached borrowers fail fast with a 
+ *      {@link ConcurrencyLimitExceededException} instead of waiting for a connection, so the operation can fail over 
+ *      to another host.  Operations that run on connections of their own, such as non-blocking ones, reserve and 
+ *      release the slot with {@link #acquireSlot()} and {@link #releaseSlot(ConnectionException)}.
+ *      
+ *      Connections are recycled once they exceed {@link ConnectionPoolConfiguration#getMaxOperationsPerConnection()} or 
+ *      {@link ConnectionPoolConfiguration#getMaxConnectionAge()}, and connections that were not needed for 
+ *      {@link ConnectionPoolConfiguration#getIdleTimeout()} are closed down to the initial number of connections.  Both 
+ *      limits are spread out per connection and the idle check runs at a random offset per pool, so connections opened 
+ *      together are not all closed at the same time.
+ *      
  * </p>
  * 
  * @author elandau
@@ -73,6 +101,8 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
     private final static Logger LOG = LoggerFactory.getLogger(SimpleHostConnectionPool.class);
     private final static int MAX_PRIME_CONNECTIONS_RETRY_ATTEMPT = 2;
     private final static int PRIME_CONNECTION_DELAY = 100;
+    // Connections are recycled after between (1 - RECYCLE_JITTER) and 1 times the max operations or age
+    private final static double RECYCLE_JITTER = 0.25;
 
     /**
      * Interface to notify the owning connection pool of up/down state changes.
@@ -99,8 +129,8 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
     private final AtomicInteger                 openConnections      = new AtomicInteger(0);
     private final AtomicInteger                 failedOpenConnections= new AtomicInteger(0);
     private final AtomicInteger                 closedConnections    = new AtomicInteger(0);
-    private final AtomicLong                    borrowedCount        = new AtomicLong(0);
-    private final AtomicLong                    returnedCount        = new AtomicLong(0);
+    private final StripedCounter                borrowedCount        = new StripedCounter();
+    private final StripedCounter                returnedCount        = new StripedCounter();
     private final AtomicInteger                 connectAttempt       = new AtomicInteger(0);
     private final AtomicInteger                 markedDownCount      = new AtomicInteger(0);
     
@@ -110,17 +140,34 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
     private final Host                          host;
     private final AtomicBoolean                 isShutdown           = new AtomicBoolean(false);
     private final AtomicBoolean                 isReconnecting       = new AtomicBoolean(false);
+    private final AtomicBoolean                 isHalfOpenScheduled  = new AtomicBoolean(false);
     private final ScheduledExecutorService      executor;
     private final RetryBackoffStrategy.Instance retryContext;
     private final BadHostDetector.Instance      badHostDetector;
+    // The bad host detector if it is a circuit breaker, otherwise null
+    private final BadHostDetector.CircuitBreaker circuitBreaker;
+    private final ConcurrencyLimiter.Instance   concurrencyLimiter;
     private final LatencyScoreStrategy.Instance latencyStrategy;
     private final Listener<CL>                  listener;
     private final ConnectionPoolMonitor         monitor;
+    private final NonBlockingHashMap<Connection<CL>, Long> connectionOpenTimes = new NonBlockingHashMap<Connection<CL>, Long>();
+    private final ScheduledFuture<?>            idleReaper;
+    // Fewest idle connections seen since the last idle check, only tracked when idle connections are reaped
+    private volatile int                        minIdleCount;
 
     protected final ConnectionPoolConfiguration config;
 
     public SimpleHostConnectionPool(Host host, ConnectionFactory<CL> factory, ConnectionPoolMonitor monitor,
             ConnectionPoolConfiguration config, Listener<CL> listener) {
+        this(host, factory, monitor, config, listener, new LinkedBlockingQueue<Connection<CL>>());
+    }
+
+    /**
+     * @param availableConnections Queue used to hold idle connections.  Determines the order in which 
+     *          idle connections are handed out and how borrowers wait for a connection to free up.
+     */
+    protected SimpleHostConnectionPool(Host host, ConnectionFactory<CL> factory, ConnectionPoolMonitor monitor,
+            ConnectionPoolConfiguration config, Listener<CL> listener, BlockingQueue<Connection<CL>> availableConnections) {
         
         this.host            = host;
         this.config          = config;
@@ -129,11 +176,16 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
         this.retryContext    = config.getRetryBackoffStrategy().createInstance();
         this.latencyStrategy = config.getLatencyScoreStrategy().createInstance();
         this.badHostDetector = config.getBadHostDetector().createInstance();
+        this.circuitBreaker  = badHostDetector instanceof BadHostDetector.CircuitBreaker
+                ? (BadHostDetector.CircuitBreaker) badHostDetector : null;
+        this.concurrencyLimiter = config.getConcurrencyLimiter().createInstance();
         this.monitor         = monitor;
-        this.availableConnections = new LinkedBlockingQueue<Connection<CL>>();
+        this.availableConnections = availableConnections;
         this.executor        = config.getHostReconnectExecutor();
         
         Preconditions.checkNotNull(config.getHostReconnectExecutor(), "HostReconnectExecutor cannot be null");
+
+        this.idleReaper      = scheduleIdleReaper();
     }
 
     @Override
@@ -183,13 +235,24 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
     @Override
     public Connection<CL> borrowConnection(int timeout) throws ConnectionException {
         Connection<CL> connection = null;
+        boolean acquired = false;
         long startTime = System.currentTimeMillis();
         try {
+            acquireSlot();
+            acquired = true;
+
             // Try to get a free connection without blocking.
             connection = availableConnections.poll();
             if (connection != null) {
+                if (idleReaper != null) {
+                    int idle = availableConnections.size();
+                    if (idle < minIdleCount)
+                        minIdleCount = idle;
+                }
                 return connection;
             }
+            if (idleReaper != null)
+                minIdleCount = 0;
 
             boolean isOpenning = tryOpenAsync();
 
@@ -205,9 +268,12 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
         }
         finally {
             if (connection != null) {
-                borrowedCount.incrementAndGet();
+                borrowedCount.increment();
                 monitor.incConnectionBorrowed(host, System.currentTimeMillis() - startTime);
             }
+            else if (acquired) {
+                concurrencyLimiter.release(false);
+            }
         }
     }
 
@@ -243,6 +309,35 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
         }
     }
 
+    @Override
+    public void acquireSlot() throws ConnectionException {
+        if (!isCircuitClosed()) {
+            throw new HostDownException("Circuit breaker is " + circuitBreaker.getState())
+                    .setHost(getHost());
+        }
+
+        if (!concurrencyLimiter.tryAcquire()) {
+            throw new ConcurrencyLimitExceededException("Concurrency limit of " + concurrencyLimiter.getLimit() + " reached")
+                    .setHost(getHost());
+        }
+    }
+
+    @Override
+    public void releaseSlot(ConnectionException ce) {
+        concurrencyLimiter.release(ce instanceof IsTimeoutException || ce instanceof ThrottledException);
+        if (circuitBreaker == null) {
+            if (ce instanceof IsTimeoutException && badHostDetector.addTimeoutSample())
+                markAsDown(ce);
+        }
+        else if (ce != null && (ce instanceof IsRetryableException || ce instanceof IsDeadConnectionException)) {
+            if (circuitBreaker.addFailure())
+                openCircuit(ce);
+        }
+        else if (circuitBreaker.addSuccess()) {
+            closeCircuit();
+        }
+    }
+
     /**
      * Return a connection to this host
      * 
@@ -250,10 +345,12 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
      */
     @Override
     public boolean returnConnection(Connection<CL> connection) {
-        returnedCount.incrementAndGet();
+        returnedCount.increment();
         monitor.incConnectionReturned(host);
 
         ConnectionException ce = connection.getLastException();
+        releaseSlot(ce);
+
         if (ce != null) {
             if (ce instanceof IsDeadConnectionException) {
                 noteError(ce);
@@ -263,6 +360,14 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
         }
         errorsSinceLastSuccess.set(0);
 
+        if (isExpired(connection)) {
+            internalCloseConnection(connection);
+            // Open the replacement now rather than on the next borrow
+            if (!isShutdown())
+                tryOpenAsync();
+            return true;
+        }
+
         // Still within the number of max active connection
         if (activeCount.get() <= config.getMaxConnsPerHost()) {
             availableConnections.add(connection);
@@ -284,8 +389,9 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
 
     @Override
     public boolean closeConnection(Connection<CL> connection) {
-        returnedCount.incrementAndGet();
+        returnedCount.increment();
         monitor.incConnectionReturned(host);
+        concurrencyLimiter.release(false);
         internalCloseConnection(connection);
         return true;
     }
@@ -293,6 +399,7 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
     private void internalCloseConnection(Connection<CL> connection) {
         try {
             closedConnections.incrementAndGet();
+            connectionOpenTimes.remove(connection);
             connection.close();
         }
         finally {
@@ -338,7 +445,8 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
                             // Created a new connection successfully.
                             try {
                                 retryContext.success();
-                                if (isReconnecting.compareAndSet(true, false)) {
+                                // A host whose circuit breaker is not closed is put back once its probes succeed
+                                if (isReconnecting.compareAndSet(true, false) && isCircuitClosed()) {
                                     monitor .onHostReactivated(host, SimpleHostConnectionPool.this);
                                     listener.onHostUp(SimpleHostConnectionPool.this);
                                 }
@@ -366,6 +474,169 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
         }
     }
 
+    /**
+     * The circuit breaker opened.  Take the host out of the topology, but keep its connections, and start 
+     * probing it once the open duration has elapsed.
+     */
+    private void openCircuit(ConnectionException reason) {
+        LOG.warn("Circuit breaker opened for " + host);
+        listener.onHostDown(this);
+        monitor .onHostDown(getHost(), reason);
+        scheduleHalfOpen();
+    }
+
+    private void scheduleHalfOpen() {
+        if (!isHalfOpenScheduled.compareAndSet(false, true))
+            return;
+
+        try {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isShutdown() && !isCircuitClosed()) {
+                        if (circuitBreaker.halfOpen())
+                            sendProbes();
+                        if (!isCircuitClosed()) {
+                            executor.schedule(this, circuitBreaker.getOpenDuration(), TimeUnit.MILLISECONDS);
+                            return;
+                        }
+                    }
+
+                    isHalfOpenScheduled.set(false);
+                    // The circuit may have opened again while this task was finishing
+                    if (!isShutdown() && !isCircuitClosed())
+                        scheduleHalfOpen();
+                }
+            }, circuitBreaker.getOpenDuration(), TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            isHalfOpenScheduled.set(false);
+            LOG.error("Failed to schedule circuit breaker task for " + host.getHostName(), e);
+        }
+    }
+
+    /**
+     * Send the probes allowed by the half open circuit, one at a time, until the circuit closes or opens again.
+     * Probes run on idle connections of the pool, or on a new connection if there are none, and are not
+     * borrowed from the pool.
+     */
+    private void sendProbes() {
+        while (!isShutdown() && circuitBreaker.allowRequest()) {
+            Connection<CL> connection = availableConnections.poll();
+            long startTime = 0;
+            try {
+                if (connection == null) {
+                    reconnect();
+                    connection = availableConnections.poll();
+                    if (connection == null)
+                        return;
+                }
+                startTime = System.nanoTime();
+                connection.probe();
+            }
+            catch (Exception e) {
+                LOG.info("Circuit breaker probe failed for " + host + ": " + e.getMessage());
+                if (connection != null)
+                    internalCloseConnection(connection);
+                circuitBreaker.addFailure();
+                return;
+            }
+
+            availableConnections.add(connection);
+            if (circuitBreaker.addLatencySample(System.nanoTime() - startTime))
+                return;
+            if (circuitBreaker.addSuccess())
+                closeCircuit();
+        }
+    }
+
+    /**
+     * @return True unless the bad host detector is a circuit breaker that is open or half open
+     */
+    private boolean isCircuitClosed() {
+        return circuitBreaker == null || circuitBreaker.getState() == BadHostDetector.State.CLOSED;
+    }
+
+    /**
+     * The probes of the half open circuit succeeded.  Put the host back in the topology.
+     */
+    private void closeCircuit() {
+        LOG.info("Circuit breaker closed for " + host);
+        if (!isReconnecting.get()) {
+            monitor .onHostReactivated(host, this);
+            listener.onHostUp(this);
+        }
+    }
+
+    /**
+     * @return True if the connection has been used for too many operations or for too long.  Each 
+     * connection gets its own limits within RECYCLE_JITTER of the configured ones.
+     */
+    private boolean isExpired(Connection<CL> connection) {
+        double jitter = 1 - RECYCLE_JITTER * jitterOf(connection);
+
+        int maxOperations = config.getMaxOperationsPerConnection();
+        if (maxOperations > 0 && connection.getOperationCount() >= maxOperations * jitter)
+            return true;
+
+        int maxAge = config.getMaxConnectionAge();
+        if (maxAge > 0) {
+            Long openTime = connectionOpenTimes.get(connection);
+            return openTime != null && System.currentTimeMillis() - openTime >= maxAge * jitter;
+        }
+        return false;
+    }
+
+    /**
+     * @return Fraction in [0, 1) that stays the same for the lifetime of the connection
+     */
+    private static double jitterOf(Connection<?> connection) {
+        return ((System.identityHashCode(connection) * 0x9E3779B9) >>> 16) / 65536.0;
+    }
+
+    /**
+     * Periodically close the connections that were idle during the entire idle timeout.  The first
+     * check is delayed by a random fraction of the timeout so pools created together don't line up.
+     */
+    private ScheduledFuture<?> scheduleIdleReaper() {
+        int idleTimeout = config.getIdleTimeout();
+        ScheduledExecutorService scheduler = config.getMaintainanceScheduler();
+        if (idleTimeout <= 0 || scheduler == null)
+            return null;
+
+        try {
+            return scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        reapIdleConnections();
+                    }
+                    catch (Throwable t) {
+                        LOG.error("Error reaping idle connections for " + host, t);
+                    }
+                }
+            }, idleTimeout + ThreadLocalRandom.current().nextInt(idleTimeout), idleTimeout, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            LOG.error("Failed to schedule idle connection reaper for " + host.getHostName(), e);
+            return null;
+        }
+    }
+
+    private void reapIdleConnections() {
+        if (isShutdown())
+            return;
+
+        int surplus = Math.min(minIdleCount, activeCount.get() - config.getInitConnsPerHost());
+        for (int i = 0; i < surplus; i++) {
+            Connection<CL> connection = availableConnections.poll();
+            if (connection == null)
+                break;
+            internalCloseConnection(connection);
+        }
+        minIdleCount = availableConnections.size();
+    }
+
     private void reconnect() throws Exception {
         try {
             if (activeCount.get() < config.getMaxConnsPerHost()) {
@@ -375,6 +646,7 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
                     connection.open();
                     
                     errorsSinceLastSuccess.set(0);
+                    connectionOpenTimes.put(connection, System.currentTimeMillis());
                     availableConnections.add(connection);
                     openConnections.incrementAndGet();
                 }
@@ -402,6 +674,8 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
     public void shutdown() {
         isReconnecting.set(true);
         isShutdown.set(true);
+        if (idleReaper != null)
+            idleReaper.cancel(false);
         discardIdleConnections();
         
         config.getLatencyScoreStrategy().removeInstance(this.latencyStrategy);
@@ -432,6 +706,7 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
                                 public void success(Connection<CL> connection) {
                                     openConnections.incrementAndGet();
                                     pendingConnections.decrementAndGet();
+                                    connectionOpenTimes.put(connection, System.currentTimeMillis());
                                     availableConnections.add(connection);
     
                                     // Sanity check in case the connection
@@ -478,8 +753,12 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
         return isShutdown.get();
     }
 
+    /**
+     * @return True if the host is down and being reconnected or if its circuit breaker is not closed.  Either
+     * way the host should not be used.
+     */
     public boolean isReconnecting() {
-        return isReconnecting.get();
+        return isReconnecting.get() || !isCircuitClosed();
     }
     
     @Override
@@ -541,6 +820,9 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
     @Override
     public void addLatencySample(long latency, long now) {
         latencyStrategy.addSample(latency);
+        concurrencyLimiter.addLatencySample(latency);
+        if (circuitBreaker != null && circuitBreaker.addLatencySample(latency))
+            openCircuit(null);
     }
     
     @Override
@@ -560,6 +842,7 @@ public class SimpleHostConnectionPool<CL> implements HostConnectionPool<CL> {
         for (Connection<CL> connection : connections) {
             try {
                 closedConnections.incrementAndGet();
+                connectionOpenTimes.remove(connection);
                 connection.close(); // This is usually an async operation
             }
             catch (Throwable t) {
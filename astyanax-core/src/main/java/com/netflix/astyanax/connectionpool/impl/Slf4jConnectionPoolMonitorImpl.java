@@ -18,6 +18,7 @@ package com.netflix.astyanax.connectionpool.impl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.netflix.astyanax.connectionpool.CounterSnapshot;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.HostConnectionPool;
 import com.netflix.astyanax.connectionpool.exceptions.HostDownException;
@@ -35,6 +36,18 @@ import com.netflix.astyanax.connectionpool.exceptions.PoolTimeoutException;
 public class Slf4jConnectionPoolMonitorImpl extends CountingConnectionPoolMonitor {
     private static final Logger LOG = LoggerFactory.getLogger(Slf4jConnectionPoolMonitorImpl.class);
 
+    private CounterSnapshot lastSnapshot = getCounterSnapshot();
+
+    /**
+     * Log the counters and their rates since the previous call, or since the monitor was created.  Meant to be 
+     * called periodically.
+     */
+    public synchronized void logStats() {
+        CounterSnapshot snapshot = getCounterSnapshot();
+        LOG.info(snapshot.since(lastSnapshot).toString());
+        lastSnapshot = snapshot;
+    }
+
     @Override
     public void incOperationFailure(Host host, Exception reason) {
         if (reason instanceof NotFoundException) {
@@ -15,9 +15,6 @@
  */
 package com.netflix.astyanax.connectionpool.impl;
 
-import java.util.NoSuchElementException;
-import java.util.concurrent.LinkedBlockingQueue;
-
 public class SmaLatencyScoreStrategyImpl extends AbstractLatencyScoreStrategyImpl {
     private static final String NAME = "SMA";
     
@@ -39,19 +36,13 @@ public class SmaLatencyScoreStrategyImpl extends AbstractLatencyScoreStrategyImp
 
     public final Instance newInstance() {
         return new Instance() {
-            private final LinkedBlockingQueue<Long> latencies = new LinkedBlockingQueue<Long>(windowSize);
-            private volatile Double cachedScore = 0.0d;
+            private final LatencySampleBuffer latencies = new LatencySampleBuffer(windowSize);
+            private final long[] samples = new long[latencies.capacity()];
+            private volatile double cachedScore = 0.0d;
     
             @Override
             public void addSample(long sample) {
-                if (!latencies.offer(sample)) {
-                    try {
-                        latencies.remove();
-                    }
-                    catch (NoSuchElementException e) {
-                    }
-                    latencies.offer(sample);
-                }
+                latencies.add(sample);
             }
     
             @Override
@@ -61,20 +52,19 @@ public class SmaLatencyScoreStrategyImpl extends AbstractLatencyScoreStrategyImp
     
             @Override
             public void reset() {
-                latencies.clear();
+                latencies.reset();
             }
     
             @Override
-            public void update() {
+            public synchronized void update() {
                 cachedScore = getMean();
             }
     
             private double getMean() {
                 long sum = 0;
-                int count = 0;
-                for (long d : latencies) {
-                    sum += d;
-                    count++;
+                int count = latencies.snapshot(samples);
+                for (int i = 0; i < count; i++) {
+                    sum += samples[i];
                 }
                 return (count > 0) ? sum / count : 0.0;
             }
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.astyanax.connectionpool.Connection;
+import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.Operation;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.IsRetryableException;
+import com.netflix.astyanax.connectionpool.exceptions.UnknownException;
+
+/**
+ * Race between the original attempt of an operation and its speculative execution on another host.  Each
+ * attempt runs on the speculative executor, owns its connection and returns it to its pool when done, so
+ * the attempt that loses the race cleans up after itself in the background. <br/> <br/>
+ *
+ * The race completes with the first successful response, or with the first error that is not retryable
+ * (i.e. a response from the cluster such as a bad request).  Retryable errors only complete the race once
+ * every attempt has failed.
+ *
+ * @param <CL>
+ * @param <R>
+ *
+ * @see AbstractExecuteWithFailoverImpl
+ */
+class SpeculativeExecution<CL, R> {
+    static final int ORIGINAL    = 0;
+    static final int SPECULATIVE = 1;
+
+    private final Operation<CL, R>         operation;
+    private final ConnectionPoolMonitor    monitor;
+
+    // Guarded by this
+    private final Host[]                   hosts    = new Host[2];
+    private final ConnectionException[]    failures = new ConnectionException[2];
+    private int                            running;
+    private int                            winner   = -1;
+    private OperationResult<R>             result;
+    private ConnectionException            error;
+
+    SpeculativeExecution(Operation<CL, R> operation, ConnectionPoolMonitor monitor) {
+        this.operation = operation;
+        this.monitor   = monitor;
+    }
+
+    /**
+     * Execute the operation on the connection in the background.  The attempt takes ownership of the connection
+     * unless the executor rejects it.
+     *
+     * @return False if the executor rejected the attempt
+     */
+    boolean start(ExecutorService executor, final Connection<CL> connection, final int attempt) {
+        synchronized (this) {
+            hosts[attempt] = connection.getHostConnectionPool().getHost();
+            running++;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    execute(connection, attempt);
+                }
+            });
+            return true;
+        }
+        catch (RejectedExecutionException e) {
+            synchronized (this) {
+                running--;
+            }
+            return false;
+        }
+    }
+
+    private void execute(Connection<CL> connection, int attempt) {
+        OperationResult<R>  response = null;
+        ConnectionException failure  = null;
+        try {
+            response = connection.execute(operation);
+            monitor.incOperationSuccess(hosts[attempt], response.getLatency());
+        }
+        catch (ConnectionException e) {
+            failure = e;
+        }
+        catch (Throwable t) {
+            failure = new UnknownException(t);
+        }
+        finally {
+            connection.getHostConnectionPool().returnConnection(connection);
+        }
+
+        synchronized (this) {
+            if (result == null && error == null) {
+                if (response != null) {
+                    result = response;
+                    winner = attempt;
+                }
+                else {
+                    failure.setHost(hosts[attempt]);
+                    failures[attempt] = failure;
+                    if (!(failure instanceof IsRetryableException))
+                        error = failure;
+                }
+            }
+            running--;
+            notifyAll();
+        }
+    }
+
+    private boolean isDone() {
+        return result != null || error != null || running == 0;
+    }
+
+    /**
+     * Wait for the race to complete
+     * @param timeout   Maximum time to wait in microseconds, or a negative value to wait indefinitely
+     * @return True if the race has completed
+     * @throws InterruptedException
+     */
+    synchronized boolean await(long timeout) throws InterruptedException {
+        if (timeout < 0) {
+            while (!isDone())
+                wait();
+            return true;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(timeout);
+        while (!isDone()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * @return Result of the completed race.  If both attempts failed with retryable errors the failure of the
+     * original attempt is reported to the monitor as a failover and the speculative execution's failure is thrown.
+     * @throws ConnectionException
+     */
+    OperationResult<R> getResult() throws ConnectionException {
+        ConnectionException originalFailure;
+        synchronized (this) {
+            if (result != null) {
+                if (winner == SPECULATIVE)
+                    monitor.incSpeculativeExecutionWon(hosts[SPECULATIVE]);
+                return result;
+            }
+            if (error != null)
+                throw error;
+            if (failures[SPECULATIVE] == null)
+                throw failures[ORIGINAL];
+            originalFailure = failures[ORIGINAL];
+        }
+        monitor.incFailover(originalFailure.getHost(), originalFailure);
+        throw failures[SPECULATIVE];
+    }
+}
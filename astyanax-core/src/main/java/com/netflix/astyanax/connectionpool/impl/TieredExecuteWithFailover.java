@@ -0,0 +1,99 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.List;
+
+import com.netflix.astyanax.connectionpool.Connection;
+import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
+import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.Operation;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+
+/**
+ * Failover across the tiers of a {@link TokenHostConnectionPoolPartition}.  Hosts are first selected from the
+ * primary (nearest) tier by the configured host selector strategy.  Once that strategy runs out of retries the
+ * failover pools are tried one after the other, nearest first. <br/> <br/>
+ *
+ * The total number of attempts is still bounded by {@link ConnectionPoolConfiguration#getMaxFailoverCount()}.
+ *
+ * @param <CL>
+ * @param <R>
+ *
+ * @see TokenAwareConnectionPoolImpl
+ */
+public class TieredExecuteWithFailover<CL, R> extends AbstractExecuteWithFailoverImpl<CL, R> {
+    private final AbstractExecuteWithFailoverImpl<CL, R> primary;
+    private final List<HostConnectionPool<CL>>           failover;
+    private final int                                    waitDelta;
+    private HostConnectionPool<CL>                       pool;
+    private int                                          failoverIndex = -1;
+    private int                                          retryCountdown;
+
+    public TieredExecuteWithFailover(ConnectionPoolConfiguration config, ConnectionPoolMonitor monitor,
+            AbstractExecuteWithFailoverImpl<CL, R> primary, List<HostConnectionPool<CL>> failover) throws ConnectionException {
+        super(config, monitor);
+
+        this.primary  = primary;
+        this.failover = failover;
+
+        retryCountdown = config.getMaxFailoverCount();
+        if (retryCountdown < 0)
+            retryCountdown = Integer.MAX_VALUE;
+        else if (retryCountdown == 0)
+            retryCountdown = 1;
+
+        waitDelta = config.getMaxTimeoutWhenExhausted() / Math.max(1, failover.size());
+    }
+
+    /**
+     * @return True while hosts are selected from the primary tier
+     */
+    private boolean isPrimary() {
+        return failoverIndex < 0;
+    }
+
+    @Override
+    public HostConnectionPool<CL> getCurrentHostConnectionPool() {
+        return isPrimary() ? primary.getCurrentHostConnectionPool() : pool;
+    }
+
+    @Override
+    public Connection<CL> borrowConnection(Operation<CL, R> operation) throws ConnectionException {
+        if (isPrimary())
+            return primary.borrowConnection(operation);
+        pool = failover.get(failoverIndex);
+        return pool.borrowConnection(boundTimeout(waitDelta));
+    }
+
+    @Override
+    public HostConnectionPool<CL> nextHostConnectionPool() throws ConnectionException {
+        if (isPrimary())
+            return primary.nextHostConnectionPool();
+        pool = failover.get(failoverIndex);
+        return pool;
+    }
+
+    @Override
+    public boolean canRetry() {
+        if (--retryCountdown <= 0)
+            return false;
+        if (isPrimary() && primary.canRetry())
+            return true;
+        return ++failoverIndex < failover.size();
+    }
+}
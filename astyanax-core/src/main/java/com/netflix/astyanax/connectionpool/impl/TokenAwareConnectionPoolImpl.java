@@ -39,6 +39,10 @@ import com.netflix.astyanax.connectionpool.exceptions.NoAvailableHostsException;
  * well functioning ring with all nodes up and keeps downed hosts in the
  * internal data structures.
  * 
+ * When a local datacenter or rack is configured hosts are selected from the
+ * nearest tier of the token's replicas and only fail over to the farther tiers
+ * once the nearest one has been tried (see {@link TokenHostConnectionPoolPartition}).
+ * 
  * @author elandau
  * 
  * @param <CL>
@@ -57,6 +61,7 @@ public class TokenAwareConnectionPoolImpl<CL> extends AbstractHostPartitionConne
     public <R> ExecuteWithFailover<CL, R> newExecuteWithFailover(Operation<CL, R> op) throws ConnectionException {
         try {
             List<HostConnectionPool<CL>> pools;
+            List<HostConnectionPool<CL>> failoverPools = null;
             boolean isSorted = false;
     
             if (op.getPinnedHost() != null) {
@@ -68,7 +73,8 @@ public class TokenAwareConnectionPoolImpl<CL> extends AbstractHostPartitionConne
             }
             else {
                 TokenHostConnectionPoolPartition<CL> partition = topology.getPartition(op.getRowKey());
-                pools = partition.getPools();
+                pools = partition.getPrimaryPools();
+                failoverPools = partition.getFailoverPools();
                 isSorted = partition.isSorted();
             }
             
@@ -85,11 +91,17 @@ public class TokenAwareConnectionPoolImpl<CL> extends AbstractHostPartitionConne
                 case LEAST_OUTSTANDING:
                     executeWithFailover = new LeastOutstandingExecuteWithFailover<CL, R>(config, monitor, pools);
                     break;
+                case P2C:
+                    executeWithFailover = new P2CExecuteWithFailover<CL, R>(config, monitor, pools);
+                    break;
                 default:
                     executeWithFailover = new RoundRobinExecuteWithFailover<CL, R>(config, monitor, pools, isSorted ? 0 : index);
                     break;
 
             }
+            if (failoverPools != null && !failoverPools.isEmpty()) {
+                executeWithFailover = new TieredExecuteWithFailover<CL, R>(config, monitor, executeWithFailover, failoverPools);
+            }
             return executeWithFailover;
         }
         catch (ConnectionException e) {
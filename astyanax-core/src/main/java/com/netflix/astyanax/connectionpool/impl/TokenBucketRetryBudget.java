@@ -0,0 +1,117 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.netflix.astyanax.connectionpool.RetryBudget;
+
+/**
+ * Token bucket {@link RetryBudget}.  Each successful operation deposits retryRatio tokens and the bucket 
+ * is also refilled at minRetriesPerSecond, so that a client with little traffic can still retry.  Each 
+ * retry withdraws one token.  The bucket holds at most maxRetries tokens and starts out full. <br/> <br/>
+ * 
+ * In steady state retries are therefore limited to retryRatio of the successful operations plus 
+ * minRetriesPerSecond.  Tokens are kept in thousandths so that fractional ratios do not need 
+ * floating point arithmetic on the hot path.
+ */
+public class TokenBucketRetryBudget implements RetryBudget {
+    private static final long SCALE = 1000;
+
+    private final long       deposit;
+    private final long       refillIntervalNanos;
+    private final long       maxBalance;
+    private final AtomicLong balance;
+    private final AtomicLong lastRefill = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param retryRatio            Retries allowed per successful operation, such as 0.1 for 10%
+     * @param minRetriesPerSecond   Retries allowed per second regardless of the number of successful operations
+     * @param maxRetries            Maximum number of retries that may be saved up for a burst of failures
+     */
+    public TokenBucketRetryBudget(double retryRatio, int minRetriesPerSecond, int maxRetries) {
+        Preconditions.checkArgument(retryRatio >= 0, "retryRatio must not be negative");
+        Preconditions.checkArgument(minRetriesPerSecond >= 0, "minRetriesPerSecond must not be negative");
+        Preconditions.checkArgument(maxRetries >= 1, "maxRetries must be at least 1");
+
+        this.deposit             = Math.round(retryRatio * SCALE);
+        this.refillIntervalNanos = minRetriesPerSecond > 0 
+                                 ? Math.max(1, TimeUnit.SECONDS.toNanos(1) / (minRetriesPerSecond * SCALE)) 
+                                 : 0;
+        this.maxBalance          = maxRetries * SCALE;
+        this.balance             = new AtomicLong(maxBalance);
+    }
+
+    @Override
+    public void onSuccess() {
+        if (deposit > 0 && balance.get() < maxBalance)
+            add(deposit);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        refill();
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE)
+                return false;
+            if (balance.compareAndSet(current, current - SCALE))
+                return true;
+        }
+    }
+
+    @Override
+    public boolean isExhausted() {
+        refill();
+        return balance.get() < SCALE;
+    }
+
+    /**
+     * @return Number of retries currently allowed
+     */
+    public double getAvailableRetries() {
+        return (double)balance.get() / SCALE;
+    }
+
+    private void refill() {
+        if (refillIntervalNanos == 0)
+            return;
+        long last   = lastRefill.get();
+        long tokens = (System.nanoTime() - last) / refillIntervalNanos;
+        if (tokens > 0 && lastRefill.compareAndSet(last, last + tokens * refillIntervalNanos))
+            add(tokens);
+    }
+
+    private void add(long amount) {
+        while (true) {
+            long current = balance.get();
+            long next    = Math.min(maxBalance, current + amount);
+            if (next <= current || balance.compareAndSet(current, next))
+                return;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append("TokenBucketRetryBudget[")
+            .append( "available="  ).append(getAvailableRetries())
+            .append(",max="        ).append(maxBalance / SCALE)
+            .append("]").toString();
+    }
+}
@@ -16,10 +16,27 @@
 package com.netflix.astyanax.connectionpool.impl;
 
 import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
 import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
 
 /**
- * Collection of pools that own a token range of the ring
+ * Collection of pools that own a token range of the ring <br/> <br/>
+ * 
+ * When a {@link ReplicaLocality} is provided the active pools are also tiered into the local rack, the rest of 
+ * the local datacenter and remote datacenters.  The primary pools are the nearest tier that has an active pool, 
+ * and the failover pools are the remaining local tiers in order of proximity followed by at most 
+ * {@link ReplicaLocality#getMaxRemoteFailoverCount()} remote pools.  Both lists are rebuilt whenever the active
+ * pools change so that routing an operation does not have to look at the hosts' locations. <br/> <br/>
+ * 
+ * The active pools and tiers are kept together in an immutable {@link State}.  A partition that belongs to a 
+ * {@link TokenPartitionedTopology} reads its state from an array of the states of all partitions that the topology 
+ * publishes as a whole, so that a refresh of the ring is seen by all partitions at once.
  * 
  * @author elandau
  *
@@ -27,12 +44,43 @@ import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
  */
 public class TokenHostConnectionPoolPartition<CL> extends HostConnectionPoolPartition<CL> {
 
-    private final BigInteger  token;
+    /**
+     * Immutable snapshot of the active pools and their tiers, published as one unit
+     */
+    static class State<CL> {
+        final TokenHostConnectionPoolPartition<CL> owner;
+        final List<HostConnectionPool<CL>>         active;
+        final boolean                              sorted;
+        final List<HostConnectionPool<CL>>         primary;
+        final List<HostConnectionPool<CL>>         failover;
+
+        State(TokenHostConnectionPoolPartition<CL> owner, List<HostConnectionPool<CL>> active, boolean sorted,
+                List<HostConnectionPool<CL>> primary, List<HostConnectionPool<CL>> failover) {
+            this.owner    = owner;
+            this.active   = active;
+            this.sorted   = sorted;
+            this.primary  = primary;
+            this.failover = failover;
+        }
+    }
+
+    private final BigInteger                        token;
+    private final ReplicaLocality                   locality;
+    private volatile State<CL>                      state;
+    private volatile AtomicReference<State<CL>[]>   published;
+    private volatile int                            slot = -1;
 
     public TokenHostConnectionPoolPartition(BigInteger id, LatencyScoreStrategy strategy) {
+        this(id, strategy, ReplicaLocality.NONE);
+    }
+
+    public TokenHostConnectionPoolPartition(BigInteger id, LatencyScoreStrategy strategy, ReplicaLocality locality) {
         super(strategy);
-        this.token = id;
+        this.token    = id;
+        this.locality = locality;
+        this.state    = newState(ImmutableList.<HostConnectionPool<CL>>of(), false);
     }
+
     /**
      * Token or shard identifying this partition.
      * 
@@ -41,4 +89,139 @@ public class TokenHostConnectionPoolPartition<CL> extends HostConnectionPoolPart
     public BigInteger id() {
         return token;
     }
+
+    @Override
+    public List<HostConnectionPool<CL>> getPools() {
+        return current().active;
+    }
+
+    @Override
+    public boolean isSorted() {
+        return current().sorted;
+    }
+
+    /**
+     * @return Active pools in the nearest tier.  Same as {@link #getPools()} when the partition is not tiered.
+     */
+    public List<HostConnectionPool<CL>> getPrimaryPools() {
+        return current().primary;
+    }
+
+    /**
+     * @return Active pools to try, in order, once the primary pools have been tried
+     */
+    public List<HostConnectionPool<CL>> getFailoverPools() {
+        return current().failover;
+    }
+
+    @Override
+    public synchronized boolean refresh(LatencyScoreStrategy.Ranking<CL> ranking, List<HostConnectionPool<CL>> scratch) {
+        boolean didChange = super.refresh(ranking, scratch);
+        if (didChange || state.sorted != super.isSorted())
+            state = newState(super.getPools(), super.isSorted());
+        return didChange;
+    }
+
+    /**
+     * @return The state published for this partition, or the state of its last refresh when it is not 
+     *         part of a published array
+     */
+    State<CL> current() {
+        AtomicReference<State<CL>[]> published = this.published;
+        if (published != null) {
+            int slot = this.slot;
+            State<CL>[] states = published.get();
+            if (slot >= 0 && slot < states.length && states[slot] != null && states[slot].owner == this)
+                return states[slot];
+        }
+        return state;
+    }
+
+    /**
+     * Move the partition to a slot of the array of states published by a topology.  The current state is
+     * kept until a state is published for the new slot.  Called by the topology with its lock held.
+     * 
+     * @param published
+     * @param slot      Index of the partition's state, or -1 once the partition was removed from the ring
+     */
+    void assign(AtomicReference<State<CL>[]> published, int slot) {
+        this.state     = current();
+        this.published = published;
+        this.slot      = slot;
+    }
+
+    /**
+     * @return Index of the partition's state in the array published by its topology, or -1
+     */
+    int slot() {
+        return slot;
+    }
+
+    /**
+     * Apply a ranking to the pools of the partition without publishing the result
+     * 
+     * @param ranking
+     * @param scratch   List used to build the active pools.  Its contents are discarded.
+     * @param previous  State to return if the active pools did not change
+     * @return
+     */
+    State<CL> filter(LatencyScoreStrategy.Ranking<CL> ranking, List<HostConnectionPool<CL>> scratch, State<CL> previous) {
+        scratch.clear();
+        boolean sorted = ranking.filter(getMembers(), scratch);
+        return update(scratch, sorted, previous);
+    }
+
+    /**
+     * @param active    Active pools, copied if they changed
+     * @param sorted
+     * @param previous  State to return if the active pools did not change
+     * @return State with the active pools
+     */
+    State<CL> update(List<HostConnectionPool<CL>> active, boolean sorted, State<CL> previous) {
+        if (previous != null && previous.sorted == sorted && isSame(active, previous.active))
+            return previous;
+        return newState(ImmutableList.copyOf(active), sorted);
+    }
+
+    private State<CL> newState(List<HostConnectionPool<CL>> active, boolean sorted) {
+        if (!locality.isEnabled())
+            return new State<CL>(this, active, sorted, active, Collections.<HostConnectionPool<CL>>emptyList());
+
+        List<HostConnectionPool<CL>> rack       = Lists.newArrayList();
+        List<HostConnectionPool<CL>> datacenter = Lists.newArrayList();
+        List<HostConnectionPool<CL>> remote     = Lists.newArrayList();
+        for (HostConnectionPool<CL> pool : active) {
+            switch (locality.tierOf(pool.getHost())) {
+            case ReplicaLocality.LOCAL_RACK:
+                rack.add(pool);
+                break;
+            case ReplicaLocality.REMOTE:
+                remote.add(pool);
+                break;
+            default:
+                datacenter.add(pool);
+                break;
+            }
+        }
+        if (remote.size() > locality.getMaxRemoteFailoverCount())
+            remote = remote.subList(0, locality.getMaxRemoteFailoverCount());
+
+        List<HostConnectionPool<CL>> primary;
+        List<HostConnectionPool<CL>> failover = Lists.newArrayList();
+        if (!rack.isEmpty()) {
+            primary = rack;
+            failover.addAll(datacenter);
+        }
+        else if (!datacenter.isEmpty()) {
+            primary = datacenter;
+        }
+        else {
+            // Nothing left locally, the remote hosts are the nearest tier
+            primary = remote;
+            remote  = Collections.emptyList();
+        }
+        failover.addAll(remote);
+
+        return new State<CL>(this, active, sorted, ImmutableList.copyOf(primary), ImmutableList.copyOf(failover));
+    }
 }
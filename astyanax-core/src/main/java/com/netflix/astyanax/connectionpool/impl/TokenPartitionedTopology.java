@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -32,6 +33,7 @@ import org.cliffc.high_scale_lib.NonBlockingHashMap;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -67,6 +69,15 @@ import com.netflix.astyanax.partitioner.Partitioner;
  * to an integer which is then used to do a bin search over the list of all sorted tokens in the token ring. 
  * </p>
  * 
+ * <p>
+ * <b> Refreshing the partitions </b>
+ * {@link #refresh()} ranks all hosts once with {@link LatencyScoreStrategy#rank(Collection)} and applies that ranking to every 
+ * partition without holding the topology lock.  The resulting states of all partitions are then published at once as a 
+ * single immutable array, so that an operation never sees some partitions filtered with the old ranking and others with 
+ * the new one.  A partition whose active pools did not change keeps its previous state.  A host going up or down 
+ * republishes only the states of the partitions that host belongs to, using the ranking of the last refresh.  A refresh 
+ * that raced with such a change is dropped and the next refresh starts over.
+ * </p>
  * 
  * @author elandau
  *
@@ -103,6 +114,101 @@ public class TokenPartitionedTopology<CL> implements Topology<CL> {
      */
     private final Partitioner partitioner;
 
+    /**
+     * Location of this client, used to tier the pools of each partition
+     */
+    private final ReplicaLocality locality;
+
+    /**
+     * Partitions that each pool belongs to, excluding the all pools partition
+     */
+    private volatile Map<HostConnectionPool<CL>, List<TokenHostConnectionPoolPartition<CL>>> poolPartitions 
+        = ImmutableMap.of();
+
+    /**
+     * States of all partitions.  The state of the partition at index i of the sorted ring is at index i, followed by
+     * the state of the all pools partition.
+     */
+    @SuppressWarnings("unchecked")
+    private final AtomicReference<TokenHostConnectionPoolPartition.State<CL>[]> states
+        = new AtomicReference<TokenHostConnectionPoolPartition.State<CL>[]>(new TokenHostConnectionPoolPartition.State[0]);
+
+    /**
+     * Pools of all partitions in flat arrays.  Guarded by this.
+     */
+    private Layout<CL> layout;
+
+    /**
+     * Ranking of the pools of the layout from the last refresh.  Guarded by this.
+     */
+    private LatencyScoreStrategy.Ranking<CL> ranking;
+
+    /**
+     * Outcome of {@link LatencyScoreStrategy.Ranking#filter(int[], int, int)} for each partition of the layout 
+     * from which its published state was built.  Guarded by this.
+     */
+    private long[] masks;
+
+    /**
+     * Incremented every time states are published.  Guarded by this.
+     */
+    private long version;
+
+    /**
+     * The pools of the partitions of the sorted ring, laid out so that a refresh filters each partition 
+     * without walking its list of pools.  Rebuilt whenever the pools of any partition change.
+     */
+    private static class Layout<CL> {
+        /**
+         * The sorted ring
+         */
+        final List<TokenHostConnectionPoolPartition<CL>> partitions;
+
+        /**
+         * All pools, ranked as one collection
+         */
+        final List<HostConnectionPool<CL>> pools;
+
+        /**
+         * The pools of the partition at index i are pools.get(positions[j]) for j from offsets[i] to offsets[i + 1]
+         */
+        final int[] offsets;
+        final int[] positions;
+
+        /**
+         * False for the partitions that are too large, or have pools that are not ranked, to be filtered by position
+         */
+        final boolean[] byPosition;
+
+        Layout(List<TokenHostConnectionPoolPartition<CL>> partitions, List<HostConnectionPool<CL>> pools) {
+            this.partitions = partitions;
+            this.pools      = pools;
+
+            Map<HostConnectionPool<CL>, Integer> index = new IdentityHashMap<HostConnectionPool<CL>, Integer>(pools.size());
+            for (int i = 0; i < pools.size(); i++) {
+                index.put(pools.get(i), i);
+            }
+
+            this.offsets = new int[partitions.size() + 1];
+            for (int i = 0; i < partitions.size(); i++) {
+                offsets[i + 1] = offsets[i] + partitions.get(i).getMembers().size();
+            }
+            this.positions  = new int[offsets[partitions.size()]];
+            this.byPosition = new boolean[partitions.size()];
+            for (int i = 0; i < partitions.size(); i++) {
+                List<HostConnectionPool<CL>> members = partitions.get(i).getMembers();
+                byPosition[i] = members.size() <= LatencyScoreStrategy.MAX_MASK_POOLS;
+                for (int j = 0; j < members.size(); j++) {
+                    Integer position = index.get(members.get(j));
+                    if (position == null)
+                        byPosition[i] = false;
+                    else
+                        positions[offsets[i] + j] = position;
+                }
+            }
+        }
+    }
+
     /**
      * Comparator used to find the partition mapping to a token
      */
@@ -132,13 +238,20 @@ public class TokenPartitionedTopology<CL> implements Topology<CL> {
     };
 
     public TokenPartitionedTopology(Partitioner partitioner, LatencyScoreStrategy strategy) {
+        this(partitioner, strategy, ReplicaLocality.NONE);
+    }
+
+    public TokenPartitionedTopology(Partitioner partitioner, LatencyScoreStrategy strategy, ReplicaLocality locality) {
         this.strategy    = strategy;
         this.partitioner = partitioner;
-        this.allPools    = new TokenHostConnectionPoolPartition<CL>(null, this.strategy);
+        this.locality    = locality;
+        this.allPools    = new TokenHostConnectionPoolPartition<CL>(null, this.strategy, locality);
+        this.allPools.assign(states, 0);
+        rebuild(Collections.<TokenHostConnectionPoolPartition<CL>>emptyList());
     }
 
     protected TokenHostConnectionPoolPartition<CL> makePartition(BigInteger partition) {
-        return new TokenHostConnectionPoolPartition<CL>(partition, strategy);
+        return new TokenHostConnectionPoolPartition<CL>(partition, strategy, locality);
     }
 
     @SuppressWarnings("unchecked")
@@ -171,7 +284,8 @@ public class TokenPartitionedTopology<CL> implements Topology<CL> {
         }
 
         // Temporary list of token that will be removed if not found in the new ring
-        Set<BigInteger> tokensToRemove = Sets.newHashSet(tokenHostMap.keySet());
+        Set<BigInteger> tokensToRemove = Sets.newHashSet(tokenToPartitionMap.keySet());
+        Map<HostConnectionPool<CL>, List<TokenHostConnectionPoolPartition<CL>>> poolPartitions = Maps.newHashMap();
 
         // Iterate all tokens
         for (Entry<BigInteger, List<HostConnectionPool<CL>>> entry : tokenHostMap.entrySet()) {
@@ -185,13 +299,22 @@ public class TokenPartitionedTopology<CL> implements Topology<CL> {
                 tokenToPartitionMap.put(token, partition);
                 didChange = true;
             }
-            if (partition.setPools(entry.getValue()))
+            if (partition.updatePools(entry.getValue()))
                 didChange = true;
+
+            for (HostConnectionPool<CL> pool : entry.getValue()) {
+                List<TokenHostConnectionPoolPartition<CL>> partitions = poolPartitions.get(pool);
+                if (partitions == null) {
+                    partitions = Lists.newArrayList();
+                    poolPartitions.put(pool, partitions);
+                }
+                partitions.add(partition);
+            }
         }
 
         // Remove the tokens that are no longer in the ring
         for (BigInteger token : tokensToRemove) {
-            tokenHostMap.remove(token);
+            tokenToPartitionMap.remove(token).assign(states, -1);
             didChange = true;
         }
 
@@ -199,31 +322,150 @@ public class TokenPartitionedTopology<CL> implements Topology<CL> {
         if (didChange) {
             List<TokenHostConnectionPoolPartition<CL>> partitions = Lists.newArrayList(tokenToPartitionMap.values());
             Collections.sort(partitions, partitionComparator);
-            this.allPools.setPools(allPools);
-            refresh();
-            this.sortedRing.set(Collections.unmodifiableList(partitions));
+            for (int i = 0; i < partitions.size(); i++) {
+                partitions.get(i).assign(states, i);
+            }
+            this.allPools.assign(states, partitions.size());
+            this.allPools.updatePools(allPools);
+            this.poolPartitions = poolPartitions;
+            rebuild(partitions);
+            setSortedRing(partitions);
         }
 
         return didChange;
     }
 
+    /**
+     * Publish a new list of partitions sorted by token.  Called with the topology lock held
+     * every time the set of partitions changes.
+     *
+     * @param partitions
+     */
+    protected void setSortedRing(List<TokenHostConnectionPoolPartition<CL>> partitions) {
+        this.sortedRing.set(Collections.unmodifiableList(partitions));
+    }
+
     @Override
     public synchronized void resumePool(HostConnectionPool<CL> pool) {
-        refresh();
+        refresh(pool);
     }
 
     @Override
     public synchronized void suspendPool(HostConnectionPool<CL> pool) {
-        refresh();
+        refresh(pool);
+    }
+
+    /**
+     * Republish only the states of the partitions that a pool belongs to.  Called with the lock held.
+     * @param pool
+     */
+    private void refresh(HostConnectionPool<CL> pool) {
+        List<HostConnectionPool<CL>> scratch = Lists.newArrayList();
+        TokenHostConnectionPoolPartition.State<CL>[] previousStates = this.states.get();
+        TokenHostConnectionPoolPartition.State<CL>[] states = previousStates.clone();
+        List<TokenHostConnectionPoolPartition<CL>> partitions = poolPartitions.get(pool);
+        if (partitions != null) {
+            for (TokenHostConnectionPoolPartition<CL> partition : partitions) {
+                int slot = partition.slot();
+                states[slot] = filter(layout, ranking, slot, previousStates, masks, masks, scratch);
+            }
+        }
+        states[states.length - 1] = allPools.filter(ranking, scratch, allPools.current());
+        publish(states);
     }
 
     @Override
-    public synchronized void refresh() {
-        allPools.refresh();
-        for (TokenHostConnectionPoolPartition<CL> partition : tokenToPartitionMap.values()) {
-            partition.refresh();
+    public void refresh() {
+        Layout<CL>                                   layout;
+        TokenHostConnectionPoolPartition.State<CL>[] previousStates;
+        long[]                                       previousMasks;
+        long                                         version;
+        synchronized (this) {
+            layout         = this.layout;
+            previousStates = this.states.get();
+            previousMasks  = this.masks;
+            version        = this.version;
+        }
+
+        // Filter every partition without blocking hosts from going up or down in the meantime
+        LatencyScoreStrategy.Ranking<CL> ranking = strategy.rank(layout.pools);
+        long[] masks = new long[layout.partitions.size()];
+        TokenHostConnectionPoolPartition.State<CL>[] states = filter(layout, ranking, previousStates, previousMasks, masks);
+
+        synchronized (this) {
+            if (this.version == version) {
+                this.ranking = ranking;
+                this.masks   = masks;
+                publish(states);
+            }
         }
-        
+    }
+
+    /**
+     * Lay out the pools of the partitions after they changed, rank them and publish the states of all partitions.  
+     * Called with the lock held, after the partitions were assigned their slots.
+     * @param partitions    The sorted ring
+     */
+    private void rebuild(List<TokenHostConnectionPoolPartition<CL>> partitions) {
+        layout  = new Layout<CL>(partitions, allPools.getMembers());
+        ranking = strategy.rank(layout.pools);
+        masks   = new long[partitions.size()];
+        publish(filter(layout, ranking, null, null, masks));
+    }
+
+    /**
+     * Apply a ranking to all partitions, reusing the current state of the partitions whose active pools did not change
+     * @param layout
+     * @param ranking
+     * @param previousStates    The published states, or null if they were not built from this layout
+     * @param previousMasks     Masks of the published states, or null if they were not built from this layout
+     * @param masks             Filled with the masks of the new states
+     * @return States to publish
+     */
+    @SuppressWarnings("unchecked")
+    private TokenHostConnectionPoolPartition.State<CL>[] filter(Layout<CL> layout, LatencyScoreStrategy.Ranking<CL> ranking,
+            TokenHostConnectionPoolPartition.State<CL>[] previousStates, long[] previousMasks, long[] masks) {
+        List<HostConnectionPool<CL>> scratch = Lists.newArrayList();
+        int size = layout.partitions.size();
+        TokenHostConnectionPoolPartition.State<CL>[] states = new TokenHostConnectionPoolPartition.State[size + 1];
+        for (int i = 0; i < size; i++) {
+            states[i] = filter(layout, ranking, i, previousStates, previousMasks, masks, scratch);
+        }
+        states[size] = allPools.filter(ranking, scratch, allPools.current());
+        return states;
+    }
+
+    private TokenHostConnectionPoolPartition.State<CL> filter(Layout<CL> layout, LatencyScoreStrategy.Ranking<CL> ranking, int i,
+            TokenHostConnectionPoolPartition.State<CL>[] previousStates, long[] previousMasks, long[] masks, 
+            List<HostConnectionPool<CL>> scratch) {
+        TokenHostConnectionPoolPartition<CL> partition = layout.partitions.get(i);
+        if (!layout.byPosition[i])
+            return partition.filter(ranking, scratch, partition.current());
+
+        // The partition is only looked at if its outcome changed
+        int  from = layout.offsets[i];
+        int  to   = layout.offsets[i + 1];
+        long mask = ranking.filter(layout.positions, from, to);
+        boolean same = previousMasks != null && previousMasks[i] == mask;
+        masks[i] = mask;
+        if (same)
+            return previousStates[i];
+
+        scratch.clear();
+        for (int j = from; j < to; j++) {
+            if ((mask & (1L << (j - from))) != 0)
+                scratch.add(layout.pools.get(layout.positions[j]));
+        }
+        return partition.update(scratch, mask < 0, partition.current());
+    }
+
+    /**
+     * Publish the states of all partitions at once.  Called with the lock held.
+     * @param states
+     */
+    private void publish(TokenHostConnectionPoolPartition.State<CL>[] states) {
+        version++;
+        this.states.set(states);
     }
 
     @Override
@@ -274,15 +516,20 @@ public class TokenPartitionedTopology<CL> implements Topology<CL> {
 
     @Override
     public synchronized void removePool(HostConnectionPool<CL> pool) {
-        allPools.removePool(pool);
-        for (TokenHostConnectionPoolPartition<CL> partition : tokenToPartitionMap.values()) {
-            partition.removePool(pool);
+        allPools.removeMember(pool);
+        List<TokenHostConnectionPoolPartition<CL>> partitions = poolPartitions.get(pool);
+        if (partitions != null) {
+            for (TokenHostConnectionPoolPartition<CL> partition : partitions) {
+                partition.removeMember(pool);
+            }
         }
+        rebuild(sortedRing.get());
     }
 
     @Override
     public synchronized void addPool(HostConnectionPool<CL> pool) {
-        allPools.addPool(pool);
+        if (allPools.addMember(pool))
+            rebuild(sortedRing.get());
     }
     
     @Override
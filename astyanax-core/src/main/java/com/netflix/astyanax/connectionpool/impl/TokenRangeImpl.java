@@ -15,9 +15,12 @@
  ******************************************************************************/
 package com.netflix.astyanax.connectionpool.impl;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.netflix.astyanax.connectionpool.TokenRange;
 
@@ -31,14 +34,27 @@ public class TokenRangeImpl implements TokenRange {
     private final String startToken;
     private final String endToken;
     private final List<String> endpoints;
+    private final Map<String, String> datacenters;
+    private final Map<String, String> racks;
 
     public TokenRangeImpl(String startToken, String endToken, List<String> endpoints) {
+        this(startToken, endToken, endpoints, null, null);
+    }
+
+    /**
+     * @param datacenters Datacenter of each endpoint, or null if not known
+     * @param racks       Rack of each endpoint, or null if not known
+     */
+    public TokenRangeImpl(String startToken, String endToken, List<String> endpoints, 
+            Map<String, String> datacenters, Map<String, String> racks) {
         this.startToken = startToken;
         this.endToken = endToken;
         if (endpoints != null)
             this.endpoints = ImmutableList.copyOf(endpoints);
         else 
             this.endpoints = Lists.newArrayList();
+        this.datacenters = datacenters != null ? ImmutableMap.copyOf(datacenters) : Collections.<String, String>emptyMap();
+        this.racks       = racks       != null ? ImmutableMap.copyOf(racks)       : Collections.<String, String>emptyMap();
     }
 
     @Override
@@ -56,6 +72,16 @@ public class TokenRangeImpl implements TokenRange {
         return this.endpoints;
     }
 
+    @Override
+    public String getDatacenter(String endpoint) {
+        return this.datacenters.get(endpoint);
+    }
+
+    @Override
+    public String getRack(String endpoint) {
+        return this.racks.get(endpoint);
+    }
+
     @Override
     public String toString() {
         return "TokenRangeImpl [startToken=" + startToken + ", endToken=" + endToken + ", endpoints=" + endpoints + "]";
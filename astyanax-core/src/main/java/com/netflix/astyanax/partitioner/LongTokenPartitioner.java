@@ -0,0 +1,33 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.partitioner;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Partitioner whose entire token space fits in a signed 64 bit long, such as the
+ * Murmur3 partitioner.  Connection pools use this to keep the token ring as a sorted
+ * array of primitive tokens and route row keys without converting tokens to strings.
+ */
+public interface LongTokenPartitioner extends Partitioner {
+    /**
+     * Return the token for the specified key as a long.  Implementations must not
+     * modify the position of the buffer and should not allocate.
+     *
+     * @param key
+     */
+    long getLongTokenForKey(ByteBuffer key);
+}
@@ -34,9 +34,22 @@ public abstract class SleepingRetryPolicy implements RetryPolicy {
     }
 
     public boolean allowRetry() {
+        return allowRetry(Long.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #allowRetry()} but does not retry if the sleep would not end within maxSleepTimeMs, 
+     * such as when the operation's deadline would pass before the retry could complete.  
+     * 
+     * @param maxSleepTimeMs
+     */
+    public boolean allowRetry(long maxSleepTimeMs) {
         if (maxAttempts == -1 || attempts < maxAttempts) {
+            long sleepTimeMs = getSleepTimeMs();
+            if (sleepTimeMs >= maxSleepTimeMs)
+                return false;
             try {
-                Thread.sleep(getSleepTimeMs());
+                Thread.sleep(sleepTimeMs);
             }
             catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.shallows;
+
+import com.netflix.astyanax.connectionpool.ConcurrencyLimiter;
+
+public class EmptyConcurrencyLimiter implements ConcurrencyLimiter {
+
+    private static final EmptyConcurrencyLimiter instance = new EmptyConcurrencyLimiter();
+
+    public static EmptyConcurrencyLimiter getInstance() {
+        return instance;
+    }
+
+    private EmptyConcurrencyLimiter() {
+
+    }
+
+    private static final Instance INSTANCE = new Instance() {
+        @Override
+        public boolean tryAcquire() {
+            return true;
+        }
+
+        @Override
+        public void release(boolean dropped) {
+        }
+
+        @Override
+        public void addLatencySample(long latency) {
+        }
+
+        @Override
+        public int getLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public int getInFlight() {
+            return 0;
+        }
+    };
+
+    @Override
+    public Instance createInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String toString() {
+        return "EmptyConcurrencyLimiter[]";
+    }
+}
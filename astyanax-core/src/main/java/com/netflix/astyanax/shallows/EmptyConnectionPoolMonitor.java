@@ -82,6 +82,22 @@ public class EmptyConnectionPoolMonitor implements ConnectionPoolMonitor {
     public void incConnectionCreated(Host host) {
     }
 
+    @Override
+    public void incConnectionCreateLatency(Host host, long latency) {
+    }
+
+    @Override
+    public void incSpeculativeExecution(Host host) {
+    }
+
+    @Override
+    public void incSpeculativeExecutionWon(Host host) {
+    }
+
+    @Override
+    public void incRetryBudgetExhausted(Host host) {
+    }
+
     @Override
     public void incConnectionCreateFailed(Host host, Exception e) {
     }
@@ -99,6 +115,21 @@ public class EmptyConnectionPoolMonitor implements ConnectionPoolMonitor {
         return null;
     }
 
+    @Override
+    public long getSpeculativeExecutionCount() {
+        return 0;
+    }
+
+    @Override
+    public long getSpeculativeExecutionWonCount() {
+        return 0;
+    }
+
+    @Override
+    public long getRetryBudgetExhaustedCount() {
+        return 0;
+    }
+
     @Override
     public long getOperationFailureCount() {
         return 0;
@@ -139,6 +170,11 @@ public class EmptyConnectionPoolMonitor implements ConnectionPoolMonitor {
         return 0;
     }
 
+    @Override
+    public long getConcurrencyLimitExceededCount() {
+        return 0;
+    }
+
     @Override
     public long getOperationTimeoutCount() {
         return 0;
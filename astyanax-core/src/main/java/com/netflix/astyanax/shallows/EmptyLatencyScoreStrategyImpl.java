@@ -15,9 +15,11 @@
  ******************************************************************************/
 package com.netflix.astyanax.shallows;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.google.common.collect.ImmutableList;
 import com.netflix.astyanax.connectionpool.HostConnectionPool;
 import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
 
@@ -79,6 +81,42 @@ public class EmptyLatencyScoreStrategyImpl implements LatencyScoreStrategy {
         return pools;
     }
 
+    /**
+     * Keeps every host that is not reconnecting
+     */
+    private static class NoRanking<CL> implements Ranking<CL> {
+        private final List<HostConnectionPool<CL>> pools;
+
+        NoRanking(Collection<HostConnectionPool<CL>> pools) {
+            this.pools = ImmutableList.copyOf(pools);
+        }
+
+        @Override
+        public boolean filter(List<HostConnectionPool<CL>> pools, List<HostConnectionPool<CL>> result) {
+            for (int i = 0; i < pools.size(); i++) {
+                HostConnectionPool<CL> pool = pools.get(i);
+                if (!pool.isReconnecting())
+                    result.add(pool);
+            }
+            return false;
+        }
+
+        @Override
+        public long filter(int[] positions, int from, int to) {
+            long kept = 0;
+            for (int i = from; i < to; i++) {
+                if (!pools.get(positions[i]).isReconnecting())
+                    kept |= 1L << (i - from);
+            }
+            return kept;
+        }
+    }
+
+    @Override
+    public <CL> Ranking<CL> rank(Collection<HostConnectionPool<CL>> pools) {
+        return new NoRanking<CL>(pools);
+    }
+
     public String toString() {
         return "EmptyLatencyScoreStrategy[]";
     }
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.shallows;
+
+import com.netflix.astyanax.connectionpool.RetryBudget;
+
+/**
+ * Unlimited retry budget.  Retries are only limited by the retry policy and failover count.
+ */
+public class EmptyRetryBudget implements RetryBudget {
+
+    private static EmptyRetryBudget instance = new EmptyRetryBudget();
+
+    public static EmptyRetryBudget getInstance() {
+        return instance;
+    }
+
+    private EmptyRetryBudget() {
+
+    }
+
+    @Override
+    public void onSuccess() {
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return true;
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return false;
+    }
+}
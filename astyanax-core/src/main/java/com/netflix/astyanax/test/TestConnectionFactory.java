@@ -59,8 +59,10 @@ public class TestConnectionFactory implements ConnectionFactory<TestClient> {
             @Override
             public <R> OperationResult<R> execute(Operation<TestClient, R> op)
                     throws ConnectionException {
+                operationCounter.incrementAndGet();
                 long startTime = System.nanoTime();
                 long latency = 0;
+                lastException = null;
 
                 // Execute the operation
                 try {
@@ -120,10 +122,12 @@ public class TestConnectionFactory implements ConnectionFactory<TestClient> {
             @Override
             public void open() throws ConnectionException {
                 TestHostType type = TestHostType.get(getHost().getPort());
+                long startTime = System.currentTimeMillis();
                 try {
                     type.open(0);
                     isOpen = true;
                     monitor.incConnectionCreated(getHost());
+                    monitor.incConnectionCreateLatency(getHost(), System.currentTimeMillis() - startTime);
                 } catch (ConnectionException e) {
                     lastException = e;
                     e.setHost(getHost());
@@ -132,6 +136,17 @@ public class TestConnectionFactory implements ConnectionFactory<TestClient> {
                 }
             }
 
+            @Override
+            public void probe() throws ConnectionException {
+                lastException = null;
+                try {
+                    TestHostType.get(getHost().getPort()).execute(pool, new TestOperation());
+                } catch (ConnectionException e) {
+                    lastException = e;
+                    throw e;
+                }
+            }
+
             @Override
             public void openAsync(final AsyncOpenCallback<TestClient> callback) {
                 final Connection<TestClient> This = this;
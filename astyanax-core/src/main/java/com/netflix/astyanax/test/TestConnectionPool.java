@@ -92,6 +92,11 @@ public class TestConnectionPool implements ConnectionPool<TestClient> {
         return null;
     }
 
+    @Override
+    public boolean awaitReady(long timeout, float minHostFraction) {
+        return true;
+    }
+
     @Override
     public Topology<TestClient> getTopology() {
         return null;
@@ -103,6 +103,16 @@ public class TestHostConnectionPool implements HostConnectionPool<TestClient> {
 
     }
 
+    @Override
+    public void acquireSlot() throws ConnectionException {
+
+    }
+
+    @Override
+    public void releaseSlot(ConnectionException lastException) {
+
+    }
+
     @Override
     public boolean closeConnection(Connection<TestClient> connection) {
         return false;
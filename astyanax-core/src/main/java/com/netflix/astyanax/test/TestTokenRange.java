@@ -17,8 +17,12 @@ package com.netflix.astyanax.test;
 
 import java.math.BigInteger;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.TokenRange;
 import com.netflix.astyanax.connectionpool.impl.TokenRangeImpl;
@@ -49,6 +53,16 @@ public class TestTokenRange implements TokenRange {
     public List<String> getEndpoints() {
         return endpoints;
     }
+
+    @Override
+    public String getDatacenter(String endpoint) {
+        return null;
+    }
+
+    @Override
+    public String getRack(String endpoint) {
+        return null;
+    }
     
     public static List<Host> makeRing(
             int nHosts,
@@ -77,6 +91,40 @@ public class TestTokenRange implements TokenRange {
         return hosts;
     }
     
+    /**
+     * Make a ring of hosts with nTokensPerHost random tokens (vnodes) each in the Murmur3 token space.
+     * Each range is replicated to the owning host and the next replication_factor-1 hosts.
+     */
+    public static List<Host> makeVnodeRing(
+            int nHosts,
+            int nTokensPerHost,
+            int replication_factor,
+            Random random) {
+        
+        List<Host> hosts = Lists.newArrayList();
+        for (int i = 0; i < nHosts; i++) {
+            hosts.add(new Host("127.0." + (i / 256) + "." + (i % 256) + ":" + TestHostType.GOOD_FAST.ordinal(), 9160));
+        }
+
+        TreeMap<Long, Integer> ring = Maps.newTreeMap();
+        for (int i = 0; i < nHosts; i++) {
+            for (int j = 0; j < nTokensPerHost; j++) {
+                ring.put(random.nextLong(), i);
+            }
+        }
+
+        Long previous = ring.lastKey();
+        for (Entry<Long, Integer> entry : ring.entrySet()) {
+            TokenRange range = new TokenRangeImpl(previous.toString(), entry.getKey().toString(), null);
+            for (int j = 0; j < replication_factor; j++) {
+                hosts.get((entry.getValue() + j) % nHosts).getTokenRanges().add(range);
+            }
+            previous = entry.getKey();
+        }
+
+        return hosts;
+    }
+    
     public static String getRingDetails(List<Host> hosts) {
         StringBuilder sb = new StringBuilder();
         for (Host host : hosts) {
@@ -0,0 +1,256 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.InterruptedOperationException;
+import com.netflix.astyanax.connectionpool.exceptions.UnknownException;
+import com.netflix.astyanax.connectionpool.impl.OperationResultImpl;
+
+/**
+ * Batches concurrent single key requests of the same {@link Group} into one request for all their keys. <br/> <br/>
+ *
+ * The first request of a group starts a batch and waits up to the batch window, or until the batch has the
+ * maximum number of keys, for other requests to join.  It then executes the batch on its own thread and
+ * completes every request with the result for its own key.  Requests arriving once a batch is closed start
+ * the next one.  Each request is therefore delayed by at most the window.
+ */
+public class AutoBatcher {
+    /**
+     * Requests that can be executed together.  Groups that are equal share batches so they must be equal only
+     * if one request can read the keys of both.
+     *
+     * @param <K>
+     * @param <R>
+     */
+    public interface Group<K, R> {
+        /**
+         * Execute one request for all the keys.  Keys missing from the result get a null result.
+         */
+        OperationResult<Map<K, R>> execute(Collection<K> keys) throws ConnectionException;
+    }
+
+    private static class Batch<K, R> {
+        private final Group<K, R>                            group;
+        private final List<K>                                keys    = Lists.newArrayList();
+        private final List<SettableFuture<OperationResult<R>>> futures = Lists.newArrayList();
+        private volatile Thread                              leader;
+        private boolean                                      closed;
+
+        Batch(Group<K, R> group, K key, SettableFuture<OperationResult<R>> future) {
+            this.group = group;
+            keys.add(key);
+            futures.add(future);
+        }
+
+        synchronized boolean add(K key, SettableFuture<OperationResult<R>> future, int maxKeys) {
+            if (closed || keys.size() >= maxKeys)
+                return false;
+            keys.add(key);
+            futures.add(future);
+            if (keys.size() >= maxKeys) {
+                Thread thread = leader;
+                if (thread != null)
+                    LockSupport.unpark(thread);
+            }
+            return true;
+        }
+
+        synchronized int size() {
+            return keys.size();
+        }
+
+        synchronized void close() {
+            closed = true;
+        }
+    }
+
+    private final ConcurrentMap<Group<?, ?>, Batch<?, ?>> pending = new NonBlockingHashMap<Group<?, ?>, Batch<?, ?>>();
+    private final long       windowNanos;
+    private final int        maxKeys;
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong keyCount   = new AtomicLong();
+
+    /**
+     * @param window    Time the first request of a batch waits for others to join
+     * @param units
+     * @param maxKeys   Maximum number of requests in a batch
+     */
+    public AutoBatcher(long window, TimeUnit units, int maxKeys) {
+        this.windowNanos = units.toNanos(window);
+        this.maxKeys     = Math.max(1, maxKeys);
+    }
+
+    /**
+     * Execute the request for a key as part of a batch and wait for its result
+     *
+     * @param group
+     * @param key
+     */
+    public <K, R> OperationResult<R> execute(Group<K, R> group, K key) throws ConnectionException {
+        SettableFuture<OperationResult<R>> future = SettableFuture.create();
+        Batch<K, R> batch = join(group, key, future);
+        if (batch != null)
+            run(batch);
+        return await(future);
+    }
+
+    /**
+     * Execute the request for a key as part of a batch.  A batch started by this request is executed by the executor.
+     *
+     * @param group
+     * @param key
+     * @param executor
+     */
+    public <K, R> ListenableFuture<OperationResult<R>> executeAsync(Group<K, R> group, K key, Executor executor) {
+        SettableFuture<OperationResult<R>> future = SettableFuture.create();
+        final Batch<K, R> batch = join(group, key, future);
+        if (batch != null) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    AutoBatcher.this.run(batch);
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Add the request to the pending batch of the group or start a new batch
+     *
+     * @return The batch if it was started by this request, otherwise null
+     */
+    @SuppressWarnings("unchecked")
+    private <K, R> Batch<K, R> join(Group<K, R> group, K key, SettableFuture<OperationResult<R>> future) {
+        while (true) {
+            Batch<K, R> batch = (Batch<K, R>) pending.get(group);
+            if (batch == null) {
+                batch = new Batch<K, R>(group, key, future);
+                if (pending.putIfAbsent(group, batch) == null)
+                    return batch;
+            }
+            else if (batch.add(key, future, maxKeys)) {
+                return null;
+            }
+            else {
+                pending.remove(group, batch);
+            }
+        }
+    }
+
+    /**
+     * Wait for the batch to fill up, then execute it and complete all its requests
+     */
+    private <K, R> void run(Batch<K, R> batch) {
+        batch.leader = Thread.currentThread();
+        long end = System.nanoTime() + windowNanos;
+        while (batch.size() < maxKeys && !Thread.currentThread().isInterrupted()) {
+            long remaining = end - System.nanoTime();
+            if (remaining <= 0)
+                break;
+            LockSupport.parkNanos(this, remaining);
+        }
+
+        pending.remove(batch.group, batch);
+        List<K> keys;
+        List<SettableFuture<OperationResult<R>>> futures;
+        synchronized (batch) {
+            batch.close();
+            keys    = ImmutableList.copyOf(batch.keys);
+            futures = ImmutableList.copyOf(batch.futures);
+        }
+        batchCount.incrementAndGet();
+        keyCount.addAndGet(keys.size());
+
+        try {
+            OperationResult<Map<K, R>> result = batch.group.execute(ImmutableSet.copyOf(keys));
+            for (int i = 0; i < keys.size(); i++) {
+                futures.get(i).set(new OperationResultImpl<R>(result.getHost(), result.getResult().get(keys.get(i)), result.getLatency()));
+            }
+        }
+        catch (Throwable t) {
+            for (SettableFuture<OperationResult<R>> future : futures) {
+                future.setException(t);
+            }
+            if (t instanceof Error)
+                throw (Error)t;
+        }
+    }
+
+    private static <R> OperationResult<R> await(ListenableFuture<OperationResult<R>> future) throws ConnectionException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedOperationException("Interrupted waiting for batched execution");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ConnectionException)
+                throw (ConnectionException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new UnknownException(cause);
+        }
+    }
+
+    /**
+     * @return Number of batches executed
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return Number of requests executed in batches
+     */
+    public long getKeyCount() {
+        return keyCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append("AutoBatcher[")
+            .append( "batches=" ).append(getBatchCount())
+            .append(",keys="    ).append(getKeyCount())
+            .append(",window="  ).append(TimeUnit.NANOSECONDS.toMicros(windowNanos)).append("us")
+            .append(",maxKeys=" ).append(maxKeys)
+            .append("]").toString();
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.util;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.netflix.astyanax.Execution;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.InterruptedOperationException;
+import com.netflix.astyanax.connectionpool.exceptions.UnknownException;
+
+/**
+ * Single flight execution of identical concurrent requests.  The first caller for a key runs its {@link Execution}
+ * and every caller that arrives with the same key while it is in flight waits for and receives the same result, 
+ * or the same exception, instead of issuing its own request.  Nothing is cached; once the execution completes the 
+ * next caller for the key runs a new one. <br/> <br/>
+ * 
+ * The key must identify everything that determines the result, and the result is shared by all callers so it must 
+ * be safe to read from several threads.
+ * 
+ * @param <K>
+ */
+public class ExecutionCoalescer<K> {
+    private final ConcurrentMap<K, ListenableFuture<?>> inFlight = new NonBlockingHashMap<K, ListenableFuture<?>>();
+    private final AtomicLong executionCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Execute on the calling thread unless an identical execution is already in flight, in which case wait for its result
+     * 
+     * @param key
+     * @param execution
+     */
+    @SuppressWarnings("unchecked")
+    public <R> OperationResult<R> execute(K key, Execution<R> execution) throws ConnectionException {
+        SettableFuture<OperationResult<R>> future = SettableFuture.create();
+        ListenableFuture<OperationResult<R>> existing = (ListenableFuture<OperationResult<R>>) inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedCount.incrementAndGet();
+            return await(existing);
+        }
+
+        executionCount.incrementAndGet();
+        try {
+            OperationResult<R> result = execution.execute();
+            inFlight.remove(key, future);
+            future.set(result);
+            return result;
+        }
+        catch (ConnectionException e) {
+            inFlight.remove(key, future);
+            future.setException(e);
+            throw e;
+        }
+        catch (RuntimeException e) {
+            inFlight.remove(key, future);
+            future.setException(e);
+            throw e;
+        }
+        catch (Error e) {
+            inFlight.remove(key, future);
+            future.setException(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Execute asynchronously unless an identical execution is already in flight, in which case return a future 
+     * for its result.  Cancelling the returned future does not cancel the shared execution.
+     * 
+     * @param key
+     * @param execution
+     */
+    @SuppressWarnings("unchecked")
+    public <R> ListenableFuture<OperationResult<R>> executeAsync(final K key, Execution<R> execution) throws ConnectionException {
+        final SettableFuture<OperationResult<R>> future = SettableFuture.create();
+        ListenableFuture<OperationResult<R>> existing = (ListenableFuture<OperationResult<R>>) inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedCount.incrementAndGet();
+            return Futures.nonCancellationPropagating(existing);
+        }
+
+        executionCount.incrementAndGet();
+        ListenableFuture<OperationResult<R>> result;
+        try {
+            result = execution.executeAsync();
+        }
+        catch (ConnectionException e) {
+            inFlight.remove(key, future);
+            future.setException(e);
+            throw e;
+        }
+        catch (RuntimeException e) {
+            inFlight.remove(key, future);
+            future.setException(e);
+            throw e;
+        }
+
+        Futures.addCallback(result, new FutureCallback<OperationResult<R>>() {
+            @Override
+            public void onSuccess(OperationResult<R> result) {
+                inFlight.remove(key, future);
+                future.set(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                inFlight.remove(key, future);
+                future.setException(t);
+            }
+        });
+        return Futures.nonCancellationPropagating(future);
+    }
+
+    private static <R> OperationResult<R> await(ListenableFuture<OperationResult<R>> future) throws ConnectionException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedOperationException("Interrupted waiting for coalesced execution");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ConnectionException)
+                throw (ConnectionException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new UnknownException(cause);
+        }
+    }
+
+    /**
+     * @return Number of executions that were actually run
+     */
+    public long getExecutionCount() {
+        return executionCount.get();
+    }
+
+    /**
+     * @return Number of requests that shared the result of an execution already in flight instead of running their own
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return Number of executions currently in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append("ExecutionCoalescer[")
+            .append( "executed="  ).append(getExecutionCount())
+            .append(",coalesced=" ).append(getCoalescedCount())
+            .append(",inFlight="  ).append(getInFlightCount())
+            .append("]").toString();
+    }
+}
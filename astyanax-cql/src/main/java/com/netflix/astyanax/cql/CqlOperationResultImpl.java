@@ -59,6 +59,7 @@ public class CqlOperationResultImpl<R> implements OperationResult<R> {
 		
 		Host toHost = new Host(add.getHostAddress(), -1);
 		toHost.setRack(fromHost.getRack());
+		toHost.setDatacenter(fromHost.getDatacenter());
 		return toHost;
 	}
 	
@@ -18,7 +18,9 @@ package com.netflix.astyanax.cql;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
@@ -86,9 +88,11 @@ public class CqlRingDescriber {
 			HostInfo thisNode = hosts.get(index);
 
 			List<String> endpoints = new ArrayList<String>();
+			Map<String, String> datacenters = new HashMap<String, String>();
+			Map<String, String> racks = new HashMap<String, String>();
 
 			if (matchNode(dc, rack, thisNode)) {
-				endpoints.add(thisNode.endpoint); // the primary range owner
+				addEndpoint(thisNode, endpoints, datacenters, racks); // the primary range owner
 			}
 
 			// secondary node
@@ -97,14 +101,14 @@ public class CqlRingDescriber {
 
 				HostInfo nextNode = hosts.get(nextIndex);
 				if (matchNode(dc, rack, nextNode)) {
-					endpoints.add(nextNode.endpoint);
+					addEndpoint(nextNode, endpoints, datacenters, racks);
 				}
 
 				// tertiary node
 				nextIndex = getNextIndex(nextIndex, hosts.size());
 				nextNode = hosts.get(nextIndex);
 				if (matchNode(dc, rack, nextNode)) {
-					endpoints.add(nextNode.endpoint);
+					addEndpoint(nextNode, endpoints, datacenters, racks);
 				}
 			}
 			int prevIndex = getPrevIndex(index, hosts.size());
@@ -117,12 +121,22 @@ public class CqlRingDescriber {
 				endToken = Murmur3Partitioner.get().getMinToken();
 				
 			}
-			ranges.add(new TokenRangeImpl(startToken, endToken, endpoints));
+			ranges.add(new TokenRangeImpl(startToken, endToken, endpoints, datacenters, racks));
 		}
 
 		return ranges;
 	}
 	
+	private void addEndpoint(HostInfo host, List<String> endpoints, Map<String, String> datacenters, Map<String, String> racks) {
+		endpoints.add(host.endpoint);
+		if (host.datacenter != null) {
+			datacenters.put(host.endpoint, host.datacenter);
+		}
+		if (host.rack != null) {
+			racks.put(host.endpoint, host.rack);
+		}
+	}
+	
 	private boolean matchNode(String dc, String rack, HostInfo host) {
 		
 		if (dc == null && rack == null) {
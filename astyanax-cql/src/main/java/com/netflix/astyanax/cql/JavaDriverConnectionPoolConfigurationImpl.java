@@ -16,18 +16,23 @@
 package com.netflix.astyanax.cql;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
 import com.datastax.driver.core.Configuration;
 import com.netflix.astyanax.AstyanaxContext;
 import com.netflix.astyanax.AuthenticationCredentials;
 import com.netflix.astyanax.connectionpool.BadHostDetector;
+import com.netflix.astyanax.connectionpool.ConcurrencyLimiter;
 import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
 import com.netflix.astyanax.connectionpool.OperationFilterFactory;
 import com.netflix.astyanax.connectionpool.RetryBackoffStrategy;
+import com.netflix.astyanax.connectionpool.RetryBudget;
 import com.netflix.astyanax.connectionpool.SSLConnectionContext;
+import com.netflix.astyanax.connectionpool.SpeculativeExecutionPolicy;
+import com.netflix.astyanax.connectionpool.impl.HostConnectionPoolType;
 import com.netflix.astyanax.connectionpool.impl.HostSelectorStrategy;
 import com.netflix.astyanax.partitioner.Partitioner;
 import com.netflix.astyanax.shallows.EmptyOperationTracer;
@@ -67,6 +72,11 @@ public class JavaDriverConnectionPoolConfigurationImpl implements ConnectionPool
 		return null;
 	}
 
+	@Override
+	public ConcurrencyLimiter getConcurrencyLimiter() {
+		return null;
+	}
+
 	@Override
 	public int getPort() {
 		return jdConfig.getProtocolOptions().getPort();
@@ -87,6 +97,11 @@ public class JavaDriverConnectionPoolConfigurationImpl implements ConnectionPool
 		return 0;
 	}
 
+	@Override
+	public int getPrimeConcurrency() {
+		return 0;
+	}
+
 	@Override
 	public int getMaxConns() {
 		return 0;
@@ -112,6 +127,11 @@ public class JavaDriverConnectionPoolConfigurationImpl implements ConnectionPool
 		return null;
 	}
 
+	@Override
+	public HostConnectionPoolType getHostConnectionPoolType() {
+		return null;
+	}
+
 	@Override
 	public String getSeeds() {
 		return null;
@@ -127,11 +147,36 @@ public class JavaDriverConnectionPoolConfigurationImpl implements ConnectionPool
 		return null;
 	}
 
+	@Override
+	public String getLocalRack() {
+		return null;
+	}
+
+	@Override
+	public int getMaxRemoteDatacenterFailoverCount() {
+		return 0;
+	}
+
 	@Override
 	public int getSocketTimeout() {
 		return 0;
 	}
 
+	@Override
+	public float getAdaptiveSocketTimeoutFactor() {
+		return 0;
+	}
+
+	@Override
+	public double getAdaptiveSocketTimeoutPercentile() {
+		return 0;
+	}
+
+	@Override
+	public int getMinSocketTimeout() {
+		return 0;
+	}
+
 	@Override
 	public int getConnectTimeout() {
 		return 0;
@@ -222,6 +267,16 @@ public class JavaDriverConnectionPoolConfigurationImpl implements ConnectionPool
 		return 0;
 	}
 
+	@Override
+	public int getIdleTimeout() {
+		return 0;
+	}
+
+	@Override
+	public int getMaxConnectionAge() {
+		return 0;
+	}
+
 	@Override
 	public AuthenticationCredentials getAuthenticationCredentials() {
 		return null;
@@ -252,6 +307,21 @@ public class JavaDriverConnectionPoolConfigurationImpl implements ConnectionPool
 		return null;
 	}
 
+	@Override
+	public SpeculativeExecutionPolicy getSpeculativeExecutionPolicy() {
+		return null;
+	}
+
+	@Override
+	public ExecutorService getSpeculativeExecutor() {
+		return null;
+	}
+
+	@Override
+	public RetryBudget getRetryBudget() {
+		return null;
+	}
+
 	@Override
 	public void initialize() {
 	}
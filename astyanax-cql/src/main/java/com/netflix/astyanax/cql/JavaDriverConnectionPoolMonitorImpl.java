@@ -268,6 +268,48 @@ public class JavaDriverConnectionPoolMonitorImpl implements ConnectionPoolMonito
 
 	}
 
+	@Override
+	public void incConnectionCreateLatency(Host host, long latency) {
+		// TODO Auto-generated method stub
+
+	}
+
+	@Override
+	public void incSpeculativeExecution(Host host) {
+		// TODO Auto-generated method stub
+
+	}
+
+	@Override
+	public long getSpeculativeExecutionCount() {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	@Override
+	public void incSpeculativeExecutionWon(Host host) {
+		// TODO Auto-generated method stub
+
+	}
+
+	@Override
+	public long getSpeculativeExecutionWonCount() {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	@Override
+	public void incRetryBudgetExhausted(Host host) {
+		// TODO Auto-generated method stub
+
+	}
+
+	@Override
+	public long getRetryBudgetExhaustedCount() {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
 	@Override
 	public long getConnectionCreatedCount() {
 		// TODO Auto-generated method stub
@@ -321,6 +363,12 @@ public class JavaDriverConnectionPoolMonitorImpl implements ConnectionPoolMonito
 		return 0;
 	}
 
+	@Override
+	public long getConcurrencyLimitExceededCount() {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
 	@Override
 	public long getOperationTimeoutCount() {
 		// TODO Auto-generated method stub
@@ -19,8 +19,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.SpeculativeExecutionPolicy;
 import com.netflix.astyanax.cql.CqlKeyspaceImpl.KeyspaceContext;
 import com.netflix.astyanax.cql.reads.model.CqlRowSlice;
 import com.netflix.astyanax.cql.util.CFQueryContext;
@@ -80,6 +82,31 @@ public class CqlColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C> {
 		throw new UnsupportedOperationException("Operation not supported");
 	}
 
+	@Override
+	public ColumnFamilyQuery<K, C> withSpeculativeExecution(SpeculativeExecutionPolicy policy) {
+		throw new UnsupportedOperationException("Operation not supported");
+	}
+
+	@Override
+	public ColumnFamilyQuery<K, C> withDeadline(long timeout, TimeUnit units) {
+		throw new UnsupportedOperationException("Operation not supported");
+	}
+
+	@Override
+	public ColumnFamilyQuery<K, C> withReadCoalescing(boolean condition) {
+		throw new UnsupportedOperationException("Operation not supported");
+	}
+
+	@Override
+	public ColumnFamilyQuery<K, C> withAutoBatching(boolean condition) {
+		throw new UnsupportedOperationException("Operation not supported");
+	}
+
+	@Override
+	public ColumnFamilyQuery<K, C> withTokenAwareScatter(boolean condition) {
+		throw new UnsupportedOperationException("Operation not supported");
+	}
+
 	@Override
 	public RowQuery<K, C> getKey(K rowKey) {
 		return new CqlRowQueryImpl<K, C>(ksContext, cfContext, rowKey, useCaching);
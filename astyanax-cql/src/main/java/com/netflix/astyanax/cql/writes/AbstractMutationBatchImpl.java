@@ -19,6 +19,7 @@ import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.codec.binary.Hex;
 
@@ -297,6 +298,16 @@ public abstract class AbstractMutationBatchImpl implements MutationBatch {
 		return this;
 	}
 
+	@Override
+	public MutationBatch withDeadline(long timeout, TimeUnit units) {
+		throw new UnsupportedOperationException("Operation not supported");
+	}
+
+	@Override
+	public MutationBatch withTokenAwareScatter(boolean condition) {
+		throw new UnsupportedOperationException("Operation not supported");
+	}
+
 	@Override
 	public MutationBatch usingWriteAheadLog(WriteAheadLog manager) {
 		throw new UnsupportedOperationException("Operation not supported. ");
@@ -0,0 +1,137 @@
+package com.netflix.astyanax.connectionpool.impl;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.netflix.astyanax.connectionpool.BadHostDetector;
+import com.netflix.astyanax.connectionpool.BadHostDetector.State;
+
+public class BadHostDetectorImplTest {
+
+    private static BadHostDetector newDetector() {
+        ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl("test");
+        config.setTimeoutWindow(10000);
+        return new BadHostDetectorImpl(config, 0.5f, 0.8f, 100, 10, 1000, 2);
+    }
+
+    @Test
+    public void testNoTripBelowMinimumCalls() {
+        BadHostDetector.CircuitBreaker breaker = (BadHostDetector.CircuitBreaker) newDetector().createInstance();
+
+        for (int i = 0; i < 9; i++) {
+            Assert.assertFalse(breaker.addFailure());
+        }
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testFailureRateOpensCircuit() {
+        BadHostDetector.CircuitBreaker breaker = (BadHostDetector.CircuitBreaker) newDetector().createInstance();
+
+        for (int i = 0; i < 6; i++) {
+            Assert.assertFalse(breaker.addSuccess());
+        }
+        for (int i = 0; i < 5; i++) {
+            Assert.assertFalse(breaker.addFailure());
+        }
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+
+        // 6 out of 12 calls failed
+        Assert.assertTrue(breaker.addFailure());
+        Assert.assertEquals(State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.allowRequest());
+
+        // Only reported once
+        Assert.assertFalse(breaker.addFailure());
+    }
+
+    @Test
+    public void testSlowCallRateOpensCircuit() {
+        BadHostDetector.CircuitBreaker breaker = (BadHostDetector.CircuitBreaker) newDetector().createInstance();
+
+        for (int i = 0; i < 5; i++) {
+            breaker.addSuccess();
+            Assert.assertFalse(breaker.addLatencySample(99000000L));
+        }
+        for (int i = 0; i < 19; i++) {
+            breaker.addSuccess();
+            Assert.assertFalse(breaker.addLatencySample(150000000L));
+        }
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+
+        // 20 out of 25 calls were slow
+        breaker.addSuccess();
+        Assert.assertTrue(breaker.addLatencySample(150000000L));
+        Assert.assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testHostsAreIsolated() {
+        BadHostDetector detector = newDetector();
+        BadHostDetector.CircuitBreaker bad  = (BadHostDetector.CircuitBreaker) detector.createInstance();
+        BadHostDetector.CircuitBreaker good = (BadHostDetector.CircuitBreaker) detector.createInstance();
+
+        for (int i = 0; i < 10; i++) {
+            bad.addFailure();
+            good.addSuccess();
+        }
+        Assert.assertEquals(State.OPEN, bad.getState());
+        Assert.assertEquals(State.CLOSED, good.getState());
+
+        Assert.assertFalse(good.addFailure());
+        Assert.assertEquals(State.CLOSED, good.getState());
+    }
+
+    @Test
+    public void testHalfOpenProbesCloseCircuit() {
+        BadHostDetector.CircuitBreaker breaker = (BadHostDetector.CircuitBreaker) newDetector().createInstance();
+        Assert.assertFalse(breaker.halfOpen());
+
+        for (int i = 0; i < 10; i++) {
+            breaker.addFailure();
+        }
+        Assert.assertEquals(State.OPEN, breaker.getState());
+        Assert.assertEquals(1000, breaker.getOpenDuration());
+
+        Assert.assertTrue(breaker.halfOpen());
+        Assert.assertEquals(State.HALF_OPEN, breaker.getState());
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertFalse(breaker.allowRequest());
+
+        Assert.assertFalse(breaker.addSuccess());
+        Assert.assertTrue(breaker.addSuccess());
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.allowRequest());
+
+        // The window was cleared when the circuit closed
+        for (int i = 0; i < 9; i++) {
+            Assert.assertFalse(breaker.addFailure());
+        }
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testFailedProbeReopensCircuit() {
+        BadHostDetector.CircuitBreaker breaker = (BadHostDetector.CircuitBreaker) newDetector().createInstance();
+        for (int i = 0; i < 10; i++) {
+            breaker.addFailure();
+        }
+
+        breaker.halfOpen();
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertFalse(breaker.addSuccess());
+        Assert.assertTrue(breaker.addFailure());
+        Assert.assertEquals(State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.allowRequest());
+
+        // A new round of probes starts from scratch
+        breaker.halfOpen();
+        Assert.assertFalse(breaker.addSuccess());
+        Assert.assertEquals(State.HALF_OPEN, breaker.getState());
+        Assert.assertTrue(breaker.addSuccess());
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.StripedCounter;
+
+/**
+ * Measures the cost of incrementing a single shared counter from many threads, comparing an {@link AtomicLong}
+ * with a {@link StripedCounter}, and of {@link CountingConnectionPoolMonitor#incOperationSuccess(Host, long)}
+ * which updates the striped counters and latency histograms of the monitor.
+ *
+ * Run as a java application, optionally with the thread counts as arguments.  Prints ns/op per thread and
+ * total ops/s for each thread count.
+ */
+public class CounterContentionBenchmark {
+    private static final int OPS    = 5000000;
+    private static final int ROUNDS = 3;
+
+    private interface Task {
+        void run();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = new int[] { 1, 4, 16, 32, 64 };
+        if (args.length > 0) {
+            threadCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                threadCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int threads : threadCounts) {
+                final AtomicLong atomic = new AtomicLong();
+                run("AtomicLong.incrementAndGet           ", threads, new Task() {
+                    @Override
+                    public void run() {
+                        atomic.incrementAndGet();
+                    }
+                });
+
+                final StripedCounter striped = new StripedCounter();
+                run("StripedCounter.increment             ", threads, new Task() {
+                    @Override
+                    public void run() {
+                        striped.increment();
+                    }
+                });
+
+                final CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+                final Host host = new Host("127.0.0.1", 7102);
+                monitor.onHostAdded(host, null);
+                run("CountingConnectionPoolMonitor.success", threads, new Task() {
+                    @Override
+                    public void run() {
+                        monitor.incOperationSuccess(host, 1000000);
+                    }
+                });
+            }
+        }
+    }
+
+    private static void run(String name, int threads, final Task task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done  = new CountDownLatch(threads);
+        final int opsPerThread = OPS / threads;
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < opsPerThread; j++) {
+                            task.run();
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - startTime;
+        System.out.println(String.format("%s threads=%-3d %8.1f ns/op per thread %12.0f ops/s",
+                name, threads, (double)elapsed * threads / ((long)opsPerThread * threads),
+                (long)opsPerThread * threads * 1e9 / elapsed));
+    }
+}
@@ -0,0 +1,216 @@
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.CounterSnapshot;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostStats;
+import com.netflix.astyanax.connectionpool.LatencyHistogram;
+import com.netflix.astyanax.connectionpool.StripedCounter;
+import com.netflix.astyanax.connectionpool.exceptions.TransportException;
+
+public class CountingConnectionPoolMonitorTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getSnapshot().getCount());
+        Assert.assertEquals(0, histogram.getSnapshot().getValueAtPercentile(99));
+
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(10000, snapshot.getCount());
+        Assert.assertEquals(1, snapshot.getMin());
+        assertWithinError(5000,  snapshot.getValueAtPercentile(50));
+        assertWithinError(9900,  snapshot.getValueAtPercentile(99));
+        assertWithinError(9990,  snapshot.getValueAtPercentile(99.9));
+        assertWithinError(10000, snapshot.getMax());
+        Assert.assertEquals(5000.5, snapshot.getMean(), 5000.5 / LatencyHistogram.SUB_BUCKET_COUNT);
+    }
+
+    @Test
+    public void testHistogramSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 2 * LatencyHistogram.SUB_BUCKET_COUNT; i++) {
+            histogram.record(i);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(0, snapshot.getMin());
+        Assert.assertEquals(2 * LatencyHistogram.SUB_BUCKET_COUNT - 1, snapshot.getMax());
+        Assert.assertEquals(LatencyHistogram.SUB_BUCKET_COUNT - 1, snapshot.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testHistogramRelativeError() {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            long value = (long)(random.nextDouble() * LatencyHistogram.MAX_VALUE);
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+            Assert.assertTrue(snapshot.getMin() <= value);
+            Assert.assertTrue(snapshot.getMax() >= value);
+            assertWithinError(value, snapshot.getMax());
+        }
+
+        // Out of range values are clamped
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(0, histogram.getSnapshot().getMin());
+        Assert.assertEquals(LatencyHistogram.MAX_VALUE, histogram.getSnapshot().getMax());
+    }
+
+    @Test
+    public void testIntervalSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.record(20);
+        Assert.assertEquals(2, histogram.getIntervalSnapshot().getCount());
+
+        histogram.record(1000);
+        LatencyHistogram.Snapshot interval = histogram.getIntervalSnapshot();
+        Assert.assertEquals(1, interval.getCount());
+        assertWithinError(1000, interval.getMin());
+
+        Assert.assertEquals(0, histogram.getIntervalSnapshot().getCount());
+        Assert.assertEquals(3, histogram.getSnapshot().getCount());
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getSnapshot().getCount());
+    }
+
+    @Test
+    public void testHostStats() {
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        Host host1 = new Host("127.0.0.1", 7102);
+        Host host2 = new Host("127.0.0.2", 7102);
+        monitor.onHostAdded(host1, null);
+        monitor.onHostAdded(host2, null);
+
+        for (int i = 0; i < 100; i++) {
+            monitor.incOperationSuccess(host1, TimeUnit.MILLISECONDS.toNanos(1));
+            monitor.incOperationSuccess(host2, TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        monitor.incConnectionBorrowed(host1, 2);
+        monitor.incConnectionCreated(host1);
+        monitor.incConnectionCreateLatency(host1, 30);
+        monitor.incOperationFailure(host2, new TransportException("test"));
+
+        HostStats stats1 = monitor.getHostStats().get(host1);
+        HostStats stats2 = monitor.getHostStats().get(host2);
+        Assert.assertTrue(stats1.isUp());
+        Assert.assertEquals(100, stats1.getSuccessCount());
+        Assert.assertEquals(1,   stats1.getConnectionsCreated());
+        Assert.assertEquals(1,   stats2.getErrorCount());
+
+        assertWithinError(1000,  stats1.getOperationLatencyHistogram().getSnapshot().getValueAtPercentile(99));
+        assertWithinError(50000, stats2.getOperationLatencyHistogram().getSnapshot().getValueAtPercentile(99));
+        assertWithinError(2000,  stats1.getBorrowLatencyHistogram().getSnapshot().getMax());
+        assertWithinError(30000, stats1.getConnectLatencyHistogram().getSnapshot().getMax());
+        Assert.assertEquals(0,   stats2.getConnectLatencyHistogram().getSnapshot().getCount());
+
+        Assert.assertEquals(200, monitor.getOperationLatencyHistogram().getSnapshot().getCount());
+        assertWithinError(50000, monitor.getOperationLatencyHistogram().getSnapshot().getValueAtPercentile(99));
+
+        monitor.onHostDown(host2, new TransportException("test"));
+        Assert.assertFalse(stats2.isUp());
+        Assert.assertEquals(1, stats2.getTimesDown());
+
+        monitor.onHostRemoved(host1);
+        monitor.incConnectionClosed(host1, null);
+        Assert.assertNull(monitor.getHostStats().get(host1));
+        Assert.assertEquals(1, monitor.getHostStats().size());
+    }
+
+    @Test
+    public void testStripedCounterUnderContention() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        final int threads = 16;
+        final int increments = 100000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = Lists.newArrayList();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int j = 0; j < increments; j++) {
+                            counter.increment();
+                        }
+                        counter.add(-1);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals((long)threads * (increments - 1), counter.get());
+        Assert.assertTrue(counter.getStripeCount() <= StripedCounter.MAX_STRIPES);
+    }
+
+    @Test
+    public void testUncontendedStripedCounterHasNoStripes() {
+        StripedCounter counter = new StripedCounter();
+        for (int i = 0; i < 1000; i++) {
+            counter.increment();
+        }
+        counter.decrement();
+        Assert.assertEquals(999, counter.get());
+        Assert.assertEquals(0, counter.getStripeCount());
+    }
+
+    @Test
+    public void testCounterSnapshot() throws Exception {
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        Host host = new Host("127.0.0.1", 7102);
+        for (int i = 0; i < 10; i++) {
+            monitor.incOperationSuccess(host, 1000);
+        }
+        CounterSnapshot first = monitor.getCounterSnapshot();
+        Assert.assertEquals(10, first.get("success"));
+        Assert.assertEquals(0,  first.get("failure"));
+        Assert.assertEquals(0,  first.get("nosuchcounter"));
+
+        Thread.sleep(10);
+        for (int i = 0; i < 5; i++) {
+            monitor.incOperationSuccess(host, 1000);
+            monitor.incOperationFailure(host, new TransportException("test"));
+        }
+        CounterSnapshot second = monitor.getCounterSnapshot();
+        CounterSnapshot interval = second.since(first);
+        Assert.assertEquals(15, second.get("success"));
+        Assert.assertEquals(5,  interval.get("success"));
+        Assert.assertEquals(5,  interval.get("failure"));
+        Assert.assertEquals(5,  interval.get("transport"));
+        Assert.assertTrue(interval.getInterval(TimeUnit.MILLISECONDS) >= 10);
+
+        double rate = interval.getRate("success", TimeUnit.SECONDS);
+        Assert.assertEquals(5.0 / interval.getInterval(TimeUnit.NANOSECONDS) * TimeUnit.SECONDS.toNanos(1), rate, 0.001);
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        long tolerance = Math.max(1, expected / LatencyHistogram.SUB_BUCKET_COUNT);
+        Assert.assertTrue("expected " + expected + " but was " + actual, Math.abs(expected - actual) <= tolerance);
+    }
+}
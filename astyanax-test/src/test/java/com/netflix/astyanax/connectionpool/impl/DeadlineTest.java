@@ -0,0 +1,173 @@
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.ConnectionContext;
+import com.netflix.astyanax.connectionpool.Deadline;
+import com.netflix.astyanax.connectionpool.DeadlineOperation;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.DeadlineExceededException;
+import com.netflix.astyanax.connectionpool.exceptions.OperationTimeoutException;
+import com.netflix.astyanax.retry.ConstantBackoff;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestConnectionFactory;
+import com.netflix.astyanax.test.TestHostType;
+import com.netflix.astyanax.test.TestOperation;
+
+public class DeadlineTest {
+
+    /**
+     * Fails with a retryable timeout after thinking for the given time
+     */
+    private static class FailingOperation extends TestOperation implements DeadlineOperation {
+        private final Deadline      deadline;
+        private final long          thinkTime;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        FailingOperation(Deadline deadline, long thinkTime) {
+            this.deadline  = deadline;
+            this.thinkTime = thinkTime;
+        }
+
+        @Override
+        public String execute(TestClient client, ConnectionContext state) throws ConnectionException {
+            attempts.incrementAndGet();
+            try {
+                Thread.sleep(thinkTime);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new OperationTimeoutException("TimedOutException");
+        }
+
+        @Override
+        public Deadline getDeadline() {
+            return deadline;
+        }
+    }
+
+    private ConnectionPoolConfigurationImpl config;
+    private CountingConnectionPoolMonitor   monitor;
+
+    @Before
+    public void setUp() {
+        config  = new ConnectionPoolConfigurationImpl("deadline");
+        config.initialize();
+        monitor = new CountingConnectionPoolMonitor();
+    }
+
+    @After
+    public void tearDown() {
+        config.shutdown();
+    }
+
+    @Test
+    public void testBoundTimeout() {
+        Deadline deadline = Deadline.after(1, TimeUnit.SECONDS);
+        Assert.assertEquals(100, deadline.boundTimeout(100));
+        int bounded = deadline.boundTimeout(10000);
+        Assert.assertTrue("Bounded " + bounded, bounded > 900 && bounded <= 1000);
+
+        Deadline expired = Deadline.after(-1, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(expired.isExpired());
+        Assert.assertEquals(1, expired.boundTimeout(100));
+    }
+
+    @Test
+    public void testExpiredDeadlineIsNotAttempted() throws Exception {
+        FailingOperation operation = new FailingOperation(Deadline.after(-1, TimeUnit.MILLISECONDS), 0);
+        try {
+            newExecute(TestHostType.GOOD_FAST, 3).tryOperation(operation);
+            Assert.fail();
+        }
+        catch (DeadlineExceededException e) {
+        }
+        Assert.assertEquals(0, operation.attempts.get());
+    }
+
+    @Test
+    public void testFailoverStopsAtDeadline() throws Exception {
+        config.setMaxFailoverCount(-1);
+        FailingOperation operation = new FailingOperation(Deadline.after(120, TimeUnit.MILLISECONDS), 50);
+
+        long start = System.currentTimeMillis();
+        try {
+            newExecute(TestHostType.GOOD_IMMEDIATE, 10).tryOperation(operation);
+            Assert.fail();
+        }
+        catch (DeadlineExceededException e) {
+            Assert.assertTrue(e.getCause() instanceof OperationTimeoutException);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        // Attempts end at 50, 100 and 150 ms
+        Assert.assertTrue("Attempts " + operation.attempts.get(), operation.attempts.get() <= 3);
+        Assert.assertTrue("Took " + elapsed + " ms", elapsed < 300);
+    }
+
+    @Test
+    public void testResultWithinDeadline() throws Exception {
+        TestOperation operation = new TestOperation();
+        OperationResult<String> result = newExecute(TestHostType.GOOD_IMMEDIATE, 1).tryOperation(operation);
+        Assert.assertEquals("RESULT", result.getResult());
+    }
+
+    @Test
+    public void testRetryPolicySkipsBackoffPastDeadline() throws Exception {
+        config.setMaxFailoverCount(1);
+        RoundRobinConnectionPoolImpl<TestClient> pool = new RoundRobinConnectionPoolImpl<TestClient>(
+                config, new TestConnectionFactory(config, monitor), monitor);
+        pool.addHost(new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal()), true);
+
+        ConstantBackoff retry = new ConstantBackoff(50, 10);
+        FailingOperation operation = new FailingOperation(Deadline.after(180, TimeUnit.MILLISECONDS), 0);
+
+        long start = System.currentTimeMillis();
+        try {
+            pool.executeWithFailover(operation, retry);
+            Assert.fail();
+        }
+        catch (OperationTimeoutException e) {
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        // Backoffs at 50, 100 and 150 ms fit, the one ending at 200 ms does not
+        Assert.assertEquals(4, operation.attempts.get());
+        Assert.assertEquals(3, retry.getAttemptCount());
+        Assert.assertTrue("Took " + elapsed + " ms", elapsed < 180);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSleepingRetryPolicyMaxSleep() {
+        ConstantBackoff retry = new ConstantBackoff(100, 3);
+        Assert.assertFalse(retry.allowRetry(100));
+        Assert.assertEquals(0, retry.getAttemptCount());
+        Assert.assertTrue(retry.allowRetry(101));
+        Assert.assertEquals(1, retry.getAttemptCount());
+    }
+
+    private RoundRobinExecuteWithFailover<TestClient, String> newExecute(TestHostType type, int hosts) throws Exception {
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (int i = 0; i < hosts; i++) {
+            pools.add(new SimpleHostConnectionPool<TestClient>(
+                    new Host("127.0.0." + (i + 1), type.ordinal()),
+                    new TestConnectionFactory(config, monitor), monitor, config,
+                    new SimpleHostConnectionPoolTest.NoOpListener()));
+        }
+        return new RoundRobinExecuteWithFailover<TestClient, String>(config, monitor, pools, 0);
+    }
+}
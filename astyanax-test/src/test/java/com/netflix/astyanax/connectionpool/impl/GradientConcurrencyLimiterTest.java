@@ -0,0 +1,142 @@
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.netflix.astyanax.connectionpool.ConcurrencyLimiter;
+import com.netflix.astyanax.connectionpool.Connection;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.exceptions.ConcurrencyLimitExceededException;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestConnectionFactory;
+import com.netflix.astyanax.test.TestHostType;
+
+public class GradientConcurrencyLimiterTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void testFailFastAtLimit() {
+        ConcurrencyLimiter.Instance limiter = new GradientConcurrencyLimiter(1, 2, 10).createInstance();
+
+        Assert.assertEquals(2, limiter.getLimit());
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+        Assert.assertEquals(2, limiter.getInFlight());
+
+        limiter.release(false);
+        Assert.assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testLimitGrowsWhileLatencyIsStable() {
+        ConcurrencyLimiter.Instance limiter = new GradientConcurrencyLimiter(1, 4, 20).createInstance();
+
+        for (int i = 0; i < 200; i++) {
+            acquireAll(limiter);
+            limiter.addLatencySample(RTT);
+            releaseAll(limiter);
+        }
+        Assert.assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitDoesNotGrowWhenIdle() {
+        ConcurrencyLimiter.Instance limiter = new GradientConcurrencyLimiter(1, 4, 20).createInstance();
+
+        for (int i = 0; i < 200; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+            limiter.addLatencySample(RTT);
+            limiter.release(false);
+        }
+        Assert.assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitShrinksWhenLatencyIncreases() {
+        ConcurrencyLimiter.Instance limiter = new GradientConcurrencyLimiter(1, 20, 20).createInstance();
+
+        acquireAll(limiter);
+        limiter.addLatencySample(RTT);
+        Assert.assertEquals(20, limiter.getLimit());
+
+        // Within the tolerance
+        limiter.addLatencySample(RTT * 3 / 2);
+        Assert.assertEquals(20, limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.addLatencySample(RTT * 10);
+        }
+        // Settles where halving the limit is offset by the queue allowance
+        Assert.assertEquals(4, limiter.getLimit());
+        Assert.assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testDroppedOperationsBackOff() {
+        ConcurrencyLimiter.Instance limiter = new GradientConcurrencyLimiter(3, 10, 10).createInstance();
+
+        Assert.assertTrue(limiter.tryAcquire());
+        limiter.release(true);
+        Assert.assertEquals(9, limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+            limiter.release(true);
+        }
+        Assert.assertEquals(3, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testPoolFailsFastOverLimit() throws Exception {
+        ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl("limited");
+        config.setConcurrencyLimiter(new GradientConcurrencyLimiter(1, 2, 2));
+        config.initialize();
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+
+        try {
+            HostConnectionPool<TestClient> pool = new SimpleHostConnectionPool<TestClient>(
+                    new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal()),
+                    new TestConnectionFactory(config, monitor), monitor, config,
+                    new SimpleHostConnectionPoolTest.NoOpListener());
+            pool.primeConnections(3);
+
+            Connection<TestClient> first  = pool.borrowConnection(100);
+            Connection<TestClient> second = pool.borrowConnection(100);
+            try {
+                pool.borrowConnection(100);
+                Assert.fail();
+            }
+            catch (ConcurrencyLimitExceededException e) {
+                Assert.assertEquals(pool.getHost(), e.getHost());
+            }
+            Assert.assertEquals(1, pool.getIdleConnectionCount());
+
+            pool.returnConnection(first);
+            pool.returnConnection(pool.borrowConnection(100));
+            pool.closeConnection(second);
+            pool.returnConnection(pool.borrowConnection(100));
+            pool.returnConnection(pool.borrowConnection(100));
+        }
+        finally {
+            config.shutdown();
+        }
+    }
+
+    private static void acquireAll(ConcurrencyLimiter.Instance limiter) {
+        while (limiter.tryAcquire()) {
+        }
+    }
+
+    private static void releaseAll(ConcurrencyLimiter.Instance limiter) {
+        while (limiter.getInFlight() > 0) {
+            limiter.release(false);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.astyanax.connectionpool.Connection;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.impl.SimpleHostConnectionPoolTest.NoOpListener;
+import com.netflix.astyanax.shallows.EmptyPartitioner;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestConnectionFactory;
+import com.netflix.astyanax.test.TestHostType;
+
+/**
+ * Borrow/return throughput of a single host's pool for each {@link HostConnectionPoolType}
+ * at 8, 64 and 512 threads all hitting the same host.
+ *
+ * Run as a java application.
+ */
+public class HostConnectionPoolBenchmark {
+    private static final int   MAX_CONNS_PER_HOST = 16;
+    private static final int[] THREAD_COUNTS      = {8, 64, 512};
+    private static final long  DURATION_MS        = 3000;
+
+    public static void main(String[] args) throws Exception {
+        for (int round = 0; round < 2; round++) {
+            for (int threads : THREAD_COUNTS) {
+                for (HostConnectionPoolType type : HostConnectionPoolType.values()) {
+                    run(type, threads);
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void run(HostConnectionPoolType type, int threadCount) throws Exception {
+        ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl("cluster_keyspace");
+        config.setMaxConnsPerHost(MAX_CONNS_PER_HOST);
+        config.setPartitioner(new EmptyPartitioner());
+        config.initialize();
+
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        Host host = new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal());
+        TestConnectionFactory factory = new TestConnectionFactory(config, monitor);
+        final HostConnectionPool<TestClient> pool;
+        switch (type) {
+            case LIFO:
+                pool = new LifoHostConnectionPool<TestClient>(host, factory, monitor, config, new NoOpListener(), false);
+                break;
+            case LIFO_THREAD_AFFINITY:
+                pool = new LifoHostConnectionPool<TestClient>(host, factory, monitor, config, new NoOpListener(), true);
+                break;
+            default:
+                pool = new SimpleHostConnectionPool<TestClient>(host, factory, monitor, config, new NoOpListener());
+                break;
+        }
+        pool.primeConnections(MAX_CONNS_PER_HOST);
+
+        final AtomicBoolean running    = new AtomicBoolean(true);
+        final AtomicLong    operations = new AtomicLong();
+        final AtomicLong    timeouts   = new AtomicLong();
+        final CountDownLatch done      = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread() {
+                public void run() {
+                    long count = 0;
+                    while (running.get()) {
+                        try {
+                            Connection<TestClient> connection = pool.borrowConnection(1000);
+                            pool.returnConnection(connection);
+                            count++;
+                        } catch (ConnectionException e) {
+                            timeouts.incrementAndGet();
+                        }
+                    }
+                    operations.addAndGet(count);
+                    done.countDown();
+                }
+            };
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        Thread.sleep(DURATION_MS);
+        running.set(false);
+        done.await(10, TimeUnit.SECONDS);
+        pool.shutdown();
+        config.shutdown();
+
+        System.out.println(String.format("%-20s threads=%-4d %12d ops/sec  timeouts=%d",
+                type, threadCount, operations.get() * 1000 / DURATION_MS, timeouts.get()));
+    }
+}
@@ -1,10 +1,12 @@
 package com.netflix.astyanax.connectionpool.impl;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import junit.framework.Assert;
 
@@ -16,11 +18,181 @@ import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.HostConnectionPool;
 import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
 import com.netflix.astyanax.partitioner.LongBOPPartitioner;
+import com.netflix.astyanax.partitioner.LongTokenPartitioner;
+import com.netflix.astyanax.partitioner.Murmur3Partitioner;
 import com.netflix.astyanax.test.TestClient;
 import com.netflix.astyanax.test.TestHostConnectionPool;
+import com.netflix.astyanax.test.TestTokenRange;
 
 public class HostConnectionPoolPartitionTest {
 
+    private static class ScoredPool extends TestHostConnectionPool {
+        private volatile double  score;
+        private volatile boolean reconnecting;
+
+        ScoredPool(Host host, double score) {
+            super(host);
+            this.score = score;
+        }
+
+        @Override
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public boolean isReconnecting() {
+            return reconnecting;
+        }
+    }
+
+    @Test
+    public void testRankingFiltersSlowHosts() {
+        LatencyScoreStrategy strategy = new SmaLatencyScoreStrategyImpl(10000, 60000, 100, 4.0);
+
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (int i = 0; i < 6; i++) {
+            pools.add(new ScoredPool(new Host("127.0.0." + i, 0), i == 5 ? 100.0 : 1.0 + i / 10.0));
+        }
+        LatencyScoreStrategy.Ranking<TestClient> ranking = strategy.rank(pools);
+
+        // The slow host is dropped from every partition it is in unless needed to keep enough hosts
+        List<HostConnectionPool<TestClient>> result = Lists.newArrayList();
+        ranking.filter(pools, result);
+        Assert.assertEquals(5, result.size());
+        Assert.assertFalse(result.contains(pools.get(5)));
+
+        result.clear();
+        ranking.filter(pools.subList(3, 6), result);
+        Assert.assertEquals(Arrays.asList(pools.get(3), pools.get(4)), result);
+
+        // Too few hosts left to drop any
+        result.clear();
+        ranking.filter(pools.subList(4, 6), result);
+        Assert.assertEquals(2, result.size());
+
+        result.clear();
+        ranking.filter(pools.subList(5, 6), result);
+        Assert.assertEquals(Arrays.asList(pools.get(5)), result);
+
+        // Reconnecting hosts are always excluded
+        ((ScoredPool)pools.get(0)).reconnecting = true;
+        result.clear();
+        ranking.filter(pools.subList(0, 3), result);
+        Assert.assertEquals(Arrays.asList(pools.get(1), pools.get(2)), result);
+    }
+
+    @Test
+    public void testRankingFiltersByPosition() {
+        LatencyScoreStrategy strategy = new SmaLatencyScoreStrategyImpl(10000, 60000, 100, 4.0);
+
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (int i = 0; i < 6; i++) {
+            pools.add(new ScoredPool(new Host("127.0.0." + i, 0), i == 5 ? 100.0 : 1.0 + i / 10.0));
+        }
+        ((ScoredPool)pools.get(1)).reconnecting = true;
+        LatencyScoreStrategy.Ranking<TestClient> ranking = strategy.rank(pools);
+
+        // Same outcome as filtering the list of pools, as a mask of the positions that are kept
+        int[] positions = new int[]{0, 1, 2, 3, 4, 5, 3, 4, 5, 5};
+        Assert.assertEquals(0x1D, ranking.filter(positions, 0, 6));
+        Assert.assertEquals(0x3, ranking.filter(positions, 6, 9));
+        Assert.assertEquals(0x1, ranking.filter(positions, 9, 10));
+        Assert.assertEquals(0x0, ranking.filter(positions, 1, 2));
+    }
+
+    @Test
+    public void testRemovedPoolIsDroppedFromPartitions() {
+        LatencyScoreStrategy strategy = new SmaLatencyScoreStrategyImpl(10000, 60000, 100, 4.0);
+        TokenPartitionedTopology<TestClient> topology = new TokenPartitionedTopology<TestClient>(Murmur3Partitioner.get(), strategy);
+
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (Host host : TestTokenRange.makeVnodeRing(10, 16, 3, new Random(1))) {
+            pools.add(new ScoredPool(host, 1.0));
+        }
+        topology.setPools(pools);
+
+        HostConnectionPool<TestClient> removed = pools.get(3);
+        topology.removePool(removed);
+        Assert.assertFalse(topology.getAllPools().getPools().contains(removed));
+        for (TokenHostConnectionPoolPartition<TestClient> partition : topology.getPartitions().values()) {
+            Assert.assertFalse(partition.getPools().contains(removed));
+            Assert.assertEquals(partition.getMembers().size(), partition.getPools().size());
+        }
+
+        // A pool added without tokens is only in the all pools partition
+        HostConnectionPool<TestClient> added = new ScoredPool(new Host("127.0.1.1", 0), 1.0);
+        topology.addPool(added);
+        topology.refresh();
+        Assert.assertTrue(topology.getAllPools().getPools().contains(added));
+        Assert.assertEquals(pools.size(), topology.getAllPools().getPools().size());
+    }
+
+    @Test
+    public void testSuspendOnlyRefreshesPartitionsOfHost() {
+        LatencyScoreStrategy strategy = new SmaLatencyScoreStrategyImpl(10000, 60000, 100, 4.0);
+        LongTokenPartitionedTopology<TestClient> topology = new LongTokenPartitionedTopology<TestClient>(
+                (LongTokenPartitioner)Murmur3Partitioner.get(), strategy);
+
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (Host host : TestTokenRange.makeVnodeRing(10, 16, 3, new Random(1))) {
+            pools.add(new ScoredPool(host, 1.0));
+        }
+        topology.setPools(pools);
+        Assert.assertEquals(160, topology.getPartitionCount());
+
+        Map<String, List<HostConnectionPool<TestClient>>> before = Maps.newHashMap();
+        for (Map.Entry<String, TokenHostConnectionPoolPartition<TestClient>> entry : topology.getPartitions().entrySet()) {
+            before.put(entry.getKey(), entry.getValue().getPools());
+        }
+
+        ScoredPool down = (ScoredPool)pools.get(3);
+        down.reconnecting = true;
+        topology.suspendPool(down);
+
+        int changed = 0;
+        for (Map.Entry<String, TokenHostConnectionPoolPartition<TestClient>> entry : topology.getPartitions().entrySet()) {
+            TokenHostConnectionPoolPartition<TestClient> partition = entry.getValue();
+            Assert.assertFalse(partition.getPools().contains(down));
+            if (partition.hasPool(down)) {
+                Assert.assertEquals(partition.getMembers().size() - 1, partition.getPools().size());
+                changed++;
+            }
+            else {
+                // Partitions without the host keep the very same list
+                Assert.assertSame(before.get(entry.getKey()), partition.getPools());
+            }
+        }
+        Assert.assertTrue(changed > 0);
+        Assert.assertFalse(topology.getAllPools().getPools().contains(down));
+
+        // A full refresh with unchanged scores publishes nothing new
+        topology.refresh();
+        down.reconnecting = false;
+        topology.resumePool(down);
+        for (Map.Entry<String, TokenHostConnectionPoolPartition<TestClient>> entry : topology.getPartitions().entrySet()) {
+            Assert.assertEquals(entry.getValue().getMembers().size(), entry.getValue().getPools().size());
+            if (!entry.getValue().hasPool(down))
+                Assert.assertSame(before.get(entry.getKey()), entry.getValue().getPools());
+        }
+    }
+
+    @Test
+    public void testRemovedTokensAreDropped() {
+        LatencyScoreStrategy strategy = new SmaLatencyScoreStrategyImpl(10000, 60000, 100, 4.0);
+        TokenPartitionedTopology<TestClient> topology = new TokenPartitionedTopology<TestClient>(Murmur3Partitioner.get(), strategy);
+
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (Host host : TestTokenRange.makeVnodeRing(4, 8, 1, new Random(1))) {
+            pools.add(new TestHostConnectionPool(host));
+        }
+        topology.setPools(pools);
+        Assert.assertEquals(32, topology.getPartitionCount());
+
+        topology.setPools(pools.subList(0, 3));
+        Assert.assertEquals(24, topology.getPartitionCount());
+    }
+
     @Test
     public void testPartition() {
         LatencyScoreStrategy strategy = new SmaLatencyScoreStrategyImpl(10000, 60000, 100, 4.0);
@@ -130,6 +302,105 @@ public class HostConnectionPoolPartitionTest {
 //        Assert.assertEquals(0, topology.getAllPools().getPools().size());
     }
 
+    @Test
+    public void testLongTokenTopologyMatchesTokenTopology() {
+        LatencyScoreStrategy strategy = new SmaLatencyScoreStrategyImpl(10000,60000, 100, 4.0);
+        
+        Random random = new Random(1);
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (Host host : TestTokenRange.makeVnodeRing(20, 16, 3, random)) {
+            pools.add(new TestHostConnectionPool(host));
+        }
+        
+        TokenPartitionedTopology<TestClient> expected = new TokenPartitionedTopology<TestClient>(Murmur3Partitioner.get(), strategy);
+        LongTokenPartitionedTopology<TestClient> topology = new LongTokenPartitionedTopology<TestClient>(
+                (LongTokenPartitioner)Murmur3Partitioner.get(), strategy);
+        
+        // Empty ring falls back to all pools
+        Assert.assertSame(topology.getAllPools(), topology.getPartition(ByteBuffer.wrap(new byte[]{1})));
+        
+        Assert.assertTrue(expected.setPools(pools));
+        Assert.assertTrue(topology.setPools(pools));
+        Assert.assertEquals(20 * 16, topology.getPartitionCount());
+        Assert.assertSame(topology.getAllPools(), topology.getPartition((ByteBuffer)null));
+        
+        for (int i = 0; i < 10000; i++) {
+            byte[] key = new byte[1 + random.nextInt(32)];
+            random.nextBytes(key);
+            Assert.assertEquals(
+                    expected.getPartition(ByteBuffer.wrap(key)).id(), 
+                    topology.getPartition(ByteBuffer.wrap(key)).id());
+        }
+    }
+
+    @Test
+    public void testTieredPartition() {
+        LatencyScoreStrategy strategy = new SmaLatencyScoreStrategyImpl(10000, 60000, 100, 4.0);
+        TokenHostConnectionPoolPartition<TestClient> partition = new TokenHostConnectionPoolPartition<TestClient>(
+                BigInteger.ONE, strategy, new ReplicaLocality("us-east", "us-east-1a", 1));
+
+        TestHostConnectionPool rack   = makePool(1, "us-east", "us-east-1a");
+        TestHostConnectionPool local  = makePool(2, "us-east", "us-east-1c");
+        TestHostConnectionPool remote1 = makePool(3, "us-west", "us-west-2a");
+        TestHostConnectionPool remote2 = makePool(4, "us-west", "us-west-2b");
+        partition.setPools(Lists.<HostConnectionPool<TestClient>>newArrayList(rack, local, remote1, remote2));
+
+        // All active pools are still visible to callers that don't use the tiers
+        Assert.assertEquals(4, partition.getPools().size());
+        Assert.assertEquals(Arrays.asList(rack), partition.getPrimaryPools());
+        Assert.assertEquals(2, partition.getFailoverPools().size());
+        Assert.assertSame(local, partition.getFailoverPools().get(0));
+        Assert.assertTrue(partition.getFailoverPools().get(1).getHost().getDatacenter().equals("us-west"));
+
+        // The local datacenter becomes the nearest tier
+        partition.removePool(rack);
+        Assert.assertEquals(Arrays.asList(local), partition.getPrimaryPools());
+        Assert.assertEquals(1, partition.getFailoverPools().size());
+
+        // With no local replicas left only the allowed number of remote hosts is used
+        partition.removePool(local);
+        Assert.assertEquals(1, partition.getPrimaryPools().size());
+        Assert.assertEquals(0, partition.getFailoverPools().size());
+    }
+
+    @Test
+    public void testUnknownDatacenterIsLocal() {
+        LatencyScoreStrategy strategy = new SmaLatencyScoreStrategyImpl(10000, 60000, 100, 4.0);
+        TokenHostConnectionPoolPartition<TestClient> partition = new TokenHostConnectionPoolPartition<TestClient>(
+                BigInteger.ONE, strategy, new ReplicaLocality("us-east", null, 0));
+
+        TestHostConnectionPool unknown = makePool(1);
+        TestHostConnectionPool local   = makePool(2, "us-east", "us-east-1c");
+        TestHostConnectionPool remote  = makePool(3, "us-west", "us-west-2a");
+        partition.setPools(Lists.<HostConnectionPool<TestClient>>newArrayList(unknown, local, remote));
+
+        Assert.assertEquals(2, partition.getPrimaryPools().size());
+        Assert.assertFalse(partition.getPrimaryPools().contains(remote));
+        Assert.assertTrue(partition.getFailoverPools().isEmpty());
+
+        // Remote failover is disabled, so nothing is left
+        partition.removePool(unknown);
+        partition.removePool(local);
+        Assert.assertTrue(partition.getPrimaryPools().isEmpty());
+    }
+
+    @Test
+    public void testUntieredPartition() {
+        LatencyScoreStrategy strategy = new SmaLatencyScoreStrategyImpl(10000, 60000, 100, 4.0);
+        TokenHostConnectionPoolPartition<TestClient> partition = new TokenHostConnectionPoolPartition<TestClient>(BigInteger.ONE, strategy);
+
+        partition.setPools(Lists.<HostConnectionPool<TestClient>>newArrayList(
+                makePool(1, "us-east", "us-east-1a"),
+                makePool(2, "us-west", "us-west-2a")));
+
+        Assert.assertSame(partition.getPools(), partition.getPrimaryPools());
+        Assert.assertTrue(partition.getFailoverPools().isEmpty());
+    }
+
+    public TestHostConnectionPool makePool(int index, String datacenter, String rack) {
+        return new TestHostConnectionPool(new Host("127.0.0." + index, 0).setDatacenter(datacenter).setRack(rack));
+    }
+
     public TestHostConnectionPool makePool(int index) {
         return new TestHostConnectionPool(new Host("127.0.0." + index, 0));
     }
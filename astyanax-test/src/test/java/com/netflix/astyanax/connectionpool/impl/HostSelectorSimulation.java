@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Maps;
+import com.netflix.astyanax.connectionpool.ConnectionPool;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.LatencyHistogram;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.retry.RunOnce;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestConnectionFactory;
+import com.netflix.astyanax.test.TestHostType;
+import com.netflix.astyanax.test.TestOperation;
+
+/**
+ * Compares the {@link HostSelectorStrategy}s on a partition of three replicas where one replica is
+ * {@link TestHostType#GOOD_SLOW} (500ms per operation) and the others are {@link TestHostType#GOOD_FAST}
+ * (5ms per operation).  A fixed number of client threads issue operations back to back, so throughput and
+ * latency both reflect how much traffic each strategy sends to the slow replica.  Every strategy is run
+ * with and without a latency score strategy, since the latter already filters slow replicas out of the
+ * partition before the host selector sees it.
+ *
+ * Run as a java application.
+ */
+public class HostSelectorSimulation {
+    private static final int  THREADS     = 32;
+    private static final long DURATION_MS = 10000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Without latency scores:");
+        for (HostSelectorStrategy strategy : HostSelectorStrategy.values()) {
+            run(strategy, false);
+        }
+        System.out.println("With EMA latency scores (slow replicas filtered out of the partition):");
+        for (HostSelectorStrategy strategy : HostSelectorStrategy.values()) {
+            run(strategy, true);
+        }
+        System.exit(0);
+    }
+
+    private static void run(HostSelectorStrategy strategy, boolean latencyScore) throws Exception {
+        ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl("cluster_keyspace");
+        config.setHostSelectorStrategy(strategy);
+        config.setMaxConnsPerHost(THREADS);
+        config.setInitConnsPerHost(THREADS);
+        config.setMaxFailoverCount(-1);
+        config.setMaxTimeoutWhenExhausted(2000);
+        if (latencyScore)
+            config.setLatencyScoreStrategy(new EmaLatencyScoreStrategyImpl(100, 0, 20));
+        config.initialize();
+
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        final ConnectionPool<TestClient> pool = new TokenAwareConnectionPoolImpl<TestClient>(
+                config, new TestConnectionFactory(config, monitor), monitor);
+        pool.start();
+        pool.addHost(new Host("127.0.0.1", TestHostType.GOOD_FAST.ordinal()), true);
+        pool.addHost(new Host("127.0.0.2", TestHostType.GOOD_FAST.ordinal()), true);
+        pool.addHost(new Host("127.0.0.3", TestHostType.GOOD_SLOW.ordinal()), true);
+
+        final LatencyHistogram latency = new LatencyHistogram();
+        final ConcurrentMap<Host, AtomicLong> perHost = Maps.newConcurrentMap();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+
+        for (int i = 0; i < THREADS; i++) {
+            new Thread() {
+                public void run() {
+                    while (running.get()) {
+                        long startTime = System.nanoTime();
+                        try {
+                            OperationResult<String> result = pool.executeWithFailover(new TestOperation(), RunOnce.get());
+                            latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+                            perHost.putIfAbsent(result.getHost(), new AtomicLong());
+                            perHost.get(result.getHost()).incrementAndGet();
+                        } catch (ConnectionException e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+
+        Thread.sleep(DURATION_MS);
+        running.set(false);
+        done.await(10, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        LatencyHistogram.Snapshot snapshot = latency.getSnapshot();
+        StringBuilder hosts = new StringBuilder();
+        for (Map.Entry<Host, AtomicLong> entry : perHost.entrySet()) {
+            hosts.append(TestHostType.get(entry.getKey().getPort())).append("=").append(entry.getValue().get()).append(" ");
+        }
+        System.out.println(String.format("%-18s %6d ops/sec  mean=%6.1fms  p50=%6.1fms  p99=%6.1fms  errors=%d  [%s]",
+                strategy,
+                snapshot.getCount() * 1000 / DURATION_MS,
+                snapshot.getMean() / 1000,
+                snapshot.getValueAtPercentile(50) / 1000.0,
+                snapshot.getValueAtPercentile(99) / 1000.0,
+                errors.get(),
+                hosts.toString().trim()));
+    }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.LatencyHistogram;
+
+/**
+ * Measures the cost of recording a latency directly in a {@link LatencyHistogram} and through
+ * {@link CountingConnectionPoolMonitor#incOperationSuccess(Host, long)}, which also looks up the
+ * host's stats and updates the aggregate histogram.
+ *
+ * Run as a java application.  Prints ns/op and bytes allocated/op for each round.
+ */
+public class LatencyHistogramBenchmark {
+    private static final int OPS    = 20000000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        long[] latencies = new long[1 << 16];
+        for (int i = 0; i < latencies.length; i++) {
+            // Roughly log-normal around 1ms, in nanoseconds
+            latencies[i] = (long)(Math.exp(random.nextGaussian()) * 1000000);
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        Host host = new Host("127.0.0.1", 7102);
+        monitor.onHostAdded(host, null);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long startBytes = allocatedBytes();
+            long startTime  = System.nanoTime();
+            for (int i = 0; i < OPS; i++) {
+                histogram.record(latencies[i & (latencies.length - 1)] / 1000);
+            }
+            report("LatencyHistogram.record               ", startTime, startBytes);
+
+            startBytes = allocatedBytes();
+            startTime  = System.nanoTime();
+            for (int i = 0; i < OPS; i++) {
+                monitor.incOperationSuccess(host, latencies[i & (latencies.length - 1)]);
+            }
+            report("CountingConnectionPoolMonitor.success ", startTime, startBytes);
+        }
+        System.out.println(monitor.getOperationLatencyHistogram().getSnapshot());
+    }
+
+    private static void report(String name, long startTime, long startBytes) {
+        long elapsed   = System.nanoTime() - startTime;
+        long allocated = allocatedBytes() - startBytes;
+        System.out.println(String.format("%s %6.1f ns/op %6.2f bytes/op",
+                name, (double)elapsed / OPS, (double)allocated / OPS));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.lang.management.ManagementFactory;
+
+import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
+
+/**
+ * Measures the per operation cost of {@link LatencyScoreStrategy.Instance#addSample(long)} for the SMA,
+ * EMA and peak EWMA strategies.
+ *
+ * Run as a java application.  Prints ns/op and bytes allocated/op for each round.
+ */
+public class LatencyScoreStrategyBenchmark {
+    private static final int OPS    = 20000000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        AbstractLatencyScoreStrategyImpl[] strategies = new AbstractLatencyScoreStrategyImpl[] {
+                new SmaLatencyScoreStrategyImpl(0, 0, 100, 2.0),
+                new EmaLatencyScoreStrategyImpl(0, 0, 100),
+                new PeakEwmaLatencyScoreStrategyImpl(0, 0, PeakEwmaLatencyScoreStrategyImpl.DEFAULT_DECAY_TIME)
+        };
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (AbstractLatencyScoreStrategyImpl strategy : strategies) {
+                LatencyScoreStrategy.Instance instance = strategy.createInstance();
+                long startBytes = allocatedBytes();
+                long startTime  = System.nanoTime();
+                for (int i = 0; i < OPS; i++) {
+                    instance.addSample(1000000 + (i & 0xFFFF));
+                    if ((i & 0xFFFF) == 0)
+                        instance.update();
+                }
+                long elapsed   = System.nanoTime() - startTime;
+                long allocated = allocatedBytes() - startBytes;
+                System.out.println(String.format("%-40s %6.1f ns/op %6.2f bytes/op",
+                        strategy.getClass().getSimpleName(), (double)elapsed / OPS, (double)allocated / OPS));
+                strategy.removeInstance(instance);
+            }
+        }
+
+        for (AbstractLatencyScoreStrategyImpl strategy : strategies) {
+            strategy.shutdown();
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
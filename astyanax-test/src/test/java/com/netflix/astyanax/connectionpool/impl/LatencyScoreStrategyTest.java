@@ -0,0 +1,164 @@
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
+
+public class LatencyScoreStrategyTest {
+
+    @Test
+    public void testSampleBufferDrain() {
+        LatencySampleBuffer buffer = new LatencySampleBuffer(8);
+        long[] samples = new long[buffer.capacity()];
+        Assert.assertEquals(8, buffer.capacity());
+        Assert.assertEquals(0, buffer.drainTo(samples));
+
+        for (int i = 1; i <= 3; i++) {
+            buffer.add(i);
+        }
+        Assert.assertEquals(3, buffer.drainTo(samples));
+        Assert.assertTrue(Arrays.equals(new long[]{1, 2, 3}, Arrays.copyOf(samples, 3)));
+        Assert.assertEquals(0, buffer.drainTo(samples));
+
+        // Overflowing the window keeps only the newest samples
+        for (int i = 1; i <= 20; i++) {
+            buffer.add(i);
+        }
+        Assert.assertEquals(8, buffer.drainTo(samples));
+        Assert.assertTrue(Arrays.equals(new long[]{13, 14, 15, 16, 17, 18, 19, 20}, samples));
+    }
+
+    @Test
+    public void testSampleBufferSnapshotAndReset() {
+        LatencySampleBuffer buffer = new LatencySampleBuffer(4);
+        long[] samples = new long[buffer.capacity()];
+        buffer.add(10);
+        buffer.add(20);
+        Assert.assertEquals(2, buffer.snapshot(samples));
+        Assert.assertEquals(2, buffer.snapshot(samples));
+        Assert.assertEquals(2, buffer.drainTo(samples));
+        Assert.assertEquals(2, buffer.snapshot(samples));
+
+        buffer.reset();
+        Assert.assertEquals(0, buffer.snapshot(samples));
+        Assert.assertEquals(0, buffer.drainTo(samples));
+
+        buffer.add(30);
+        Assert.assertEquals(1, buffer.snapshot(samples));
+        Assert.assertEquals(30, samples[0]);
+    }
+
+    @Test
+    public void testSampleBufferKeepsFullWindow() {
+        LatencySampleBuffer buffer = new LatencySampleBuffer(100);
+        long[] samples = new long[buffer.capacity()];
+        Assert.assertEquals(100, buffer.capacity());
+        for (int i = 1; i <= 250; i++) {
+            buffer.add(i);
+        }
+
+        // The newest windowSize samples, whichever thread wrote them
+        Assert.assertEquals(100, buffer.snapshot(samples));
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(151 + i, samples[i]);
+        }
+        Assert.assertEquals(100, buffer.drainTo(samples));
+        Assert.assertEquals(151, samples[0]);
+        Assert.assertEquals(250, samples[99]);
+    }
+
+    @Test
+    public void testSampleBufferConcurrentWriters() throws Exception {
+        final LatencySampleBuffer buffer = new LatencySampleBuffer(64);
+        final long[] samples = new long[buffer.capacity()];
+        final int threadCount = 8;
+        final int perThread   = 100000;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            executor.submit(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < perThread; j++) {
+                        buffer.add(7);
+                    }
+                    done.countDown();
+                }
+            });
+        }
+
+        long drained = 0;
+        while (!done.await(1, TimeUnit.MILLISECONDS)) {
+            drained += buffer.drainTo(samples);
+        }
+        drained += buffer.drainTo(samples);
+        executor.shutdown();
+
+        Assert.assertTrue(drained > 0 && drained <= threadCount * perThread);
+        int count = buffer.snapshot(samples);
+        Assert.assertTrue(count > 0 && count <= buffer.capacity());
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(7, samples[i]);
+        }
+    }
+
+    @Test
+    public void testSmaScore() {
+        SmaLatencyScoreStrategyImpl strategy = new SmaLatencyScoreStrategyImpl(0, 0, 4, 2.0);
+        LatencyScoreStrategy.Instance instance = strategy.createInstance();
+        for (long sample : new long[]{100, 100, 100, 100, 200, 200, 200, 200}) {
+            instance.addSample(sample);
+        }
+        instance.update();
+        Assert.assertEquals(200.0, instance.getScore(), 0.001);
+        strategy.shutdown();
+    }
+
+    @Test
+    public void testEmaScore() {
+        EmaLatencyScoreStrategyImpl strategy = new EmaLatencyScoreStrategyImpl(0, 0, 3);
+        LatencyScoreStrategy.Instance instance = strategy.createInstance();
+        instance.addSample(100);
+        instance.addSample(200);
+        instance.update();
+        // k = 2 / (3 + 1), seeded with the first sample
+        Assert.assertEquals(150.0, instance.getScore(), 0.001);
+
+        instance.update();
+        Assert.assertEquals(75.0, instance.getScore(), 0.001);
+
+        instance.reset();
+        Assert.assertEquals(0.0, instance.getScore(), 0.001);
+        strategy.shutdown();
+    }
+
+    @Test
+    public void testPeakEwmaReactsToSpikes() throws Exception {
+        PeakEwmaLatencyScoreStrategyImpl strategy = new PeakEwmaLatencyScoreStrategyImpl(0, 0, 50);
+        LatencyScoreStrategy.Instance instance = strategy.createInstance();
+        Assert.assertEquals(0.0, instance.getScore(), 0.001);
+
+        instance.addSample(1000);
+        Assert.assertEquals(1000.0, instance.getScore(), 0.001);
+
+        // A spike is reflected immediately, without waiting for update()
+        instance.addSample(50000);
+        Assert.assertEquals(50000.0, instance.getScore(), 0.001);
+
+        // and decays back once the node is fast again
+        Thread.sleep(200);
+        instance.addSample(1000);
+        Assert.assertTrue(instance.getScore() < 5000);
+
+        instance.reset();
+        Assert.assertEquals(0.0, instance.getScore(), 0.001);
+        strategy.shutdown();
+    }
+}
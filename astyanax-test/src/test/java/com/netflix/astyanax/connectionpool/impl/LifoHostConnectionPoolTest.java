@@ -0,0 +1,166 @@
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.Connection;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.PoolTimeoutException;
+import com.netflix.astyanax.connectionpool.impl.SimpleHostConnectionPoolTest.NoOpListener;
+import com.netflix.astyanax.shallows.EmptyPartitioner;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestConnectionFactory;
+import com.netflix.astyanax.test.TestHostType;
+
+public class LifoHostConnectionPoolTest {
+
+    @Test
+    public void testLifoOrder() throws Exception {
+        LifoHostConnectionPool<TestClient> pool = createPool(2, false);
+        Assert.assertEquals(2, pool.primeConnections(2));
+        Assert.assertEquals(2, pool.getIdleConnectionCount());
+
+        Connection<TestClient> first  = pool.borrowConnection(100);
+        Connection<TestClient> second = pool.borrowConnection(100);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(0, pool.getIdleConnectionCount());
+        Assert.assertEquals(2, pool.getBusyConnectionCount());
+
+        pool.returnConnection(first);
+        pool.returnConnection(second);
+        Assert.assertEquals(2, pool.getIdleConnectionCount());
+
+        // The most recently returned connection is handed out first
+        Assert.assertSame(second, pool.borrowConnection(100));
+        Assert.assertSame(first,  pool.borrowConnection(100));
+    }
+
+    @Test
+    public void testThreadAffinity() throws Exception {
+        final LifoHostConnectionPool<TestClient> pool = createPool(2, true);
+        pool.primeConnections(2);
+
+        Connection<TestClient> mine = pool.borrowConnection(100);
+        final Connection<TestClient> other = pool.borrowConnection(100);
+        pool.returnConnection(mine);
+
+        // Another thread returns a connection on top of ours
+        Thread thread = new Thread() {
+            public void run() {
+                pool.returnConnection(other);
+            }
+        };
+        thread.start();
+        thread.join();
+
+        Assert.assertSame(mine,  pool.borrowConnection(100));
+        Assert.assertSame(other, pool.borrowConnection(100));
+        Assert.assertEquals(0, pool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void testWaitForReturnedConnection() throws Exception {
+        final LifoHostConnectionPool<TestClient> pool = createPool(1, false);
+        pool.primeConnections(1);
+
+        final Connection<TestClient> connection = pool.borrowConnection(100);
+        try {
+            pool.borrowConnection(50);
+            Assert.fail();
+        }
+        catch (PoolTimeoutException e) {
+        }
+
+        final AtomicReference<Connection<TestClient>> borrowed = new AtomicReference<Connection<TestClient>>();
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    borrowed.set(pool.borrowConnection(5000));
+                } catch (ConnectionException e) {
+                }
+            }
+        };
+        thread.start();
+        Thread.sleep(100);
+        pool.returnConnection(connection);
+        thread.join(5000);
+
+        Assert.assertSame(connection, borrowed.get());
+        Assert.assertEquals(0, pool.getBlockedThreadCount());
+    }
+
+    @Test
+    public void testConcurrentBorrowNeverSharesConnection() throws Exception {
+        for (boolean affinity : new boolean[]{false, true}) {
+            final LifoHostConnectionPool<TestClient> pool = createPool(4, affinity);
+            pool.primeConnections(4);
+
+            final ConcurrentHashMap<Connection<TestClient>, AtomicBoolean> inUse = new ConcurrentHashMap<Connection<TestClient>, AtomicBoolean>();
+            final AtomicInteger errors = new AtomicInteger();
+            final int threadCount = 16;
+            final CountDownLatch done = new CountDownLatch(threadCount);
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            for (int i = 0; i < threadCount; i++) {
+                executor.submit(new Runnable() {
+                    public void run() {
+                        try {
+                            for (int j = 0; j < 20000; j++) {
+                                Connection<TestClient> connection = pool.borrowConnection(5000);
+                                inUse.putIfAbsent(connection, new AtomicBoolean());
+                                AtomicBoolean flag = inUse.get(connection);
+                                if (!flag.compareAndSet(false, true))
+                                    errors.incrementAndGet();
+                                flag.set(false);
+                                pool.returnConnection(connection);
+                            }
+                        } catch (ConnectionException e) {
+                            errors.incrementAndGet();
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+            Assert.assertTrue(done.await(60, TimeUnit.SECONDS));
+            executor.shutdown();
+
+            Assert.assertEquals(0, errors.get());
+            Assert.assertEquals(4, pool.getActiveConnectionCount());
+            Assert.assertEquals(4, pool.getIdleConnectionCount());
+
+            List<Connection<TestClient>> drained = Lists.newArrayList();
+            for (int i = 0; i < 4; i++) {
+                drained.add(pool.borrowConnection(100));
+            }
+            Assert.assertEquals(4, inUse.keySet().size());
+            Assert.assertTrue(inUse.keySet().containsAll(drained));
+        }
+    }
+
+    private LifoHostConnectionPool<TestClient> createPool(int maxConns, boolean affinity) {
+        ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl("cluster_keyspace");
+        config.setMaxConnsPerHost(maxConns);
+        config.setConnectTimeout(200);
+        config.setPartitioner(new EmptyPartitioner());
+        config.initialize();
+
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        Host host = new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal());
+        return new LifoHostConnectionPool<TestClient>(
+                host, new TestConnectionFactory(config, monitor), monitor,
+                config, new NoOpListener(), affinity);
+    }
+}
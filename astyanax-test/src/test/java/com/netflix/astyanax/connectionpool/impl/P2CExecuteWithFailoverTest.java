@@ -0,0 +1,131 @@
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.NoAvailableHostsException;
+import com.netflix.astyanax.shallows.EmptyConnectionPoolMonitor;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestHostConnectionPool;
+
+public class P2CExecuteWithFailoverTest {
+
+    private static class LoadedPool extends TestHostConnectionPool {
+        private final int    busy;
+        private final double score;
+
+        LoadedPool(int index, int busy, double score) {
+            super(new Host("127.0.0." + index, 7102));
+            this.busy  = busy;
+            this.score = score;
+        }
+
+        @Override
+        public int getBusyConnectionCount() {
+            return busy;
+        }
+
+        @Override
+        public double getScore() {
+            return score;
+        }
+    }
+
+    @Test
+    public void testPicksLessLoadedOfTwo() throws ConnectionException {
+        List<HostConnectionPool<TestClient>> pools = Lists.<HostConnectionPool<TestClient>>newArrayList(
+                new LoadedPool(1, 10, 0),
+                new LoadedPool(2, 1,  0));
+        for (int i = 0; i < 100; i++) {
+            P2CExecuteWithFailover<TestClient, String> execute = newExecute(pools);
+            execute.borrowConnection(null);
+            Assert.assertSame(pools.get(1), execute.getCurrentHostConnectionPool());
+        }
+    }
+
+    @Test
+    public void testLatencyScoreWeighsLoad() throws ConnectionException {
+        // Same load, but the second pool is 10x slower
+        List<HostConnectionPool<TestClient>> pools = Lists.<HostConnectionPool<TestClient>>newArrayList(
+                new LoadedPool(1, 2, 1000000),
+                new LoadedPool(2, 2, 10000000));
+        P2CExecuteWithFailover<TestClient, String> execute = newExecute(pools);
+        execute.borrowConnection(null);
+        Assert.assertSame(pools.get(0), execute.getCurrentHostConnectionPool());
+
+        // The slow pool wins once the fast one has more than 10x the outstanding requests
+        pools = Lists.<HostConnectionPool<TestClient>>newArrayList(
+                new LoadedPool(1, 30, 1000000),
+                new LoadedPool(2, 1,  10000000));
+        execute = newExecute(pools);
+        execute.borrowConnection(null);
+        Assert.assertSame(pools.get(1), execute.getCurrentHostConnectionPool());
+    }
+
+    @Test
+    public void testUnscoredPoolIsComparedOnLoad() throws ConnectionException {
+        // A new host without a score does not win against a less loaded scored host
+        List<HostConnectionPool<TestClient>> pools = Lists.<HostConnectionPool<TestClient>>newArrayList(
+                new LoadedPool(1, 2, 1000000),
+                new LoadedPool(2, 5, 0));
+        for (int i = 0; i < 100; i++) {
+            P2CExecuteWithFailover<TestClient, String> execute = newExecute(pools);
+            execute.borrowConnection(null);
+            Assert.assertSame(pools.get(0), execute.getCurrentHostConnectionPool());
+        }
+    }
+
+    @Test
+    public void testMostLoadedPoolIsNeverPicked() throws ConnectionException {
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            pools.add(new LoadedPool(i, i == 3 ? 100 : 0, 0));
+        }
+        for (int i = 0; i < 1000; i++) {
+            P2CExecuteWithFailover<TestClient, String> execute = newExecute(pools);
+            execute.borrowConnection(null);
+            Assert.assertNotSame(pools.get(3), execute.getCurrentHostConnectionPool());
+        }
+    }
+
+    @Test
+    public void testFailoverTriesEveryPool() throws ConnectionException {
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            pools.add(new LoadedPool(i, 0, 0));
+        }
+        for (int attempt = 0; attempt < 100; attempt++) {
+            P2CExecuteWithFailover<TestClient, String> execute = newExecute(pools);
+            Set<HostConnectionPool<TestClient>> tried = Sets.newHashSet();
+            for (int i = 0; i < pools.size(); i++) {
+                execute.borrowConnection(null);
+                tried.add(execute.getCurrentHostConnectionPool());
+            }
+            Assert.assertEquals(pools.size(), tried.size());
+
+            // Starts over once every pool was tried
+            execute.borrowConnection(null);
+            Assert.assertNotNull(execute.getCurrentHostConnectionPool());
+        }
+    }
+
+    @Test(expected = NoAvailableHostsException.class)
+    public void testNoPools() throws ConnectionException {
+        newExecute(Lists.<HostConnectionPool<TestClient>>newArrayList());
+    }
+
+    private P2CExecuteWithFailover<TestClient, String> newExecute(List<HostConnectionPool<TestClient>> pools) throws ConnectionException {
+        ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl("cluster_keyspace");
+        config.setMaxFailoverCount(-1);
+        return new P2CExecuteWithFailover<TestClient, String>(config, EmptyConnectionPoolMonitor.getInstance(), pools);
+    }
+}
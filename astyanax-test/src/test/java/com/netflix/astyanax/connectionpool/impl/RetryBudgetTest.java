@@ -0,0 +1,126 @@
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.exceptions.OperationTimeoutException;
+import com.netflix.astyanax.retry.RetryNTimes;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestConnectionFactory;
+import com.netflix.astyanax.test.TestHostType;
+import com.netflix.astyanax.test.TestOperation;
+
+public class RetryBudgetTest {
+
+    private ConnectionPoolConfigurationImpl config;
+    private CountingConnectionPoolMonitor   monitor;
+
+    @Before
+    public void setUp() {
+        config  = new ConnectionPoolConfigurationImpl("budget");
+        config.initialize();
+        monitor = new CountingConnectionPoolMonitor();
+    }
+
+    @After
+    public void tearDown() {
+        config.shutdown();
+    }
+
+    @Test
+    public void testBucketStartsFullAndDrains() {
+        TokenBucketRetryBudget budget = new TokenBucketRetryBudget(0.1, 0, 3);
+        Assert.assertFalse(budget.isExhausted());
+        Assert.assertTrue(budget.tryAcquire());
+        Assert.assertTrue(budget.tryAcquire());
+        Assert.assertTrue(budget.tryAcquire());
+        Assert.assertFalse(budget.tryAcquire());
+        Assert.assertTrue(budget.isExhausted());
+    }
+
+    @Test
+    public void testSuccessesReplenishByRatio() {
+        TokenBucketRetryBudget budget = new TokenBucketRetryBudget(0.1, 0, 3);
+        while (budget.tryAcquire()) {
+        }
+
+        for (int i = 0; i < 9; i++) {
+            budget.onSuccess();
+        }
+        Assert.assertTrue(budget.isExhausted());
+        budget.onSuccess();
+        Assert.assertTrue(budget.tryAcquire());
+        Assert.assertFalse(budget.tryAcquire());
+
+        // Capped at maxRetries
+        for (int i = 0; i < 1000; i++) {
+            budget.onSuccess();
+        }
+        Assert.assertEquals(3.0, budget.getAvailableRetries());
+    }
+
+    @Test
+    public void testMinimumRateRefills() throws Exception {
+        TokenBucketRetryBudget budget = new TokenBucketRetryBudget(0, 100, 5);
+        while (budget.tryAcquire()) {
+        }
+
+        Thread.sleep(30);
+        Assert.assertTrue(budget.tryAcquire());
+        Assert.assertTrue(budget.getAvailableRetries() < 5);
+    }
+
+    @Test
+    public void testFailoverFailsFastWhenExhausted() throws Exception {
+        TokenBucketRetryBudget budget = new TokenBucketRetryBudget(0, 0, 2);
+        config.setRetryBudget(budget);
+        config.setMaxFailoverCount(-1);
+
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            pools.add(new SimpleHostConnectionPool<TestClient>(
+                    new Host("127.0.0." + (i + 1), TestHostType.OPERATION_TIMEOUT.ordinal()),
+                    new TestConnectionFactory(config, monitor), monitor, config,
+                    new SimpleHostConnectionPoolTest.NoOpListener()));
+        }
+
+        try {
+            new RoundRobinExecuteWithFailover<TestClient, String>(config, monitor, pools, 0).tryOperation(new TestOperation());
+            Assert.fail();
+        }
+        catch (OperationTimeoutException e) {
+        }
+        // Two failovers allowed by the budget
+        Assert.assertEquals(1, monitor.getRetryBudgetExhaustedCount());
+        Assert.assertEquals(2, monitor.getFailoverCount());
+        Assert.assertTrue(budget.isExhausted());
+    }
+
+    @Test
+    public void testRetryPolicyFailsFastWhenExhausted() throws Exception {
+        config.setRetryBudget(new TokenBucketRetryBudget(0, 0, 1));
+        config.setMaxFailoverCount(1);
+        RoundRobinConnectionPoolImpl<TestClient> pool = new RoundRobinConnectionPoolImpl<TestClient>(
+                config, new TestConnectionFactory(config, monitor), monitor);
+        pool.addHost(new Host("127.0.0.1", TestHostType.OPERATION_TIMEOUT.ordinal()), true);
+
+        RetryNTimes retry = new RetryNTimes(10);
+        try {
+            pool.executeWithFailover(new TestOperation(), retry);
+            Assert.fail();
+        }
+        catch (OperationTimeoutException e) {
+        }
+        Assert.assertEquals(1, retry.getAttemptCount());
+        Assert.assertEquals(1, monitor.getRetryBudgetExhaustedCount());
+        pool.shutdown();
+    }
+}
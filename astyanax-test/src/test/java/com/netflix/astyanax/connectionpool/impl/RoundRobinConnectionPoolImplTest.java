@@ -15,6 +15,9 @@
  ******************************************************************************/
 package com.netflix.astyanax.connectionpool.impl;
 
+import java.util.List;
+
+import com.google.common.collect.Lists;
 import com.netflix.astyanax.connectionpool.ConnectionPool;
 import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
 import com.netflix.astyanax.connectionpool.Host;
@@ -215,4 +218,64 @@ public class RoundRobinConnectionPoolImplTest extends BaseConnectionPoolTest {
             Assert.fail();
         }
     }
+
+    @Test
+    public void testSetHostsPrimesInParallel() throws Exception {
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+
+        ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl(
+                TestConstants.CLUSTER_NAME + "_" + TestConstants.KEYSPACE_NAME);
+        config.setInitConnsPerHost(1).setPrimeConcurrency(8);
+        config.initialize();
+
+        ConnectionPool<TestClient> cp = new RoundRobinConnectionPoolImpl<TestClient>(
+                config, new TestConnectionFactory(config, monitor), monitor);
+
+        List<Host> hosts = Lists.newArrayList();
+        for (int i = 0; i < 6; i++) {
+            hosts.add(new Host("127.0.0." + (i + 1), TestHostType.GOOD_SLOW.ordinal()));
+        }
+
+        // Each connection takes 500 ms to open
+        long start = System.currentTimeMillis();
+        cp.setHosts(hosts);
+        long elapsed = System.currentTimeMillis() - start;
+        Assert.assertTrue("Took " + elapsed + " ms", elapsed < 1500);
+
+        for (HostConnectionPool<TestClient> pool : cp.getPools()) {
+            Assert.assertEquals(1, pool.getActiveConnectionCount());
+        }
+        Assert.assertEquals(6, cp.getActivePools().size());
+        Assert.assertTrue(cp.awaitReady(0, 1.0f));
+        cp.shutdown();
+    }
+
+    @Test
+    public void testAwaitReady() throws Exception {
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+
+        ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl(
+                TestConstants.CLUSTER_NAME + "_" + TestConstants.KEYSPACE_NAME);
+        config.setInitConnsPerHost(2);
+        config.initialize();
+
+        ConnectionPool<TestClient> cp = new RoundRobinConnectionPoolImpl<TestClient>(
+                config, new TestConnectionFactory(config, monitor), monitor);
+
+        // No hosts yet
+        Assert.assertFalse(cp.awaitReady(100, 0.0f));
+
+        cp.setHosts(Lists.newArrayList(
+                new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal()),
+                new Host("127.0.0.2", TestHostType.GOOD_IMMEDIATE.ordinal()),
+                new Host("127.0.0.3", TestHostType.ALWAYS_DOWN.ordinal())));
+
+        Assert.assertTrue(cp.awaitReady(100, 0.5f));
+        Assert.assertTrue(cp.awaitReady(100, 2.0f / 3));
+
+        long start = System.currentTimeMillis();
+        Assert.assertFalse(cp.awaitReady(200, 1.0f));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 200);
+        cp.shutdown();
+    }
 }
@@ -1,5 +1,11 @@
 package com.netflix.astyanax.connectionpool.impl;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 import junit.framework.Assert;
 
 import org.junit.Ignore;
@@ -7,12 +13,14 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.netflix.astyanax.connectionpool.BadHostDetector;
 import com.netflix.astyanax.connectionpool.Connection;
 import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.HostConnectionPool;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 import com.netflix.astyanax.connectionpool.exceptions.HostDownException;
+import com.netflix.astyanax.connectionpool.exceptions.OperationTimeoutException;
 import com.netflix.astyanax.connectionpool.exceptions.PoolTimeoutException;
 import com.netflix.astyanax.connectionpool.exceptions.TimeoutException;
 import com.netflix.astyanax.shallows.EmptyPartitioner;
@@ -525,6 +533,255 @@ public class SimpleHostConnectionPoolTest {
         }
     }
 
+    @Test
+    public void testRecycleAfterMaxOperations() throws Exception {
+        Host host = new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal());
+
+        ConnectionPoolConfigurationImpl config = createConfig();
+        config.setMaxOperationsPerConnection(10);
+
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        SimpleHostConnectionPool<TestClient> pool = new SimpleHostConnectionPool<TestClient>(
+                host, new TestConnectionFactory(config, monitor), monitor,
+                config, new NoOpListener());
+
+        for (int i = 0; i < 20; i++) {
+            Connection<TestClient> connection = pool.borrowConnection(WAIT_TIMEOUT);
+            try {
+                connection.execute(new TestOperation());
+            }
+            finally {
+                pool.returnConnection(connection);
+            }
+        }
+
+        Assert.assertTrue(pool.getClosedConnectionCount() >= 1);
+        Assert.assertTrue(pool.getActiveConnectionCount() <= config.getMaxConnsPerHost());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testRecycleAfterMaxAge() throws Exception {
+        Host host = new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal());
+
+        ConnectionPoolConfigurationImpl config = createConfig();
+        config.setMaxConnectionAge(100);
+
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        SimpleHostConnectionPool<TestClient> pool = new SimpleHostConnectionPool<TestClient>(
+                host, new TestConnectionFactory(config, monitor), monitor,
+                config, new NoOpListener());
+
+        pool.primeConnections(1);
+        Assert.assertEquals(1, pool.getOpenedConnectionCount());
+
+        Connection<TestClient> connection = pool.borrowConnection(WAIT_TIMEOUT);
+        pool.returnConnection(connection);
+        Assert.assertEquals(0, pool.getClosedConnectionCount());
+
+        Thread.sleep(200);
+
+        connection = pool.borrowConnection(WAIT_TIMEOUT);
+        pool.returnConnection(connection);
+        Assert.assertEquals(1, pool.getClosedConnectionCount());
+
+        // The replacement is opened in the background
+        long deadline = System.currentTimeMillis() + 2000;
+        while (pool.getOpenedConnectionCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, pool.getOpenedConnectionCount());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testIdleConnectionsAreReaped() throws Exception {
+        Host host = new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal());
+
+        ConnectionPoolConfigurationImpl config = createConfig();
+        config.setMaxConnsPerHost(4);
+        config.setIdleTimeout(100);
+
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        SimpleHostConnectionPool<TestClient> pool = new SimpleHostConnectionPool<TestClient>(
+                host, new TestConnectionFactory(config, monitor), monitor,
+                config, new NoOpListener());
+
+        pool.primeConnections(4);
+        Assert.assertEquals(4, pool.getActiveConnectionCount());
+
+        // Connections beyond initConnsPerHost are closed once idle for a full timeout
+        long deadline = System.currentTimeMillis() + 2000;
+        while (pool.getActiveConnectionCount() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, pool.getActiveConnectionCount());
+        Assert.assertEquals(3, pool.getClosedConnectionCount());
+        pool.shutdown();
+        config.shutdown();
+    }
+
+    @Test
+    public void testBusyConnectionsAreNotReaped() throws Exception {
+        Host host = new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal());
+
+        ConnectionPoolConfigurationImpl config = createConfig();
+        config.setMaxConnsPerHost(2);
+        config.setIdleTimeout(100);
+
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        SimpleHostConnectionPool<TestClient> pool = new SimpleHostConnectionPool<TestClient>(
+                host, new TestConnectionFactory(config, monitor), monitor,
+                config, new NoOpListener());
+
+        pool.primeConnections(2);
+
+        // Keep both connections in use, so neither stays idle for the whole timeout
+        long end = System.currentTimeMillis() + 500;
+        while (System.currentTimeMillis() < end) {
+            Connection<TestClient> c1 = pool.borrowConnection(WAIT_TIMEOUT);
+            Connection<TestClient> c2 = pool.borrowConnection(WAIT_TIMEOUT);
+            Thread.sleep(5);
+            pool.returnConnection(c1);
+            pool.returnConnection(c2);
+        }
+
+        Assert.assertEquals(2, pool.getActiveConnectionCount());
+        Assert.assertEquals(0, pool.getClosedConnectionCount());
+        pool.shutdown();
+        config.shutdown();
+    }
+
+    @Test
+    public void testHalfOpenHostIsProbedBeforeComingBack() throws Exception {
+        Host host = new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal());
+
+        ConnectionPoolConfigurationImpl config = createConfig();
+        config.setBadHostDetector(new BadHostDetectorImpl(config, 0.5f, 0.8f, 0, 4, 100, 2));
+
+        final AtomicInteger   downs = new AtomicInteger();
+        final CountDownLatch  up    = new CountDownLatch(1);
+        final AtomicReference<SimpleHostConnectionPool<TestClient>> poolRef = new AtomicReference<SimpleHostConnectionPool<TestClient>>();
+        final AtomicBoolean   closedWhenUp = new AtomicBoolean();
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        SimpleHostConnectionPool<TestClient> pool = new SimpleHostConnectionPool<TestClient>(
+                host, new TestConnectionFactory(config, monitor), monitor,
+                config, new SimpleHostConnectionPool.Listener<TestClient>() {
+                    @Override
+                    public void onHostDown(HostConnectionPool<TestClient> pool) {
+                        downs.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onHostUp(HostConnectionPool<TestClient> pool) {
+                        closedWhenUp.set(!poolRef.get().isReconnecting());
+                        up.countDown();
+                    }
+                });
+        poolRef.set(pool);
+        pool.primeConnections(1);
+
+        // Trip the circuit with operation timeouts
+        for (int i = 0; i < 4; i++) {
+            Connection<TestClient> connection = pool.borrowConnection(WAIT_TIMEOUT);
+            try {
+                connection.execute(new TestOperation() {
+                    @Override
+                    public String execute(TestClient client, ConnectionContext state) throws ConnectionException {
+                        throw new OperationTimeoutException("Timeout");
+                    }
+                });
+                Assert.fail();
+            }
+            catch (OperationTimeoutException e) {
+            }
+            finally {
+                pool.returnConnection(connection);
+            }
+        }
+        Assert.assertEquals(1, downs.get());
+        Assert.assertTrue(pool.isReconnecting());
+        try {
+            pool.borrowConnection(WAIT_TIMEOUT);
+            Assert.fail();
+        }
+        catch (HostDownException e) {
+        }
+
+        // The pool probes the host itself and only comes back once the circuit is closed
+        Assert.assertTrue(up.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(closedWhenUp.get());
+        Assert.assertFalse(pool.isReconnecting());
+        Assert.assertEquals(1, downs.get());
+        pool.returnConnection(pool.borrowConnection(WAIT_TIMEOUT));
+        pool.shutdown();
+    }
+
+    @Test
+    public void testTimeoutSampleDetectorMarksHostDown() throws Exception {
+        Host host = new Host("127.0.0.1", TestHostType.GOOD_IMMEDIATE.ordinal());
+
+        // Detector that only implements the timeout sample and quarantines on the second timeout
+        final AtomicInteger timeouts = new AtomicInteger();
+        ConnectionPoolConfigurationImpl config = createConfig();
+        config.setBadHostDetector(new BadHostDetector() {
+            @Override
+            public Instance createInstance() {
+                return new Instance() {
+                    @Override
+                    public boolean addTimeoutSample() {
+                        return timeouts.incrementAndGet() >= 2;
+                    }
+                };
+            }
+
+            @Override
+            public void removeInstance(Instance instance) {
+            }
+        });
+
+        final AtomicInteger downs = new AtomicInteger();
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        SimpleHostConnectionPool<TestClient> pool = new SimpleHostConnectionPool<TestClient>(
+                host, new TestConnectionFactory(config, monitor), monitor,
+                config, new SimpleHostConnectionPool.Listener<TestClient>() {
+                    @Override
+                    public void onHostDown(HostConnectionPool<TestClient> pool) {
+                        downs.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onHostUp(HostConnectionPool<TestClient> pool) {
+                    }
+                });
+        pool.primeConnections(1);
+
+        // Successes are not reported to the detector
+        pool.returnConnection(pool.borrowConnection(WAIT_TIMEOUT));
+        Assert.assertEquals(0, timeouts.get());
+
+        for (int i = 0; i < 2; i++) {
+            Connection<TestClient> connection = pool.borrowConnection(WAIT_TIMEOUT);
+            try {
+                connection.execute(new TestOperation() {
+                    @Override
+                    public String execute(TestClient client, ConnectionContext state) throws ConnectionException {
+                        throw new OperationTimeoutException("Timeout");
+                    }
+                });
+                Assert.fail();
+            }
+            catch (OperationTimeoutException e) {
+            }
+            finally {
+                pool.returnConnection(connection);
+            }
+            Assert.assertEquals(i, downs.get());
+        }
+        Assert.assertEquals(2, timeouts.get());
+        pool.shutdown();
+    }
+
     public ConnectionPoolConfigurationImpl createConfig() {
         ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl("cluster_keyspace");
         
@@ -0,0 +1,187 @@
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.SpeculativeExecutionPolicy;
+import com.netflix.astyanax.connectionpool.SpeculativeOperation;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestConnectionFactory;
+import com.netflix.astyanax.test.TestHostType;
+import com.netflix.astyanax.test.TestOperation;
+
+public class SpeculativeExecutionTest {
+
+    private static class SpeculativeTestOperation extends TestOperation implements SpeculativeOperation {
+        private final SpeculativeExecutionPolicy policy;
+
+        SpeculativeTestOperation(SpeculativeExecutionPolicy policy) {
+            this.policy = policy;
+        }
+
+        @Override
+        public SpeculativeExecutionPolicy getSpeculativeExecutionPolicy() {
+            return policy;
+        }
+    }
+
+    private ConnectionPoolConfigurationImpl config;
+    private CountingConnectionPoolMonitor   monitor;
+
+    @Before
+    public void setUp() {
+        config  = new ConnectionPoolConfigurationImpl("speculative");
+        config.initialize();
+        monitor = new CountingConnectionPoolMonitor();
+    }
+
+    @After
+    public void tearDown() {
+        config.shutdown();
+    }
+
+    @Test
+    public void testSpeculativeExecutionWins() throws Exception {
+        config.setSpeculativeExecutionPolicy(new FixedDelaySpeculativeExecutionPolicy(50));
+        HostConnectionPool<TestClient> slow = newPool(TestHostType.GOOD_SLOW);
+        HostConnectionPool<TestClient> fast = newPool(TestHostType.GOOD_FAST);
+
+        long start = System.currentTimeMillis();
+        OperationResult<String> result = newExecute(slow, fast).tryOperation(new SpeculativeTestOperation(null));
+        long elapsed = System.currentTimeMillis() - start;
+
+        Assert.assertEquals("RESULT", result.getResult());
+        Assert.assertEquals(fast.getHost(), result.getHost());
+        Assert.assertEquals(2, result.getAttemptsCount());
+        Assert.assertTrue("Took " + elapsed + " ms", elapsed < 400);
+        Assert.assertEquals(1, monitor.getSpeculativeExecutionCount());
+        Assert.assertEquals(1, monitor.getSpeculativeExecutionWonCount());
+
+        // The losing attempt returns its connection once it completes
+        Assert.assertEquals(1, slow.getBusyConnectionCount());
+        awaitIdle(slow);
+        Assert.assertEquals(0, fast.getBusyConnectionCount());
+        Assert.assertEquals(2, monitor.getOperationSuccessCount());
+    }
+
+    @Test
+    public void testFastOriginalIsNotSpeculated() throws Exception {
+        config.setSpeculativeExecutionPolicy(new FixedDelaySpeculativeExecutionPolicy(200));
+        HostConnectionPool<TestClient> fast = newPool(TestHostType.GOOD_FAST);
+        HostConnectionPool<TestClient> slow = newPool(TestHostType.GOOD_SLOW);
+
+        OperationResult<String> result = newExecute(fast, slow).tryOperation(new SpeculativeTestOperation(null));
+
+        Assert.assertEquals(fast.getHost(), result.getHost());
+        Assert.assertEquals(1, result.getAttemptsCount());
+        Assert.assertEquals(0, monitor.getSpeculativeExecutionCount());
+        Assert.assertEquals(0, fast.getBusyConnectionCount());
+    }
+
+    @Test
+    public void testOnlySpeculativeOperationsAreSpeculated() throws Exception {
+        config.setSpeculativeExecutionPolicy(new FixedDelaySpeculativeExecutionPolicy(50));
+        HostConnectionPool<TestClient> slow = newPool(TestHostType.GOOD_SLOW);
+        HostConnectionPool<TestClient> fast = newPool(TestHostType.GOOD_FAST);
+
+        OperationResult<String> result = newExecute(slow, fast).tryOperation(new TestOperation());
+
+        Assert.assertEquals(slow.getHost(), result.getHost());
+        Assert.assertEquals(0, monitor.getSpeculativeExecutionCount());
+    }
+
+    @Test
+    public void testOperationPolicyOverridesConfig() throws Exception {
+        HostConnectionPool<TestClient> slow = newPool(TestHostType.GOOD_SLOW);
+        HostConnectionPool<TestClient> fast = newPool(TestHostType.GOOD_FAST);
+
+        // Disabled in the configuration by default
+        OperationResult<String> result = newExecute(slow, fast).tryOperation(new SpeculativeTestOperation(null));
+        Assert.assertEquals(slow.getHost(), result.getHost());
+        Assert.assertEquals(0, monitor.getSpeculativeExecutionCount());
+
+        result = newExecute(slow, fast).tryOperation(new SpeculativeTestOperation(new FixedDelaySpeculativeExecutionPolicy(20)));
+        Assert.assertEquals(fast.getHost(), result.getHost());
+        Assert.assertEquals(1, monitor.getSpeculativeExecutionCount());
+        Assert.assertEquals(1, monitor.getSpeculativeExecutionWonCount());
+        awaitIdle(slow);
+    }
+
+    @Test
+    public void testNoSpeculationWithSingleHost() throws Exception {
+        config.setSpeculativeExecutionPolicy(new FixedDelaySpeculativeExecutionPolicy(20));
+        HostConnectionPool<TestClient> slow = newPool(TestHostType.GOOD_SLOW);
+
+        OperationResult<String> result = newExecute(slow).tryOperation(new SpeculativeTestOperation(null));
+
+        Assert.assertEquals(slow.getHost(), result.getHost());
+        Assert.assertEquals(0, monitor.getSpeculativeExecutionCount());
+        Assert.assertEquals(0, slow.getBusyConnectionCount());
+    }
+
+    @Test
+    public void testPercentileDelayUsesRecentLatencies() {
+        Host host = new Host("127.0.0.1", TestHostType.GOOD_FAST.ordinal());
+        PercentileSpeculativeExecutionPolicy policy = new PercentileSpeculativeExecutionPolicy(25, 100, 0, 0, 100);
+
+        // Not enough samples yet
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toMicros(100), policy.getDelay(host, monitor));
+
+        recordLatencies(host, 200, 1);
+        long delay = policy.getDelay(host, monitor);
+        Assert.assertTrue("Delay " + delay, delay >= 1000 && delay < 1100);
+
+        // The all time p25 would still be 1 ms
+        recordLatencies(host, 200, 10);
+        delay = policy.getDelay(host, monitor);
+        Assert.assertTrue("Delay " + delay, delay >= 10000 && delay < 11000);
+    }
+
+    @Test
+    public void testPercentileDelayHasLowerBound() {
+        Host host = new Host("127.0.0.1", TestHostType.GOOD_FAST.ordinal());
+        PercentileSpeculativeExecutionPolicy policy = new PercentileSpeculativeExecutionPolicy(99, 100, 5, 0, 100);
+
+        recordLatencies(host, 200, 1);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toMicros(5), policy.getDelay(host, monitor));
+    }
+
+    private void recordLatencies(Host host, int count, long millis) {
+        for (int i = 0; i < count; i++) {
+            monitor.incOperationSuccess(host, TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+
+    private HostConnectionPool<TestClient> newPool(TestHostType type) throws Exception {
+        SimpleHostConnectionPool<TestClient> pool = new SimpleHostConnectionPool<TestClient>(
+                new Host("127.0.0." + (type.ordinal() + 1), type.ordinal()),
+                new TestConnectionFactory(config, monitor), monitor, config,
+                new SimpleHostConnectionPoolTest.NoOpListener());
+        // Keep slow connects out of the timed operations
+        pool.primeConnections(2);
+        return pool;
+    }
+
+    private RoundRobinExecuteWithFailover<TestClient, String> newExecute(HostConnectionPool<TestClient>... pools) throws Exception {
+        List<HostConnectionPool<TestClient>> list = Lists.newArrayList(pools);
+        return new RoundRobinExecuteWithFailover<TestClient, String>(config, monitor, list, 0);
+    }
+
+    private static void awaitIdle(HostConnectionPool<TestClient> pool) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (pool.getBusyConnectionCount() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, pool.getBusyConnectionCount());
+    }
+}
@@ -0,0 +1,78 @@
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.shallows.EmptyConnectionPoolMonitor;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestHostConnectionPool;
+
+public class TieredExecuteWithFailoverTest {
+
+    @Test
+    public void testFailsOverToFartherTiersInOrder() throws ConnectionException {
+        ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl("tiered");
+        List<HostConnectionPool<TestClient>> primary  = makePools(0, 2);
+        List<HostConnectionPool<TestClient>> failover = makePools(2, 2);
+
+        TieredExecuteWithFailover<TestClient, String> execute = newExecute(config, primary, failover);
+
+        // Both primary pools are tried first
+        execute.borrowConnection(null);
+        HostConnectionPool<TestClient> first = execute.getCurrentHostConnectionPool();
+        Assert.assertTrue(primary.contains(first));
+        Assert.assertTrue(execute.canRetry());
+        execute.borrowConnection(null);
+        Assert.assertTrue(primary.contains(execute.getCurrentHostConnectionPool()));
+        Assert.assertNotSame(first, execute.getCurrentHostConnectionPool());
+
+        // Then the failover pools, nearest first
+        Assert.assertTrue(execute.canRetry());
+        execute.borrowConnection(null);
+        Assert.assertSame(failover.get(0), execute.getCurrentHostConnectionPool());
+        Assert.assertTrue(execute.canRetry());
+        execute.borrowConnection(null);
+        Assert.assertSame(failover.get(1), execute.getCurrentHostConnectionPool());
+
+        Assert.assertFalse(execute.canRetry());
+    }
+
+    @Test
+    public void testMaxFailoverCountIsRespected() throws ConnectionException {
+        ConnectionPoolConfigurationImpl config = new ConnectionPoolConfigurationImpl("tiered");
+        config.setMaxFailoverCount(2);
+
+        List<HostConnectionPool<TestClient>> primary  = makePools(0, 1);
+        List<HostConnectionPool<TestClient>> failover = makePools(1, 3);
+
+        TieredExecuteWithFailover<TestClient, String> execute = newExecute(config, primary, failover);
+        execute.borrowConnection(null);
+        Assert.assertSame(primary.get(0), execute.getCurrentHostConnectionPool());
+        Assert.assertTrue(execute.canRetry());
+        execute.borrowConnection(null);
+        Assert.assertSame(failover.get(0), execute.getCurrentHostConnectionPool());
+        Assert.assertFalse(execute.canRetry());
+    }
+
+    private TieredExecuteWithFailover<TestClient, String> newExecute(ConnectionPoolConfigurationImpl config,
+            List<HostConnectionPool<TestClient>> primary, List<HostConnectionPool<TestClient>> failover) throws ConnectionException {
+        EmptyConnectionPoolMonitor monitor = EmptyConnectionPoolMonitor.getInstance();
+        return new TieredExecuteWithFailover<TestClient, String>(config, monitor,
+                new RoundRobinExecuteWithFailover<TestClient, String>(config, monitor, primary, 0), failover);
+    }
+
+    private static List<HostConnectionPool<TestClient>> makePools(int first, int count) {
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (int i = first; i < first + count; i++) {
+            pools.add(new TestHostConnectionPool(new Host("127.0.0." + i, 7102)));
+        }
+        return pools;
+    }
+}
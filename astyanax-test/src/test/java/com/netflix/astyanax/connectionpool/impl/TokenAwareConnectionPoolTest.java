@@ -2,6 +2,7 @@ package com.netflix.astyanax.connectionpool.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 import java.math.BigInteger;
 import java.util.List;
@@ -24,6 +25,7 @@ import com.netflix.astyanax.serializers.BigIntegerSerializer;
 import com.netflix.astyanax.test.TestClient;
 import com.netflix.astyanax.test.TestConnectionFactory;
 import com.netflix.astyanax.test.TestConstants;
+import com.netflix.astyanax.test.TestHostType;
 import com.netflix.astyanax.test.TestOperation;
 import com.netflix.astyanax.test.TestTokenRange;
 import com.netflix.astyanax.test.TokenTestOperation;
@@ -208,6 +210,35 @@ public class TokenAwareConnectionPoolTest extends BaseConnectionPoolTest {
         LOG.info(hosts2.toString());
     }
 
+    @Test
+    public void testSetHostsAppliesDiff() {
+        AbstractHostPartitionConnectionPool<TestClient> cp = (AbstractHostPartitionConnectionPool<TestClient>) createPool();
+        Host first = new Host("127.0.1.0:" + TestHostType.GOOD_FAST.ordinal(), 9160);
+
+        cp.setHosts(makeRing(3, 1, 1));
+        HostConnectionPool<TestClient> firstPool = cp.getHostPool(first);
+        assertNotNull(firstPool);
+        assertEquals(3, cp.getActivePools().size());
+        assertEquals(3, cp.getTopology().getPartitionCount());
+
+        // The same ring keeps the existing pools
+        cp.setHosts(makeRing(3, 1, 1));
+        assertSame(firstPool, cp.getHostPool(first));
+        assertEquals(3, cp.getPools().size());
+
+        // A smaller ring removes a host and moves the tokens of the others
+        cp.setHosts(makeRing(2, 1, 1));
+        assertSame(firstPool, cp.getHostPool(first));
+        assertEquals(2, cp.getActivePools().size());
+        assertEquals(2, cp.getTopology().getPartitionCount());
+
+        // Added hosts join the topology once primed
+        cp.setHosts(makeRing(3, 1, 1));
+        assertSame(firstPool, cp.getHostPool(first));
+        assertEquals(3, cp.getActivePools().size());
+        assertEquals(3, cp.getTopology().getPartitionCount());
+    }
+
     private List<Host> makeRing(int nHosts, int replication_factor, int id) {
         return TestTokenRange.makeRing(nHosts,replication_factor,id,TokenGenerator.MINIMUM,TokenGenerator.MAXIMUM);
     }
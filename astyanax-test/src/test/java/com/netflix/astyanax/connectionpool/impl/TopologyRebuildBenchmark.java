@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
+import com.netflix.astyanax.partitioner.LongTokenPartitioner;
+import com.netflix.astyanax.partitioner.Murmur3Partitioner;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestHostConnectionPool;
+import com.netflix.astyanax.test.TestTokenRange;
+
+/**
+ * Measures the cost of rebuilding the partitions of a 1000 host ring with 256 vnodes per host, as done
+ * after every latency score update and whenever a host goes down or comes back up.  Compares filtering
+ * every partition with {@link LatencyScoreStrategy#sortAndfilterPartition} to the shared ranking used by
+ * {@link TokenPartitionedTopology#refresh()}.
+ *
+ * Run as a java application.  Prints ms and MB allocated per rebuild for each round.
+ */
+public class TopologyRebuildBenchmark {
+    private static final int HOSTS              = 1000;
+    private static final int TOKENS_PER_HOST    = 256;
+    private static final int REPLICATION_FACTOR = 3;
+    private static final int ROUNDS             = 5;
+
+    private static class ScoredPool extends TestHostConnectionPool {
+        private volatile double  score;
+        private volatile boolean reconnecting;
+
+        ScoredPool(Host host) {
+            super(host);
+        }
+
+        @Override
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public boolean isReconnecting() {
+            return reconnecting;
+        }
+    }
+
+    public static void main(String[] args) {
+        LatencyScoreStrategy strategy = new EmaLatencyScoreStrategyImpl(1000, 0, 20);
+        final Random random = new Random(1);
+
+        final List<ScoredPool> pools = Lists.newArrayList();
+        for (Host host : TestTokenRange.makeVnodeRing(HOSTS, TOKENS_PER_HOST, REPLICATION_FACTOR, random)) {
+            pools.add(new ScoredPool(host));
+        }
+        rescore(pools, random);
+
+        final LongTokenPartitionedTopology<TestClient> topology = new LongTokenPartitionedTopology<TestClient>(
+                (LongTokenPartitioner)Murmur3Partitioner.get(), strategy);
+        long start = System.nanoTime();
+        topology.setPools(Lists.<HostConnectionPool<TestClient>>newArrayList(pools));
+        System.out.println(String.format("Partitions: %d, initial build %d ms",
+                topology.getPartitionCount(), (System.nanoTime() - start) / 1000000));
+
+        final List<TokenHostConnectionPoolPartition<TestClient>> partitions = Lists.newArrayList(topology.getPartitions().values());
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final LatencyScoreStrategy legacy = strategy;
+            run("sortAndfilterPartition  ", new Runnable() {
+                @Override
+                public void run() {
+                    AtomicBoolean prioritized = new AtomicBoolean();
+                    for (TokenHostConnectionPoolPartition<TestClient> partition : partitions) {
+                        List<HostConnectionPool<TestClient>> active = Lists.newArrayList();
+                        for (HostConnectionPool<TestClient> pool : partition.getMembers()) {
+                            if (!pool.isReconnecting())
+                                active.add(pool);
+                        }
+                        legacy.sortAndfilterPartition(active, prioritized);
+                    }
+                }
+            });
+
+            rescore(pools, random);
+            run("refresh (new scores)    ", new Runnable() {
+                @Override
+                public void run() {
+                    topology.refresh();
+                }
+            });
+
+            run("refresh (same scores)   ", new Runnable() {
+                @Override
+                public void run() {
+                    topology.refresh();
+                }
+            });
+
+            final ScoredPool pool = pools.get(random.nextInt(pools.size()));
+            run("suspendPool + resumePool", new Runnable() {
+                @Override
+                public void run() {
+                    pool.reconnecting = true;
+                    topology.suspendPool(pool);
+                    pool.reconnecting = false;
+                    topology.resumePool(pool);
+                }
+            });
+        }
+    }
+
+    /**
+     * Scores similar to the EMA of operation latencies in ms, with a few slow hosts that get filtered out
+     */
+    private static void rescore(List<ScoredPool> pools, Random random) {
+        for (ScoredPool pool : pools) {
+            pool.score = random.nextInt(100) == 0 ? 50.0 : 1.0 + random.nextDouble();
+        }
+    }
+
+    private static void run(String name, Runnable rebuild) {
+        long startBytes = allocatedBytes();
+        long startTime  = System.nanoTime();
+        rebuild.run();
+        long elapsed    = System.nanoTime() - startTime;
+        long allocated  = allocatedBytes() - startBytes;
+
+        System.out.println(String.format("%s %8.1f ms %8.1f MB",
+                name, elapsed / 1000000.0, allocated / (1024.0 * 1024.0)));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.connectionpool.impl;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.LatencyScoreStrategy;
+import com.netflix.astyanax.partitioner.LongTokenPartitioner;
+import com.netflix.astyanax.partitioner.Murmur3Partitioner;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestHostConnectionPool;
+import com.netflix.astyanax.test.TestTokenRange;
+
+/**
+ * Measures the cost of routing a row key to its token partition on a 100 host ring with
+ * 256 vnodes per host, comparing the generic {@link TokenPartitionedTopology} with the
+ * primitive {@link LongTokenPartitionedTopology}.
+ *
+ * Run as a java application.  Prints ns/op and bytes allocated/op for each round.
+ */
+public class TopologyRoutingBenchmark {
+    private static final int HOSTS              = 100;
+    private static final int TOKENS_PER_HOST    = 256;
+    private static final int REPLICATION_FACTOR = 3;
+    private static final int KEYS               = 1 << 16;
+    private static final int OPS                = 5000000;
+    private static final int ROUNDS             = 5;
+
+    public static void main(String[] args) {
+        LatencyScoreStrategy strategy = new EmaLatencyScoreStrategyImpl(1000, 0, 20);
+        Random random = new Random(1);
+
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (Host host : TestTokenRange.makeVnodeRing(HOSTS, TOKENS_PER_HOST, REPLICATION_FACTOR, random)) {
+            pools.add(new TestHostConnectionPool(host));
+        }
+
+        TokenPartitionedTopology<TestClient> before = new TokenPartitionedTopology<TestClient>(Murmur3Partitioner.get(), strategy);
+        LongTokenPartitionedTopology<TestClient> after = new LongTokenPartitionedTopology<TestClient>(
+                (LongTokenPartitioner)Murmur3Partitioner.get(), strategy);
+        before.setPools(pools);
+        after.setPools(pools);
+        System.out.println("Partitions: " + after.getPartitionCount());
+
+        ByteBuffer[] keys = new ByteBuffer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            byte[] key = new byte[16];
+            random.nextBytes(key);
+            keys[i] = ByteBuffer.wrap(key);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            run("TokenPartitionedTopology    ", before, keys);
+            run("LongTokenPartitionedTopology", after,  keys);
+        }
+    }
+
+    private static void run(String name, Topology<TestClient> topology, ByteBuffer[] keys) {
+        long startBytes = allocatedBytes();
+        long startTime  = System.nanoTime();
+        int  sink       = 0;
+        for (int i = 0; i < OPS; i++) {
+            sink += topology.getPartition(keys[i & (KEYS - 1)]).getPools().size();
+        }
+        long elapsed    = System.nanoTime() - startTime;
+        long allocated  = allocatedBytes() - startBytes;
+
+        System.out.println(String.format("%s %8.1f ns/op %8.1f bytes/op (%d)",
+                name, (double)elapsed / OPS, (double)allocated / OPS, sink));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -12,8 +12,10 @@ import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableMap;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.TokenRange;
+import com.netflix.astyanax.connectionpool.impl.TokenRangeImpl;
 import com.netflix.astyanax.test.TestKeyspace;
 import com.netflix.astyanax.test.TestTokenRange;
 
@@ -59,6 +61,21 @@ public class RingDescribeHostSupplierTest {
 //        assertEquals(NODE3,endpoints.get(0).getIpAddress());
     }
 
+    @Test
+    public void testHostsCarryLocation() throws Exception {
+        Map<String, String> datacenters = ImmutableMap.of(NODE1, "us-east", NODE2, "us-west");
+        Map<String, String> racks       = ImmutableMap.of(NODE1, "1a");
+        keyspace.setTokenRange(Arrays.<TokenRange>asList(
+                new TokenRangeImpl(RANGE_1_END_TOKEN, RANGE_2_END_TOKEN, Arrays.asList(NODE1, NODE2, NODE3), datacenters, racks)));
+
+        List<Host> hosts = hostSupplier.get();
+        assertEquals(3, hosts.size());
+        for (Host host : hosts) {
+            assertEquals(datacenters.get(host.getIpAddress()), host.getDatacenter());
+            assertEquals(racks.get(host.getIpAddress()), host.getRack());
+        }
+    }
+
     private List<TokenRange> createTokenRange() {
        List<TokenRange> tokenRanges = new ArrayList<TokenRange>();
        TokenRange node1Range = new TestTokenRange(RANGE_3_END_TOKEN, RANGE_1_END_TOKEN, Arrays.asList(NODE1));
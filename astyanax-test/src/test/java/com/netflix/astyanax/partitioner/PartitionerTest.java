@@ -1,7 +1,10 @@
 package com.netflix.astyanax.partitioner;
 
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Random;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.netflix.astyanax.connectionpool.TokenRange;
@@ -36,4 +39,29 @@ public class PartitionerTest {
             System.out.println(range);
         }
     }
-}   
+
+    @Test
+    public void testMurmur3LongTokenMatchesCassandra() {
+        com.netflix.astyanax.shaded.org.apache.cassandra.dht.Murmur3Partitioner cassandra =
+                new com.netflix.astyanax.shaded.org.apache.cassandra.dht.Murmur3Partitioner();
+        Murmur3Partitioner partitioner = (Murmur3Partitioner) Murmur3Partitioner.get();
+        
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            byte[] bytes = new byte[i % 67];
+            random.nextBytes(bytes);
+            
+            // Hash a slice in the middle of a larger buffer to exercise the position/offset handling
+            ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 8);
+            buffer.position(4);
+            buffer.put(bytes);
+            buffer.position(4);
+            buffer.limit(4 + bytes.length);
+            
+            String expected = cassandra.getToken(buffer).toString();
+            Assert.assertEquals(expected, Long.toString(partitioner.getLongTokenForKey(buffer)));
+            Assert.assertEquals(expected, partitioner.getTokenForKey(buffer));
+            Assert.assertEquals(4, buffer.position());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.netflix.astyanax.thrift;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.netflix.astyanax.CassandraOperationType;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.impl.ConnectionPoolConfigurationImpl;
+
+public class AdaptiveSocketTimeoutsTest {
+
+    private final Host host = new Host("127.0.0.1", 9160);
+
+    private ConnectionPoolConfigurationImpl newConfig() {
+        return new ConnectionPoolConfigurationImpl("test")
+            .setSocketTimeout(10000)
+            .setMinSocketTimeout(20)
+            .setAdaptiveSocketTimeoutFactor(3)
+            .setAdaptiveSocketTimeoutPercentile(99);
+    }
+
+    private void addSamples(AdaptiveSocketTimeouts timeouts, CassandraOperationType type, long latencyMillis, int count) {
+        for (int i = 0; i < count; i++) {
+            timeouts.addSample(host, type, latencyMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Test
+    public void testDisabledUsesSocketTimeout() {
+        AdaptiveSocketTimeouts timeouts = new AdaptiveSocketTimeouts(newConfig().setAdaptiveSocketTimeoutFactor(0));
+        addSamples(timeouts, CassandraOperationType.GET_ROW, 10, AdaptiveSocketTimeouts.INTERVAL_SAMPLES);
+        Assert.assertEquals(10000, timeouts.getTimeout(host, CassandraOperationType.GET_ROW));
+    }
+
+    @Test
+    public void testTimeoutFollowsLatencyOfEachType() {
+        AdaptiveSocketTimeouts timeouts = new AdaptiveSocketTimeouts(newConfig());
+        Assert.assertEquals(10000, timeouts.getTimeout(host, CassandraOperationType.GET_ROW));
+
+        addSamples(timeouts, CassandraOperationType.GET_ROW, 10, AdaptiveSocketTimeouts.INTERVAL_SAMPLES);
+        addSamples(timeouts, CassandraOperationType.GET_ROWS_SLICE, 1000, AdaptiveSocketTimeouts.INTERVAL_SAMPLES);
+
+        int rowTimeout = timeouts.getTimeout(host, CassandraOperationType.GET_ROW);
+        Assert.assertTrue("Timeout " + rowTimeout, rowTimeout >= 30 && rowTimeout <= 32);
+        int sliceTimeout = timeouts.getTimeout(host, CassandraOperationType.GET_ROWS_SLICE);
+        Assert.assertTrue("Timeout " + sliceTimeout, sliceTimeout >= 3000 && sliceTimeout <= 3100);
+
+        // Unknown types and other hosts keep the static timeout
+        Assert.assertEquals(10000, timeouts.getTimeout(host, null));
+        Assert.assertEquals(10000, timeouts.getTimeout(new Host("127.0.0.2", 9160), CassandraOperationType.GET_ROW));
+    }
+
+    @Test
+    public void testTimeoutIsClamped() {
+        AdaptiveSocketTimeouts timeouts = new AdaptiveSocketTimeouts(newConfig());
+        addSamples(timeouts, CassandraOperationType.GET_ROW, 1, AdaptiveSocketTimeouts.INTERVAL_SAMPLES);
+        Assert.assertEquals(20, timeouts.getTimeout(host, CassandraOperationType.GET_ROW));
+
+        addSamples(timeouts, CassandraOperationType.GET_ROW, 5000, AdaptiveSocketTimeouts.INTERVAL_SAMPLES);
+        Assert.assertEquals(10000, timeouts.getTimeout(host, CassandraOperationType.GET_ROW));
+    }
+
+    @Test
+    public void testTimeoutFollowsRecentInterval() {
+        AdaptiveSocketTimeouts timeouts = new AdaptiveSocketTimeouts(newConfig());
+        addSamples(timeouts, CassandraOperationType.GET_ROW, 1000, AdaptiveSocketTimeouts.INTERVAL_SAMPLES);
+        Assert.assertTrue(timeouts.getTimeout(host, CassandraOperationType.GET_ROW) >= 3000);
+
+        addSamples(timeouts, CassandraOperationType.GET_ROW, 10, AdaptiveSocketTimeouts.INTERVAL_SAMPLES);
+        Assert.assertTrue(timeouts.getTimeout(host, CassandraOperationType.GET_ROW) <= 32);
+    }
+}
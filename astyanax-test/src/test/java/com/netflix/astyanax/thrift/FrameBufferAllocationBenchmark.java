@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright 2011 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.netflix.astyanax.thrift;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.ColumnParent;
+import org.apache.cassandra.thrift.ConsistencyLevel;
+import org.apache.cassandra.thrift.Mutation;
+import org.apache.cassandra.thrift.SlicePredicate;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.server.TNonblockingServer;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TNonblockingServerSocket;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.netflix.astyanax.serializers.StringSerializer;
+
+/**
+ * Measures the bytes allocated by the calling thread for each 1 MB batch_mutate, and for each get_slice with a
+ * 1 MB response, when the connection uses a {@link TFramedTransport} or a {@link PooledFramedTransport}.  The
+ * mutation map is built once, so the allocations are those of framing, serializing and decoding.  The server is
+ * an in-process thrift server over loopback that accepts any batch and returns the same row for every read.
+ *
+ * Also measures the heap that idle connections keep after sending a batch.  {@link TFramedTransport} keeps the
+ * largest frame it has written in each connection, while the pooled buffers are shared by all connections.
+ *
+ * Run as a java application.  Prints bytes/op and ms/op for each transport.
+ */
+public class FrameBufferAllocationBenchmark {
+    private static final int ROWS       = 100;
+    private static final int COLUMNS    = 10;
+    private static final int VALUE_SIZE = 1024;
+    private static final int OPS        = 200;
+    private static final int ROUNDS     = 3;
+
+    private interface Task {
+        void run(Cassandra.Client client) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        final int port = socket.getLocalPort();
+        socket.close();
+
+        final List<ColumnOrSuperColumn> row = Lists.newArrayList();
+        for (int i = 0; i < ROWS * COLUMNS; i++) {
+            row.add(new ColumnOrSuperColumn().setColumn(newColumn(i)));
+        }
+        final TNonblockingServer server = new TNonblockingServer(new TNonblockingServer.Args(new TNonblockingServerSocket(port))
+            .processor(new Cassandra.Processor<Cassandra.Iface>((Cassandra.Iface) Proxy.newProxyInstance(
+                    FrameBufferAllocationBenchmark.class.getClassLoader(), new Class<?>[] { Cassandra.Iface.class },
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            return method.getName().equals("get_slice") ? row : null;
+                        }
+                    }))));
+        Thread serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.serve();
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(500);
+
+        final Map<ByteBuffer, Map<String, List<Mutation>>> batch = Maps.newHashMap();
+        for (int i = 0; i < ROWS; i++) {
+            List<Mutation> mutations = Lists.newArrayList();
+            for (int j = 0; j < COLUMNS; j++) {
+                mutations.add(new Mutation().setColumn_or_supercolumn(new ColumnOrSuperColumn().setColumn(newColumn(j))));
+            }
+            Map<String, List<Mutation>> columnFamilies = Maps.newHashMap();
+            columnFamilies.put("cf", mutations);
+            batch.put(StringSerializer.get().toByteBuffer("row" + i), columnFamilies);
+        }
+
+        Task batchMutate = new Task() {
+            @Override
+            public void run(Cassandra.Client client) throws Exception {
+                client.batch_mutate(batch, ConsistencyLevel.ONE);
+            }
+        };
+        Task getSlice = new Task() {
+            @Override
+            public void run(Cassandra.Client client) throws Exception {
+                client.get_slice(StringSerializer.get().toByteBuffer("row"), new ColumnParent("cf"),
+                        new SlicePredicate().setColumn_names(Lists.<ByteBuffer>newArrayList()), ConsistencyLevel.ONE);
+            }
+        };
+
+        FrameBufferPool pool = new FrameBufferPool(16 * 1024 * 1024);
+        for (int round = 0; round < ROUNDS; round++) {
+            run("TFramedTransport      batch_mutate 1MB", port, null, batchMutate);
+            run("PooledFramedTransport batch_mutate 1MB", port, pool, batchMutate);
+            run("TFramedTransport      get_slice 1MB   ", port, null, getSlice);
+            run("PooledFramedTransport get_slice 1MB   ", port, pool, getSlice);
+            System.out.println();
+        }
+        System.out.println(pool);
+        System.out.println();
+
+        retained("TFramedTransport      batch_mutate 1MB", port, null, batchMutate);
+        retained("PooledFramedTransport batch_mutate 1MB", port, new FrameBufferPool(16 * 1024 * 1024), batchMutate);
+        server.stop();
+    }
+
+    private static Column newColumn(int index) {
+        return new Column(StringSerializer.get().toByteBuffer("column" + index))
+            .setValue(new byte[VALUE_SIZE])
+            .setTimestamp(index);
+    }
+
+    private static Cassandra.Client open(int port, FrameBufferPool pool) throws Exception {
+        TSocket socket = new TSocket("127.0.0.1", port);
+        TTransport transport;
+        TProtocol protocol;
+        if (pool != null) {
+            PooledFramedTransport pooled = new PooledFramedTransport(socket, pool, 16 * 1024 * 1024);
+            transport = pooled;
+            protocol = new PooledFramedTransport.Protocol(pooled);
+        }
+        else {
+            transport = new TFramedTransport(socket, 16 * 1024 * 1024);
+            protocol = new TBinaryProtocol(transport);
+        }
+        transport.open();
+        return new Cassandra.Client(protocol);
+    }
+
+    /**
+     * Heap still used by idle connections after each sent one batch, as a pool of connections would
+     */
+    private static void retained(String name, int port, FrameBufferPool pool, Task task) throws Exception {
+        int connections = 20;
+        long before = usedHeap();
+        List<Cassandra.Client> clients = Lists.newArrayList();
+        for (int i = 0; i < connections; i++) {
+            Cassandra.Client client = open(port, pool);
+            task.run(client);
+            if (pool != null)
+                ((PooledFramedTransport) client.getInputProtocol().getTransport()).releaseBuffers();
+            clients.add(client);
+        }
+        long retained = usedHeap() - before;
+        for (Cassandra.Client client : clients) {
+            client.getInputProtocol().getTransport().close();
+        }
+        System.out.println(String.format("%s %,12d bytes retained per idle connection", name, retained / connections));
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void run(String name, int port, FrameBufferPool pool, Task task) throws Exception {
+        Cassandra.Client client = open(port, pool);
+        TTransport transport = client.getInputProtocol().getTransport();
+
+        // Warm up the connection and the pool
+        for (int i = 0; i < 10; i++) {
+            task.run(client);
+            if (pool != null)
+                ((PooledFramedTransport) transport).releaseBuffers();
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < OPS; i++) {
+            task.run(client);
+            if (pool != null)
+                ((PooledFramedTransport) transport).releaseBuffers();
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+        transport.close();
+
+        System.out.println(String.format("%s %,12d bytes/op %8.3f ms/op", name, allocated / OPS, elapsed / 1e6 / OPS));
+    }
+}
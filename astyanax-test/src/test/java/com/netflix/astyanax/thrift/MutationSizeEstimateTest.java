@@ -0,0 +1,90 @@
+package com.netflix.astyanax.thrift;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.ColumnListMutation;
+import com.netflix.astyanax.impl.AstyanaxConfigurationImpl;
+import com.netflix.astyanax.model.ColumnFamily;
+import com.netflix.astyanax.serializers.StringSerializer;
+import com.netflix.astyanax.shallows.EmptyKeyspaceTracerFactory;
+
+public class MutationSizeEstimateTest {
+    private static final ColumnFamily<String, String> CF = ColumnFamily.newColumnFamily("cf", StringSerializer.get(), StringSerializer.get());
+
+    private static AbstractThriftMutationBatchImpl newBatch() {
+        return (AbstractThriftMutationBatchImpl) new ThriftKeyspaceImpl("ks", null, new AstyanaxConfigurationImpl(),
+                EmptyKeyspaceTracerFactory.getInstance()).prepareMutationBatch();
+    }
+
+    private static void assertClose(long expected, long estimate) {
+        Assert.assertTrue("estimate " + estimate + " for " + expected + " bytes",
+                estimate >= expected && estimate < expected * 1.1);
+    }
+
+    @Test
+    public void testEstimateIsCloseToSerializedSize() throws Exception {
+        AbstractThriftMutationBatchImpl batch = newBatch();
+        for (int i = 0; i < 100; i++) {
+            ColumnListMutation<String> row = batch.withRow(CF, "row" + i);
+            for (int j = 0; j < 10; j++) {
+                row.putColumn("column" + j, new byte[100 * (i % 5)], null);
+            }
+            row.incrementCounterColumn("counter", 1);
+            row.deleteColumn("a").deleteColumn("b");
+            if (i % 10 == 0)
+                row.delete();
+        }
+        Assert.assertEquals(100 * 12 + 10, batch.getMutationCount());
+        assertClose(batch.serialize().remaining(), batch.getEstimatedSize());
+
+        AbstractThriftMutationBatchImpl copy = newBatch();
+        copy.deserialize(batch.serialize());
+        Assert.assertEquals(batch.getEstimatedSize(), copy.getEstimatedSize());
+        Assert.assertEquals(batch.getMutationCount(), copy.getMutationCount());
+
+        // Discarding part of the batch takes its rows out of the estimate
+        List<ByteBuffer> rowKeys = Lists.newArrayList(batch.getMutationMap().keySet());
+        batch.discardMutations(rowKeys.subList(0, 50));
+        Assert.assertEquals(50 * 12 + 5, batch.getMutationCount());
+        assertClose(batch.serialize().remaining(), batch.getEstimatedSize());
+
+        batch.discardMutations();
+        Assert.assertEquals(0, batch.getEstimatedSize());
+        Assert.assertEquals(0, batch.getMutationCount());
+    }
+
+    @Test
+    public void testSplitBySize() {
+        AbstractThriftMutationBatchImpl batch = newBatch();
+        for (int i = 0; i < 20; i++) {
+            batch.withRow(CF, "row" + i).putColumn("column", new byte[i == 10 ? 50000 : 1000], null);
+        }
+        Assert.assertFalse(batch.isOversized(0, 0));
+        Assert.assertTrue(batch.isOversized(10000, 0));
+        Assert.assertTrue(batch.isOversized(0, 10));
+
+        List<ByteBuffer> rowKeys = Lists.newArrayList(batch.getMutationMap().keySet());
+        List<List<ByteBuffer>> groups = batch.splitBySize(Collections.singletonList(rowKeys), 5000, 0);
+        List<ByteBuffer> split = Lists.newArrayList();
+        for (List<ByteBuffer> group : groups) {
+            split.addAll(group);
+            // The large row is in a group of its own
+            if (group.contains(rowKeys.get(10)))
+                Assert.assertEquals(1, group.size());
+            else
+                Assert.assertTrue(group.size() <= 4);
+        }
+        Assert.assertEquals(rowKeys, split);
+
+        groups = batch.splitBySize(Collections.singletonList(rowKeys), 0, 3);
+        Assert.assertEquals(7, groups.size());
+        Assert.assertEquals(3, groups.get(0).size());
+    }
+}
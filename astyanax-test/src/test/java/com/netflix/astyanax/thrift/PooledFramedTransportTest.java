@@ -0,0 +1,141 @@
+package com.netflix.astyanax.thrift;
+
+import junit.framework.Assert;
+
+import org.apache.cassandra.thrift.Column;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.junit.Test;
+
+import com.netflix.astyanax.serializers.StringSerializer;
+
+public class PooledFramedTransportTest {
+
+    private static Column newColumn(String name, int valueSize) {
+        return new Column(StringSerializer.get().toByteBuffer(name))
+            .setValue(new byte[valueSize])
+            .setTimestamp(valueSize);
+    }
+
+    @Test
+    public void testSizeClasses() {
+        Assert.assertEquals(0, FrameBufferPool.getSizeClass(1));
+        Assert.assertEquals(0, FrameBufferPool.getSizeClass(FrameBufferPool.MIN_BUFFER_SIZE));
+        Assert.assertEquals(1, FrameBufferPool.getSizeClass(FrameBufferPool.MIN_BUFFER_SIZE + 1));
+        Assert.assertEquals(8, FrameBufferPool.getSizeClass(1024 * 1024));
+
+        FrameBufferPool pool = new FrameBufferPool(16 * 1024 * 1024);
+        byte[] buffer = pool.acquire(5000);
+        Assert.assertEquals(8192, buffer.length);
+        pool.release(buffer);
+        Assert.assertSame(buffer, pool.acquire(8000));
+        Assert.assertEquals(1, pool.getAllocatedCount());
+        Assert.assertEquals(1, pool.getReusedCount());
+
+        // Larger than a quarter of the pool is not pooled
+        byte[] large = pool.acquire(5 * 1024 * 1024);
+        Assert.assertEquals(5 * 1024 * 1024, large.length);
+        pool.release(large);
+        Assert.assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        FrameBufferPool pool = new FrameBufferPool(64 * 1024);
+        byte[][] buffers = new byte[5][];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.acquire(16 * 1024);
+        }
+        for (byte[] buffer : buffers) {
+            pool.release(buffer);
+        }
+        Assert.assertEquals(64 * 1024, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testCompatibleWithFramedTransport() throws Exception {
+        FrameBufferPool pool = new FrameBufferPool(16 * 1024 * 1024);
+        TMemoryBuffer wire = new TMemoryBuffer(1024);
+
+        TFramedTransport framed = new TFramedTransport(wire);
+        newColumn("framed", 100000).write(new TBinaryProtocol(framed));
+        framed.flush();
+
+        PooledFramedTransport pooled = new PooledFramedTransport(wire, pool, 16 * 1024 * 1024);
+        newColumn("pooled", 200000).write(new PooledFramedTransport.Protocol(pooled));
+        pooled.flush();
+
+        Column column = new Column();
+        column.read(new PooledFramedTransport.Protocol(pooled));
+        Assert.assertEquals("framed", StringSerializer.get().fromByteBuffer(column.bufferForName()));
+        Assert.assertEquals(100000, column.getValue().length);
+
+        column = new Column();
+        column.read(new TBinaryProtocol(new TFramedTransport(wire)));
+        Assert.assertEquals("pooled", StringSerializer.get().fromByteBuffer(column.bufferForName()));
+        Assert.assertEquals(200000, column.getValue().length);
+    }
+
+    @Test
+    public void testDecodedValuesSurviveBufferReuse() throws Exception {
+        FrameBufferPool pool = new FrameBufferPool(16 * 1024 * 1024);
+        TMemoryBuffer wire = new TMemoryBuffer(1024);
+        PooledFramedTransport writer = new PooledFramedTransport(wire, pool, 16 * 1024 * 1024);
+        PooledFramedTransport reader = new PooledFramedTransport(wire, pool, 16 * 1024 * 1024);
+        PooledFramedTransport.Protocol protocol = new PooledFramedTransport.Protocol(reader);
+
+        newColumn("first", 1000).write(new PooledFramedTransport.Protocol(writer));
+        writer.flush();
+        Column first = new Column();
+        first.read(protocol);
+        reader.releaseBuffers();
+
+        newColumn("second", 1000).write(new PooledFramedTransport.Protocol(writer));
+        writer.flush();
+        Column second = new Column();
+        second.read(protocol);
+        reader.releaseBuffers();
+
+        Assert.assertEquals(1, pool.getReusedCount());
+        Assert.assertEquals("first", StringSerializer.get().fromByteBuffer(first.bufferForName()));
+        Assert.assertEquals("second", StringSerializer.get().fromByteBuffer(second.bufferForName()));
+
+        // Values are slices of an exact size frame that is not pooled
+        Assert.assertSame(first.bufferForName().array(), first.bufferForValue().array());
+        Assert.assertNotSame(first.bufferForName().array(), second.bufferForName().array());
+        Assert.assertTrue(first.bufferForName().capacity() < FrameBufferPool.MIN_BUFFER_SIZE);
+        Assert.assertEquals(FrameBufferPool.MIN_BUFFER_SIZE, pool.getPooledBytes());
+    }
+
+    @Test(expected = TProtocolException.class)
+    public void testLengthBeyondFrameFailsRead() throws Exception {
+        TMemoryBuffer wire = new TMemoryBuffer(1024);
+        TFramedTransport framed = new TFramedTransport(wire);
+        new TBinaryProtocol(framed).writeI32(1000);
+        framed.flush();
+
+        PooledFramedTransport pooled = new PooledFramedTransport(wire, new FrameBufferPool(16 * 1024 * 1024), 16 * 1024 * 1024);
+        new PooledFramedTransport.Protocol(pooled).readBinary();
+    }
+
+    @Test
+    public void testWriteBufferStartsAtLastFrameSize() throws Exception {
+        FrameBufferPool pool = new FrameBufferPool(16 * 1024 * 1024);
+        TMemoryBuffer wire = new TMemoryBuffer(1024);
+        PooledFramedTransport transport = new PooledFramedTransport(wire, pool, 16 * 1024 * 1024);
+
+        newColumn("column", 1024 * 1024).write(new PooledFramedTransport.Protocol(transport));
+        transport.flush();
+        long allocated = pool.getAllocatedCount();
+
+        // Only the first frame grows its buffer
+        for (int i = 0; i < 9; i++) {
+            newColumn("column", 1024 * 1024).write(new PooledFramedTransport.Protocol(transport));
+            transport.flush();
+        }
+        Assert.assertEquals(allocated, pool.getAllocatedCount());
+        Assert.assertTrue(pool.getReusedCount() >= 9);
+    }
+}
@@ -0,0 +1,298 @@
+package com.netflix.astyanax.thrift;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.ColumnParent;
+import org.apache.cassandra.thrift.ConsistencyLevel;
+import org.apache.cassandra.thrift.SlicePredicate;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.server.TNonblockingServer;
+import org.apache.thrift.transport.TNonblockingServerSocket;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.netflix.astyanax.AstyanaxContext;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.NodeDiscoveryType;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConcurrencyLimitExceededException;
+import com.netflix.astyanax.connectionpool.exceptions.NoAvailableHostsException;
+import com.netflix.astyanax.connectionpool.exceptions.PoolTimeoutException;
+import com.netflix.astyanax.connectionpool.impl.AbstractHostPartitionConnectionPool;
+import com.netflix.astyanax.connectionpool.impl.BagOfConnectionsConnectionPoolImpl;
+import com.netflix.astyanax.connectionpool.impl.ConnectionPoolConfigurationImpl;
+import com.netflix.astyanax.connectionpool.impl.ConnectionPoolType;
+import com.netflix.astyanax.connectionpool.impl.CountingConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.impl.GradientConcurrencyLimiter;
+import com.netflix.astyanax.connectionpool.impl.RoundRobinConnectionPoolImpl;
+import com.netflix.astyanax.impl.AstyanaxConfigurationImpl;
+import com.netflix.astyanax.serializers.StringSerializer;
+import com.netflix.astyanax.shallows.EmptyKeyspaceTracer;
+import com.netflix.astyanax.shallows.EmptyKeyspaceTracerFactory;
+
+public class ThriftNonBlockingExecutorTest {
+
+    private TNonblockingServer server;
+    private Thread             serverThread;
+    private int                port;
+    private volatile String    keyspace;
+
+    private AstyanaxConfigurationImpl       asConfig;
+    private ConnectionPoolConfigurationImpl cpConfig;
+    private CountingConnectionPoolMonitor   monitor;
+    private AbstractHostPartitionConnectionPool<Cassandra.Client> pool;
+    private ThriftNonBlockingExecutor       executor;
+
+    /**
+     * Server that returns one column named after the key for get_slice.  The key "slow" takes 500 msec, during
+     * which the server does not answer other calls.
+     */
+    private Cassandra.Iface newHandler() {
+        return (Cassandra.Iface) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Cassandra.Iface.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("set_keyspace")) {
+                            keyspace = (String) args[0];
+                            return null;
+                        }
+                        if (method.getName().equals("get_slice")) {
+                            String key = StringSerializer.get().fromByteBuffer((ByteBuffer) args[0]);
+                            if (key.equals("slow"))
+                                Thread.sleep(500);
+                            Column column = new Column(StringSerializer.get().toByteBuffer(key))
+                                .setValue(new byte[0]).setTimestamp(1);
+                            return Lists.newArrayList(new ColumnOrSuperColumn().setColumn(column));
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        port = socket.getLocalPort();
+        socket.close();
+
+        server = new TNonblockingServer(new TNonblockingServer.Args(new TNonblockingServerSocket(port))
+            .processor(new Cassandra.Processor<Cassandra.Iface>(newHandler())));
+        serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.serve();
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        asConfig = new AstyanaxConfigurationImpl()
+            .setNonBlockingSelectorThreads(1);
+        cpConfig = new ConnectionPoolConfigurationImpl("test")
+            .setInitConnsPerHost(0)
+            .setMaxConnsPerHost(2)
+            .setMaxBlockedThreadsPerHost(200)
+            .setMaxFailoverCount(2)
+            .setConnectTimeout(1000)
+            .setSocketTimeout(2000);
+    }
+
+    /**
+     * Create the pool and executor once the test has configured them
+     */
+    private void startExecutor() throws Exception {
+        startExecutor(ConnectionPoolType.ROUND_ROBIN);
+    }
+
+    private void startExecutor(ConnectionPoolType type) throws Exception {
+        cpConfig.initialize();
+        monitor = new CountingConnectionPoolMonitor();
+        ThriftSyncConnectionFactoryImpl factory = new ThriftSyncConnectionFactoryImpl(asConfig, cpConfig,
+                EmptyKeyspaceTracerFactory.getInstance(), monitor);
+        if (type == ConnectionPoolType.BAG)
+            pool = new BagOfConnectionsConnectionPoolImpl<Cassandra.Client>(cpConfig, factory, monitor);
+        else
+            pool = new RoundRobinConnectionPoolImpl<Cassandra.Client>(cpConfig, factory, monitor);
+        executor = new ThriftNonBlockingExecutor(asConfig, pool);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (executor != null) {
+            executor.shutdown();
+            pool.shutdown();
+            cpConfig.shutdown();
+        }
+        server.stop();
+        serverThread.join(5000);
+    }
+
+    private AbstractAsyncOperationImpl<Cassandra.AsyncClient.get_slice_call, String> newRead(final String key) {
+        return new AbstractAsyncOperationImpl<Cassandra.AsyncClient.get_slice_call, String>(EmptyKeyspaceTracer.getInstance(), "ks") {
+            @Override
+            protected void start(Cassandra.AsyncClient client, AsyncMethodCallback<Cassandra.AsyncClient.get_slice_call> callback) throws Exception {
+                client.get_slice(StringSerializer.get().toByteBuffer(key), new ColumnParent("cf"),
+                        new SlicePredicate().setColumn_names(Lists.<ByteBuffer>newArrayList()), ConsistencyLevel.ONE, callback);
+            }
+
+            @Override
+            protected String getResult(Cassandra.AsyncClient.get_slice_call call) throws Exception {
+                List<ColumnOrSuperColumn> columns = call.getResult();
+                return StringSerializer.get().fromByteBuffer(columns.get(0).getColumn().bufferForName());
+            }
+        };
+    }
+
+    @Test
+    public void testManyOperationsInFlight() throws Exception {
+        startExecutor();
+        pool.addHost(new Host("127.0.0.1", port), true);
+
+        List<ListenableFuture<OperationResult<String>>> futures = Lists.newArrayList();
+        for (int i = 0; i < 200; i++) {
+            futures.add(executor.execute(newRead("key" + i)));
+        }
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals("key" + i, futures.get(i).get(10, TimeUnit.SECONDS).getResult());
+        }
+        Assert.assertEquals("ks", keyspace);
+        Assert.assertEquals(200, monitor.getOperationSuccessCount());
+
+        // A second connection was opened while the first was busy, and no more than maxConnsPerHost
+        Assert.assertEquals(2, executor.getChannelCount());
+    }
+
+    @Test
+    public void testFailoverFromUnreachableHost() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        int deadPort = socket.getLocalPort();
+        socket.close();
+
+        startExecutor();
+        pool.addHost(new Host("127.0.0.1", deadPort), true);
+        pool.addHost(new Host("127.0.0.1", port), true);
+
+        for (int i = 0; i < 10; i++) {
+            OperationResult<String> result = executor.execute(newRead("key" + i)).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals("key" + i, result.getResult());
+            Assert.assertEquals(port, result.getHost().getPort());
+        }
+        Assert.assertTrue(monitor.getFailoverCount() > 0);
+    }
+
+    @Test
+    public void testBagOfConnectionsPool() throws Exception {
+        startExecutor(ConnectionPoolType.BAG);
+        pool.addHost(new Host("127.0.0.1", port), true);
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("key" + i, executor.execute(newRead("key" + i)).get(10, TimeUnit.SECONDS).getResult());
+        }
+        Assert.assertEquals(10, monitor.getOperationSuccessCount());
+    }
+
+    @Test
+    public void testNoHosts() throws Exception {
+        startExecutor();
+        try {
+            executor.execute(newRead("key")).get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        }
+        catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof NoAvailableHostsException);
+        }
+    }
+
+    @Test
+    public void testQueueIsBoundedAndTimesOut() throws Exception {
+        cpConfig.setMaxConnsPerHost(1)
+            .setMaxBlockedThreadsPerHost(1)
+            .setMaxTimeoutWhenExhausted(100);
+        startExecutor();
+        pool.addHost(new Host("127.0.0.1", port), true);
+
+        ListenableFuture<OperationResult<String>> slow = executor.execute(newRead("slow"));
+        ListenableFuture<OperationResult<String>> queued = executor.execute(newRead("key1"));
+
+        // The queue of the host is full
+        assertFailsWith(PoolTimeoutException.class, executor.execute(newRead("key2")), 0);
+
+        // The queued read gives up long before the slow one completes
+        long start = System.nanoTime();
+        assertFailsWith(PoolTimeoutException.class, queued, 400);
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400);
+
+        Assert.assertEquals("slow", slow.get(10, TimeUnit.SECONDS).getResult());
+        Assert.assertEquals("key3", executor.execute(newRead("key3")).get(10, TimeUnit.SECONDS).getResult());
+        Assert.assertEquals(1, executor.getChannelCount());
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        cpConfig.setConcurrencyLimiter(new GradientConcurrencyLimiter(1, 1, 1));
+        startExecutor();
+        pool.addHost(new Host("127.0.0.1", port), true);
+
+        ListenableFuture<OperationResult<String>> slow = executor.execute(newRead("slow"));
+        assertFailsWith(ConcurrencyLimitExceededException.class, executor.execute(newRead("key1")), 10000);
+
+        // The slot is released once the slow read completes
+        Assert.assertEquals("slow", slow.get(10, TimeUnit.SECONDS).getResult());
+        Assert.assertEquals("key2", executor.execute(newRead("key2")).get(10, TimeUnit.SECONDS).getResult());
+    }
+
+    @Test
+    public void testContextShutdownClosesChannels() throws Exception {
+        AstyanaxContext<Keyspace> context = new AstyanaxContext.Builder()
+            .forCluster("test")
+            .forKeyspace("ks")
+            .withAstyanaxConfiguration(asConfig
+                .setDiscoveryType(NodeDiscoveryType.NONE)
+                .setConnectionPoolType(ConnectionPoolType.ROUND_ROBIN))
+            .withConnectionPoolConfiguration(cpConfig
+                .setSeeds("127.0.0.1:" + port))
+            .withConnectionPoolMonitor(new CountingConnectionPoolMonitor())
+            .buildKeyspace(ThriftFamilyFactory.getInstance());
+        context.start();
+
+        ThriftNonBlockingExecutor contextExecutor = ((ThriftKeyspaceImpl) context.getClient()).getNonBlockingExecutor();
+        try {
+            Assert.assertEquals("key", contextExecutor.execute(newRead("key")).get(10, TimeUnit.SECONDS).getResult());
+            Assert.assertEquals(1, contextExecutor.getChannelCount());
+        }
+        finally {
+            context.shutdown();
+        }
+        Assert.assertEquals(0, contextExecutor.getChannelCount());
+    }
+
+    private static void assertFailsWith(Class<? extends Exception> type, ListenableFuture<?> future, long timeout) throws Exception {
+        try {
+            if (timeout > 0)
+                future.get(timeout, TimeUnit.MILLISECONDS);
+            else
+                Assert.assertTrue(future.isDone());
+            future.get();
+            Assert.fail();
+        }
+        catch (ExecutionException e) {
+            Assert.assertTrue(String.valueOf(e.getCause()), type.isInstance(e.getCause()));
+        }
+    }
+}
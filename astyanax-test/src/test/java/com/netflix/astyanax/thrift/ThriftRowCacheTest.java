@@ -0,0 +1,182 @@
+package com.netflix.astyanax.thrift;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.Mutation;
+import org.apache.cassandra.thrift.SlicePredicate;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.impl.AstyanaxConfigurationImpl;
+import com.netflix.astyanax.serializers.StringSerializer;
+
+public class ThriftRowCacheTest {
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    @Test
+    public void testHitAndMiss() {
+        ThriftRowCache cache = newCache(1000000);
+        List<ColumnOrSuperColumn> columns = columns("a", "b");
+
+        Assert.assertNull(cache.get("cf", key("row"), slice("a", "b")));
+        cache.put("cf", key("row"), slice("a", "b"), columns, cache.getGeneration("cf"));
+
+        Assert.assertEquals(columns, cache.get("cf", key("row"), slice("a", "b")));
+        Assert.assertNull(cache.get("cf", key("row"), slice("a")));
+        Assert.assertNull(cache.get("other", key("row"), slice("a", "b")));
+        Assert.assertNull(cache.get("cf", key("other"), slice("a", "b")));
+
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testColumnFamilyTtl() {
+        AstyanaxConfigurationImpl config = new AstyanaxConfigurationImpl()
+            .setRowCacheMaxSizeInBytes(1000000)
+            .setRowCacheTtl(10, TimeUnit.SECONDS)
+            .setRowCacheTtl("short", 1, TimeUnit.SECONDS)
+            .setRowCacheTtl("uncached", 0, TimeUnit.SECONDS);
+        ThriftRowCache cache = new ThriftRowCache(config, ticker);
+
+        cache.put("short",    key("row"), slice("a"), columns("a"), cache.getGeneration("short"));
+        cache.put("long",     key("row"), slice("a"), columns("a"), cache.getGeneration("long"));
+        cache.put("uncached", key("row"), slice("a"), columns("a"), cache.getGeneration("uncached"));
+        Assert.assertNull(cache.get("uncached", key("row"), slice("a")));
+
+        ticker.nanos = TimeUnit.SECONDS.toNanos(2);
+        Assert.assertNull(cache.get("short", key("row"), slice("a")));
+        Assert.assertNotNull(cache.get("long", key("row"), slice("a")));
+        Assert.assertEquals(1, cache.getEvictionCount());
+
+        ticker.nanos = TimeUnit.SECONDS.toNanos(11);
+        Assert.assertNull(cache.get("long", key("row"), slice("a")));
+    }
+
+    @Test
+    public void testInvalidateRow() {
+        ThriftRowCache cache = newCache(1000000);
+        cache.put("cf", key("row"),   slice("a"),      columns("a"),      cache.getGeneration("cf"));
+        cache.put("cf", key("row"),   slice("a", "b"), columns("a", "b"), cache.getGeneration("cf"));
+        cache.put("cf", key("other"), slice("a"),      columns("a"),      cache.getGeneration("cf"));
+
+        cache.invalidate("cf", key("row"));
+        Assert.assertNull(cache.get("cf", key("row"), slice("a")));
+        Assert.assertNull(cache.get("cf", key("row"), slice("a", "b")));
+        Assert.assertNotNull(cache.get("cf", key("other"), slice("a")));
+
+        cache.invalidate("cf");
+        Assert.assertNull(cache.get("cf", key("other"), slice("a")));
+        Assert.assertEquals(2, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testReadInFlightDuringInvalidationIsNotCached() {
+        ThriftRowCache cache = newCache(1000000);
+        long generation = cache.getGeneration("cf");
+        cache.invalidate("cf", key("row"));
+
+        cache.put("cf", key("row"), slice("a"), columns("a"), generation);
+        Assert.assertNull(cache.get("cf", key("row"), slice("a")));
+        Assert.assertEquals(0, cache.getRowCount());
+    }
+
+    @Test
+    public void testInvalidationOfOtherColumnFamilyDoesNotStopCaching() {
+        ThriftRowCache cache = newCache(1000000);
+        long generation = cache.getGeneration("cf");
+        cache.invalidate("other", key("row"));
+        cache.invalidate(ImmutableMap.<ByteBuffer, Map<String, List<Mutation>>>of(
+                key("row"), ImmutableMap.<String, List<Mutation>>of("other", Lists.<Mutation>newArrayList())));
+
+        cache.put("cf", key("row"), slice("a"), columns("a"), generation);
+        Assert.assertNotNull(cache.get("cf", key("row"), slice("a")));
+
+        cache.invalidateAll();
+        cache.put("cf", key("row"), slice("a"), columns("a"), generation);
+        Assert.assertNull(cache.get("cf", key("row"), slice("a")));
+    }
+
+    @Test
+    public void testCachedColumnsAreCopiedOutOfTheResponse() {
+        ThriftRowCache cache = newCache(1000000);
+        byte[] frame = new byte[100000];
+        ByteBuffer name = ByteBuffer.wrap(frame, 10, 1);
+        ByteBuffer value = ByteBuffer.wrap(frame, 20, 5);
+        List<ColumnOrSuperColumn> columns = Lists.newArrayList(
+                new ColumnOrSuperColumn().setColumn(new Column(name.slice()).setValue(value.slice()).setTimestamp(0)));
+        cache.put("cf", key("row"), slice("a"), columns, cache.getGeneration("cf"));
+
+        Column cached = cache.get("cf", key("row"), slice("a")).get(0).getColumn();
+        Assert.assertEquals(name, cached.bufferForName());
+        Assert.assertEquals(value, cached.bufferForValue());
+        Assert.assertEquals(1, cached.bufferForName().array().length);
+        Assert.assertEquals(5, cached.bufferForValue().array().length);
+    }
+
+    @Test
+    public void testInvalidateMutationBatch() {
+        ThriftRowCache cache = newCache(1000000);
+        cache.put("cf1", key("row1"), slice("a"), columns("a"), cache.getGeneration("cf1"));
+        cache.put("cf2", key("row1"), slice("a"), columns("a"), cache.getGeneration("cf2"));
+        cache.put("cf1", key("row2"), slice("a"), columns("a"), cache.getGeneration("cf1"));
+
+        Map<ByteBuffer, Map<String, List<Mutation>>> mutations = ImmutableMap.<ByteBuffer, Map<String, List<Mutation>>>of(
+                key("row1"), ImmutableMap.<String, List<Mutation>>of("cf1", Lists.<Mutation>newArrayList()));
+        cache.invalidate(mutations);
+
+        Assert.assertNull(cache.get("cf1", key("row1"), slice("a")));
+        Assert.assertNotNull(cache.get("cf2", key("row1"), slice("a")));
+        Assert.assertNotNull(cache.get("cf1", key("row2"), slice("a")));
+    }
+
+    @Test
+    public void testSizeBound() {
+        ThriftRowCache cache = newCache(4000);
+        for (int i = 0; i < 100; i++) {
+            cache.put("cf", key("row" + i), slice("a"), columns("a"), cache.getGeneration("cf"));
+        }
+        Assert.assertTrue("Rows " + cache.getRowCount(), cache.getRowCount() < 100);
+        Assert.assertEquals(100 - cache.getRowCount(), cache.getEvictionCount());
+        Assert.assertNotNull(cache.get("cf", key("row99"), slice("a")));
+    }
+
+    private ThriftRowCache newCache(long maxSizeInBytes) {
+        return new ThriftRowCache(new AstyanaxConfigurationImpl().setRowCacheMaxSizeInBytes(maxSizeInBytes), ticker);
+    }
+
+    private static ByteBuffer key(String key) {
+        return StringSerializer.get().toByteBuffer(key);
+    }
+
+    private static SlicePredicate slice(String... names) {
+        return new SlicePredicate().setColumn_names(StringSerializer.get().toBytesList(Lists.newArrayList(names)));
+    }
+
+    private static List<ColumnOrSuperColumn> columns(String... names) {
+        List<ColumnOrSuperColumn> columns = Lists.newArrayList();
+        for (String name : names) {
+            columns.add(new ColumnOrSuperColumn().setColumn(new Column(key(name)).setValue(key("value")).setTimestamp(0)));
+        }
+        return columns;
+    }
+}
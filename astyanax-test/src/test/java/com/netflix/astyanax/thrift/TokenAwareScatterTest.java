@@ -0,0 +1,281 @@
+package com.netflix.astyanax.thrift;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.thrift.server.TNonblockingServer;
+import org.apache.thrift.transport.TNonblockingServerSocket;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.PartialMutationException;
+import com.netflix.astyanax.connectionpool.impl.ConnectionPoolConfigurationImpl;
+import com.netflix.astyanax.connectionpool.impl.CountingConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.impl.ReplicaGrouper;
+import com.netflix.astyanax.connectionpool.impl.RoundRobinConnectionPoolImpl;
+import com.netflix.astyanax.connectionpool.impl.SmaLatencyScoreStrategyImpl;
+import com.netflix.astyanax.connectionpool.impl.TokenPartitionedTopology;
+import com.netflix.astyanax.impl.AstyanaxConfigurationImpl;
+import com.netflix.astyanax.model.ColumnFamily;
+import com.netflix.astyanax.model.Row;
+import com.netflix.astyanax.model.Rows;
+import com.netflix.astyanax.partitioner.Murmur3Partitioner;
+import com.netflix.astyanax.serializers.StringSerializer;
+import com.netflix.astyanax.shallows.EmptyKeyspaceTracerFactory;
+import com.netflix.astyanax.test.TestClient;
+import com.netflix.astyanax.test.TestHostConnectionPool;
+import com.netflix.astyanax.test.TestTokenRange;
+
+public class TokenAwareScatterTest {
+
+    private final AtomicInteger multigets    = new AtomicInteger();
+    private final AtomicInteger batchMutates = new AtomicInteger();
+    private final AtomicInteger writtenRows  = new AtomicInteger();
+    private volatile boolean    failBadRow   = true;
+
+    private AstyanaxConfigurationImpl       asConfig;
+    private TNonblockingServer              server;
+    private Thread                          serverThread;
+    private ConnectionPoolConfigurationImpl cpConfig;
+    private RoundRobinConnectionPoolImpl<Cassandra.Client> pool;
+    private ThriftKeyspaceImpl              keyspace;
+    private ColumnFamily<String, String>    cf = ColumnFamily.newColumnFamily("cf", StringSerializer.get(), StringSerializer.get());
+
+    /**
+     * Server that returns one column named after the key for each row of a multiget and fails any
+     * batch_mutate with the row "bad"
+     */
+    private Cassandra.Iface newHandler() {
+        return (Cassandra.Iface) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Cassandra.Iface.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("set_keyspace"))
+                            return null;
+                        if (method.getName().equals("multiget_slice")) {
+                            multigets.incrementAndGet();
+                            Map<ByteBuffer, List<ColumnOrSuperColumn>> rows = Maps.newHashMap();
+                            for (Object key : (List<?>) args[0]) {
+                                Column column = new Column(((ByteBuffer) key).duplicate()).setValue(new byte[0]).setTimestamp(1);
+                                rows.put((ByteBuffer) key, Lists.newArrayList(new ColumnOrSuperColumn().setColumn(column)));
+                            }
+                            return rows;
+                        }
+                        if (method.getName().equals("batch_mutate")) {
+                            Set<?> rows = ((Map<?, ?>) args[0]).keySet();
+                            if (failBadRow && rows.contains(StringSerializer.get().toByteBuffer("bad")))
+                                throw new InvalidRequestException("bad row");
+                            batchMutates.incrementAndGet();
+                            writtenRows.addAndGet(rows.size());
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        int port = socket.getLocalPort();
+        socket.close();
+        server = new TNonblockingServer(new TNonblockingServer.Args(new TNonblockingServerSocket(port))
+            .processor(new Cassandra.Processor<Cassandra.Iface>(newHandler())));
+        serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.serve();
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        asConfig = new AstyanaxConfigurationImpl().setScatterMaxKeys(10);
+        cpConfig = new ConnectionPoolConfigurationImpl("test")
+            .setInitConnsPerHost(0)
+            .setConnectTimeout(1000)
+            .setSocketTimeout(2000);
+        cpConfig.initialize();
+        CountingConnectionPoolMonitor monitor = new CountingConnectionPoolMonitor();
+        pool = new RoundRobinConnectionPoolImpl<Cassandra.Client>(cpConfig,
+                new ThriftSyncConnectionFactoryImpl(asConfig, cpConfig, EmptyKeyspaceTracerFactory.getInstance(), monitor), monitor);
+        pool.addHost(new Host("127.0.0.1", port), true);
+        keyspace = new ThriftKeyspaceImpl("ks", pool, asConfig, EmptyKeyspaceTracerFactory.getInstance());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.shutdown();
+        cpConfig.shutdown();
+        server.stop();
+        serverThread.join(5000);
+    }
+
+    private static List<ByteBuffer> newKeys(int count) {
+        List<ByteBuffer> keys = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            keys.add(StringSerializer.get().toByteBuffer("key" + i));
+        }
+        return keys;
+    }
+
+    @Test
+    public void testGroupsByReplicaSet() {
+        TokenPartitionedTopology<TestClient> topology = new TokenPartitionedTopology<TestClient>(Murmur3Partitioner.get(),
+                new SmaLatencyScoreStrategyImpl(10000, 60000, 100, 4.0));
+        List<HostConnectionPool<TestClient>> pools = Lists.newArrayList();
+        for (Host host : TestTokenRange.makeVnodeRing(6, 8, 3, new Random(1))) {
+            pools.add(new TestHostConnectionPool(host));
+        }
+        topology.setPools(pools);
+
+        List<ByteBuffer> keys = newKeys(500);
+        List<ByteBuffer> withDuplicates = Lists.newArrayList(keys);
+        withDuplicates.addAll(keys.subList(0, 10));
+
+        List<List<ByteBuffer>> groups = ReplicaGrouper.groupByReplicas(topology, withDuplicates, 50);
+        Set<ByteBuffer> grouped = Sets.newHashSet();
+        Set<Set<HostConnectionPool<TestClient>>> replicaSets = Sets.newHashSet();
+        int count = 0;
+        for (List<ByteBuffer> group : groups) {
+            Assert.assertTrue(group.size() <= 50);
+            Set<HostConnectionPool<TestClient>> replicas = ImmutableSet.copyOf(topology.getPartition(group.get(0)).getMembers());
+            for (ByteBuffer key : group) {
+                Assert.assertEquals(replicas, ImmutableSet.copyOf(topology.getPartition(key).getMembers()));
+                grouped.add(key);
+                count++;
+            }
+            replicaSets.add(replicas);
+        }
+        Assert.assertEquals(500, count);
+        Assert.assertEquals(Sets.newHashSet(keys), grouped);
+        Assert.assertTrue(replicaSets.size() > 1);
+        Assert.assertTrue(replicaSets.size() < topology.getPartitionCount());
+    }
+
+    @Test
+    public void testWithoutTopology() {
+        List<ByteBuffer> keys = newKeys(25);
+        List<List<ByteBuffer>> groups = ReplicaGrouper.groupByReplicas(null, keys, 10);
+        Assert.assertEquals(3, groups.size());
+        Assert.assertEquals(keys.subList(0, 10), groups.get(0));
+        Assert.assertEquals(keys.subList(20, 25), groups.get(2));
+    }
+
+    @Test
+    public void testRowSliceInKeyOrder() throws Exception {
+        List<String> keys = Lists.newArrayList();
+        for (int i = 35; i > 0; i--) {
+            keys.add("key" + i);
+        }
+
+        Rows<String, String> rows = keyspace.prepareQuery(cf).withTokenAwareScatter(true).getKeySlice(keys).execute().getResult();
+        Assert.assertEquals(4, multigets.get());
+        assertInOrder(keys, rows);
+
+        rows = keyspace.prepareQuery(cf).withTokenAwareScatter(true).getKeySlice(keys).executeAsync()
+            .get(10, TimeUnit.SECONDS).getResult();
+        Assert.assertEquals(8, multigets.get());
+        assertInOrder(keys, rows);
+    }
+
+    @Test
+    public void testMutationBatchScatter() throws Exception {
+        MutationBatch batch = keyspace.prepareMutationBatch().withTokenAwareScatter(true);
+        for (int i = 0; i < 35; i++) {
+            batch.withRow(cf, "key" + i).putColumn("column", "value");
+        }
+        OperationResult<Void> result = batch.execute();
+        Assert.assertEquals(4, batchMutates.get());
+        Assert.assertEquals(35, writtenRows.get());
+        Assert.assertTrue(result.getAttemptsCount() >= 4);
+        Assert.assertTrue(batch.isEmpty());
+
+        for (int i = 0; i < 35; i++) {
+            batch.withRow(cf, "key" + i).putColumn("column", "value");
+        }
+        batch.executeAsync().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(8, batchMutates.get());
+        Assert.assertTrue(batch.isEmpty());
+    }
+
+    @Test
+    public void testMutationBatchPartialFailure() throws Exception {
+        MutationBatch batch = keyspace.prepareMutationBatch().withTokenAwareScatter(true);
+        for (int i = 0; i < 34; i++) {
+            batch.withRow(cf, "key" + i).putColumn("column", "value");
+        }
+        batch.withRow(cf, "bad").putColumn("column", "value");
+
+        try {
+            batch.execute();
+            Assert.fail();
+        }
+        catch (PartialMutationException e) {
+            Assert.assertEquals(5, e.getFailedRows().size());
+            Assert.assertTrue(e.getFailedRows().containsKey(StringSerializer.get().toByteBuffer("bad")));
+            Assert.assertEquals(30, e.getSucceededRows().size());
+            Assert.assertEquals(3, e.getResults().size());
+        }
+        Assert.assertEquals(30, writtenRows.get());
+
+        // Only the rows that failed are written again
+        Assert.assertEquals(5, batch.getRowCount());
+        failBadRow = false;
+        batch.execute();
+        Assert.assertEquals(35, writtenRows.get());
+        Assert.assertTrue(batch.isEmpty());
+    }
+
+    @Test
+    public void testOversizedBatchIsSplit() throws Exception {
+        asConfig.setMutationBatchSplitBytes(20000);
+        MutationBatch batch = keyspace.prepareMutationBatch();
+        for (int i = 0; i < 35; i++) {
+            batch.withRow(cf, "key" + i).putColumn("column", new byte[1000], null);
+        }
+        batch.execute();
+        Assert.assertEquals(2, batchMutates.get());
+        Assert.assertEquals(35, writtenRows.get());
+        Assert.assertTrue(batch.isEmpty());
+
+        for (int i = 0; i < 10; i++) {
+            batch.withRow(cf, "key" + i).putColumn("column", new byte[1000], null);
+        }
+        batch.execute();
+        Assert.assertEquals(3, batchMutates.get());
+    }
+
+    private static void assertInOrder(List<String> keys, Rows<String, String> rows) {
+        Assert.assertEquals(keys.size(), rows.size());
+        int i = 0;
+        for (Row<String, String> row : rows) {
+            Assert.assertEquals(keys.get(i++), row.getKey());
+            Assert.assertEquals(row.getKey(), row.getColumns().getColumnByIndex(0).getName());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.netflix.astyanax.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.OperationTimeoutException;
+import com.netflix.astyanax.connectionpool.impl.OperationResultImpl;
+
+public class AutoBatcherTest {
+
+    /**
+     * Returns the key in upper case and records the keys of every batch
+     */
+    private static class UpperCaseGroup implements AutoBatcher.Group<String, String> {
+        private final String                   name;
+        private final List<Collection<String>> batches = Lists.newCopyOnWriteArrayList();
+        private volatile ConnectionException   failure;
+
+        UpperCaseGroup(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public OperationResult<Map<String, String>> execute(Collection<String> keys) throws ConnectionException {
+            batches.add(ImmutableList.copyOf(keys));
+            if (failure != null)
+                throw failure;
+            Map<String, String> result = Maps.newHashMap();
+            for (String key : keys) {
+                result.put(key, key.toUpperCase());
+            }
+            return new OperationResultImpl<Map<String, String>>(Host.NO_HOST, result, 0);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof UpperCaseGroup && ((UpperCaseGroup)obj).name.equals(name);
+        }
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentRequestsAreBatched() throws Exception {
+        AutoBatcher batcher = new AutoBatcher(200, TimeUnit.MILLISECONDS, 100);
+        UpperCaseGroup group = new UpperCaseGroup("group");
+
+        List<Future<OperationResult<String>>> results = submit(batcher, group, "a", "b", "c", "a");
+        Assert.assertEquals("A", results.get(0).get(1, TimeUnit.SECONDS).getResult());
+        Assert.assertEquals("B", results.get(1).get(1, TimeUnit.SECONDS).getResult());
+        Assert.assertEquals("C", results.get(2).get(1, TimeUnit.SECONDS).getResult());
+        Assert.assertEquals("A", results.get(3).get(1, TimeUnit.SECONDS).getResult());
+
+        // Duplicate keys are read once
+        Assert.assertEquals(1, group.batches.size());
+        Assert.assertEquals(3, group.batches.get(0).size());
+        Assert.assertEquals(1, batcher.getBatchCount());
+        Assert.assertEquals(4, batcher.getKeyCount());
+    }
+
+    @Test
+    public void testFullBatchIsExecutedBeforeWindow() throws Exception {
+        AutoBatcher batcher = new AutoBatcher(10, TimeUnit.SECONDS, 2);
+        UpperCaseGroup group = new UpperCaseGroup("group");
+
+        long start = System.currentTimeMillis();
+        List<Future<OperationResult<String>>> results = submit(batcher, group, "a", "b", "c", "d");
+        for (Future<OperationResult<String>> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assert.assertEquals(2, group.batches.size());
+        for (Collection<String> batch : group.batches) {
+            Assert.assertEquals(2, batch.size());
+        }
+    }
+
+    @Test
+    public void testGroupsAreBatchedSeparately() throws Exception {
+        AutoBatcher batcher = new AutoBatcher(0, TimeUnit.MILLISECONDS, 100);
+        UpperCaseGroup first  = new UpperCaseGroup("first");
+        UpperCaseGroup second = new UpperCaseGroup("second");
+
+        Assert.assertEquals("A", batcher.execute(first, "a").getResult());
+        Assert.assertEquals("B", batcher.execute(second, "b").getResult());
+        Assert.assertEquals(1, first.batches.size());
+        Assert.assertEquals(1, second.batches.size());
+    }
+
+    @Test
+    public void testFailureCompletesEveryRequest() throws Exception {
+        AutoBatcher batcher = new AutoBatcher(200, TimeUnit.MILLISECONDS, 100);
+        UpperCaseGroup group = new UpperCaseGroup("group");
+        group.failure = new OperationTimeoutException("TimedOutException");
+
+        for (Future<OperationResult<String>> result : submit(batcher, group, "a", "b")) {
+            try {
+                result.get(1, TimeUnit.SECONDS);
+                Assert.fail();
+            }
+            catch (ExecutionException e) {
+                Assert.assertSame(group.failure, e.getCause());
+            }
+        }
+        Assert.assertEquals(1, group.batches.size());
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        AutoBatcher batcher = new AutoBatcher(100, TimeUnit.MILLISECONDS, 2);
+        UpperCaseGroup group = new UpperCaseGroup("group");
+
+        ListenableFuture<OperationResult<String>> a = batcher.executeAsync(group, "a", executor);
+        ListenableFuture<OperationResult<String>> b = batcher.executeAsync(group, "b", MoreExecutors.directExecutor());
+        Assert.assertEquals("A", a.get(1, TimeUnit.SECONDS).getResult());
+        Assert.assertEquals("B", b.get(1, TimeUnit.SECONDS).getResult());
+        Assert.assertEquals(1, group.batches.size());
+    }
+
+    private List<Future<OperationResult<String>>> submit(final AutoBatcher batcher, final UpperCaseGroup group, String... keys) {
+        List<Future<OperationResult<String>>> results = Lists.newArrayList();
+        for (final String key : keys) {
+            results.add(executor.submit(new Callable<OperationResult<String>>() {
+                @Override
+                public OperationResult<String> call() throws Exception {
+                    return batcher.execute(group, key);
+                }
+            }));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,169 @@
+package com.netflix.astyanax.util;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.netflix.astyanax.Execution;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.OperationTimeoutException;
+import com.netflix.astyanax.connectionpool.impl.OperationResultImpl;
+
+public class ExecutionCoalescerTest {
+
+    /**
+     * Counts executions and blocks each one until released
+     */
+    private static class BlockingExecution implements Execution<String> {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger  count   = new AtomicInteger();
+        private final SettableFuture<OperationResult<String>> async = SettableFuture.create();
+        private volatile ConnectionException failure;
+
+        @Override
+        public OperationResult<String> execute() throws ConnectionException {
+            count.incrementAndGet();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null)
+                throw failure;
+            return new OperationResultImpl<String>(Host.NO_HOST, "RESULT", 0);
+        }
+
+        @Override
+        public ListenableFuture<OperationResult<String>> executeAsync() throws ConnectionException {
+            count.incrementAndGet();
+            return async;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentExecutionsShareResult() throws Exception {
+        final ExecutionCoalescer<String> coalescer = new ExecutionCoalescer<String>();
+        final BlockingExecution execution = new BlockingExecution();
+
+        List<Future<OperationResult<String>>> results = submit(coalescer, execution, "key", 10);
+        waitForWaiters(coalescer, 9);
+        execution.release.countDown();
+
+        OperationResult<String> first = results.get(0).get(1, TimeUnit.SECONDS);
+        for (Future<OperationResult<String>> result : results) {
+            Assert.assertSame(first, result.get(1, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, execution.count.get());
+        Assert.assertEquals(1, coalescer.getExecutionCount());
+        Assert.assertEquals(9, coalescer.getCoalescedCount());
+        Assert.assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    public void testExceptionIsSharedAndNotCached() throws Exception {
+        final ExecutionCoalescer<String> coalescer = new ExecutionCoalescer<String>();
+        final BlockingExecution execution = new BlockingExecution();
+        execution.failure = new OperationTimeoutException("TimedOutException");
+
+        List<Future<OperationResult<String>>> results = submit(coalescer, execution, "key", 3);
+        waitForWaiters(coalescer, 2);
+        execution.release.countDown();
+
+        for (Future<OperationResult<String>> result : results) {
+            try {
+                result.get(1, TimeUnit.SECONDS);
+                Assert.fail();
+            }
+            catch (ExecutionException e) {
+                Assert.assertSame(execution.failure, e.getCause());
+            }
+        }
+
+        // The next caller runs a new execution
+        execution.failure = null;
+        Assert.assertEquals("RESULT", coalescer.execute("key", execution).getResult());
+        Assert.assertEquals(2, execution.count.get());
+        Assert.assertEquals(2, coalescer.getExecutionCount());
+    }
+
+    @Test
+    public void testDifferentKeysAreNotCoalesced() throws Exception {
+        ExecutionCoalescer<String> coalescer = new ExecutionCoalescer<String>();
+        BlockingExecution execution = new BlockingExecution();
+        execution.release.countDown();
+
+        coalescer.execute("a", execution);
+        coalescer.execute("b", execution);
+        Assert.assertEquals(2, execution.count.get());
+        Assert.assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testAsyncExecutionsShareResult() throws Exception {
+        ExecutionCoalescer<String> coalescer = new ExecutionCoalescer<String>();
+        BlockingExecution execution = new BlockingExecution();
+
+        ListenableFuture<OperationResult<String>> first  = coalescer.executeAsync("key", execution);
+        ListenableFuture<OperationResult<String>> second = coalescer.executeAsync("key", execution);
+        Assert.assertEquals(1, coalescer.getInFlightCount());
+
+        // Cancelling one waiter does not cancel the shared execution
+        second.cancel(true);
+        Assert.assertFalse(execution.async.isCancelled());
+
+        OperationResult<String> result = new OperationResultImpl<String>(Host.NO_HOST, "RESULT", 0);
+        execution.async.set(result);
+        Assert.assertSame(result, first.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, execution.count.get());
+        Assert.assertEquals(1, coalescer.getCoalescedCount());
+        Assert.assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    private List<Future<OperationResult<String>>> submit(final ExecutionCoalescer<String> coalescer,
+            final BlockingExecution execution, final String key, int count) throws InterruptedException {
+        List<Future<OperationResult<String>>> results = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            results.add(executor.submit(new Callable<OperationResult<String>>() {
+                @Override
+                public OperationResult<String> call() throws Exception {
+                    return coalescer.execute(key, execution);
+                }
+            }));
+            if (i == 0) {
+                while (coalescer.getInFlightCount() == 0)
+                    Thread.sleep(1);
+            }
+        }
+        return results;
+    }
+
+    private static void waitForWaiters(ExecutionCoalescer<String> coalescer, int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 1000;
+        while (coalescer.getCoalescedCount() < count && System.currentTimeMillis() < end)
+            Thread.sleep(1);
+    }
+}
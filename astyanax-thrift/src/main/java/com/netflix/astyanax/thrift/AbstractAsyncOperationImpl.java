@@ -0,0 +1,71 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.thrift;
+
+import java.nio.ByteBuffer;
+
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.thrift.async.AsyncMethodCallback;
+
+import com.netflix.astyanax.CassandraOperationTracer;
+import com.netflix.astyanax.connectionpool.Deadline;
+
+/**
+ * Operation executed by the {@link ThriftNonBlockingExecutor}.  The operation starts a single call on a
+ * {@link Cassandra.AsyncClient} and then converts the completed call to its result on the selector thread,
+ * so neither may block.
+ *
+ * @param <C> Type of the completed call, such as {@link Cassandra.AsyncClient.get_slice_call}
+ * @param <R> Type of the result
+ */
+public abstract class AbstractAsyncOperationImpl<C, R> {
+    private final CassandraOperationTracer tracer;
+    private final String keyspace;
+
+    public AbstractAsyncOperationImpl(CassandraOperationTracer tracer, String keyspace) {
+        this.tracer = tracer;
+        this.keyspace = keyspace;
+    }
+
+    /**
+     * @return Key used to select the replicas, or null to execute on any host
+     */
+    public ByteBuffer getRowKey() {
+        return null;
+    }
+
+    public String getKeyspace() {
+        return keyspace;
+    }
+
+    public Deadline getDeadline() {
+        return null;
+    }
+
+    CassandraOperationTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Start the call on the client.  The callback is given the call once it completes.
+     */
+    protected abstract void start(Cassandra.AsyncClient client, AsyncMethodCallback<C> callback) throws Exception;
+
+    /**
+     * @return Result of the completed call
+     */
+    protected abstract R getResult(C call) throws Exception;
+}
@@ -20,12 +20,15 @@ import java.nio.ByteBuffer;
 import org.apache.cassandra.thrift.Cassandra;
 
 import com.netflix.astyanax.CassandraOperationTracer;
+import com.netflix.astyanax.CassandraOperationType;
 import com.netflix.astyanax.connectionpool.ConnectionContext;
+import com.netflix.astyanax.connectionpool.Deadline;
+import com.netflix.astyanax.connectionpool.DeadlineOperation;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.Operation;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 
-public abstract class AbstractOperationImpl<R> implements Operation<Cassandra.Client, R> {
+public abstract class AbstractOperationImpl<R> implements Operation<Cassandra.Client, R>, DeadlineOperation {
     private final CassandraOperationTracer tracer;
     private Host pinnedHost;
 
@@ -53,6 +56,20 @@ public abstract class AbstractOperationImpl<R> implements Operation<Cassandra.Cl
         return null;
     }
 
+    @Override
+    public Deadline getDeadline() {
+        return null;
+    }
+
+    /**
+     * @return Type of the operation, or null if its tracer was not created by the keyspace or cluster
+     */
+    public CassandraOperationType getOperationType() {
+        if (tracer instanceof OperationTypeTracerFactory.Tracer)
+            return ((OperationTypeTracerFactory.Tracer) tracer).getOperationType();
+        return null;
+    }
+
     @Override
     public R execute(Cassandra.Client client, ConnectionContext state) throws ConnectionException {
         try {
@@ -17,10 +17,13 @@ package com.netflix.astyanax.thrift;
 
 import java.io.ByteArrayInputStream;
 import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.cassandra.thrift.Cassandra.batch_mutate_args;
 import org.apache.cassandra.thrift.Mutation;
@@ -37,6 +40,7 @@ import com.netflix.astyanax.Clock;
 import com.netflix.astyanax.ColumnListMutation;
 import com.netflix.astyanax.MutationBatch;
 import com.netflix.astyanax.WriteAheadLog;
+import com.netflix.astyanax.connectionpool.Deadline;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.model.ColumnFamily;
 import com.netflix.astyanax.model.ConsistencyLevel;
@@ -64,11 +68,14 @@ public abstract class AbstractThriftMutationBatchImpl implements MutationBatch {
     private Clock               clock;
     private Host                pinnedHost;
     private RetryPolicy         retry;
+    private long                deadlineNanos;
     private WriteAheadLog       wal;
     private boolean             useAtomicBatch = false;
+    private boolean             tokenAwareScatter = false;
 
     private Map<ByteBuffer, Map<String, List<Mutation>>> mutationMap = Maps.newLinkedHashMap();
     private Map<KeyAndColumnFamily, ColumnListMutation<?>> rowLookup = Maps.newHashMap();
+    private final MutationSizeEstimate size = new MutationSizeEstimate();
     
     private static class KeyAndColumnFamily {
         private final String      columnFamily;
@@ -151,15 +158,17 @@ public abstract class AbstractThriftMutationBatchImpl implements MutationBatch {
             if (innerMutationMap == null) {
                 innerMutationMap = Maps.newHashMap();
                 mutationMap.put(bbKey, innerMutationMap);
+                size.add(MutationSizeEstimate.estimateRowKey(bbKey), 0);
             }
     
             List<Mutation> innerMutationList = innerMutationMap.get(columnFamily.getName());
             if (innerMutationList == null) {
                 innerMutationList = Lists.newArrayList();
                 innerMutationMap.put(columnFamily.getName(), innerMutationList);
+                size.add(MutationSizeEstimate.estimateColumnFamily(columnFamily.getName()), 0);
             }
             
-            clm = new ThriftColumnFamilyMutationImpl<C>(timestamp, innerMutationList, columnFamily.getColumnSerializer());
+            clm = new ThriftColumnFamilyMutationImpl<C>(timestamp, innerMutationList, columnFamily.getColumnSerializer(), size);
             rowLookup.put(kacf, clm);
         }
         return clm;
@@ -170,6 +179,28 @@ public abstract class AbstractThriftMutationBatchImpl implements MutationBatch {
         this.timestamp = UNSET_TIMESTAMP;
         this.mutationMap.clear();
         this.rowLookup.clear();
+        this.size.clear();
+    }
+
+    /**
+     * Discard the mutations of some of the rows, such as those already written by part of the batch
+     */
+    public void discardMutations(Collection<ByteBuffer> rowKeys) {
+        for (ByteBuffer rowKey : rowKeys) {
+            Map<String, List<Mutation>> row = mutationMap.remove(rowKey);
+            if (row != null) {
+                MutationSizeEstimate rowSize = new MutationSizeEstimate();
+                rowSize.addRow(rowKey, row);
+                size.add(-rowSize.getBytes(), -rowSize.getMutations());
+            }
+        }
+        Iterator<KeyAndColumnFamily> iter = rowLookup.keySet().iterator();
+        while (iter.hasNext()) {
+            if (rowKeys.contains(iter.next().key))
+                iter.remove();
+        }
+        if (mutationMap.isEmpty())
+            this.timestamp = UNSET_TIMESTAMP;
     }
 
     @Override
@@ -250,6 +281,8 @@ public abstract class AbstractThriftMutationBatchImpl implements MutationBatch {
             //bp.setReadLength(data.remaining());
             args.read(bp);
             mutationMap = args.getMutation_map();
+            size.clear();
+            size.add(MutationSizeEstimate.of(mutationMap));
         }
         catch (TException e) {
             throw ThriftConverter.ToConnectionPoolException(e);
@@ -276,6 +309,7 @@ public abstract class AbstractThriftMutationBatchImpl implements MutationBatch {
             throw new UnsupportedOperationException();
         }
 
+        size.add(((AbstractThriftMutationBatchImpl) other).size);
         for (Map.Entry<ByteBuffer, Map<String, List<Mutation>>> otherRow : ((AbstractThriftMutationBatchImpl) other).mutationMap
                 .entrySet()) {
             Map<String, List<Mutation>> thisRow = mutationMap.get(otherRow.getKey());
@@ -303,6 +337,61 @@ public abstract class AbstractThriftMutationBatchImpl implements MutationBatch {
         return mutationMap.size();
     }
 
+    /**
+     * @return Estimate of the number of bytes that the mutations of the batch take in a batch_mutate
+     */
+    public long getEstimatedSize() {
+        return size.getBytes();
+    }
+
+    /**
+     * @return Number of mutations in the batch.  Deleting several columns of a row counts once.
+     */
+    public int getMutationCount() {
+        return size.getMutations();
+    }
+
+    /**
+     * @return True if the batch has more than maxBytes of estimated mutations or more than maxMutations mutations.
+     *         A limit of 0 is unbounded.
+     */
+    public boolean isOversized(long maxBytes, int maxMutations) {
+        return (maxBytes > 0 && size.getBytes() > maxBytes) || (maxMutations > 0 && size.getMutations() > maxMutations);
+    }
+
+    /**
+     * Split groups of rows into smaller groups, in order, of at most maxBytes of estimated mutations and
+     * maxMutations mutations.  A row is never split, so a row larger than the limits is in a group of its own.
+     * A limit of 0 is unbounded.
+     */
+    public List<List<ByteBuffer>> splitBySize(List<List<ByteBuffer>> groups, long maxBytes, int maxMutations) {
+        long byteLimit     = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+        int  mutationLimit = maxMutations > 0 ? maxMutations : Integer.MAX_VALUE;
+
+        List<List<ByteBuffer>> result = Lists.newArrayList();
+        for (List<ByteBuffer> group : groups) {
+            List<ByteBuffer> current = Lists.newArrayList();
+            long bytes     = 0;
+            int  mutations = 0;
+            for (ByteBuffer rowKey : group) {
+                MutationSizeEstimate rowSize = new MutationSizeEstimate();
+                rowSize.addRow(rowKey, mutationMap.get(rowKey));
+                if (!current.isEmpty() && (bytes + rowSize.getBytes() > byteLimit || mutations + rowSize.getMutations() > mutationLimit)) {
+                    result.add(current);
+                    current   = Lists.newArrayList();
+                    bytes     = 0;
+                    mutations = 0;
+                }
+                current.add(rowKey);
+                bytes     += rowSize.getBytes();
+                mutations += rowSize.getMutations();
+            }
+            if (!current.isEmpty())
+                result.add(current);
+        }
+        return result;
+    }
+
     @Override
     public MutationBatch setTimeout(long timeout) {
         return this;
@@ -353,6 +442,12 @@ public abstract class AbstractThriftMutationBatchImpl implements MutationBatch {
         return this;
     }
 
+    @Override
+    public MutationBatch withDeadline(long timeout, TimeUnit units) {
+        this.deadlineNanos = units.toNanos(timeout);
+        return this;
+    }
+
     @Override
     public MutationBatch usingWriteAheadLog(WriteAheadLog manager) {
         this.wal = manager;
@@ -368,6 +463,20 @@ public abstract class AbstractThriftMutationBatchImpl implements MutationBatch {
     public boolean useAtomicBatch() {
         return useAtomicBatch;
     }
+
+    @Override
+    public MutationBatch withTokenAwareScatter(boolean condition) {
+        tokenAwareScatter = condition;
+        return this;
+    }
+
+    /**
+     * @return True if the rows of the batch are written with one batch_mutate per replica set.  Atomic and
+     *         pinned batches are always sent whole.
+     */
+    public boolean useTokenAwareScatter() {
+        return tokenAwareScatter && !useAtomicBatch && pinnedHost == null;
+    }
     
     public Host getPinnedHost() {
         return this.pinnedHost;
@@ -377,6 +486,13 @@ public abstract class AbstractThriftMutationBatchImpl implements MutationBatch {
         return this.retry;
     }
     
+    /**
+     * @return New deadline for an execution of this mutation or null if no deadline was set
+     */
+    public Deadline newDeadline() {
+        return deadlineNanos > 0 ? Deadline.after(deadlineNanos, TimeUnit.NANOSECONDS) : null;
+    }
+
     public WriteAheadLog getWriteAheadLog() {
         return this.wal;
     }
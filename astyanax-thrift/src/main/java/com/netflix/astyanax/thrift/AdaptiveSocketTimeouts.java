@@ -0,0 +1,120 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.thrift;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.netflix.astyanax.CassandraOperationType;
+import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.LatencyHistogram;
+
+/**
+ * Socket timeouts derived from the recent latencies of each operation type on each host.  The timeout of an
+ * operation is the configured percentile of its latencies times the configured factor, clamped between the
+ * minimum and the static socket timeout.  A hung point read then times out and fails over long before a large
+ * slice read that is slow but healthy would. <br/> <br/>
+ *
+ * The timeout is recomputed from the samples of the last interval every {@link #INTERVAL_SAMPLES} samples, so
+ * that it follows recent latencies and reading it costs nothing.  Until the first interval completes the static
+ * socket timeout is used.  Operations that time out add the timeout as their latency so that the timeout grows
+ * back when a host gets slower.
+ *
+ * @see ConnectionPoolConfiguration#getAdaptiveSocketTimeoutFactor()
+ */
+public class AdaptiveSocketTimeouts {
+    static final int INTERVAL_SAMPLES = 1000;
+
+    /**
+     * Latencies and current timeout of one operation type on one host
+     */
+    private static class Latencies {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicLong       samples   = new AtomicLong();
+        private volatile int           timeout   = 0;
+    }
+
+    private final ConnectionPoolConfiguration config;
+
+    /**
+     * Latencies of each operation type by host.  Hosts are weak keys so that removed hosts are dropped.
+     */
+    private final LoadingCache<Host, AtomicReferenceArray<Latencies>> latencies = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<Host, AtomicReferenceArray<Latencies>>() {
+                @Override
+                public AtomicReferenceArray<Latencies> load(Host host) {
+                    return new AtomicReferenceArray<Latencies>(CassandraOperationType.values().length);
+                }
+            });
+
+    public AdaptiveSocketTimeouts(ConnectionPoolConfiguration config) {
+        this.config = config;
+    }
+
+    public boolean isEnabled() {
+        return config.getAdaptiveSocketTimeoutFactor() > 0;
+    }
+
+    /**
+     * @param host
+     * @param type  Type of the operation or null if not known
+     * @return Socket timeout in milliseconds
+     */
+    public int getTimeout(Host host, CassandraOperationType type) {
+        int maxTimeout = config.getSocketTimeout();
+        if (type == null || !isEnabled())
+            return maxTimeout;
+
+        Latencies stats = latencies.getUnchecked(host).get(type.ordinal());
+        if (stats == null || stats.timeout == 0)
+            return maxTimeout;
+
+        return Math.max(Math.min(config.getMinSocketTimeout(), maxTimeout), Math.min(stats.timeout, maxTimeout));
+    }
+
+    /**
+     * Add the latency of an operation, or its timeout if it timed out
+     *
+     * @param host
+     * @param type  Type of the operation or null if not known
+     * @param latency
+     * @param units
+     */
+    public void addSample(Host host, CassandraOperationType type, long latency, TimeUnit units) {
+        if (type == null || !isEnabled())
+            return;
+
+        AtomicReferenceArray<Latencies> byType = latencies.getUnchecked(host);
+        Latencies stats = byType.get(type.ordinal());
+        if (stats == null) {
+            byType.compareAndSet(type.ordinal(), null, new Latencies());
+            stats = byType.get(type.ordinal());
+        }
+
+        stats.histogram.record(units.toMicros(latency));
+        if (stats.samples.incrementAndGet() % INTERVAL_SAMPLES == 0) {
+            long percentile = stats.histogram.getIntervalSnapshot().getValueAtPercentile(config.getAdaptiveSocketTimeoutPercentile());
+            stats.timeout = (int) Math.min(Integer.MAX_VALUE,
+                    Math.max(1, (long) Math.ceil(percentile * config.getAdaptiveSocketTimeoutFactor() / 1000.0)));
+        }
+    }
+}
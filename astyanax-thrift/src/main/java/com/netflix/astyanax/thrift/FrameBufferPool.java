@@ -0,0 +1,140 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.thrift;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.astyanax.AstyanaxConfiguration;
+import com.netflix.astyanax.connectionpool.StripedCounter;
+
+/**
+ * Pool of the buffers that thrift frames are written to and read from.  Buffers come in power of two size
+ * classes from {@link #MIN_BUFFER_SIZE} up to a quarter of the pool, so that a buffer can be reused for any frame
+ * of its class.  Larger frames get a buffer that is not pooled.  Released buffers are kept until the pool holds
+ * its maximum number of bytes, after which they are left to the garbage collector.
+ *
+ * @see AstyanaxConfiguration#getFrameBufferPoolSize()
+ */
+public class FrameBufferPool {
+    static final int MIN_BUFFER_SIZE_BITS = 12;
+    public static final int MIN_BUFFER_SIZE = 1 << MIN_BUFFER_SIZE_BITS;
+
+    private final long                            maxPooledBytes;
+    private final int                             maxBufferSize;
+    private final ConcurrentLinkedQueue<byte[]>[] sizeClasses;
+    private final AtomicLong                      pooledBytes    = new AtomicLong();
+    private final StripedCounter                  allocatedCount = new StripedCounter();
+    private final StripedCounter                  allocatedBytes = new StripedCounter();
+    private final StripedCounter                  reusedCount    = new StripedCounter();
+
+    /**
+     * @param maxPooledBytes Maximum number of bytes of released buffers kept for reuse
+     */
+    @SuppressWarnings("unchecked")
+    public FrameBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        this.maxBufferSize  = Integer.highestOneBit((int) Math.max(MIN_BUFFER_SIZE, Math.min(1 << 30, maxPooledBytes / 4)));
+        this.sizeClasses    = new ConcurrentLinkedQueue[getSizeClass(maxBufferSize) + 1];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new ConcurrentLinkedQueue<byte[]>();
+        }
+    }
+
+    /**
+     * @return Index of the smallest size class with buffers of at least size bytes
+     */
+    static int getSizeClass(int size) {
+        if (size <= MIN_BUFFER_SIZE)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_BUFFER_SIZE_BITS;
+    }
+
+    /**
+     * @return Buffer of at least size bytes.  Its contents are undefined.
+     */
+    public byte[] acquire(int size) {
+        if (size > maxBufferSize) {
+            return allocate(size);
+        }
+
+        int sizeClass = getSizeClass(size);
+        byte[] buffer = sizeClasses[sizeClass].poll();
+        if (buffer != null) {
+            pooledBytes.addAndGet(-buffer.length);
+            reusedCount.increment();
+            return buffer;
+        }
+        return allocate(1 << (sizeClass + MIN_BUFFER_SIZE_BITS));
+    }
+
+    /**
+     * Return a buffer for reuse.  The caller must not use it, or anything that refers to its contents, afterwards.
+     */
+    public void release(byte[] buffer) {
+        int length = buffer.length;
+        if (length < MIN_BUFFER_SIZE || length > maxBufferSize || Integer.bitCount(length) != 1)
+            return;
+        if (pooledBytes.addAndGet(length) > maxPooledBytes) {
+            pooledBytes.addAndGet(-length);
+            return;
+        }
+        sizeClasses[getSizeClass(length)].offer(buffer);
+    }
+
+    private byte[] allocate(int size) {
+        allocatedCount.increment();
+        allocatedBytes.add(size);
+        return new byte[size];
+    }
+
+    /**
+     * @return Number of buffers allocated because no pooled buffer was available
+     */
+    public long getAllocatedCount() {
+        return allocatedCount.get();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * @return Number of buffers acquired from the pool
+     */
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * @return Number of bytes of released buffers currently kept for reuse
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append("FrameBufferPool[")
+            .append( "pooledBytes=").append(getPooledBytes())
+            .append(",maxPooledBytes=").append(maxPooledBytes)
+            .append(",maxBufferSize=").append(maxBufferSize)
+            .append(",allocated=").append(getAllocatedCount())
+            .append(",reused=").append(getReusedCount())
+            .append("]").toString();
+    }
+}
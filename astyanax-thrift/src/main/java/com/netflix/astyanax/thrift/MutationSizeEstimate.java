@@ -0,0 +1,152 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.thrift;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.Deletion;
+import org.apache.cassandra.thrift.Mutation;
+import org.apache.cassandra.thrift.SuperColumn;
+
+/**
+ * Running estimate of the size of a batch_mutate in the thrift binary protocol and of the number of
+ * mutations in it.  The mutation builders add to it as columns are added so the size of a batch is known
+ * without serializing it.  The overheads are those of the field headers, lengths and wrapping structs of the
+ * binary protocol, rounded up.
+ */
+public final class MutationSizeEstimate {
+    static final int BINARY_OVERHEAD   = 4;
+    static final int COLUMN_OVERHEAD   = 40;
+    static final int COUNTER_OVERHEAD  = 28;
+    static final int DELETION_OVERHEAD = 32;
+    static final int ROW_OVERHEAD      = 12;
+    static final int LIST_OVERHEAD     = 12;
+
+    private long bytes;
+    private int  mutations;
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getMutations() {
+        return mutations;
+    }
+
+    void add(long bytes, int mutations) {
+        this.bytes     += bytes;
+        this.mutations += mutations;
+    }
+
+    void add(MutationSizeEstimate other) {
+        add(other.bytes, other.mutations);
+    }
+
+    void addMutation(Mutation mutation) {
+        add(estimate(mutation), 1);
+    }
+
+    /**
+     * A column name added to an existing deletion
+     */
+    void addColumnName(ByteBuffer name) {
+        add(BINARY_OVERHEAD + name.remaining(), 0);
+    }
+
+    /**
+     * A column added to an existing super column
+     */
+    void addColumn(Column column) {
+        add(estimate(column), 0);
+    }
+
+    void clear() {
+        bytes     = 0;
+        mutations = 0;
+    }
+
+    /**
+     * @return Estimate of the rows of a mutation map
+     */
+    static MutationSizeEstimate of(Map<ByteBuffer, Map<String, List<Mutation>>> rows) {
+        MutationSizeEstimate size = new MutationSizeEstimate();
+        for (Map.Entry<ByteBuffer, Map<String, List<Mutation>>> row : rows.entrySet()) {
+            size.addRow(row.getKey(), row.getValue());
+        }
+        return size;
+    }
+
+    void addRow(ByteBuffer rowKey, Map<String, List<Mutation>> columnFamilies) {
+        add(estimateRowKey(rowKey), 0);
+        for (Map.Entry<String, List<Mutation>> columnFamily : columnFamilies.entrySet()) {
+            add(estimateColumnFamily(columnFamily.getKey()), 0);
+            for (Mutation mutation : columnFamily.getValue()) {
+                addMutation(mutation);
+            }
+        }
+    }
+
+    static long estimateRowKey(ByteBuffer rowKey) {
+        return ROW_OVERHEAD + rowKey.remaining();
+    }
+
+    static long estimateColumnFamily(String columnFamily) {
+        return LIST_OVERHEAD + columnFamily.length();
+    }
+
+    static long estimate(Mutation mutation) {
+        if (mutation.isSetDeletion()) {
+            Deletion deletion = mutation.getDeletion();
+            long size = DELETION_OVERHEAD;
+            if (deletion.isSetSuper_column())
+                size += BINARY_OVERHEAD + deletion.bufferForSuper_column().remaining();
+            if (deletion.isSetPredicate() && deletion.getPredicate().isSetColumn_names()) {
+                for (ByteBuffer name : deletion.getPredicate().getColumn_names()) {
+                    size += BINARY_OVERHEAD + name.remaining();
+                }
+            }
+            return size;
+        }
+
+        ColumnOrSuperColumn cosc = mutation.getColumn_or_supercolumn();
+        if (cosc == null)
+            return 0;
+        if (cosc.isSetColumn())
+            return estimate(cosc.getColumn());
+        if (cosc.isSetCounter_column())
+            return COUNTER_OVERHEAD + cosc.getCounter_column().bufferForName().remaining();
+        if (cosc.isSetSuper_column()) {
+            SuperColumn superColumn = cosc.getSuper_column();
+            long size = LIST_OVERHEAD + BINARY_OVERHEAD + superColumn.bufferForName().remaining();
+            if (superColumn.isSetColumns()) {
+                for (Column column : superColumn.getColumns()) {
+                    size += estimate(column);
+                }
+            }
+            return size;
+        }
+        return 0;
+    }
+
+    static long estimate(Column column) {
+        return COLUMN_OVERHEAD + column.bufferForName().remaining()
+            + (column.isSetValue() ? column.bufferForValue().remaining() : 0);
+    }
+}
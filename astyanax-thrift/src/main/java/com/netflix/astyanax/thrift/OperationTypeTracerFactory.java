@@ -0,0 +1,80 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.thrift;
+
+import com.netflix.astyanax.CassandraOperationTracer;
+import com.netflix.astyanax.CassandraOperationType;
+import com.netflix.astyanax.KeyspaceTracerFactory;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ColumnFamily;
+
+/**
+ * Tracer factory that tags each tracer with its operation type, so that {@link AbstractOperationImpl}
+ * can tell which type of operation it is.  Tracing is delegated to the wrapped factory.
+ */
+class OperationTypeTracerFactory implements KeyspaceTracerFactory {
+    static class Tracer implements CassandraOperationTracer {
+        private final CassandraOperationType   type;
+        private final CassandraOperationTracer delegate;
+
+        Tracer(CassandraOperationType type, CassandraOperationTracer delegate) {
+            this.type     = type;
+            this.delegate = delegate;
+        }
+
+        CassandraOperationType getOperationType() {
+            return type;
+        }
+
+        @Override
+        public CassandraOperationTracer start() {
+            delegate.start();
+            return this;
+        }
+
+        @Override
+        public void success() {
+            delegate.success();
+        }
+
+        @Override
+        public void failure(ConnectionException e) {
+            delegate.failure(e);
+        }
+    }
+
+    private final KeyspaceTracerFactory delegate;
+
+    private OperationTypeTracerFactory(KeyspaceTracerFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    static KeyspaceTracerFactory wrap(KeyspaceTracerFactory factory) {
+        if (factory instanceof OperationTypeTracerFactory)
+            return factory;
+        return new OperationTypeTracerFactory(factory);
+    }
+
+    @Override
+    public CassandraOperationTracer newTracer(CassandraOperationType type) {
+        return new Tracer(type, delegate.newTracer(type));
+    }
+
+    @Override
+    public CassandraOperationTracer newTracer(CassandraOperationType type, ColumnFamily<?, ?> columnFamily) {
+        return new Tracer(type, delegate.newTracer(type, columnFamily));
+    }
+}
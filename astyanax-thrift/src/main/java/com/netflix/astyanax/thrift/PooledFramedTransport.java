@@ -0,0 +1,210 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.thrift;
+
+import java.nio.ByteBuffer;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocolException;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * Framed transport, compatible with {@link TFramedTransport}, that writes frames through buffers from a 
+ * {@link FrameBufferPool} instead of allocating them for every frame. <br/> <br/>
+ *
+ * A frame is written to a pooled buffer that starts with room for the frame size, so the size and the frame go
+ * to the socket in a single write without being copied again, and the buffer is returned to the pool once it is
+ * written.  The write buffer starts at the size of the previous frame so that a connection that keeps sending
+ * large batches does not grow its buffer for each one. <br/> <br/>
+ *
+ * A response frame is read into a buffer of its exact size, as {@link TFramedTransport} does.  Binary values are 
+ * slices of that buffer rather than copies, and the results, and the row cache, keep them, so response frames are 
+ * not pooled.  A pooled buffer would be handed over to the results as well, and would keep up to twice the frame 
+ * size alive.  {@link Protocol} checks the length of every binary value against the rest of the frame. 
+ */
+public class PooledFramedTransport extends TTransport {
+    private static final int HEADER_SIZE = 4;
+
+    /**
+     * Binary protocol that slices binary values from the frame after checking their length against the rest of
+     * the frame, so that a corrupt length fails the read
+     */
+    public static class Protocol extends TBinaryProtocol {
+        private final PooledFramedTransport transport;
+
+        public Protocol(PooledFramedTransport transport) {
+            super(transport);
+            this.transport = transport;
+        }
+
+        @Override
+        public ByteBuffer readBinary() throws TException {
+            int size = readI32();
+            if (size < 0)
+                throw new TProtocolException(TProtocolException.NEGATIVE_SIZE, "Negative length: " + size);
+            int remaining = transport.getBytesRemainingInBuffer();
+            if (size > remaining)
+                throw new TProtocolException(TProtocolException.SIZE_LIMIT, "Length " + size + " exceeds the " + remaining + " bytes left in the frame");
+
+            ByteBuffer value = ByteBuffer.wrap(transport.getBuffer(), transport.getBufferPosition(), size);
+            transport.consumeBuffer(size);
+            return value;
+        }
+    }
+
+    private final TTransport      transport;
+    private final FrameBufferPool pool;
+    private final int             maxLength;
+    private final byte[]          header = new byte[HEADER_SIZE];
+
+    // Frame being written, starting with the space for its size
+    private byte[] writeBuffer;
+    private int    writeLength;
+    private int    lastWriteLength = 0;
+
+    // Frame being read
+    private byte[] readBuffer;
+    private int    readPosition;
+    private int    readLimit;
+
+    public PooledFramedTransport(TTransport transport, FrameBufferPool pool, int maxLength) {
+        this.transport = transport;
+        this.pool      = pool;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return transport.isOpen();
+    }
+
+    @Override
+    public void open() throws TTransportException {
+        transport.open();
+    }
+
+    @Override
+    public void close() {
+        transport.close();
+        releaseBuffers();
+        if (writeBuffer != null) {
+            pool.release(writeBuffer);
+            writeBuffer = null;
+        }
+    }
+
+    /**
+     * Drop the frame that was read once the response has been decoded, so that an idle connection does not keep it
+     */
+    public void releaseBuffers() {
+        readBuffer = null;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws TTransportException {
+        if (readBuffer == null || readPosition == readLimit) {
+            readFrame();
+        }
+        int got = Math.min(len, readLimit - readPosition);
+        System.arraycopy(readBuffer, readPosition, buf, off, got);
+        readPosition += got;
+        return got;
+    }
+
+    @Override
+    public byte[] getBuffer() {
+        return readBuffer;
+    }
+
+    @Override
+    public int getBufferPosition() {
+        return readPosition;
+    }
+
+    @Override
+    public int getBytesRemainingInBuffer() {
+        return readBuffer == null ? -1 : readLimit - readPosition;
+    }
+
+    @Override
+    public void consumeBuffer(int len) {
+        readPosition += len;
+    }
+
+    private void readFrame() throws TTransportException {
+        releaseBuffers();
+        int size;
+        do {
+            transport.readAll(header, 0, HEADER_SIZE);
+            size = TFramedTransport.decodeFrameSize(header);
+            if (size < 0)
+                throw new TTransportException("Read a negative frame size (" + size + ")!");
+            if (size > maxLength)
+                throw new TTransportException("Frame size (" + size + ") larger than max length (" + maxLength + ")!");
+        } while (size == 0);
+
+        readBuffer   = new byte[size];
+        readPosition = 0;
+        readLimit    = size;
+        transport.readAll(readBuffer, 0, size);
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws TTransportException {
+        ensureCapacity(len);
+        System.arraycopy(buf, off, writeBuffer, writeLength, len);
+        writeLength += len;
+    }
+
+    private void ensureCapacity(int len) {
+        if (writeBuffer == null) {
+            writeBuffer = pool.acquire(Math.max(HEADER_SIZE + len, lastWriteLength));
+            writeLength = HEADER_SIZE;
+        }
+        else if (writeLength + len > writeBuffer.length) {
+            byte[] larger = pool.acquire(Math.max(writeLength + len, writeBuffer.length * 2));
+            System.arraycopy(writeBuffer, 0, larger, 0, writeLength);
+            pool.release(writeBuffer);
+            writeBuffer = larger;
+        }
+    }
+
+    @Override
+    public void flush() throws TTransportException {
+        if (writeBuffer == null)
+            return;
+
+        byte[] frame  = writeBuffer;
+        int    length = writeLength;
+        writeBuffer     = null;
+        writeLength     = 0;
+        lastWriteLength = length;
+
+        // A new request is sent once the previous response has been decoded
+        releaseBuffers();
+        try {
+            TFramedTransport.encodeFrameSize(length - HEADER_SIZE, frame);
+            transport.write(frame, 0, length);
+            transport.flush();
+        }
+        finally {
+            pool.release(frame);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.thrift;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cassandra.thrift.AuthenticationRequest;
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingSocket;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.netflix.astyanax.AuthenticationCredentials;
+import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.HostDownException;
+import com.netflix.astyanax.connectionpool.exceptions.PoolTimeoutException;
+
+/**
+ * Non-blocking connection to one host.  A thrift async client can only have one call in flight, so requests
+ * are queued and started one after the other from the selector thread that completed the previous one. <br/> <br/>
+ *
+ * The channels of a host share a count of their queued requests, which bounds how many requests may wait for 
+ * the host.  Requests that are still queued past their queue deadline are failed with a {@link PoolTimeoutException} 
+ * by {@link #expire(long)}, so that they fail over as a borrower that timed out waiting for a connection does. <br/> <br/>
+ *
+ * The socket is connected, logged in and switched to the request's keyspace as part of starting a request.
+ * A client that fails with a transport error or times out can't be used again and is replaced by a new
+ * connection for the next request.  If the failed call was the first on its connection, the host is most likely
+ * unreachable and all queued requests are failed as well so that they fail over instead of each waiting for
+ * their own connect to time out.
+ */
+class ThriftAsyncChannel {
+    private static final TProtocolFactory PROTOCOL_FACTORY = new TBinaryProtocol.Factory();
+
+    /**
+     * Call queued on a channel.  The channel calls exactly one of {@link #onComplete(Object)} or
+     * {@link #onError(Exception)} for every request it was given.
+     */
+    static abstract class Request {
+        /**
+         * @return Keyspace to set before the call, or null
+         */
+        abstract String getKeyspace();
+
+        /**
+         * @return Timeout of the call in msec, including connecting
+         */
+        abstract int getTimeout();
+
+        /**
+         * @return {@link System#nanoTime()} after which the request may no longer wait in the queue
+         */
+        abstract long getQueueDeadline();
+
+        /**
+         * Called when the request is taken from the queue to be started.  If it fails the request fails with
+         * that error and the connection is left as it is.
+         */
+        abstract void acquire() throws ConnectionException;
+
+        abstract void start(Cassandra.AsyncClient client, AsyncMethodCallback<Object> callback) throws Exception;
+
+        abstract void onComplete(Object call);
+
+        abstract void onError(Exception e);
+    }
+
+    private final Host                        host;
+    private final TAsyncClientManager         manager;
+    private final ConnectionPoolConfiguration cpConfig;
+    private final AtomicInteger               queued;
+    private final Queue<Request>              queue   = new ArrayDeque<Request>();
+    private final AtomicInteger               pending = new AtomicInteger();
+
+    // Guarded by this
+    private boolean               busy      = false;
+    private boolean               closed    = false;
+    private TNonblockingSocket    socket;
+    private Cassandra.AsyncClient client;
+    private boolean               connected = false;
+    private boolean               loggedIn  = false;
+    private String                keyspace;
+
+    /**
+     * @param queued
+     *            Number of requests queued on all channels of the host
+     */
+    ThriftAsyncChannel(Host host, TAsyncClientManager manager, ConnectionPoolConfiguration cpConfig, AtomicInteger queued) {
+        this.host     = host;
+        this.manager  = manager;
+        this.cpConfig = cpConfig;
+        this.queued   = queued;
+    }
+
+    Host getHost() {
+        return host;
+    }
+
+    /**
+     * @return Number of requests queued or in flight
+     */
+    int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * @return True if no request is queued or in flight
+     */
+    synchronized boolean isIdle() {
+        return !busy && queue.isEmpty();
+    }
+
+    /**
+     * Start the request, or queue it behind the call in flight.  The request is failed with a 
+     * {@link PoolTimeoutException} if it would have to wait while maxQueued requests of the host are already 
+     * queued, and with a {@link HostDownException} if the channel is closed.
+     */
+    void submit(Request request, int maxQueued) {
+        ConnectionException error = null;
+        synchronized (this) {
+            if (closed) {
+                error = new HostDownException("Channel to " + host + " is closed");
+            }
+            else if (queued.incrementAndGet() > maxQueued && (busy || !queue.isEmpty())) {
+                queued.decrementAndGet();
+                error = new PoolTimeoutException("Too many operations queued for host " + host);
+            }
+            else {
+                queue.add(request);
+                pending.incrementAndGet();
+            }
+        }
+        if (error != null) {
+            request.onError(error.setHost(host));
+            return;
+        }
+        startNext();
+    }
+
+    /**
+     * Fail the queued requests whose queue deadline passed
+     */
+    void expire(long now) {
+        List<Request> expired = null;
+        synchronized (this) {
+            Iterator<Request> iter = queue.iterator();
+            while (iter.hasNext()) {
+                Request request = iter.next();
+                if (now - request.getQueueDeadline() >= 0) {
+                    iter.remove();
+                    if (expired == null)
+                        expired = Lists.newArrayList();
+                    expired.add(request);
+                }
+            }
+        }
+        if (expired != null)
+            failQueued(expired, null);
+    }
+
+    /**
+     * Close the connection and fail all queued requests.  A request in flight fails once it times out.
+     */
+    void close() {
+        List<Request> failed;
+        synchronized (this) {
+            closed = true;
+            failed = Lists.newArrayList(queue);
+            queue.clear();
+            reset();
+        }
+        failQueued(failed, new HostDownException("Channel to " + host + " is closed"));
+    }
+
+    private void startNext() {
+        while (true) {
+            Request request;
+            boolean expired;
+            synchronized (this) {
+                if (busy || queue.isEmpty())
+                    return;
+                request = queue.poll();
+                queued.decrementAndGet();
+                expired = System.nanoTime() - request.getQueueDeadline() >= 0;
+                busy = !expired;
+            }
+
+            if (expired) {
+                pending.decrementAndGet();
+                request.onError(newQueueTimeoutException());
+                continue;
+            }
+            try {
+                request.acquire();
+            }
+            catch (ConnectionException e) {
+                finish();
+                request.onError(e);
+                continue;
+            }
+            dispatch(request);
+            return;
+        }
+    }
+
+    /**
+     * Start the request, or the login or set_keyspace call that has to precede it
+     */
+    private void dispatch(final Request request) {
+        try {
+            Cassandra.AsyncClient client;
+            boolean needsLogin;
+            boolean needsKeyspace;
+            synchronized (this) {
+                if (closed)
+                    throw new HostDownException("Channel to " + host + " is closed");
+                if (this.client == null) {
+                    socket = new TNonblockingSocket(host.getIpAddress(), host.getPort(), cpConfig.getConnectTimeout());
+                    this.client = new Cassandra.AsyncClient(PROTOCOL_FACTORY, manager, socket);
+                    connected = false;
+                    loggedIn = false;
+                    keyspace = null;
+                }
+                client        = this.client;
+                needsLogin    = !loggedIn && cpConfig.getAuthenticationCredentials() != null;
+                needsKeyspace = request.getKeyspace() != null && !request.getKeyspace().equals(keyspace);
+            }
+            client.setTimeout(request.getTimeout());
+
+            if (needsLogin) {
+                AuthenticationCredentials credentials = cpConfig.getAuthenticationCredentials();
+                Map<String, String> thriftCredentials = Maps.newHashMapWithExpectedSize(2);
+                thriftCredentials.put("username", credentials.getUsername());
+                thriftCredentials.put("password", credentials.getPassword());
+                client.login(new AuthenticationRequest(thriftCredentials), new Callback<Cassandra.AsyncClient.login_call>(request) {
+                    @Override
+                    protected void onResult(Cassandra.AsyncClient.login_call call) throws Exception {
+                        call.getResult();
+                        synchronized (ThriftAsyncChannel.this) {
+                            connected = true;
+                            loggedIn = true;
+                        }
+                        dispatch(request);
+                    }
+                });
+            }
+            else if (needsKeyspace) {
+                client.set_keyspace(request.getKeyspace(), new Callback<Cassandra.AsyncClient.set_keyspace_call>(request) {
+                    @Override
+                    protected void onResult(Cassandra.AsyncClient.set_keyspace_call call) throws Exception {
+                        call.getResult();
+                        synchronized (ThriftAsyncChannel.this) {
+                            connected = true;
+                            keyspace = request.getKeyspace();
+                        }
+                        dispatch(request);
+                    }
+                });
+            }
+            else {
+                request.start(client, new Callback<Object>(request) {
+                    @Override
+                    protected void onResult(Object call) {
+                        synchronized (ThriftAsyncChannel.this) {
+                            connected = true;
+                        }
+                        finish();
+                        request.onComplete(call);
+                        startNext();
+                    }
+                });
+            }
+        }
+        catch (Exception e) {
+            fail(request, e);
+        }
+    }
+
+    /**
+     * Callback of one call made for a request.  Errors of the call fail the request.
+     */
+    private abstract class Callback<T> implements AsyncMethodCallback<T> {
+        private final Request request;
+
+        Callback(Request request) {
+            this.request = request;
+        }
+
+        protected abstract void onResult(T call) throws Exception;
+
+        @Override
+        public void onComplete(T call) {
+            try {
+                onResult(call);
+            }
+            catch (Exception e) {
+                // The call completed, so the connection is still usable
+                finish();
+                request.onError(e);
+                startNext();
+            }
+        }
+
+        @Override
+        public void onError(Exception e) {
+            fail(request, e);
+        }
+    }
+
+    /**
+     * The connection failed, replace it.  Fail queued requests too if it never worked.
+     */
+    private void fail(Request request, Exception e) {
+        List<Request> failed = null;
+        synchronized (this) {
+            if (!connected) {
+                failed = Lists.newArrayList(queue);
+                queue.clear();
+            }
+            reset();
+        }
+        finish();
+        request.onError(e);
+        if (failed != null)
+            failQueued(failed, e);
+        startNext();
+    }
+
+    /**
+     * Fail requests that were removed from the queue.  A null error fails them as timed out.
+     */
+    private void failQueued(List<Request> requests, Exception e) {
+        for (Request request : requests) {
+            queued.decrementAndGet();
+            pending.decrementAndGet();
+            request.onError(e != null ? e : newQueueTimeoutException());
+        }
+    }
+
+    private ConnectionException newQueueTimeoutException() {
+        return new PoolTimeoutException("Timed out waiting for connection").setHost(host);
+    }
+
+    private void finish() {
+        synchronized (this) {
+            busy = false;
+        }
+        pending.decrementAndGet();
+    }
+
+    private synchronized void reset() {
+        if (socket != null) {
+            socket.close();
+        }
+        socket = null;
+        client = null;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append("ThriftAsyncChannel[")
+            .append( "host=").append(host)
+            .append(",pending=").append(pending.get())
+            .append("]").toString();
+    }
+}
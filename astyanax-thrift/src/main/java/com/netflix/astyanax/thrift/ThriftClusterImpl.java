@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.netflix.astyanax.thrift;
 
+import java.io.Closeable;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -52,7 +53,7 @@ import com.netflix.astyanax.ddl.impl.SchemaChangeResponseImpl;
 import com.netflix.astyanax.retry.RunOnce;
 import com.netflix.astyanax.thrift.ddl.*;
 
-public class ThriftClusterImpl implements Cluster {
+public class ThriftClusterImpl implements Cluster, Closeable {
     private static final Logger LOG = LoggerFactory.getLogger(ThriftClusterImpl.class);
     
     private static final int MAX_SCHEMA_CHANGE_ATTEMPTS = 6;
@@ -69,7 +70,7 @@ public class ThriftClusterImpl implements Cluster {
             KeyspaceTracerFactory tracerFactory) {
         this.config         = config;
         this.connectionPool = connectionPool;
-        this.tracerFactory  = tracerFactory;
+        this.tracerFactory  = OperationTypeTracerFactory.wrap(tracerFactory);
         this.keyspaces      = Maps.newConcurrentMap();
     }
 
@@ -195,16 +196,29 @@ public class ThriftClusterImpl implements Cluster {
         Keyspace keyspace = keyspaces.get(ksName);
         if (keyspace == null) {
             synchronized (this) {
-                Keyspace newKeyspace = new ThriftKeyspaceImpl(ksName, this.connectionPool, this.config, tracerFactory);
+                ThriftKeyspaceImpl newKeyspace = new ThriftKeyspaceImpl(ksName, this.connectionPool, this.config, tracerFactory);
                 keyspace = keyspaces.putIfAbsent(ksName, newKeyspace);
                 if (keyspace == null) {
                     keyspace = newKeyspace;
                 }
+                else {
+                    newKeyspace.close();
+                }
             }
         }
         return keyspace;
     }
 
+    /**
+     * Close the keyspaces returned by {@link #getKeyspace(String)}.  The connection pool is shut down by its owner.
+     */
+    @Override
+    public void close() {
+        for (Keyspace keyspace : keyspaces.values()) {
+            ((ThriftKeyspaceImpl) keyspace).close();
+        }
+    }
+
     @Override
     public ColumnFamilyDefinition makeColumnFamilyDefinition() {
         return new ThriftColumnFamilyDefinitionImpl();
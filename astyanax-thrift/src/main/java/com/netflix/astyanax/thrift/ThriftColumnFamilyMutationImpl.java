@@ -41,17 +41,23 @@ import com.netflix.astyanax.model.ColumnPath;
 public class ThriftColumnFamilyMutationImpl<C> extends AbstractColumnListMutation<C> {
     private final Serializer<C> columnSerializer;
     private final List<Mutation> mutationList;
+    private final MutationSizeEstimate size;
     private Deletion lastDeletion;
     
     public ThriftColumnFamilyMutationImpl(Long timestamp, List<Mutation> mutationList, Serializer<C> columnSerializer) {
+        this(timestamp, mutationList, columnSerializer, new MutationSizeEstimate());
+    }
+
+    public ThriftColumnFamilyMutationImpl(Long timestamp, List<Mutation> mutationList, Serializer<C> columnSerializer, MutationSizeEstimate size) {
         super(timestamp);
         this.mutationList = mutationList;
         this.columnSerializer = columnSerializer;
+        this.size = size;
     }
 
     @Override
     public <SC> ColumnListMutation<SC> withSuperColumn(ColumnPath<SC> superColumnPath) {
-        return new ThriftSuperColumnMutationImpl<SC>(timestamp, mutationList, superColumnPath);
+        return new ThriftSuperColumnMutationImpl<SC>(timestamp, mutationList, superColumnPath, size);
     }
 
     @Override
@@ -83,6 +89,7 @@ public class ThriftColumnFamilyMutationImpl<C> extends AbstractColumnListMutatio
         Mutation mutation = new Mutation();
         mutation.setColumn_or_supercolumn(new ColumnOrSuperColumn().setColumn(column));
         mutationList.add(mutation);
+        size.addMutation(mutation);
 
         return this;
     }
@@ -111,6 +118,7 @@ public class ThriftColumnFamilyMutationImpl<C> extends AbstractColumnListMutatio
         Mutation mutation = new Mutation();
         mutation.setColumn_or_supercolumn(new ColumnOrSuperColumn().setColumn(column));
         mutationList.add(mutation);
+        size.addMutation(mutation);
         return this;
     }
 
@@ -118,7 +126,9 @@ public class ThriftColumnFamilyMutationImpl<C> extends AbstractColumnListMutatio
     public ColumnListMutation<C> delete() {
         // Delete the entire row
         Deletion d = new Deletion().setTimestamp(timestamp);
-        mutationList.add(new Mutation().setDeletion(d));
+        Mutation mutation = new Mutation().setDeletion(d);
+        mutationList.add(mutation);
+        size.addMutation(mutation);
 
         // Increment the timestamp by 1 so subsequent puts on this column may be
         // written
@@ -142,6 +152,7 @@ public class ThriftColumnFamilyMutationImpl<C> extends AbstractColumnListMutatio
         Mutation mutation = new Mutation();
         mutation.setColumn_or_supercolumn(new ColumnOrSuperColumn().setCounter_column(column));
         mutationList.add(mutation);
+        size.addMutation(mutation);
         return this;
     }
 
@@ -152,7 +163,9 @@ public class ThriftColumnFamilyMutationImpl<C> extends AbstractColumnListMutatio
         // Create a reusable predicate for deleting columns and insert only once
         if (null == lastDeletion || lastDeletion.getTimestamp() != timestamp) {
             lastDeletion = new Deletion().setPredicate(new SlicePredicate()).setTimestamp(timestamp);
-            mutationList.add(new Mutation().setDeletion(lastDeletion));
+            Mutation mutation = new Mutation().setDeletion(lastDeletion);
+            mutationList.add(mutation);
+            size.addMutation(mutation);
         }
         
         ByteBuffer bb = this.columnSerializer.toByteBuffer(columnName);
@@ -161,6 +174,7 @@ public class ThriftColumnFamilyMutationImpl<C> extends AbstractColumnListMutatio
         }
 
         lastDeletion.getPredicate().addToColumn_names(bb);
+        size.addColumnName(bb);
         return this;
     }
 
@@ -23,7 +23,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.cassandra.thrift.Cassandra;
 import org.apache.cassandra.thrift.Cassandra.Client;
@@ -32,23 +34,40 @@ import org.apache.cassandra.thrift.ColumnParent;
 import org.apache.cassandra.thrift.CounterSuperColumn;
 import org.apache.cassandra.thrift.KeyRange;
 import org.apache.cassandra.thrift.Mutation;
+import org.apache.cassandra.thrift.SlicePredicate;
 import org.apache.cassandra.thrift.SuperColumn;
+import org.apache.thrift.async.AsyncMethodCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.netflix.astyanax.CassandraOperationTracer;
 import com.netflix.astyanax.CassandraOperationType;
+import com.netflix.astyanax.Execution;
 import com.netflix.astyanax.KeyspaceTracerFactory;
 import com.netflix.astyanax.RowCopier;
 import com.netflix.astyanax.connectionpool.ConnectionContext;
 import com.netflix.astyanax.connectionpool.ConnectionPool;
+import com.netflix.astyanax.connectionpool.Deadline;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.SpeculativeExecutionPolicy;
+import com.netflix.astyanax.connectionpool.SpeculativeOperation;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.InterruptedOperationException;
+import com.netflix.astyanax.connectionpool.impl.OperationResultImpl;
+import com.netflix.astyanax.connectionpool.impl.ReplicaGrouper;
+import com.netflix.astyanax.connectionpool.impl.TokenHostConnectionPoolPartition;
+import com.netflix.astyanax.connectionpool.impl.Topology;
 import com.netflix.astyanax.model.Column;
 import com.netflix.astyanax.model.ColumnFamily;
 import com.netflix.astyanax.model.ColumnList;
@@ -63,9 +82,16 @@ import com.netflix.astyanax.query.IndexQuery;
 import com.netflix.astyanax.query.RowQuery;
 import com.netflix.astyanax.query.RowSliceColumnCountQuery;
 import com.netflix.astyanax.query.RowSliceQuery;
+import com.netflix.astyanax.retry.BoundedExponentialBackoff;
+import com.netflix.astyanax.retry.ConstantBackoff;
+import com.netflix.astyanax.retry.ExponentialBackoff;
+import com.netflix.astyanax.retry.IndefiniteRetry;
+import com.netflix.astyanax.retry.RetryNTimes;
 import com.netflix.astyanax.retry.RetryPolicy;
+import com.netflix.astyanax.retry.RunOnce;
 import com.netflix.astyanax.shallows.EmptyColumnList;
 import com.netflix.astyanax.shallows.EmptyRowsImpl;
+import com.netflix.astyanax.shallows.EmptySpeculativeExecutionPolicy;
 import com.netflix.astyanax.thrift.model.ThriftColumnImpl;
 import com.netflix.astyanax.thrift.model.ThriftColumnOrSuperColumnListImpl;
 import com.netflix.astyanax.thrift.model.ThriftCounterColumnImpl;
@@ -73,6 +99,7 @@ import com.netflix.astyanax.thrift.model.ThriftCounterSuperColumnImpl;
 import com.netflix.astyanax.thrift.model.ThriftRowsListImpl;
 import com.netflix.astyanax.thrift.model.ThriftRowsSliceImpl;
 import com.netflix.astyanax.thrift.model.ThriftSuperColumnImpl;
+import com.netflix.astyanax.util.AutoBatcher;
 
 /**
  * Implementation of all column family queries using the thrift API.
@@ -98,6 +125,12 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
     final ListeningExecutorService         executor;
     Host                                   pinnedHost;
     RetryPolicy                            retry;
+    SpeculativeExecutionPolicy             speculativeExecution;
+    long                                   deadlineNanos;
+    boolean                                coalesceReads;
+    boolean                                useCaching;
+    boolean                                autoBatch;
+    boolean                                tokenAwareScatter;
 
     public ThriftColumnFamilyQueryImpl(ExecutorService executor, KeyspaceTracerFactory tracerFactory,
             ThriftKeyspaceImpl keyspace, ConnectionPool<Cassandra.Client> cp, ColumnFamily<K, C> columnFamily,
@@ -111,6 +144,86 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
         this.retry = retry;
     }
 
+    /**
+     * Operation issued by this query, bounded by the query's deadline if one was set.  The deadline
+     * starts when the operation is created, i.e. when the query is executed.
+     */
+    abstract class AbstractQueryOperationImpl<R> extends AbstractKeyspaceOperationImpl<R> {
+        private final Deadline deadline = deadlineNanos > 0 ? Deadline.after(deadlineNanos, TimeUnit.NANOSECONDS) : null;
+
+        public AbstractQueryOperationImpl(CassandraOperationTracer tracer, Host pinnedHost, String keyspaceName) {
+            super(tracer, pinnedHost, keyspaceName);
+        }
+
+        @Override
+        public Deadline getDeadline() {
+            return deadline;
+        }
+    }
+
+    /**
+     * Idempotent read that may be speculatively executed on a second replica, using the query's
+     * speculative execution policy if one was set
+     */
+    abstract class AbstractReadOperationImpl<R> extends AbstractQueryOperationImpl<R> implements SpeculativeOperation {
+        public AbstractReadOperationImpl(CassandraOperationTracer tracer, Host pinnedHost, String keyspaceName) {
+            super(tracer, pinnedHost, keyspaceName);
+        }
+
+        @Override
+        public SpeculativeExecutionPolicy getSpeculativeExecutionPolicy() {
+            return speculativeExecution;
+        }
+    }
+
+    /**
+     * Read executed on the keyspace's non-blocking connections, bounded by the query's deadline if one was set
+     */
+    abstract class AbstractAsyncReadOperationImpl<T, R> extends AbstractAsyncOperationImpl<T, R> {
+        private final Deadline deadline = deadlineNanos > 0 ? Deadline.after(deadlineNanos, TimeUnit.NANOSECONDS) : null;
+
+        public AbstractAsyncReadOperationImpl(CassandraOperationTracer tracer) {
+            super(tracer, keyspace.getKeyspaceName());
+        }
+
+        @Override
+        public Deadline getDeadline() {
+            return deadline;
+        }
+    }
+
+    /**
+     * @return True if executeAsync may use the keyspace's non-blocking connections instead of the async executor
+     */
+    private boolean isNonBlocking() {
+        return keyspace.nonBlockingExecutor != null && pinnedHost == null;
+    }
+
+    private ListenableFuture<OperationResult<Rows<K, C>>> executeRowSliceNonBlocking(Iterable<K> keys, final SlicePredicate predicate) {
+        final List<ByteBuffer> rowKeys = columnFamily.getKeySerializer().toBytesList(keys);
+        return keyspace.nonBlockingExecutor.execute(
+                new AbstractAsyncReadOperationImpl<Cassandra.AsyncClient.multiget_slice_call, Rows<K, C>>(
+                        tracerFactory.newTracer(CassandraOperationType.GET_ROWS_SLICE, columnFamily)) {
+                    @Override
+                    protected void start(Cassandra.AsyncClient client, AsyncMethodCallback<Cassandra.AsyncClient.multiget_slice_call> callback) throws Exception {
+                        client.multiget_slice(rowKeys, new ColumnParent().setColumn_family(columnFamily.getName()), predicate,
+                                ThriftConverter.ToThriftConsistencyLevel(consistencyLevel), callback);
+                    }
+
+                    @Override
+                    protected Rows<K, C> getResult(Cassandra.AsyncClient.multiget_slice_call call) throws Exception {
+                        Map<ByteBuffer, List<ColumnOrSuperColumn>> cfmap = call.getResult();
+                        if (cfmap == null || cfmap.isEmpty()) {
+                            return new EmptyRowsImpl<K, C>();
+                        }
+                        else {
+                            return new ThriftRowsListImpl<K, C>(cfmap, columnFamily.getKeySerializer(),
+                                    columnFamily.getColumnSerializer());
+                        }
+                    }
+                });
+    }
+
     // Single ROW query
     @Override
     public RowQuery<K, C> getKey(final K rowKey) {
@@ -122,7 +235,7 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
                 return new ColumnQuery<C>() {
                     @Override
                     public OperationResult<Column<C>> execute() throws ConnectionException {
-                        return connectionPool.executeWithFailover(new AbstractKeyspaceOperationImpl<Column<C>>(
+                        return connectionPool.executeWithFailover(new AbstractReadOperationImpl<Column<C>>(
                                 tracerFactory.newTracer(CassandraOperationType.GET_COLUMN, columnFamily), pinnedHost,
                                 keyspace.getKeyspaceName()) {
                             @Override
@@ -183,9 +296,119 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
 
             @Override
             public OperationResult<ColumnList<C>> execute() throws ConnectionException {
+                OperationResult<ColumnList<C>> cached = getCached();
+                if (cached != null)
+                    return cached;
+                if (isCoalescing())
+                    return keyspace.readCoalescer.execute(newRowReadKey(rowKey, predicate), newRowRead());
+                return executeRead();
+            }
+
+            /**
+             * @return True if the row may be served from and added to the keyspace's row cache
+             */
+            private boolean isCaching() {
+                return useCaching && keyspace.rowCache != null && !isPaginating && pinnedHost == null;
+            }
+
+            private OperationResult<ColumnList<C>> getCached() {
+                if (!isCaching())
+                    return null;
+                List<ColumnOrSuperColumn> columns = keyspace.rowCache.get(columnFamily.getName(),
+                        columnFamily.getKeySerializer().toByteBuffer(rowKey), predicate);
+                if (columns == null)
+                    return null;
+                return new OperationResultImpl<ColumnList<C>>(Host.NO_HOST,
+                        new ThriftColumnOrSuperColumnListImpl<C>(columns, columnFamily.getColumnSerializer()), 0);
+            }
+
+            /**
+             * @return True if identical reads in flight may share this read's result
+             */
+            private boolean isCoalescing() {
+                return coalesceReads && !isPaginating && pinnedHost == null;
+            }
+
+            private Execution<ColumnList<C>> newRowRead() {
+                return new Execution<ColumnList<C>>() {
+                    @Override
+                    public OperationResult<ColumnList<C>> execute() throws ConnectionException {
+                        return executeRead();
+                    }
+
+                    @Override
+                    public ListenableFuture<OperationResult<ColumnList<C>>> executeAsync() throws ConnectionException {
+                        if (isNonBlocking() && !isPaginating)
+                            return executeNonBlocking();
+
+                        return executor.submit(new Callable<OperationResult<ColumnList<C>>>() {
+                            @Override
+                            public OperationResult<ColumnList<C>> call() throws Exception {
+                                return executeRead();
+                            }
+                        });
+                    }
+                };
+            }
+
+            private ListenableFuture<OperationResult<ColumnList<C>>> executeNonBlocking() {
+                final ByteBuffer key = columnFamily.getKeySerializer().toByteBuffer(rowKey);
+                final boolean caching = isCaching();
+                final long cacheGeneration = caching ? keyspace.rowCache.getGeneration(columnFamily.getName()) : 0;
+                return keyspace.nonBlockingExecutor.execute(
+                        new AbstractAsyncReadOperationImpl<Cassandra.AsyncClient.get_slice_call, ColumnList<C>>(
+                                tracerFactory.newTracer(CassandraOperationType.GET_ROW, columnFamily)) {
+                            @Override
+                            protected void start(Cassandra.AsyncClient client, AsyncMethodCallback<Cassandra.AsyncClient.get_slice_call> callback) throws Exception {
+                                client.get_slice(key, new ColumnParent().setColumn_family(columnFamily.getName()), predicate,
+                                        ThriftConverter.ToThriftConsistencyLevel(consistencyLevel), callback);
+                            }
+
+                            @Override
+                            protected ColumnList<C> getResult(Cassandra.AsyncClient.get_slice_call call) throws Exception {
+                                List<ColumnOrSuperColumn> columnList = call.getResult();
+                                if (caching) {
+                                    keyspace.rowCache.put(columnFamily.getName(), key, predicate, columnList, cacheGeneration);
+                                }
+                                return new ThriftColumnOrSuperColumnListImpl<C>(columnList, columnFamily.getColumnSerializer());
+                            }
+
+                            @Override
+                            public ByteBuffer getRowKey() {
+                                return key;
+                            }
+                        });
+            }
+
+            /**
+             * @return True if the read may be batched with other single row reads
+             */
+            private boolean isBatching() {
+                return autoBatch && !isPaginating && pinnedHost == null;
+            }
+
+            private OperationResult<ColumnList<C>> toColumnList(OperationResult<List<ColumnOrSuperColumn>> result) {
+                List<ColumnOrSuperColumn> columns = result.getResult();
+                return new OperationResultImpl<ColumnList<C>>(result.getHost(), columns == null ? new EmptyColumnList<C>()
+                        : new ThriftColumnOrSuperColumnListImpl<C>(columns, columnFamily.getColumnSerializer()), result.getLatency());
+            }
+
+            private OperationResult<ColumnList<C>> executeRead() throws ConnectionException {
+                if (isBatching()) {
+                    ByteBuffer key = columnFamily.getKeySerializer().toByteBuffer(rowKey);
+                    return toColumnList(keyspace.readBatcher.execute(newRowSliceBatch(key, predicate, isCaching()), key));
+                }
                 return connectionPool.executeWithFailover(
-                        new AbstractKeyspaceOperationImpl<ColumnList<C>>(tracerFactory.newTracer(
+                        new AbstractReadOperationImpl<ColumnList<C>>(tracerFactory.newTracer(
                                 CassandraOperationType.GET_ROW, columnFamily), pinnedHost, keyspace.getKeyspaceName()) {
+                            private final boolean caching         = isCaching();
+                            private final long    cacheGeneration = caching ? keyspace.rowCache.getGeneration(columnFamily.getName()) : 0;
+
+                            @Override
+                            public SpeculativeExecutionPolicy getSpeculativeExecutionPolicy() {
+                                // Pagination state is updated while executing
+                                return isPaginating ? EmptySpeculativeExecutionPolicy.getInstance() : super.getSpeculativeExecutionPolicy();
+                            }
 
                             @Override
                             public ColumnList<C> execute(Client client, ConnectionContext context) throws ConnectionException {
@@ -243,6 +466,10 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
                                         }
                                     }
                                 }
+                                if (caching) {
+                                    keyspace.rowCache.put(columnFamily.getName(), columnFamily.getKeySerializer().toByteBuffer(rowKey),
+                                            predicate, columnList, cacheGeneration);
+                                }
                                 ColumnList<C> result = new ThriftColumnOrSuperColumnListImpl<C>(columnList,
                                         columnFamily.getColumnSerializer());
                                 return result;
@@ -260,7 +487,7 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
                 return new ColumnCountQuery() {
                     @Override
                     public OperationResult<Integer> execute() throws ConnectionException {
-                        return connectionPool.executeWithFailover(new AbstractKeyspaceOperationImpl<Integer>(
+                        return connectionPool.executeWithFailover(new AbstractReadOperationImpl<Integer>(
                                 tracerFactory.newTracer(CassandraOperationType.GET_COLUMN_COUNT, columnFamily),
                                 pinnedHost, keyspace.getKeyspaceName()) {
                             @Override
@@ -291,6 +518,23 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
 
             @Override
             public ListenableFuture<OperationResult<ColumnList<C>>> executeAsync() throws ConnectionException {
+                OperationResult<ColumnList<C>> cached = getCached();
+                if (cached != null)
+                    return Futures.immediateFuture(cached);
+                if (isCoalescing())
+                    return keyspace.readCoalescer.executeAsync(newRowReadKey(rowKey, predicate), newRowRead());
+                if (isBatching()) {
+                    ByteBuffer key = columnFamily.getKeySerializer().toByteBuffer(rowKey);
+                    return Futures.transform(keyspace.readBatcher.executeAsync(newRowSliceBatch(key, predicate, isCaching()), key, executor),
+                            new Function<OperationResult<List<ColumnOrSuperColumn>>, OperationResult<ColumnList<C>>>() {
+                                @Override
+                                public OperationResult<ColumnList<C>> apply(OperationResult<List<ColumnOrSuperColumn>> result) {
+                                    return toColumnList(result);
+                                }
+                            });
+                }
+                if (isNonBlocking() && !isPaginating)
+                    return executeNonBlocking();
                 return executor.submit(new Callable<OperationResult<ColumnList<C>>>() {
                     @Override
                     public OperationResult<ColumnList<C>> call() throws Exception {
@@ -307,7 +551,7 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
                     @Override
                     public OperationResult<Void> execute() throws ConnectionException {
                         return connectionPool.executeWithFailover(
-                                new AbstractKeyspaceOperationImpl<Void>(tracerFactory.newTracer(
+                                new AbstractQueryOperationImpl<Void>(tracerFactory.newTracer(
                                         CassandraOperationType.COPY_TO, columnFamily), pinnedHost, keyspace
                                         .getKeyspaceName()) {
                                     @Override
@@ -395,7 +639,7 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
             @Override
             public OperationResult<Rows<K, C>> execute() throws ConnectionException {
                 return connectionPool.executeWithFailover(
-                        new AbstractKeyspaceOperationImpl<Rows<K, C>>(tracerFactory.newTracer(
+                        new AbstractReadOperationImpl<Rows<K, C>>(tracerFactory.newTracer(
                                 CassandraOperationType.GET_ROWS_RANGE, columnFamily), pinnedHost, keyspace
                                 .getKeyspaceName()) {
                             @Override
@@ -454,8 +698,11 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
         return new AbstractRowSliceQueryImpl<K, C>(columnFamily.getColumnSerializer()) {
             @Override
             public OperationResult<Rows<K, C>> execute() throws ConnectionException {
+                if (isScattering())
+                    return executeScatter(keys, predicate);
+
                 return connectionPool.executeWithFailover(
-                        new AbstractKeyspaceOperationImpl<Rows<K, C>>(tracerFactory.newTracer(
+                        new AbstractReadOperationImpl<Rows<K, C>>(tracerFactory.newTracer(
                                 CassandraOperationType.GET_ROWS_SLICE, columnFamily), pinnedHost, keyspace
                                 .getKeyspaceName()) {
                             @Override
@@ -477,6 +724,12 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
 
             @Override
             public ListenableFuture<OperationResult<Rows<K, C>>> executeAsync() throws ConnectionException {
+                if (isScattering())
+                    return executeScatterAsync(keys, predicate);
+
+                if (isNonBlocking())
+                    return executeRowSliceNonBlocking(keys, predicate);
+
                 return executor.submit(new Callable<OperationResult<Rows<K, C>>>() {
                     @Override
                     public OperationResult<Rows<K, C>> call() throws Exception {
@@ -491,7 +744,7 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
                     @Override
                     public OperationResult<Map<K, Integer>> execute() throws ConnectionException {
                         return connectionPool.executeWithFailover(
-                                new AbstractKeyspaceOperationImpl<Map<K, Integer>>(tracerFactory.newTracer(
+                                new AbstractReadOperationImpl<Map<K, Integer>>(tracerFactory.newTracer(
                                         CassandraOperationType.GET_ROWS_SLICE, columnFamily), pinnedHost, keyspace
                                         .getKeyspaceName()) {
                                     @Override
@@ -535,8 +788,11 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
         return new AbstractRowSliceQueryImpl<K, C>(columnFamily.getColumnSerializer()) {
             @Override
             public OperationResult<Rows<K, C>> execute() throws ConnectionException {
+                if (isScattering())
+                    return executeScatter(keys, predicate);
+
                 return connectionPool.executeWithFailover(
-                        new AbstractKeyspaceOperationImpl<Rows<K, C>>(tracerFactory.newTracer(
+                        new AbstractReadOperationImpl<Rows<K, C>>(tracerFactory.newTracer(
                                 CassandraOperationType.GET_ROWS_SLICE, columnFamily), pinnedHost, keyspace
                                 .getKeyspaceName()) {
                             @Override
@@ -565,6 +821,12 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
 
             @Override
             public ListenableFuture<OperationResult<Rows<K, C>>> executeAsync() throws ConnectionException {
+                if (isScattering())
+                    return executeScatterAsync(keys, predicate);
+
+                if (isNonBlocking())
+                    return executeRowSliceNonBlocking(keys, predicate);
+
                 return executor.submit(new Callable<OperationResult<Rows<K, C>>>() {
                     @Override
                     public OperationResult<Rows<K, C>> call() throws Exception {
@@ -579,7 +841,7 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
                     @Override
                     public OperationResult<Map<K, Integer>> execute() throws ConnectionException {
                         return connectionPool.executeWithFailover(
-                                new AbstractKeyspaceOperationImpl<Map<K, Integer>>(tracerFactory.newTracer(
+                                new AbstractReadOperationImpl<Map<K, Integer>>(tracerFactory.newTracer(
                                         CassandraOperationType.GET_ROWS_SLICE, columnFamily), pinnedHost, keyspace
                                         .getKeyspaceName()) {
                                     @Override
@@ -631,7 +893,7 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
             @Override
             public OperationResult<Rows<K, C>> execute() throws ConnectionException {
                 return connectionPool.executeWithFailover(
-                        new AbstractKeyspaceOperationImpl<Rows<K, C>>(tracerFactory.newTracer(
+                        new AbstractQueryOperationImpl<Rows<K, C>>(tracerFactory.newTracer(
                                 CassandraOperationType.GET_ROWS_BY_INDEX, columnFamily), pinnedHost, keyspace
                                 .getKeyspaceName()) {
                             @Override
@@ -713,6 +975,349 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
         return this;
     }
 
+    @Override
+    public ColumnFamilyQuery<K, C> withSpeculativeExecution(SpeculativeExecutionPolicy policy) {
+        this.speculativeExecution = policy;
+        return this;
+    }
+
+    @Override
+    public ColumnFamilyQuery<K, C> withDeadline(long timeout, TimeUnit units) {
+        this.deadlineNanos = units.toNanos(timeout);
+        return this;
+    }
+
+    @Override
+    public ColumnFamilyQuery<K, C> withReadCoalescing(boolean condition) {
+        this.coalesceReads = condition;
+        return this;
+    }
+
+    @Override
+    public ColumnFamilyQuery<K, C> withAutoBatching(boolean condition) {
+        this.autoBatch = condition;
+        return this;
+    }
+
+    @Override
+    public ColumnFamilyQuery<K, C> withTokenAwareScatter(boolean condition) {
+        this.tokenAwareScatter = condition;
+        return this;
+    }
+
+    /**
+     * @return True if multi key row slices are split by the replicas that own the keys
+     */
+    private boolean isScattering() {
+        return tokenAwareScatter && pinnedHost == null;
+    }
+
+    /**
+     * @return Keys of the row slice grouped by the replicas that own them, with at least one, possibly empty, group
+     */
+    private List<List<ByteBuffer>> scatter(List<ByteBuffer> rowKeys) {
+        List<List<ByteBuffer>> groups = ReplicaGrouper.groupByReplicas(connectionPool.getTopology(), rowKeys,
+                keyspace.getConfig().getScatterMaxKeys());
+        if (groups.isEmpty())
+            groups.add(rowKeys);
+        return groups;
+    }
+
+    /**
+     * Read the row slice with one multiget per replica set.  The first multiget runs on the calling thread
+     * and the others on the async executor, or on the non-blocking connections.
+     */
+    private OperationResult<Rows<K, C>> executeScatter(Iterable<K> keys, SlicePredicate predicate) throws ConnectionException {
+        List<ByteBuffer> rowKeys = columnFamily.getKeySerializer().toBytesList(keys);
+        List<List<ByteBuffer>> groups = scatter(rowKeys);
+
+        List<ListenableFuture<OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>>>> futures = Lists.newArrayList();
+        for (int i = 1; i < groups.size(); i++) {
+            futures.add(executeMultigetAsync(groups.get(i), predicate));
+        }
+
+        List<OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>>> results = Lists.newArrayList();
+        try {
+            results.add(executeMultiget(groups.get(0), predicate, retry.duplicate()));
+            for (ListenableFuture<OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>>> future : futures) {
+                results.add(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedOperationException(e);
+        }
+        catch (ExecutionException e) {
+            throw ThriftConverter.ToConnectionPoolException(e.getCause());
+        }
+        finally {
+            if (results.size() < groups.size()) {
+                for (ListenableFuture<?> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        return gather(rowKeys, results);
+    }
+
+    private ListenableFuture<OperationResult<Rows<K, C>>> executeScatterAsync(Iterable<K> keys, SlicePredicate predicate) {
+        final List<ByteBuffer> rowKeys = columnFamily.getKeySerializer().toBytesList(keys);
+        List<ListenableFuture<OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>>>> futures = Lists.newArrayList();
+        for (List<ByteBuffer> group : scatter(rowKeys)) {
+            futures.add(executeMultigetAsync(group, predicate));
+        }
+        return Futures.transform(Futures.allAsList(futures),
+                new Function<List<OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>>>, OperationResult<Rows<K, C>>>() {
+                    @Override
+                    public OperationResult<Rows<K, C>> apply(List<OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>>> results) {
+                        return gather(rowKeys, results);
+                    }
+                });
+    }
+
+    /**
+     * Merge the rows read by each multiget in the order of the keys.  The latency is that of the slowest multiget.
+     */
+    private OperationResult<Rows<K, C>> gather(List<ByteBuffer> rowKeys, List<OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>>> results) {
+        Map<ByteBuffer, List<ColumnOrSuperColumn>> read = Maps.newHashMap();
+        long latency  = 0;
+        int  attempts = 0;
+        for (OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>> result : results) {
+            if (result.getResult() != null)
+                read.putAll(result.getResult());
+            latency   = Math.max(latency, result.getLatency());
+            attempts += result.getAttemptsCount();
+        }
+
+        Map<ByteBuffer, List<ColumnOrSuperColumn>> rows = Maps.newLinkedHashMap();
+        for (ByteBuffer rowKey : rowKeys) {
+            List<ColumnOrSuperColumn> columns = read.get(rowKey);
+            if (columns != null)
+                rows.put(rowKey, columns);
+        }
+
+        OperationResultImpl<Rows<K, C>> result = new OperationResultImpl<Rows<K, C>>(results.get(0).getHost(),
+                rows.isEmpty() ? new EmptyRowsImpl<K, C>()
+                               : new ThriftRowsListImpl<K, C>(rows, columnFamily.getKeySerializer(), columnFamily.getColumnSerializer()),
+                latency);
+        result.setAttemptsCount(attempts);
+        return result;
+    }
+
+    /**
+     * Multiget routed by its first key, so that keys owned by the same replicas are read from one of them
+     */
+    private OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>> executeMultiget(final List<ByteBuffer> rowKeys,
+            final SlicePredicate predicate, RetryPolicy retry) throws ConnectionException {
+        return connectionPool.executeWithFailover(
+                new AbstractReadOperationImpl<Map<ByteBuffer, List<ColumnOrSuperColumn>>>(tracerFactory.newTracer(
+                        CassandraOperationType.GET_ROWS_SLICE, columnFamily), null, keyspace.getKeyspaceName()) {
+                    @Override
+                    public Map<ByteBuffer, List<ColumnOrSuperColumn>> internalExecute(Client client, ConnectionContext context) throws Exception {
+                        return client.multiget_slice(rowKeys, new ColumnParent().setColumn_family(columnFamily.getName()),
+                                predicate, ThriftConverter.ToThriftConsistencyLevel(consistencyLevel));
+                    }
+
+                    @Override
+                    public ByteBuffer getRowKey() {
+                        return rowKeys.isEmpty() ? null : rowKeys.get(0);
+                    }
+                }, retry);
+    }
+
+    private ListenableFuture<OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>>> executeMultigetAsync(
+            final List<ByteBuffer> rowKeys, final SlicePredicate predicate) {
+        if (isNonBlocking()) {
+            return keyspace.nonBlockingExecutor.execute(
+                    new AbstractAsyncReadOperationImpl<Cassandra.AsyncClient.multiget_slice_call, Map<ByteBuffer, List<ColumnOrSuperColumn>>>(
+                            tracerFactory.newTracer(CassandraOperationType.GET_ROWS_SLICE, columnFamily)) {
+                        @Override
+                        protected void start(Cassandra.AsyncClient client, AsyncMethodCallback<Cassandra.AsyncClient.multiget_slice_call> callback) throws Exception {
+                            client.multiget_slice(rowKeys, new ColumnParent().setColumn_family(columnFamily.getName()), predicate,
+                                    ThriftConverter.ToThriftConsistencyLevel(consistencyLevel), callback);
+                        }
+
+                        @Override
+                        protected Map<ByteBuffer, List<ColumnOrSuperColumn>> getResult(Cassandra.AsyncClient.multiget_slice_call call) throws Exception {
+                            return call.getResult();
+                        }
+
+                        @Override
+                        public ByteBuffer getRowKey() {
+                            return rowKeys.isEmpty() ? null : rowKeys.get(0);
+                        }
+                    });
+        }
+
+        final RetryPolicy retry = this.retry.duplicate();
+        return executor.submit(new Callable<OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>>>() {
+            @Override
+            public OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>> call() throws Exception {
+                return executeMultiget(rowKeys, predicate, retry);
+            }
+        });
+    }
+
+    private RowSliceBatch newRowSliceBatch(ByteBuffer rowKey, SlicePredicate predicate, boolean caching) {
+        return new RowSliceBatch(new SlicePredicate(predicate), consistencyLevel, replicasOf(rowKey), retry.duplicate(), caching);
+    }
+
+    /**
+     * @return Pools of the replicas of the row, or null if any host can serve it
+     */
+    private Object replicasOf(ByteBuffer rowKey) {
+        Topology<Cassandra.Client> topology = connectionPool.getTopology();
+        if (topology == null)
+            return null;
+        TokenHostConnectionPoolPartition<Cassandra.Client> partition = topology.getPartition(rowKey);
+        if (partition == null || partition == topology.getAllPools())
+            return null;
+        return ImmutableSet.copyOf(partition.getMembers());
+    }
+
+    /**
+     * Single row reads of the column family with the same slice and consistency level whose rows are owned
+     * by the same replicas.  They are read with one multiget_slice routed to those replicas.  Reads are only
+     * batched with reads that use the row cache the same way and retry the same way, since the batch is cached
+     * and retried as the read that started it.  The cache generation of that read is the oldest of the batch.
+     */
+    private class RowSliceBatch implements AutoBatcher.Group<ByteBuffer, List<ColumnOrSuperColumn>> {
+        private final SlicePredicate   predicate;
+        private final ConsistencyLevel consistencyLevel;
+        private final Object           replicas;
+        private final RetryPolicy      retry;
+        private final Object           retryKey;
+        private final boolean          caching;
+        private final long             cacheGeneration;
+
+        RowSliceBatch(SlicePredicate predicate, ConsistencyLevel consistencyLevel, Object replicas, RetryPolicy retry, boolean caching) {
+            this.predicate        = predicate;
+            this.consistencyLevel = consistencyLevel;
+            this.replicas         = replicas;
+            this.retry            = retry;
+            this.retryKey         = retryKeyOf(retry);
+            this.caching          = caching;
+            this.cacheGeneration  = caching ? keyspace.rowCache.getGeneration(columnFamily.getName()) : 0;
+        }
+
+        @Override
+        public OperationResult<Map<ByteBuffer, List<ColumnOrSuperColumn>>> execute(final Collection<ByteBuffer> keys) throws ConnectionException {
+            return connectionPool.executeWithFailover(
+                    new AbstractReadOperationImpl<Map<ByteBuffer, List<ColumnOrSuperColumn>>>(tracerFactory.newTracer(
+                            CassandraOperationType.GET_ROWS_SLICE, columnFamily), null, keyspace.getKeyspaceName()) {
+                        @Override
+                        public Map<ByteBuffer, List<ColumnOrSuperColumn>> internalExecute(Client client, ConnectionContext context) throws Exception {
+                            Map<ByteBuffer, List<ColumnOrSuperColumn>> rows = client.multiget_slice(Lists.newArrayList(keys),
+                                    new ColumnParent().setColumn_family(columnFamily.getName()), predicate,
+                                    ThriftConverter.ToThriftConsistencyLevel(consistencyLevel));
+                            if (caching) {
+                                for (Map.Entry<ByteBuffer, List<ColumnOrSuperColumn>> row : rows.entrySet()) {
+                                    keyspace.rowCache.put(columnFamily.getName(), row.getKey(), predicate, row.getValue(), cacheGeneration);
+                                }
+                            }
+                            return rows;
+                        }
+
+                        @Override
+                        public ByteBuffer getRowKey() {
+                            return keys.iterator().next();
+                        }
+                    }, retry);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(columnFamily.getName(), predicate, consistencyLevel, replicas, retryKey, caching);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof ThriftColumnFamilyQueryImpl.RowSliceBatch))
+                return false;
+            @SuppressWarnings("unchecked")
+            RowSliceBatch other = (RowSliceBatch) obj;
+            return columnFamily.getName().equals(other.columnFamily().getName())
+                && predicate.equals(other.predicate)
+                && consistencyLevel == other.consistencyLevel
+                && Objects.equal(replicas, other.replicas)
+                && retryKey.equals(other.retryKey)
+                && caching == other.caching;
+        }
+
+        private ColumnFamily<K, C> columnFamily() {
+            return columnFamily;
+        }
+    }
+
+    /**
+     * @return Value that is equal for retry policies of the same type and settings.  Policies whose settings are
+     *         not known are only equal to themselves.
+     */
+    private static Object retryKeyOf(RetryPolicy retry) {
+        Class<?> type = retry.getClass();
+        if (type == RunOnce.class || type == IndefiniteRetry.class)
+            return type;
+        if (type == RetryNTimes.class)
+            return Arrays.<Object>asList(type, ((RetryNTimes) retry).getMaxAttemptCount());
+        if (type == ConstantBackoff.class) {
+            ConstantBackoff backoff = (ConstantBackoff) retry;
+            return Arrays.<Object>asList(type, backoff.getMaxAttemptCount(), backoff.getSleepTimeMs());
+        }
+        if (type == ExponentialBackoff.class) {
+            ExponentialBackoff backoff = (ExponentialBackoff) retry;
+            return Arrays.<Object>asList(type, backoff.getMaxAttemptCount(), backoff.getBaseSleepTimeMs());
+        }
+        if (type == BoundedExponentialBackoff.class) {
+            BoundedExponentialBackoff backoff = (BoundedExponentialBackoff) retry;
+            return Arrays.<Object>asList(type, backoff.getMaxAttemptCount(), backoff.getBaseSleepTimeMs(),
+                    backoff.getMaxSleepTimeMs());
+        }
+        return retry;
+    }
+
+    /**
+     * Key identifying identical single row reads.  The slice predicate is copied since the query may
+     * be changed after it is executed.
+     */
+    private RowReadKey newRowReadKey(K rowKey, SlicePredicate predicate) {
+        return new RowReadKey(columnFamily.getName(), columnFamily.getKeySerializer().toByteBuffer(rowKey),
+                new SlicePredicate(predicate), consistencyLevel);
+    }
+
+    static final class RowReadKey {
+        private final String           columnFamilyName;
+        private final ByteBuffer       rowKey;
+        private final SlicePredicate   predicate;
+        private final ConsistencyLevel consistencyLevel;
+
+        RowReadKey(String columnFamilyName, ByteBuffer rowKey, SlicePredicate predicate, ConsistencyLevel consistencyLevel) {
+            this.columnFamilyName = columnFamilyName;
+            this.rowKey           = rowKey;
+            this.predicate        = predicate;
+            this.consistencyLevel = consistencyLevel;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(columnFamilyName, rowKey, predicate, consistencyLevel);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof RowReadKey))
+                return false;
+            RowReadKey other = (RowReadKey) obj;
+            return columnFamilyName.equals(other.columnFamilyName)
+                && rowKey.equals(other.rowKey)
+                && predicate.equals(other.predicate)
+                && consistencyLevel == other.consistencyLevel;
+        }
+    }
+
     @Override
     public RowQuery<K, C> getRow(K rowKey) {
         return getKey(rowKey);
@@ -740,7 +1345,7 @@ public class ThriftColumnFamilyQueryImpl<K, C> implements ColumnFamilyQuery<K, C
 
 	@Override
 	public ColumnFamilyQuery<K, C> withCaching(boolean condition) {
-		// do nothing
+		this.useCaching = condition;
 		return this;
 	}
 }
@@ -15,11 +15,15 @@
  ******************************************************************************/
 package com.netflix.astyanax.thrift;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +33,9 @@ import org.apache.cassandra.thrift.Cassandra.Client;
 import org.apache.cassandra.thrift.CfDef;
 import org.apache.cassandra.thrift.CounterColumn;
 import org.apache.cassandra.thrift.KsDef;
+import org.apache.cassandra.thrift.Mutation;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncMethodCall;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,9 +43,14 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.netflix.astyanax.AstyanaxConfiguration;
 import com.netflix.astyanax.CassandraOperationType;
 import com.netflix.astyanax.ColumnMutation;
@@ -51,6 +63,7 @@ import com.netflix.astyanax.WriteAheadEntry;
 import com.netflix.astyanax.WriteAheadLog;
 import com.netflix.astyanax.connectionpool.ConnectionContext;
 import com.netflix.astyanax.connectionpool.ConnectionPool;
+import com.netflix.astyanax.connectionpool.Deadline;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.Operation;
 import com.netflix.astyanax.connectionpool.OperationResult;
@@ -60,8 +73,11 @@ import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 import com.netflix.astyanax.connectionpool.exceptions.IsDeadConnectionException;
 import com.netflix.astyanax.connectionpool.exceptions.NotFoundException;
 import com.netflix.astyanax.connectionpool.exceptions.OperationException;
+import com.netflix.astyanax.connectionpool.exceptions.PartialMutationException;
 import com.netflix.astyanax.connectionpool.exceptions.SchemaDisagreementException;
+import com.netflix.astyanax.connectionpool.impl.AbstractHostPartitionConnectionPool;
 import com.netflix.astyanax.connectionpool.impl.OperationResultImpl;
+import com.netflix.astyanax.connectionpool.impl.ReplicaGrouper;
 import com.netflix.astyanax.connectionpool.impl.TokenRangeImpl;
 import com.netflix.astyanax.cql.CqlStatement;
 import com.netflix.astyanax.ddl.ColumnFamilyDefinition;
@@ -77,6 +93,8 @@ import com.netflix.astyanax.serializers.SerializerPackageImpl;
 import com.netflix.astyanax.serializers.UnknownComparatorException;
 import com.netflix.astyanax.thrift.ddl.ThriftColumnFamilyDefinitionImpl;
 import com.netflix.astyanax.thrift.ddl.ThriftKeyspaceDefinitionImpl;
+import com.netflix.astyanax.util.AutoBatcher;
+import com.netflix.astyanax.util.ExecutionCoalescer;
 
 /**
  * 
@@ -90,7 +108,7 @@ import com.netflix.astyanax.thrift.ddl.ThriftKeyspaceDefinitionImpl;
  * @author elandau
  *
  */
-public final class ThriftKeyspaceImpl implements Keyspace {
+public final class ThriftKeyspaceImpl implements Keyspace, Closeable {
     private final static Logger LOG = LoggerFactory.getLogger(ThriftKeyspaceImpl.class);
     
     final ConnectionPool<Cassandra.Client> connectionPool;
@@ -100,6 +118,10 @@ public final class ThriftKeyspaceImpl implements Keyspace {
     final KeyspaceTracerFactory tracerFactory;
     final Cache<String, Object> cache;
     final ThriftCqlFactory      cqlStatementFactory;
+    final ExecutionCoalescer<Object> readCoalescer = new ExecutionCoalescer<Object>();
+    final ThriftRowCache        rowCache;
+    final AutoBatcher           readBatcher;
+    final ThriftNonBlockingExecutor nonBlockingExecutor;
     private Host                  ddlHost = null;
     private volatile Partitioner  partitioner;
     
@@ -112,9 +134,32 @@ public final class ThriftKeyspaceImpl implements Keyspace {
         this.config         = config;
         this.ksName         = ksName;
         this.executor       = MoreExecutors.listeningDecorator(config.getAsyncExecutor());
-        this.tracerFactory  = tracerFactory;
+        this.tracerFactory  = OperationTypeTracerFactory.wrap(tracerFactory);
         this.cache          = CacheBuilder.newBuilder().expireAfterWrite(10, TimeUnit.MINUTES).build();
         this.cqlStatementFactory = ThriftCqlFactoryResolver.createFactory(config);
+        this.rowCache       = config.getRowCacheMaxSizeInBytes() > 0 ? new ThriftRowCache(config) : null;
+        this.readBatcher    = new AutoBatcher(config.getAutoBatchWindowMicros(), TimeUnit.MICROSECONDS, config.getAutoBatchMaxKeys());
+        this.nonBlockingExecutor = newNonBlockingExecutor(pool, config);
+    }
+
+    /**
+     * @return Executor for executeAsync or null if it is disabled or the pool does not provide the hosts
+     */
+    @SuppressWarnings("unchecked")
+    private static ThriftNonBlockingExecutor newNonBlockingExecutor(ConnectionPool<Cassandra.Client> pool, AstyanaxConfiguration config) {
+        if (config.getNonBlockingSelectorThreads() <= 0)
+            return null;
+        if (!(pool instanceof AbstractHostPartitionConnectionPool)) {
+            LOG.warn("Non-blocking execution requires a host partitioned connection pool, using the async executor");
+            return null;
+        }
+        try {
+            return new ThriftNonBlockingExecutor(config, (AbstractHostPartitionConnectionPool<Cassandra.Client>) pool);
+        }
+        catch (IOException e) {
+            LOG.warn("Failed to start non-blocking selector threads, using the async executor", e);
+            return null;
+        }
     }
 
     @Override
@@ -133,8 +178,12 @@ public final class ThriftKeyspaceImpl implements Keyspace {
                     walEntry = wal.createEntry();
                     walEntry.writeMutation(this);
                 }
+                final Deadline deadline = newDeadline();
+                // The mutation map is cleared once the mutation is sent
+                final Map<ByteBuffer, Map<String, List<Mutation>>> mutations = rowCache != null ? Maps.newHashMap(getMutationMap()) : null;
+                final List<List<ByteBuffer>> groups = scatter();
                 try {
-                    OperationResult<Void> result = executeOperation(
+                    OperationResult<Void> result = groups != null ? executeScatter(groups, deadline) : executeOperation(
                             new AbstractKeyspaceOperationImpl<Void>(
                                     tracerFactory.newTracer(useAtomicBatch() ? CassandraOperationType.ATOMIC_BATCH_MUTATE : CassandraOperationType.BATCH_MUTATE), 
                                                             getPinnedHost(),
@@ -161,6 +210,11 @@ public final class ThriftKeyspaceImpl implements Keyspace {
                                     else
                                         return null;
                                 }
+
+                                @Override
+                                public Deadline getDeadline() {
+                                    return deadline;
+                                }
                             }, getRetryPolicy());
 
                     if (walEntry != null) {
@@ -174,10 +228,21 @@ public final class ThriftKeyspaceImpl implements Keyspace {
                 catch (Exception exception) {
                     throw ThriftConverter.ToConnectionPoolException(exception);
                 }
+                finally {
+                    if (mutations != null)
+                        rowCache.invalidate(mutations);
+                }
             }
 
             @Override
             public ListenableFuture<OperationResult<Void>> executeAsync() throws ConnectionException {
+                List<List<ByteBuffer>> groups = scatter();
+                if (groups != null)
+                    return executeScatterAsync(groups);
+
+                if (nonBlockingExecutor != null && getWriteAheadLog() == null && getPinnedHost() == null)
+                    return executeNonBlocking();
+
                 return executor.submit(new Callable<OperationResult<Void>>() {
                     @Override
                     public OperationResult<Void> call() throws Exception {
@@ -186,9 +251,242 @@ public final class ThriftKeyspaceImpl implements Keyspace {
                 });
             }
 
+            private ListenableFuture<OperationResult<Void>> executeNonBlocking() {
+                final Map<ByteBuffer, Map<String, List<Mutation>>> mutations = getMutationMap();
+                final boolean atomic = useAtomicBatch();
+                final org.apache.cassandra.thrift.ConsistencyLevel cl = ThriftConverter.ToThriftConsistencyLevel(getConsistencyLevel());
+                final ListenableFuture<OperationResult<Void>> future = nonBlockingExecutor.execute(
+                        newAsyncBatchMutate(mutations, atomic, cl, newDeadline(), mutations.size() == 1));
+
+                // As with execute() the mutations are kept if the batch fails
+                future.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (rowCache != null)
+                            rowCache.invalidate(mutations);
+                        try {
+                            future.get();
+                            discardMutations();
+                        }
+                        catch (Exception e) {
+                            // The caller gets the failure from the future
+                        }
+                    }
+                }, MoreExecutors.directExecutor());
+                return future;
+            }
+
+            private AbstractAsyncOperationImpl<TAsyncMethodCall, Void> newAsyncBatchMutate(
+                    final Map<ByteBuffer, Map<String, List<Mutation>>> mutations, final boolean atomic,
+                    final org.apache.cassandra.thrift.ConsistencyLevel cl, final Deadline deadline, final boolean routeByRowKey) {
+                return new AbstractAsyncOperationImpl<TAsyncMethodCall, Void>(
+                        tracerFactory.newTracer(atomic ? CassandraOperationType.ATOMIC_BATCH_MUTATE : CassandraOperationType.BATCH_MUTATE),
+                        getKeyspaceName()) {
+                    @Override
+                    protected void start(Cassandra.AsyncClient client, AsyncMethodCallback<TAsyncMethodCall> callback) throws Exception {
+                        if (atomic) {
+                            client.atomic_batch_mutate(mutations, cl, callback);
+                        } else {
+                            client.batch_mutate(mutations, cl, callback);
+                        }
+                    }
+
+                    @Override
+                    protected Void getResult(TAsyncMethodCall call) throws Exception {
+                        if (call instanceof Cassandra.AsyncClient.atomic_batch_mutate_call) {
+                            ((Cassandra.AsyncClient.atomic_batch_mutate_call) call).getResult();
+                        } else {
+                            ((Cassandra.AsyncClient.batch_mutate_call) call).getResult();
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public ByteBuffer getRowKey() {
+                        if (routeByRowKey)
+                            return mutations.keySet().iterator().next();
+                        else
+                            return null;
+                    }
+
+                    @Override
+                    public Deadline getDeadline() {
+                        return deadline;
+                    }
+                };
+            }
+
+            /**
+             * @return Row keys grouped by the replicas that own them, if scattering, and split so that no group is
+             *         larger than the configured size, or null if the batch is sent whole
+             */
+            private List<List<ByteBuffer>> scatter() {
+                if (useAtomicBatch() || getPinnedHost() != null || getMutationMap().size() <= 1)
+                    return null;
+
+                boolean oversized = isOversized(config.getMutationBatchSplitBytes(), config.getMutationBatchSplitMutations());
+                List<List<ByteBuffer>> groups;
+                if (useTokenAwareScatter()) {
+                    groups = ReplicaGrouper.groupByReplicas(connectionPool.getTopology(),
+                            getMutationMap().keySet(), config.getScatterMaxKeys());
+                }
+                else if (oversized) {
+                    groups = Collections.<List<ByteBuffer>>singletonList(Lists.newArrayList(getMutationMap().keySet()));
+                }
+                else {
+                    return null;
+                }
+
+                if (oversized)
+                    groups = splitBySize(groups, config.getMutationBatchSplitBytes(), config.getMutationBatchSplitMutations());
+                return groups.size() > 1 ? groups : null;
+            }
+
+            /**
+             * Write each group of rows with its own batch_mutate, routed to the replicas of the rows and with
+             * its own retries.  The first group is written on the calling thread and the others on the async
+             * executor, or on the non-blocking connections.
+             */
+            private OperationResult<Void> executeScatter(List<List<ByteBuffer>> groups, Deadline deadline) throws ConnectionException {
+                List<ListenableFuture<OperationResult<Void>>> futures = Lists.newArrayList();
+                ListenableFutureTask<OperationResult<Void>> first = ListenableFutureTask.create(newSubBatch(groups.get(0), deadline));
+                futures.add(first);
+                for (int i = 1; i < groups.size(); i++) {
+                    futures.add(executeSubBatchAsync(groups.get(i), deadline));
+                }
+                first.run();
+                return gather(groups, futures);
+            }
+
+            private ListenableFuture<OperationResult<Void>> executeScatterAsync(final List<List<ByteBuffer>> groups) {
+                final WriteAheadLog wal = getWriteAheadLog();
+                final WriteAheadEntry walEntry;
+                try {
+                    walEntry = wal != null ? wal.createEntry() : null;
+                    if (walEntry != null)
+                        walEntry.writeMutation(this);
+                }
+                catch (ConnectionException e) {
+                    return Futures.immediateFailedFuture(e);
+                }
+
+                final Deadline deadline = newDeadline();
+                final Map<ByteBuffer, Map<String, List<Mutation>>> mutations = rowCache != null ? Maps.newHashMap(getMutationMap()) : null;
+                final List<ListenableFuture<OperationResult<Void>>> futures = Lists.newArrayList();
+                for (List<ByteBuffer> group : groups) {
+                    futures.add(executeSubBatchAsync(group, deadline));
+                }
+
+                final SettableFuture<OperationResult<Void>> future = SettableFuture.create();
+                Futures.successfulAsList(futures).addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mutations != null)
+                            rowCache.invalidate(mutations);
+                        try {
+                            OperationResult<Void> result = gather(groups, futures);
+                            if (walEntry != null)
+                                wal.removeEntry(walEntry);
+                            future.set(result);
+                        }
+                        catch (ConnectionException e) {
+                            future.setException(e);
+                        }
+                    }
+                }, MoreExecutors.directExecutor());
+                return future;
+            }
+
+            private ListenableFuture<OperationResult<Void>> executeSubBatchAsync(List<ByteBuffer> rowKeys, Deadline deadline) {
+                if (nonBlockingExecutor != null) {
+                    return nonBlockingExecutor.execute(newAsyncBatchMutate(subBatch(rowKeys), false,
+                            ThriftConverter.ToThriftConsistencyLevel(getConsistencyLevel()), deadline, true));
+                }
+                return executor.submit(newSubBatch(rowKeys, deadline));
+            }
+
+            private Callable<OperationResult<Void>> newSubBatch(List<ByteBuffer> rowKeys, final Deadline deadline) {
+                final Map<ByteBuffer, Map<String, List<Mutation>>> rows = subBatch(rowKeys);
+                final org.apache.cassandra.thrift.ConsistencyLevel cl = ThriftConverter.ToThriftConsistencyLevel(getConsistencyLevel());
+                final RetryPolicy retry = getRetryPolicy().duplicate();
+                return new Callable<OperationResult<Void>>() {
+                    @Override
+                    public OperationResult<Void> call() throws Exception {
+                        return executeOperation(
+                                new AbstractKeyspaceOperationImpl<Void>(tracerFactory.newTracer(CassandraOperationType.BATCH_MUTATE), getKeyspaceName()) {
+                                    @Override
+                                    public Void internalExecute(Client client, ConnectionContext context) throws Exception {
+                                        client.batch_mutate(rows, cl);
+                                        return null;
+                                    }
+
+                                    @Override
+                                    public ByteBuffer getRowKey() {
+                                        return rows.keySet().iterator().next();
+                                    }
+
+                                    @Override
+                                    public Deadline getDeadline() {
+                                        return deadline;
+                                    }
+                                }, retry);
+                    }
+                };
+            }
+
+            private Map<ByteBuffer, Map<String, List<Mutation>>> subBatch(List<ByteBuffer> rowKeys) {
+                Map<ByteBuffer, Map<String, List<Mutation>>> rows = Maps.newLinkedHashMap();
+                for (ByteBuffer rowKey : rowKeys) {
+                    rows.put(rowKey, getMutationMap().get(rowKey));
+                }
+                return rows;
+            }
+
+            /**
+             * Wait for all the sub-batches and discard the rows that were written.  The result reports the
+             * latency of the slowest sub-batch and the total number of attempts.
+             */
+            private OperationResult<Void> gather(List<List<ByteBuffer>> groups, List<ListenableFuture<OperationResult<Void>>> futures) throws ConnectionException {
+                Map<ByteBuffer, ConnectionException> failedRows = Maps.newLinkedHashMap();
+                Set<ByteBuffer> succeededRows = Sets.newLinkedHashSet();
+                List<OperationResult<Void>> results = Lists.newArrayList();
+                ConnectionException firstFailure = null;
+                for (int i = 0; i < groups.size(); i++) {
+                    try {
+                        results.add(Uninterruptibles.getUninterruptibly(futures.get(i)));
+                        succeededRows.addAll(groups.get(i));
+                    }
+                    catch (ExecutionException e) {
+                        ConnectionException failure = ThriftConverter.ToConnectionPoolException(e.getCause());
+                        if (firstFailure == null)
+                            firstFailure = failure;
+                        for (ByteBuffer rowKey : groups.get(i)) {
+                            failedRows.put(rowKey, failure);
+                        }
+                    }
+                }
+
+                discardMutations(succeededRows);
+                if (firstFailure != null) {
+                    if (succeededRows.isEmpty())
+                        throw firstFailure;
+                    throw new PartialMutationException(failedRows, succeededRows, results, firstFailure);
+                }
+
+                long latency  = 0;
+                int  attempts = 0;
+                for (OperationResult<Void> result : results) {
+                    latency   = Math.max(latency, result.getLatency());
+                    attempts += result.getAttemptsCount();
+                }
+                OperationResult<Void> result = new OperationResultImpl<Void>(results.get(0).getHost(), null, latency);
+                result.setAttemptsCount(attempts);
+                return result;
+            }
+
 			@Override
 			public MutationBatch withCaching(boolean condition) {
-				// This is a no-op when using Thrift
+				// This is a no-op when using Thrift.  Rows cached by queries are always invalidated by the batch.
 				return this;
 			}
         };
@@ -216,6 +514,8 @@ public final class ThriftKeyspaceImpl implements Keyspace {
 
                         for (org.apache.cassandra.thrift.TokenRange tr : trs) {
                             List<String> endpoints = Lists.newArrayList();
+                            Map<String, String> datacenters = Maps.newHashMap();
+                            Map<String, String> racks = Maps.newHashMap();
                             for (org.apache.cassandra.thrift.EndpointDetails ed : tr.getEndpoint_details()) {
                                 if (dc != null && !ed.getDatacenter().equals(dc)) {
                                     continue;
@@ -225,11 +525,15 @@ public final class ThriftKeyspaceImpl implements Keyspace {
                                 }
                                 else {
                                     endpoints.add(ed.getHost());
+                                    if (ed.getDatacenter() != null)
+                                        datacenters.put(ed.getHost(), ed.getDatacenter());
+                                    if (ed.getRack() != null)
+                                        racks.put(ed.getHost(), ed.getRack());
                                 }
                             }
 
                             if (!endpoints.isEmpty()) {
-                                range.add(new TokenRangeImpl(tr.getStart_token(), tr.getEnd_token(), endpoints));
+                                range.add(new TokenRangeImpl(tr.getStart_token(), tr.getEnd_token(), endpoints, datacenters, racks));
                             }
                         }
                         return range;
@@ -310,7 +614,7 @@ public final class ThriftKeyspaceImpl implements Keyspace {
                 return new Execution<Void>() {
                     @Override
                     public OperationResult<Void> execute() throws ConnectionException {
-                        return executeOperation(
+                        return executeRowMutation(columnFamily.getName(), key,
                                 new AbstractKeyspaceOperationImpl<Void>(
                                         tracerFactory.newTracer(CassandraOperationType.COUNTER_MUTATE),
                                         getKeyspaceName()) {
@@ -347,7 +651,7 @@ public final class ThriftKeyspaceImpl implements Keyspace {
                 return new Execution<Void>() {
                     @Override
                     public OperationResult<Void> execute() throws ConnectionException {
-                        return executeOperation(
+                        return executeRowMutation(columnFamily.getName(), key,
                                 new AbstractKeyspaceOperationImpl<Void>(
                                         tracerFactory.newTracer(CassandraOperationType.COLUMN_DELETE),
                                         getKeyspaceName()) {
@@ -384,7 +688,7 @@ public final class ThriftKeyspaceImpl implements Keyspace {
                 return new Execution<Void>() {
                     @Override
                     public OperationResult<Void> execute() throws ConnectionException {
-                        return executeOperation(
+                        return executeRowMutation(columnFamily.getName(), key,
                                 new AbstractKeyspaceOperationImpl<Void>(
                                         tracerFactory.newTracer(CassandraOperationType.COLUMN_INSERT),
                                         getKeyspaceName()) {
@@ -425,7 +729,7 @@ public final class ThriftKeyspaceImpl implements Keyspace {
                 return new Execution<Void>() {
                     @Override
                     public OperationResult<Void> execute() throws ConnectionException {
-                        return executeOperation(
+                        return executeRowMutation(columnFamily.getName(), key,
                                 new AbstractKeyspaceOperationImpl<Void>(
                                         tracerFactory.newTracer(CassandraOperationType.COLUMN_DELETE),
                                         getKeyspaceName()) {
@@ -493,6 +797,47 @@ public final class ThriftKeyspaceImpl implements Keyspace {
         return connectionPool;
     }
 
+    /**
+     * @return Coalescer shared by the row reads of this keyspace that enabled
+     *         {@link ColumnFamilyQuery#withReadCoalescing(boolean)}, with counts of executed and coalesced reads
+     */
+    public ExecutionCoalescer<Object> getReadCoalescer() {
+        return readCoalescer;
+    }
+
+    /**
+     * @return Executor of executeAsync on non-blocking connections, or null if executeAsync uses the async executor
+     */
+    public ThriftNonBlockingExecutor getNonBlockingExecutor() {
+        return nonBlockingExecutor;
+    }
+
+    /**
+     * Close the non-blocking connections and stop their selector threads.  The connection pool is shared by 
+     * the keyspaces of a cluster and is shut down by its owner, such as {@link com.netflix.astyanax.AstyanaxContext}.
+     */
+    @Override
+    public void close() {
+        if (nonBlockingExecutor != null)
+            nonBlockingExecutor.shutdown();
+    }
+
+    /**
+     * @return Cache of the rows read by queries with {@link ColumnFamilyQuery#withCaching(boolean)} enabled,
+     *         or null if the row cache is disabled
+     */
+    public ThriftRowCache getRowCache() {
+        return rowCache;
+    }
+
+    /**
+     * @return Batcher of the single row reads of queries with {@link ColumnFamilyQuery#withAutoBatching(boolean)}
+     *         enabled, with counts of batches and batched reads
+     */
+    public AutoBatcher getReadBatcher() {
+        return readBatcher;
+    }
+
     @Override
     public <K, C> OperationResult<Void> truncateColumnFamily(final ColumnFamily<K, C> columnFamily)
             throws OperationException, ConnectionException {
@@ -501,15 +846,21 @@ public final class ThriftKeyspaceImpl implements Keyspace {
 
     @Override
     public OperationResult<Void> truncateColumnFamily(final String columnFamily) throws ConnectionException {
-        return executeOperation(
-                new AbstractKeyspaceOperationImpl<Void>(tracerFactory.newTracer(CassandraOperationType.TRUNCATE),
-                        getKeyspaceName()) {
-                    @Override
-                    public Void internalExecute(Cassandra.Client client, ConnectionContext context) throws Exception {
-                        client.truncate(columnFamily);
-                        return null;
-                    }
-                }, config.getRetryPolicy().duplicate());
+        try {
+            return executeOperation(
+                    new AbstractKeyspaceOperationImpl<Void>(tracerFactory.newTracer(CassandraOperationType.TRUNCATE),
+                            getKeyspaceName()) {
+                        @Override
+                        public Void internalExecute(Cassandra.Client client, ConnectionContext context) throws Exception {
+                            client.truncate(columnFamily);
+                            return null;
+                        }
+                    }, config.getRetryPolicy().duplicate());
+        }
+        finally {
+            if (rowCache != null)
+                rowCache.invalidate(columnFamily);
+        }
     }
 
     private <R> OperationResult<R> executeOperation(Operation<Cassandra.Client, R> operation, RetryPolicy retry)
@@ -517,6 +868,20 @@ public final class ThriftKeyspaceImpl implements Keyspace {
         return connectionPool.executeWithFailover(operation, retry);
     }
 
+    /**
+     * Execute a mutation of a single row and invalidate the row in the row cache
+     */
+    private <R> OperationResult<R> executeRowMutation(String columnFamilyName, ByteBuffer rowKey,
+            Operation<Cassandra.Client, R> operation, RetryPolicy retry) throws OperationException, ConnectionException {
+        try {
+            return executeOperation(operation, retry);
+        }
+        finally {
+            if (rowCache != null)
+                rowCache.invalidate(columnFamilyName, rowKey);
+        }
+    }
+
         
     /**
      * Attempt to execute the DDL operation on the same host
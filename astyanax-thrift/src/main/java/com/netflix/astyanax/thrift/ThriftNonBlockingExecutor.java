@@ -0,0 +1,454 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.thrift;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.astyanax.AstyanaxConfiguration;
+import com.netflix.astyanax.connectionpool.ConnectionContext;
+import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
+import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.Deadline;
+import com.netflix.astyanax.connectionpool.Host;
+import com.netflix.astyanax.connectionpool.HostConnectionPool;
+import com.netflix.astyanax.connectionpool.Operation;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.DeadlineExceededException;
+import com.netflix.astyanax.connectionpool.exceptions.HostDownException;
+import com.netflix.astyanax.connectionpool.exceptions.IsRetryableException;
+import com.netflix.astyanax.connectionpool.exceptions.IsTimeoutException;
+import com.netflix.astyanax.connectionpool.exceptions.OperationException;
+import com.netflix.astyanax.connectionpool.impl.AbstractExecuteWithFailoverImpl;
+import com.netflix.astyanax.connectionpool.impl.AbstractHostPartitionConnectionPool;
+import com.netflix.astyanax.connectionpool.impl.OperationResultImpl;
+
+/**
+ * Executes operations on non-blocking thrift connections so that many operations can be in flight without a
+ * thread waiting on each.  Calls are written and their responses read by a few selector threads, which also
+ * complete the returned futures.  Listeners added to those futures with a same thread executor therefore run on
+ * a selector thread and must not block. <br/> <br/>
+ *
+ * Hosts are selected by the keyspace's connection pool as for blocking operations, so the configured
+ * {@link ConnectionPoolConfiguration#getHostSelectorStrategy()} and the tiers of the token aware pool apply, and
+ * operations that fail with a retryable error fail over as often as the pool would, withdrawing from the retry budget.
+ * The {@link com.netflix.astyanax.retry.RetryPolicy} is not applied since its backoff would block a selector thread.
+ * Each call reserves a slot of the host's concurrency limit when it starts and reports its latency and outcome to 
+ * the host's pool, as a borrowed connection would. <br/> <br/>
+ *
+ * The connections are not borrowed from the {@link HostConnectionPool}.  Each connection has one call in flight, 
+ * and a host gets another connection whenever all of its connections are busy, up to 
+ * {@link ConnectionPoolConfiguration#getMaxConnsPerHost()}.  After that operations queue on the connection with the 
+ * fewest pending, at most {@link ConnectionPoolConfiguration#getMaxBlockedThreadsPerHost()} of them per host, and
+ * fail over with a {@link com.netflix.astyanax.connectionpool.exceptions.PoolTimeoutException} if the queue is full 
+ * or they have waited {@link ConnectionPoolConfiguration#getMaxTimeoutWhenExhausted()}.
+ *
+ * @see AstyanaxConfiguration#getNonBlockingSelectorThreads()
+ */
+public class ThriftNonBlockingExecutor {
+    private final static int MAX_EXPIRE_INTERVAL = 100;
+
+    private final AbstractHostPartitionConnectionPool<Cassandra.Client> pool;
+    private final ConnectionPoolConfiguration                           cpConfig;
+    private final ConnectionPoolMonitor                                 monitor;
+    private final int                                                   maxConnsPerHost;
+    private final int                                                   maxQueuedPerHost;
+    private final TAsyncClientManager[]                                 managers;
+    private final AtomicInteger                                         managerIndex = new AtomicInteger();
+    private final NonBlockingHashMap<Host, HostChannels>                channels     = new NonBlockingHashMap<Host, HostChannels>();
+    private final ScheduledExecutorService                              expirer;
+
+    public ThriftNonBlockingExecutor(AstyanaxConfiguration asConfig, AbstractHostPartitionConnectionPool<Cassandra.Client> pool) 
+            throws IOException {
+        this.pool             = pool;
+        this.cpConfig         = pool.getConnectionPoolConfiguration();
+        this.monitor          = pool.getConnectionPoolMonitor();
+        this.maxConnsPerHost  = Math.max(1, cpConfig.getMaxConnsPerHost());
+        this.maxQueuedPerHost = cpConfig.getMaxTimeoutWhenExhausted() > 0 ? cpConfig.getMaxBlockedThreadsPerHost() : 0;
+        this.managers         = new TAsyncClientManager[Math.max(1, asConfig.getNonBlockingSelectorThreads())];
+        try {
+            for (int i = 0; i < managers.length; i++) {
+                managers[i] = new TAsyncClientManager();
+            }
+        }
+        catch (IOException e) {
+            shutdown();
+            throw e;
+        }
+
+        if (maxQueuedPerHost > 0) {
+            int interval = Math.max(1, Math.min(MAX_EXPIRE_INTERVAL, cpConfig.getMaxTimeoutWhenExhausted() / 4));
+            expirer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("ThriftNonBlockingExecutor-%d").build());
+            expirer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    long now = System.nanoTime();
+                    for (HostChannels hostChannels : channels.values()) {
+                        hostChannels.expire(now);
+                    }
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        else {
+            expirer = null;
+        }
+    }
+
+    /**
+     * Execute the operation on a non-blocking connection
+     *
+     * @return Future that a selector thread completes with the result or with the {@link ConnectionException}
+     */
+    public <C, R> ListenableFuture<OperationResult<R>> execute(AbstractAsyncOperationImpl<C, R> operation) {
+        SettableFuture<OperationResult<R>> future = SettableFuture.create();
+        try {
+            AbstractExecuteWithFailoverImpl<Cassandra.Client, R> selector = pool.newHostSelector(new HostSelection<R>(operation));
+            new Execution<C, R>(operation, future, selector).next();
+        }
+        catch (ConnectionException e) {
+            // Already reported by the pool
+            future.setException(e);
+        }
+        return future;
+    }
+
+    /**
+     * Close all connections and stop the selector threads
+     */
+    public void shutdown() {
+        if (expirer != null)
+            expirer.shutdownNow();
+        for (Host host : Lists.newArrayList(channels.keySet())) {
+            closeChannels(host);
+        }
+        for (TAsyncClientManager manager : managers) {
+            if (manager != null)
+                manager.stop();
+        }
+    }
+
+    /**
+     * @return Number of open or idle connections to all hosts
+     */
+    int getChannelCount() {
+        int count = 0;
+        for (HostChannels hostChannels : channels.values()) {
+            count += hostChannels.channels.length;
+        }
+        return count;
+    }
+
+    private HostChannels getChannels(Host host) {
+        HostChannels hostChannels = channels.get(host);
+        if (hostChannels == null) {
+            hostChannels = new HostChannels(host);
+            HostChannels existing = channels.putIfAbsent(host, hostChannels);
+            if (existing != null) {
+                hostChannels = existing;
+            }
+            else {
+                closeRemovedHosts();
+            }
+        }
+        return hostChannels;
+    }
+
+    /**
+     * Close the channels of hosts that are no longer in the pool.  Checked whenever a host is first used, which
+     * is when the set of hosts has changed.
+     */
+    private void closeRemovedHosts() {
+        for (Entry<Host, HostChannels> entry : channels.entrySet()) {
+            if (!pool.hasHost(entry.getKey()))
+                closeChannels(entry.getKey());
+        }
+    }
+
+    private void closeChannels(Host host) {
+        HostChannels hostChannels = channels.remove(host);
+        if (hostChannels != null) {
+            hostChannels.close();
+        }
+    }
+
+    /**
+     * Channels of one host.  A channel is opened whenever all of them are busy, until the host has 
+     * maxConnsPerHost, and after that requests queue on the channel with the fewest pending.
+     */
+    private class HostChannels {
+        private final Host          host;
+        private final AtomicInteger queued = new AtomicInteger();
+        private volatile ThriftAsyncChannel[] channels = new ThriftAsyncChannel[0];
+
+        // Guarded by this
+        private boolean closed = false;
+
+        HostChannels(Host host) {
+            this.host = host;
+        }
+
+        void submit(ThriftAsyncChannel.Request request) {
+            ThriftAsyncChannel channel = select();
+            if (channel == null) {
+                request.onError(new HostDownException("Channels to " + host + " are closed").setHost(host));
+                return;
+            }
+            channel.submit(request, maxQueuedPerHost);
+        }
+
+        /**
+         * @return An idle channel, a new one, or the one with the fewest pending.  Null if closed.
+         */
+        private ThriftAsyncChannel select() {
+            while (true) {
+                ThriftAsyncChannel[] current = channels;
+                ThriftAsyncChannel best = null;
+                for (ThriftAsyncChannel channel : current) {
+                    if (channel.getPendingCount() == 0)
+                        return channel;
+                    if (best == null || channel.getPendingCount() < best.getPendingCount())
+                        best = channel;
+                }
+                if (current.length >= maxConnsPerHost)
+                    return best;
+
+                synchronized (this) {
+                    if (closed)
+                        return best;
+                    if (channels == current) {
+                        TAsyncClientManager manager = managers[(managerIndex.getAndIncrement() & Integer.MAX_VALUE) % managers.length];
+                        ThriftAsyncChannel channel = new ThriftAsyncChannel(host, manager, cpConfig, queued);
+                        ThriftAsyncChannel[] grown = Arrays.copyOf(current, current.length + 1);
+                        grown[current.length] = channel;
+                        channels = grown;
+                        return channel;
+                    }
+                }
+            }
+        }
+
+        void expire(long now) {
+            for (ThriftAsyncChannel channel : channels) {
+                channel.expire(now);
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+            }
+            for (ThriftAsyncChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Operation that only carries what the pool needs to select hosts for an asynchronous operation.  Hosts are
+     * taken with {@link AbstractExecuteWithFailoverImpl#nextHostConnectionPool()}, which never executes it.
+     */
+    private static class HostSelection<R> implements Operation<Cassandra.Client, R> {
+        private final AbstractAsyncOperationImpl<?, R> operation;
+
+        HostSelection(AbstractAsyncOperationImpl<?, R> operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public R execute(Cassandra.Client client, ConnectionContext state) throws ConnectionException {
+            throw new OperationException("Asynchronous operations are executed on non-blocking connections");
+        }
+
+        @Override
+        public ByteBuffer getRowKey() {
+            return operation.getRowKey();
+        }
+
+        @Override
+        public String getKeyspace() {
+            return operation.getKeyspace();
+        }
+
+        @Override
+        public Host getPinnedHost() {
+            return null;
+        }
+    }
+
+    /**
+     * Attempts of one operation.  Each attempt is queued on a channel, which calls back on a selector thread.
+     */
+    private class Execution<C, R> extends ThriftAsyncChannel.Request {
+        private final AbstractAsyncOperationImpl<C, R>                     operation;
+        private final SettableFuture<OperationResult<R>>                   future;
+        private final AbstractExecuteWithFailoverImpl<Cassandra.Client, R> selector;
+        private final Deadline                                             deadline;
+        private final long                                                 poolStartTime = System.nanoTime();
+        private int                                                        attemptCount  = 0;
+        private HostConnectionPool<Cassandra.Client>                       currentPool;
+        private boolean                                                    acquired;
+        private long                                                       queueDeadline;
+        private long                                                       startTime;
+        private int                                                        timeout;
+
+        Execution(AbstractAsyncOperationImpl<C, R> operation, SettableFuture<OperationResult<R>> future,
+                AbstractExecuteWithFailoverImpl<Cassandra.Client, R> selector) {
+            this.operation = operation;
+            this.future    = future;
+            this.selector  = selector;
+            this.deadline  = operation.getDeadline();
+        }
+
+        void next() {
+            if (deadline != null && deadline.isExpired()) {
+                fail(new DeadlineExceededException("Deadline passed before attempt " + (attemptCount + 1)));
+                return;
+            }
+            try {
+                currentPool = selector.nextHostConnectionPool();
+            }
+            catch (ConnectionException e) {
+                fail(e);
+                return;
+            }
+            attemptCount++;
+            acquired = false;
+            startTime = System.nanoTime();
+
+            int maxWait = cpConfig.getMaxTimeoutWhenExhausted();
+            if (deadline != null)
+                maxWait = deadline.boundTimeout(maxWait);
+            queueDeadline = startTime + TimeUnit.NANOSECONDS.convert(maxWait, TimeUnit.MILLISECONDS);
+            getChannels(currentPool.getHost()).submit(this);
+        }
+
+        @Override
+        String getKeyspace() {
+            return operation.getKeyspace();
+        }
+
+        @Override
+        int getTimeout() {
+            return timeout;
+        }
+
+        @Override
+        long getQueueDeadline() {
+            return queueDeadline;
+        }
+
+        @Override
+        void acquire() throws ConnectionException {
+            currentPool.acquireSlot();
+            acquired = true;
+            timeout = deadline != null ? deadline.boundTimeout(cpConfig.getSocketTimeout()) : cpConfig.getSocketTimeout();
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Override
+        void start(Cassandra.AsyncClient client, AsyncMethodCallback<Object> callback) throws Exception {
+            startTime = System.nanoTime();
+            operation.getTracer().start();
+            operation.start(client, (AsyncMethodCallback) callback);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void onComplete(Object call) {
+            R result;
+            try {
+                result = operation.getResult((C) call);
+            }
+            catch (Exception e) {
+                onError(e);
+                return;
+            }
+
+            long now = System.nanoTime();
+            long latency = now - startTime;
+            Host host = currentPool.getHost();
+            currentPool.addLatencySample(latency, now);
+            release(null);
+            monitor.incOperationSuccess(host, latency);
+            cpConfig.getRetryBudget().onSuccess();
+            operation.getTracer().success();
+
+            OperationResultImpl<R> operationResult = new OperationResultImpl<R>(host, result, latency);
+            operationResult.setAttemptsCount(attemptCount);
+            future.set(operationResult);
+        }
+
+        @Override
+        void onError(Exception e) {
+            long now = System.nanoTime();
+            Host host = currentPool.getHost();
+            ConnectionException ce = ThriftConverter.ToConnectionPoolException(e)
+                .setHost(host)
+                .setLatency(TimeUnit.MILLISECONDS.convert(now - startTime, TimeUnit.NANOSECONDS))
+                .setAttempt(attemptCount)
+                .setLatencyWithPool(TimeUnit.MILLISECONDS.convert(now - poolStartTime, TimeUnit.NANOSECONDS));
+
+            if (acquired && ce instanceof IsTimeoutException) {
+                currentPool.addLatencySample(TimeUnit.NANOSECONDS.convert(timeout, TimeUnit.MILLISECONDS), now);
+            }
+            release(ce);
+
+            if (ce instanceof IsRetryableException && (deadline == null || !deadline.isExpired()) && selector.canRetry()) {
+                if (cpConfig.getRetryBudget().tryAcquire()) {
+                    monitor.incFailover(host, ce);
+                    next();
+                    return;
+                }
+                monitor.incRetryBudgetExhausted(host);
+            }
+            fail(ce);
+        }
+
+        /**
+         * Release the slot of the current host if the attempt was started
+         */
+        private void release(ConnectionException ce) {
+            if (acquired) {
+                acquired = false;
+                currentPool.releaseSlot(ce);
+            }
+        }
+
+        private void fail(ConnectionException ce) {
+            Host host = currentPool != null ? currentPool.getHost() : null;
+            monitor.incOperationFailure(host, ce);
+            operation.getTracer().failure(ce);
+            future.setException(ce);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/**
+ * Copyright 2013 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.astyanax.thrift;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.CounterColumn;
+import org.apache.cassandra.thrift.Mutation;
+import org.apache.cassandra.thrift.SlicePredicate;
+import org.apache.thrift.TBaseHelper;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.astyanax.AstyanaxConfiguration;
+
+/**
+ * Client side cache of the row slices read by queries with caching enabled.  Slices are cached by column
+ * family, row key and slice predicate and grouped by row so that every cached slice of a row is invalidated
+ * at once. <br/> <br/>
+ *
+ * The cache is bounded by the estimated size in bytes of the cached columns and evicts the least recently
+ * used rows first.  A slice is served for the time to live of its column family after it was read. <br/> <br/>
+ *
+ * Mutations executed through the keyspace invalidate the rows they touch once they complete.  Reads of a
+ * column family that were in flight during an invalidation of that column family are not cached, so a read
+ * that raced with a mutation can't put back the data the mutation replaced.  Cached columns are copied out of
+ * the response they were read from, so that they don't keep the rest of the response alive.
+ *
+ * @see AstyanaxConfiguration#getRowCacheMaxSizeInBytes()
+ * @see AstyanaxConfiguration#getRowCacheTtlMillis(String)
+ */
+public class ThriftRowCache {
+    private static final int ROW_OVERHEAD    = 64;
+    private static final int SLICE_OVERHEAD  = 64;
+    private static final int COLUMN_OVERHEAD = 48;
+
+    /**
+     * Number of generations that column families are spread over.  Must be a power of two.
+     */
+    private static final int GENERATION_STRIPES = 64;
+
+    /**
+     * Column family and key of a cached row
+     */
+    static final class RowId {
+        private final String     columnFamilyName;
+        private final ByteBuffer rowKey;
+
+        RowId(String columnFamilyName, ByteBuffer rowKey) {
+            this.columnFamilyName = columnFamilyName;
+            this.rowKey           = rowKey;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * columnFamilyName.hashCode() + rowKey.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof RowId))
+                return false;
+            RowId other = (RowId) obj;
+            return columnFamilyName.equals(other.columnFamilyName) && rowKey.equals(other.rowKey);
+        }
+    }
+
+    /**
+     * Columns of one slice of a row and when they expire
+     */
+    static final class Slice {
+        private final List<ColumnOrSuperColumn> columns;
+        private final long                      expireAtNanos;
+        private final int                       size;
+
+        Slice(List<ColumnOrSuperColumn> columns, long expireAtNanos, int size) {
+            this.columns       = columns;
+            this.expireAtNanos = expireAtNanos;
+            this.size          = size;
+        }
+    }
+
+    /**
+     * Immutable set of the cached slices of a row.  Replaced whenever a slice is added or removed.
+     */
+    static final class Row {
+        private final Map<SlicePredicate, Slice> slices;
+        private final int                        size;
+
+        Row(Map<SlicePredicate, Slice> slices, int size) {
+            this.slices = slices;
+            this.size   = size;
+        }
+    }
+
+    private final AstyanaxConfiguration config;
+    private final Ticker                ticker;
+    private final Cache<RowId, Row>     rows;
+    private final AtomicLongArray       generations       = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLong            hitCount          = new AtomicLong();
+    private final AtomicLong            missCount         = new AtomicLong();
+    private final AtomicLong            evictionCount     = new AtomicLong();
+    private final AtomicLong            invalidationCount = new AtomicLong();
+
+    public ThriftRowCache(AstyanaxConfiguration config) {
+        this(config, Ticker.systemTicker());
+    }
+
+    ThriftRowCache(AstyanaxConfiguration config, Ticker ticker) {
+        this.config = config;
+        this.ticker = ticker;
+        this.rows   = CacheBuilder.newBuilder()
+                .maximumWeight(config.getRowCacheMaxSizeInBytes())
+                .weigher(new Weigher<RowId, Row>() {
+                    @Override
+                    public int weigh(RowId key, Row row) {
+                        return row.size;
+                    }
+                })
+                .removalListener(new RemovalListener<RowId, Row>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<RowId, Row> notification) {
+                        if (notification.wasEvicted())
+                            evictionCount.addAndGet(notification.getValue().slices.size());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * @return Columns of the cached slice or null if the slice is not cached or has expired
+     */
+    public List<ColumnOrSuperColumn> get(String columnFamilyName, ByteBuffer rowKey, SlicePredicate predicate) {
+        RowId id = new RowId(columnFamilyName, rowKey);
+        Row row = rows.getIfPresent(id);
+        Slice slice = row != null ? row.slices.get(predicate) : null;
+        if (slice == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (ticker.read() - slice.expireAtNanos >= 0) {
+            missCount.incrementAndGet();
+            if (remove(id, row, predicate))
+                evictionCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return slice.columns;
+    }
+
+    /**
+     * @return Generation to pass to {@link #put} for a read of the column family starting now
+     */
+    public long getGeneration(String columnFamilyName) {
+        return generations.get(stripeOf(columnFamilyName));
+    }
+
+    /**
+     * Cache a copy of the columns read for a slice unless rows of the column family were invalidated since
+     * the read started.
+     *
+     * @param generation    Value of {@link #getGeneration(String)} before the read was sent
+     */
+    public void put(String columnFamilyName, ByteBuffer rowKey, SlicePredicate predicate,
+            List<ColumnOrSuperColumn> columns, long generation) {
+        long ttlMillis = config.getRowCacheTtlMillis(columnFamilyName);
+        int  stripe    = stripeOf(columnFamilyName);
+        if (ttlMillis <= 0 || generation != generations.get(stripe))
+            return;
+
+        List<ColumnOrSuperColumn> copy = Lists.newArrayListWithCapacity(columns.size());
+        for (ColumnOrSuperColumn column : columns) {
+            copy.add(new ColumnOrSuperColumn(column));
+        }
+
+        RowId id    = new RowId(columnFamilyName, TBaseHelper.copyBinary(rowKey));
+        Slice slice = new Slice(copy, ticker.read() + TimeUnit.MILLISECONDS.toNanos(ttlMillis), sizeOf(predicate, copy));
+        SlicePredicate key = new SlicePredicate(predicate);
+
+        ConcurrentMap<RowId, Row> map = rows.asMap();
+        while (true) {
+            Row row = map.get(id);
+            if (row == null) {
+                if (map.putIfAbsent(id, new Row(ImmutableMap.of(key, slice), ROW_OVERHEAD + id.rowKey.remaining() + slice.size)) == null)
+                    break;
+            }
+            else {
+                ImmutableMap.Builder<SlicePredicate, Slice> slices = ImmutableMap.builder();
+                int size = ROW_OVERHEAD + id.rowKey.remaining() + slice.size;
+                for (Map.Entry<SlicePredicate, Slice> entry : row.slices.entrySet()) {
+                    if (!entry.getKey().equals(key)) {
+                        slices.put(entry);
+                        size += entry.getValue().size;
+                    }
+                }
+                slices.put(key, slice);
+                if (map.replace(id, row, new Row(slices.build(), size)))
+                    break;
+            }
+        }
+
+        // An invalidation that raced with the put may have missed it
+        if (generation != generations.get(stripe))
+            rows.invalidate(id);
+    }
+
+    private static int stripeOf(String columnFamilyName) {
+        int hash = columnFamilyName.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * Remove a single expired slice from a row
+     */
+    private boolean remove(RowId id, Row row, SlicePredicate predicate) {
+        if (row.slices.size() == 1)
+            return rows.asMap().remove(id, row);
+
+        ImmutableMap.Builder<SlicePredicate, Slice> slices = ImmutableMap.builder();
+        int size = ROW_OVERHEAD + id.rowKey.remaining();
+        for (Map.Entry<SlicePredicate, Slice> entry : row.slices.entrySet()) {
+            if (!entry.getKey().equals(predicate)) {
+                slices.put(entry);
+                size += entry.getValue().size;
+            }
+        }
+        return rows.asMap().replace(id, row, new Row(slices.build(), size));
+    }
+
+    /**
+     * Invalidate every cached slice of a row
+     */
+    public void invalidate(String columnFamilyName, ByteBuffer rowKey) {
+        generations.incrementAndGet(stripeOf(columnFamilyName));
+        invalidationCount.incrementAndGet();
+        rows.invalidate(new RowId(columnFamilyName, rowKey));
+    }
+
+    /**
+     * Invalidate every cached row of a column family
+     */
+    public void invalidate(String columnFamilyName) {
+        generations.incrementAndGet(stripeOf(columnFamilyName));
+        invalidationCount.incrementAndGet();
+        for (RowId id : rows.asMap().keySet()) {
+            if (id.columnFamilyName.equals(columnFamilyName))
+                rows.invalidate(id);
+        }
+    }
+
+    /**
+     * Invalidate every row touched by a mutation batch
+     */
+    public void invalidate(Map<ByteBuffer, Map<String, List<Mutation>>> mutationMap) {
+        Set<String> columnFamilyNames = Sets.newHashSet();
+        for (Map<String, List<Mutation>> row : mutationMap.values()) {
+            columnFamilyNames.addAll(row.keySet());
+        }
+        for (String columnFamilyName : columnFamilyNames) {
+            generations.incrementAndGet(stripeOf(columnFamilyName));
+        }
+        invalidationCount.incrementAndGet();
+        for (Map.Entry<ByteBuffer, Map<String, List<Mutation>>> row : mutationMap.entrySet()) {
+            for (String columnFamilyName : row.getValue().keySet()) {
+                rows.invalidate(new RowId(columnFamilyName, row.getKey()));
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        invalidationCount.incrementAndGet();
+        rows.invalidateAll();
+    }
+
+    /**
+     * @return Estimated size in bytes of a cached slice
+     */
+    static int sizeOf(SlicePredicate predicate, List<ColumnOrSuperColumn> columns) {
+        long size = SLICE_OVERHEAD;
+        if (predicate.isSetColumn_names()) {
+            for (ByteBuffer name : predicate.getColumn_names()) {
+                size += name.remaining();
+            }
+        }
+        else if (predicate.isSetSlice_range()) {
+            size += sizeOf(predicate.getSlice_range().bufferForStart()) + sizeOf(predicate.getSlice_range().bufferForFinish());
+        }
+
+        for (ColumnOrSuperColumn column : columns) {
+            if (column.isSetColumn()) {
+                size += sizeOf(column.getColumn());
+            }
+            else if (column.isSetCounter_column()) {
+                size += sizeOf(column.getCounter_column());
+            }
+            else if (column.isSetSuper_column()) {
+                size += COLUMN_OVERHEAD + column.getSuper_column().bufferForName().remaining();
+                for (Column subColumn : column.getSuper_column().getColumns()) {
+                    size += sizeOf(subColumn);
+                }
+            }
+            else if (column.isSetCounter_super_column()) {
+                size += COLUMN_OVERHEAD + column.getCounter_super_column().bufferForName().remaining();
+                for (CounterColumn subColumn : column.getCounter_super_column().getColumns()) {
+                    size += sizeOf(subColumn);
+                }
+            }
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    private static long sizeOf(Column column) {
+        return COLUMN_OVERHEAD + sizeOf(column.bufferForName()) + sizeOf(column.bufferForValue());
+    }
+
+    private static int sizeOf(ByteBuffer buffer) {
+        return buffer != null ? buffer.remaining() : 0;
+    }
+
+    private static long sizeOf(CounterColumn column) {
+        return COLUMN_OVERHEAD + column.bufferForName().remaining() + 8;
+    }
+
+    /**
+     * @return Number of reads served from the cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return Number of reads of slices that were not cached or had expired
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return Number of slices evicted to stay within the size bound or because they expired
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return Number of invalidations by mutations and truncation
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    /**
+     * @return Number of cached rows
+     */
+    public long getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append("ThriftRowCache[")
+            .append( "rows="         ).append(getRowCount())
+            .append(",hits="         ).append(getHitCount())
+            .append(",misses="       ).append(getMissCount())
+            .append(",evictions="    ).append(getEvictionCount())
+            .append(",invalidations=").append(getInvalidationCount())
+            .append("]").toString();
+    }
+}
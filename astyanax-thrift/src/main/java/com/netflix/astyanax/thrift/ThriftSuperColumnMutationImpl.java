@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.netflix.astyanax.thrift;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import com.netflix.astyanax.AbstractColumnListMutation;
@@ -40,11 +41,17 @@ public class ThriftSuperColumnMutationImpl<C> extends AbstractColumnListMutation
     private final ColumnPath<C> path;
     private SuperColumn superColumn;
     private SlicePredicate deletionPredicate;
+    private final MutationSizeEstimate size;
 
     public ThriftSuperColumnMutationImpl(long timestamp, List<Mutation> mutationList, ColumnPath<C> path) {
+        this(timestamp, mutationList, path, new MutationSizeEstimate());
+    }
+
+    public ThriftSuperColumnMutationImpl(long timestamp, List<Mutation> mutationList, ColumnPath<C> path, MutationSizeEstimate size) {
         super(timestamp);
         this.path = path;
         this.mutationList = mutationList;
+        this.size = size;
     }
 
     @Override
@@ -70,9 +77,11 @@ public class ThriftSuperColumnMutationImpl<C> extends AbstractColumnListMutation
             Mutation mutation = new Mutation();
             mutation.setColumn_or_supercolumn(new ColumnOrSuperColumn().setSuper_column(superColumn));
             mutationList.add(mutation);
+            size.addMutation(mutation);
         }
 
         superColumn.addToColumns(column);
+        size.addColumn(column);
     }
 
     @Override
@@ -95,7 +104,9 @@ public class ThriftSuperColumnMutationImpl<C> extends AbstractColumnListMutation
         Deletion d = new Deletion();
         d.setSuper_column(path.get(0));
         d.setTimestamp(timestamp);
-        mutationList.add(new Mutation().setDeletion(d));
+        Mutation mutation = new Mutation().setDeletion(d);
+        mutationList.add(mutation);
+        size.addMutation(mutation);
 
         timestamp++;
         return this;
@@ -120,10 +131,14 @@ public class ThriftSuperColumnMutationImpl<C> extends AbstractColumnListMutation
             d.setSuper_column(path.get(0));
             d.setPredicate(deletionPredicate);
 
-            mutationList.add(new Mutation().setDeletion(d));
+            Mutation mutation = new Mutation().setDeletion(d);
+            mutationList.add(mutation);
+            size.addMutation(mutation);
         }
 
-        deletionPredicate.addToColumn_names(path.getSerializer().toByteBuffer(columnName));
+        ByteBuffer name = path.getSerializer().toByteBuffer(columnName);
+        deletionPredicate.addToColumn_names(name);
+        size.addColumnName(name);
         return this;
     }
 
@@ -26,6 +26,7 @@ import com.netflix.astyanax.connectionpool.Connection;
 import com.netflix.astyanax.connectionpool.ConnectionFactory;
 import com.netflix.astyanax.connectionpool.ConnectionPoolConfiguration;
 import com.netflix.astyanax.connectionpool.ConnectionPoolMonitor;
+import com.netflix.astyanax.connectionpool.Deadline;
 import com.netflix.astyanax.connectionpool.Host;
 import com.netflix.astyanax.connectionpool.HostConnectionPool;
 import com.netflix.astyanax.connectionpool.Operation;
@@ -33,6 +34,7 @@ import com.netflix.astyanax.connectionpool.OperationResult;
 import com.netflix.astyanax.connectionpool.RateLimiter;
 import com.netflix.astyanax.connectionpool.SSLConnectionContext;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.connectionpool.exceptions.DeadlineExceededException;
 import com.netflix.astyanax.connectionpool.exceptions.IsTimeoutException;
 import com.netflix.astyanax.connectionpool.exceptions.ThrottledException;
 import com.netflix.astyanax.connectionpool.impl.OperationResultImpl;
@@ -42,6 +44,7 @@ import org.apache.cassandra.thrift.AuthenticationRequest;
 import org.apache.cassandra.thrift.Cassandra;
 import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TSSLTransportFactory;
 import org.apache.thrift.transport.TSSLTransportFactory.TSSLTransportParameters;
 import org.apache.thrift.transport.TSocket;
@@ -69,6 +72,8 @@ public class ThriftSyncConnectionFactoryImpl implements ConnectionFactory<Cassan
     private final KeyspaceTracerFactory tracerFactory;
     private final ConnectionPoolMonitor monitor;
     private final AstyanaxConfiguration asConfig;
+    private final AdaptiveSocketTimeouts timeouts;
+    private final FrameBufferPool frameBufferPool;
 
     public ThriftSyncConnectionFactoryImpl(AstyanaxConfiguration asConfig, ConnectionPoolConfiguration cpConfig, KeyspaceTracerFactory tracerFactory,
             ConnectionPoolMonitor monitor) {
@@ -77,6 +82,15 @@ public class ThriftSyncConnectionFactoryImpl implements ConnectionFactory<Cassan
         this.limiter = new SimpleRateLimiterImpl(cpConfig);
         this.tracerFactory = tracerFactory;
         this.monitor = monitor;
+        this.timeouts = new AdaptiveSocketTimeouts(cpConfig);
+        this.frameBufferPool = asConfig.getFrameBufferPoolSize() > 0 ? new FrameBufferPool(asConfig.getFrameBufferPoolSize()) : null;
+    }
+
+    /**
+     * @return Pool of the frame buffers of the connections, or null if they are not pooled
+     */
+    public FrameBufferPool getFrameBufferPool() {
+        return frameBufferPool;
     }
 
     @Override
@@ -92,7 +106,7 @@ public class ThriftSyncConnectionFactoryImpl implements ConnectionFactory<Cassan
     public class ThriftConnection implements Connection<Cassandra.Client> {
         private final long id = idCounter.incrementAndGet();
         private Cassandra.Client cassandraClient;
-        private TFramedTransport transport;
+        private TTransport transport;
         private TSocket socket;
         private int timeout = 0;
         private int maxThriftSize = 0;
@@ -115,7 +129,16 @@ public class ThriftSyncConnectionFactoryImpl implements ConnectionFactory<Cassan
         public <R> OperationResult<R> execute(Operation<Cassandra.Client, R> op) throws ConnectionException {
             long startTime = System.nanoTime();
             long latency = 0;
-            setTimeout(cpConfig.getSocketTimeout()); // In case the configurationchanged
+            Deadline deadline = Deadline.of(op);
+            if (deadline == null) {
+                setTimeout(cpConfig.getSocketTimeout()); // In case the configurationchanged
+            }
+            else if (deadline.isExpired()) {
+                throw new DeadlineExceededException("Deadline passed before execution").setHost(getHost());
+            }
+            else {
+                setTimeout(deadline.boundTimeout(cpConfig.getSocketTimeout()));
+            }
             operationCounter.incrementAndGet();
 
             // Set a new keyspace, if it changed
@@ -138,7 +161,7 @@ public class ThriftSyncConnectionFactoryImpl implements ConnectionFactory<Cassan
                     latency = now - startTime;
                     lastException = ThriftConverter.ToConnectionPoolException(e).setLatency(latency);
                     if (e instanceof IsTimeoutException) {
-                        pool.addLatencySample(TimeUnit.NANOSECONDS.convert(cpConfig.getSocketTimeout(), TimeUnit.MILLISECONDS), now);
+                        pool.addLatencySample(TimeUnit.NANOSECONDS.convert(timeout, TimeUnit.MILLISECONDS), now);
                     }
                     tracer.failure(lastException);
                     throw lastException;
@@ -148,12 +171,22 @@ public class ThriftSyncConnectionFactoryImpl implements ConnectionFactory<Cassan
                                                // latency calculation
             }
 
+            // Use a timeout derived from the latencies of this type of operation on the host
+            CassandraOperationType type = null;
+            if (timeouts.isEnabled() && op instanceof AbstractOperationImpl) {
+                type = ((AbstractOperationImpl<R>) op).getOperationType();
+                int socketTimeout = timeouts.getTimeout(getHost(), type);
+                setTimeout(deadline == null ? socketTimeout : deadline.boundTimeout(socketTimeout));
+            }
+
             // Execute the operation
             try {
                 R result = op.execute(cassandraClient, this);
+                releaseFrameBuffers();
                 long now = System.nanoTime();
                 latency = now - startTime;
                 pool.addLatencySample(latency, now);
+                timeouts.addSample(getHost(), type, latency, TimeUnit.NANOSECONDS);
                 return new OperationResultImpl<R>(getHost(), result, latency);
             }
             catch (Exception e) {
@@ -161,7 +194,8 @@ public class ThriftSyncConnectionFactoryImpl implements ConnectionFactory<Cassan
                 latency = now - startTime;
                 lastException = ThriftConverter.ToConnectionPoolException(e).setLatency(latency);
                 if (e instanceof IsTimeoutException) {
-                    pool.addLatencySample(TimeUnit.NANOSECONDS.convert(cpConfig.getSocketTimeout(), TimeUnit.MILLISECONDS), now);
+                    pool.addLatencySample(TimeUnit.NANOSECONDS.convert(timeout, TimeUnit.MILLISECONDS), now);
+                    timeouts.addSample(getHost(), type, timeout, TimeUnit.MILLISECONDS);
                 }
                 throw lastException;
             }
@@ -190,12 +224,21 @@ public class ThriftSyncConnectionFactoryImpl implements ConnectionFactory<Cassan
                 socket.getSocket().setSoLinger(false, 0);
 
                 setTimeout(cpConfig.getSocketTimeout());
-                transport = new TFramedTransport(socket, maxThriftSize);
-                if(!transport.isOpen())
-                    transport.open();
-
-                cassandraClient = new Cassandra.Client(new TBinaryProtocol.Factory().getProtocol(transport));
+                if (frameBufferPool != null) {
+                    PooledFramedTransport pooledTransport = new PooledFramedTransport(socket, frameBufferPool, maxThriftSize);
+                    transport = pooledTransport;
+                    if(!transport.isOpen())
+                        transport.open();
+                    cassandraClient = new Cassandra.Client(new PooledFramedTransport.Protocol(pooledTransport));
+                }
+                else {
+                    transport = new TFramedTransport(socket, maxThriftSize);
+                    if(!transport.isOpen())
+                        transport.open();
+                    cassandraClient = new Cassandra.Client(new TBinaryProtocol.Factory().getProtocol(transport));
+                }
                 monitor.incConnectionCreated(getHost());
+                monitor.incConnectionCreateLatency(getHost(), System.currentTimeMillis() - startTime);
 
                 AuthenticationCredentials credentials = cpConfig.getAuthenticationCredentials();
                 if (credentials != null) {
@@ -224,6 +267,28 @@ public class ThriftSyncConnectionFactoryImpl implements ConnectionFactory<Cassan
             }
         }
 
+        @Override
+        public void probe() throws ConnectionException {
+            setTimeout(cpConfig.getSocketTimeout());
+            lastException = null;
+            try {
+                cassandraClient.describe_version();
+                releaseFrameBuffers();
+            }
+            catch (Exception e) {
+                lastException = ThriftConverter.ToConnectionPoolException(e);
+                throw lastException;
+            }
+        }
+
+        /**
+         * Drop the frame of the last response once the operation has decoded it
+         */
+        private void releaseFrameBuffers() {
+            if (transport instanceof PooledFramedTransport)
+                ((PooledFramedTransport) transport).releaseBuffers();
+        }
+
         @Override
         public void openAsync(final AsyncOpenCallback<Cassandra.Client> callback) {
             final Connection<Cassandra.Client> This = this;
@@ -41,7 +41,7 @@ import com.netflix.astyanax.model.Column;
  */
 public class ThriftColumnOrSuperColumnListImpl<C> extends AbstractColumnList<C> {
     private final List<ColumnOrSuperColumn> columns;
-    private Map<C, ColumnOrSuperColumn> lookup;
+    private volatile Map<C, ColumnOrSuperColumn> lookup;
     private final Serializer<C> colSer;
 
     public ThriftColumnOrSuperColumnListImpl(List<ColumnOrSuperColumn> columns, Serializer<C> colSer) {
@@ -186,11 +186,15 @@ public class ThriftColumnOrSuperColumnListImpl<C> extends AbstractColumnList<C>
     }
 
     private ColumnOrSuperColumn getColumn(C columnName) {
-        constructMap();
-        return lookup.get(columnName);
+        return constructMap().get(columnName);
     }
     
-    private void constructMap() {
+    /**
+     * The map is only published once complete so that a list shared by coalesced reads may be used 
+     * from several threads
+     */
+    private Map<C, ColumnOrSuperColumn> constructMap() {
+        Map<C, ColumnOrSuperColumn> lookup = this.lookup;
         if (lookup == null) {
             lookup = Maps.newHashMap();
             for (ColumnOrSuperColumn column : columns) {
@@ -210,12 +214,13 @@ public class ThriftColumnOrSuperColumnListImpl<C> extends AbstractColumnList<C>
                     throw new UnsupportedOperationException("Unknown column type");
                 }
             }
+            this.lookup = lookup;
         }
+        return lookup;
     }
 
     @Override
     public Collection<C> getColumnNames() {
-        constructMap();
-        return lookup.keySet();
+        return constructMap().keySet();
     }
 }